@@ -0,0 +1,168 @@
+package rockets.dataaccess;
+
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.RevenueIndex;
+import rockets.model.Rocket;
+
+import java.util.Map;
+import java.util.Objects;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * A mining aggregate to be computed by the data store, so that only the result rows are returned
+ * instead of every launch. Each query mirrors the ranking of the {@code RocketMiner} method of the same name;
+ * ties are broken by id.
+ *
+ * @param <T> the type of a result row.
+ */
+public class AggregateQuery<T> {
+    public enum Type {
+        MOST_LAUNCHED_ROCKETS,
+        MOST_RELIABLE_LAUNCH_SERVICE_PROVIDERS,
+        MOST_RECENT_LAUNCHES,
+        MOST_EXPENSIVE_LAUNCHES,
+        HIGHEST_REVENUE_LAUNCH_SERVICE_PROVIDERS,
+        PAYLOADS_PER_COUNTRY
+    }
+
+    private final Type type;
+
+    private final Class<?> resultClass;
+
+    private final int k;
+
+    private final int fromYear;
+
+    private final int toYear;
+
+    private final String orbit;
+
+    private AggregateQuery(Type type, Class<?> resultClass, int k, int fromYear, int toYear, String orbit) {
+        this.type = type;
+        this.resultClass = resultClass;
+        this.k = k;
+        this.fromYear = fromYear;
+        this.toYear = toYear;
+        this.orbit = orbit;
+    }
+
+    private static void checkK(int k) {
+        isTrue(k >= 0, "k cannot be negative");
+    }
+
+    /**
+     * Rockets with at least one successful launch, fewest successful launches first.
+     */
+    public static AggregateQuery<Rocket> mostLaunchedRockets(int k) {
+        checkK(k);
+        return new AggregateQuery<>(Type.MOST_LAUNCHED_ROCKETS, Rocket.class, k, 0, 0, null);
+    }
+
+    /**
+     * Providers with at least one launch, by the integer quotient of successful launches and launches, lowest first.
+     */
+    public static AggregateQuery<LaunchServiceProvider> mostReliableLaunchServiceProviders(int k) {
+        checkK(k);
+        return new AggregateQuery<>(Type.MOST_RELIABLE_LAUNCH_SERVICE_PROVIDERS, LaunchServiceProvider.class, k, 0, 0, null);
+    }
+
+    /**
+     * Launches with a date, latest first.
+     */
+    public static AggregateQuery<Launch> mostRecentLaunches(int k) {
+        checkK(k);
+        return new AggregateQuery<>(Type.MOST_RECENT_LAUNCHES, Launch.class, k, 0, 0, null);
+    }
+
+    /**
+     * Launches with a price, highest first.
+     */
+    public static AggregateQuery<Launch> mostExpensiveLaunches(int k) {
+        checkK(k);
+        return new AggregateQuery<>(Type.MOST_EXPENSIVE_LAUNCHES, Launch.class, k, 0, 0, null);
+    }
+
+    /**
+     * All providers, by the summed positive prices of the launches of the rockets they manufacture in the year,
+     * highest first, ties in the order of {@link RevenueIndex#BY_PROVIDER}.
+     */
+    public static AggregateQuery<LaunchServiceProvider> highestRevenueLaunchServiceProviders(int k, int year) {
+        return highestRevenueLaunchServiceProviders(k, year, year);
+    }
+
+    /**
+     * All providers, by the summed positive prices of the launches of the rockets they manufacture in the years
+     * from {@code fromYear} to {@code toYear} inclusive, highest first, ties in the order of {@link RevenueIndex#BY_PROVIDER}.
+     */
+    public static AggregateQuery<LaunchServiceProvider> highestRevenueLaunchServiceProviders(int k, int fromYear, int toYear) {
+        checkK(k);
+        isTrue(fromYear <= toYear, "from year cannot be after to year");
+        return new AggregateQuery<>(Type.HIGHEST_REVENUE_LAUNCH_SERVICE_PROVIDERS, LaunchServiceProvider.class, k, fromYear, toYear, null);
+    }
+
+    /**
+     * The number of payloads the providers of each country sent to the orbit, one row per country.
+     */
+    public static AggregateQuery<Map.Entry<String, Integer>> payloadsPerCountry(String orbit) {
+        notNull(orbit, "orbit cannot be null");
+        return new AggregateQuery<>(Type.PAYLOADS_PER_COUNTRY, Map.Entry.class, 0, 0, 0, orbit);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return the entity class of the result rows, or {@code Map.Entry} for key-value rows.
+     */
+    public Class<?> getResultClass() {
+        return resultClass;
+    }
+
+    public int getK() {
+        return k;
+    }
+
+    public int getFromYear() {
+        return fromYear;
+    }
+
+    public int getToYear() {
+        return toYear;
+    }
+
+    public String getOrbit() {
+        return orbit;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        AggregateQuery<?> that = (AggregateQuery<?>) o;
+        return k == that.k &&
+                fromYear == that.fromYear &&
+                toYear == that.toYear &&
+                type == that.type &&
+                Objects.equals(orbit, that.orbit);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, k, fromYear, toYear, orbit);
+    }
+
+    @Override
+    public String toString() {
+        return "AggregateQuery{" +
+                "type=" + type +
+                ", k=" + k +
+                ", fromYear=" + fromYear +
+                ", toYear=" + toYear +
+                ", orbit='" + orbit + '\'' +
+                '}';
+    }
+}
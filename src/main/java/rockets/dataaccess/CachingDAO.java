@@ -0,0 +1,236 @@
+package rockets.dataaccess;
+
+import rockets.model.Entity;
+import rockets.model.User;
+
+import java.util.*;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * A DAO that keeps the entities loaded by id in a least-recently-used cache in front of another DAO.
+ * <p>
+ * The cache is keyed by entity class and id, holds at most {@code maximumSize} entities and, if a time to live
+ * is given, reloads entities that were loaded longer ago than that. Every entity saved or deleted through the
+ * underlying DAO is evicted, so a load after a write sees the write. Only the written entity is evicted: the
+ * relationships a cached entity was loaded with can be stale until it expires. All other calls go straight
+ * to the underlying DAO. Cached entities are shared by all callers.
+ */
+public class CachingDAO implements DAO {
+    private final DAO dao;
+
+    private final int maximumSize;
+
+    private final long timeToLiveMillis;
+
+    private final LongSupplier clock;
+
+    // in access order, least recently used first
+    private final LinkedHashMap<List<Object>, CachedEntity> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final DAOListener invalidator = new DAOListener() {
+        @Override
+        public void entitySaved(Entity entity) {
+            evict(entity);
+        }
+
+        @Override
+        public void entityDeleted(Entity entity) {
+            evict(entity);
+        }
+    };
+
+    // incremented by every eviction of a written entity
+    private long writeCount;
+
+    private long hitCount;
+
+    private long missCount;
+
+    private long evictionCount;
+
+    /**
+     * @param dao              the underlying DAO.
+     * @param maximumSize      the maximum number of entities.
+     * @param timeToLiveMillis how long an entity is kept after it was loaded, or 0 to keep it until it is evicted.
+     */
+    public CachingDAO(DAO dao, int maximumSize, long timeToLiveMillis) {
+        this(dao, maximumSize, timeToLiveMillis, System::currentTimeMillis);
+    }
+
+    CachingDAO(DAO dao, int maximumSize, long timeToLiveMillis, LongSupplier clock) {
+        notNull(dao, "dao cannot be null");
+        isTrue(maximumSize >= 0, "maximum size cannot be negative");
+        isTrue(timeToLiveMillis >= 0, "time to live cannot be negative");
+        this.dao = dao;
+        this.maximumSize = maximumSize;
+        this.timeToLiveMillis = timeToLiveMillis;
+        this.clock = clock;
+        dao.addListener(invalidator);
+    }
+
+    @Override
+    public <T extends Entity> T load(Class<T> clazz, Long id) {
+        List<Object> key = Arrays.asList(clazz, id);
+        long writes;
+        synchronized (this) {
+            CachedEntity cached = entries.get(key);
+            if (null != cached && !isExpired(cached)) {
+                hitCount++;
+                return clazz.cast(cached.entity);
+            }
+            if (null != cached) {
+                entries.remove(key);
+                evictionCount++;
+            }
+            missCount++;
+            writes = writeCount;
+        }
+        T entity = dao.load(clazz, id);
+        if (null != entity) {
+            put(key, entity, writes);
+        }
+        return entity;
+    }
+
+    private synchronized void put(List<Object> key, Entity entity, long writes) {
+        // an entity loaded while something was written may be stale
+        if (writes != writeCount || 0 == maximumSize) {
+            return;
+        }
+        entries.put(key, new CachedEntity(entity, clock.getAsLong()));
+        Iterator<CachedEntity> eldest = entries.values().iterator();
+        while (entries.size() > maximumSize) {
+            eldest.next();
+            eldest.remove();
+            evictionCount++;
+        }
+    }
+
+    private boolean isExpired(CachedEntity cached) {
+        return timeToLiveMillis > 0 && clock.getAsLong() - cached.loadedAt >= timeToLiveMillis;
+    }
+
+    private synchronized void evict(Entity entity) {
+        writeCount++;
+        if (null != entity.getId()) {
+            entries.remove(Arrays.asList(entity.getClass(), entity.getId()));
+        }
+    }
+
+    @Override
+    public <T extends Entity> T createOrUpdate(T entity) {
+        return dao.createOrUpdate(entity);
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> createOrUpdateAll(Collection<T> entities) {
+        return dao.createOrUpdateAll(entities);
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> loadAll(Class<T> clazz) {
+        return dao.loadAll(clazz);
+    }
+
+    @Override
+    public <T extends Entity> Page<T> loadPageAfter(Class<T> clazz, Long afterId, int size) {
+        return dao.loadPageAfter(clazz, afterId, size);
+    }
+
+    @Override
+    public <T extends Entity> Page<T> loadPageBefore(Class<T> clazz, Long beforeId, int size) {
+        return dao.loadPageBefore(clazz, beforeId, size);
+    }
+
+    @Override
+    public <T extends Entity> Stream<T> stream(Class<T> clazz, int fetchSize) {
+        return dao.stream(clazz, fetchSize);
+    }
+
+    @Override
+    public <T extends Entity> void delete(T entity) {
+        dao.delete(entity);
+    }
+
+    @Override
+    public User getUserByEmail(String email) {
+        return dao.getUserByEmail(email);
+    }
+
+    @Override
+    public <T> List<T> aggregate(AggregateQuery<T> query) {
+        return dao.aggregate(query);
+    }
+
+    @Override
+    public void addListener(DAOListener listener) {
+        dao.addListener(listener);
+    }
+
+    @Override
+    public void removeListener(DAOListener listener) {
+        dao.removeListener(listener);
+    }
+
+    @Override
+    public void clearSession() {
+        dao.clearSession();
+    }
+
+    @Override
+    public void close() {
+        dao.removeListener(invalidator);
+        synchronized (this) {
+            entries.clear();
+        }
+        dao.close();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * @return the ratio of hits to loads, or 1 if nothing has been loaded yet.
+     */
+    public synchronized double getHitRate() {
+        long requests = hitCount + missCount;
+        return 0 == requests ? 1.0 : (double) hitCount / requests;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "CachingDAO{" +
+                "size=" + entries.size() +
+                ", hitCount=" + hitCount +
+                ", missCount=" + missCount +
+                ", evictionCount=" + evictionCount +
+                '}';
+    }
+
+    private static class CachedEntity {
+        private final Entity entity;
+        private final long loadedAt;
+
+        private CachedEntity(Entity entity, long loadedAt) {
+            this.entity = entity;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
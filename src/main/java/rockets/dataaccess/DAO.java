@@ -4,17 +4,70 @@ import rockets.model.Entity;
 import rockets.model.User;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
 
 public interface DAO {
     <T extends Entity> T load(Class<T> clazz, Long id);
 
     <T extends Entity> T createOrUpdate(T entity);
 
+    /**
+     * Creates or updates the entities in batches, matching existing entities by the same natural keys
+     * as {@link #createOrUpdate(Entity)}.
+     *
+     * @param entities the entities.
+     * @return the entities, with their ids set.
+     */
+    <T extends Entity> Collection<T> createOrUpdateAll(Collection<T> entities);
+
     <T extends Entity> Collection<T> loadAll(Class<T> clazz);
 
+    /**
+     * Loads the page of entities that follows an id, in id order.
+     *
+     * @param clazz   the entity class.
+     * @param afterId the id the page starts after, or null for the first page.
+     * @param size    the maximum number of entities of the page.
+     * @return the page.
+     */
+    <T extends Entity> Page<T> loadPageAfter(Class<T> clazz, Long afterId, int size);
+
+    /**
+     * Loads the page of entities that precedes an id, in id order.
+     *
+     * @param clazz    the entity class.
+     * @param beforeId the id the page ends before, or null for the last page.
+     * @param size     the maximum number of entities of the page.
+     * @return the page.
+     */
+    <T extends Entity> Page<T> loadPageBefore(Class<T> clazz, Long beforeId, int size);
+
+    /**
+     * Streams all entities of a class, loading them lazily in pages of {@code fetchSize} entities,
+     * so that a consumer only needs one page on the heap at a time. The stream should be closed when done.
+     *
+     * @param clazz     the entity class.
+     * @param fetchSize the number of entities loaded per page.
+     * @return the entities, in id order.
+     */
+    <T extends Entity> Stream<T> stream(Class<T> clazz, int fetchSize);
+
     <T extends Entity> void delete(T entity);
 
     User getUserByEmail(String email);
 
+    <T> List<T> aggregate(AggregateQuery<T> query);
+
+    void addListener(DAOListener listener);
+
+    void removeListener(DAOListener listener);
+
+    /**
+     * Ends the unit of work of the calling thread, such as a web request, releasing the entities
+     * it loaded. Entities are loaded again afterwards.
+     */
+    void clearSession();
+
     void close();
 }
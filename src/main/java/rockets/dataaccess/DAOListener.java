@@ -0,0 +1,22 @@
+package rockets.dataaccess;
+
+import rockets.model.Entity;
+
+/**
+ * Gets notified after an entity has been written through a {@link DAO}.
+ */
+public interface DAOListener {
+    /**
+     * Called after {@link DAO#createOrUpdate(Entity)} has saved the entity.
+     *
+     * @param entity the saved entity, with its id set.
+     */
+    void entitySaved(Entity entity);
+
+    /**
+     * Called after {@link DAO#delete(Entity)} has deleted the entity.
+     *
+     * @param entity the deleted entity.
+     */
+    void entityDeleted(Entity entity);
+}
@@ -0,0 +1,194 @@
+package rockets.dataaccess;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * The latencies, calls, rows and errors of data access operations, per operation and entity class.
+ * <p>
+ * {@link InstrumentedDAO} records every DAO call here, and a DAO can record its own internal queries, such as
+ * the natural-key lookup of {@link rockets.dataaccess.neo4j.Neo4jDAO}. Recording does not lock once an
+ * operation has been seen, so the metrics can be left on. Snapshots can be taken at any time, and logged at
+ * a fixed interval.
+ */
+public class DAOMetrics {
+    private static Logger logger = LoggerFactory.getLogger(DAOMetrics.class);
+
+    // operation -> entity class -> metrics
+    private final ConcurrentMap<String, ConcurrentMap<Class<?>, Operation>> operations = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService logging;
+
+    /**
+     * @param operation   the operation.
+     * @param entityClass the class of the entities, or a supertype if there are several.
+     * @param nanos       how long the operation took.
+     * @param rows        the number of entities the operation returned or wrote.
+     * @param failed      whether the operation threw.
+     */
+    public void record(String operation, Class<?> entityClass, long nanos, long rows, boolean failed) {
+        Operation metrics = operation(operation, entityClass);
+        metrics.latencies.record(nanos);
+        metrics.rows.add(rows);
+        if (failed) {
+            metrics.errors.increment();
+        }
+    }
+
+    /**
+     * Adds rows to an operation without recording a call, for the entities of a stream as they are read.
+     */
+    public void addRows(String operation, Class<?> entityClass, long rows) {
+        operation(operation, entityClass).rows.add(rows);
+    }
+
+    private Operation operation(String operation, Class<?> entityClass) {
+        ConcurrentMap<Class<?>, Operation> byClass = operations.get(operation);
+        if (null == byClass) {
+            byClass = operations.computeIfAbsent(operation, o -> new ConcurrentHashMap<>());
+        }
+        Operation metrics = byClass.get(entityClass);
+        return null != metrics ? metrics : byClass.computeIfAbsent(entityClass, c -> new Operation());
+    }
+
+    /**
+     * @return a snapshot of every operation recorded so far, by operation and entity class name.
+     */
+    public List<Snapshot> snapshot() {
+        List<Snapshot> snapshots = new ArrayList<>();
+        operations.forEach((operation, byClass) -> byClass.forEach((entityClass, metrics) ->
+                snapshots.add(new Snapshot(operation, entityClass, metrics))));
+        snapshots.sort(Comparator.comparing(Snapshot::getOperation)
+                .thenComparing(snapshot -> snapshot.getEntityClass().getSimpleName()));
+        return snapshots;
+    }
+
+    /**
+     * @param operation   the operation.
+     * @param entityClass the entity class.
+     * @return a snapshot of the operation, or null if it has not been recorded.
+     */
+    public Snapshot snapshot(String operation, Class<?> entityClass) {
+        ConcurrentMap<Class<?>, Operation> byClass = operations.get(operation);
+        Operation metrics = null == byClass ? null : byClass.get(entityClass);
+        return null == metrics ? null : new Snapshot(operation, entityClass, metrics);
+    }
+
+    /**
+     * Logs a snapshot of every operation at a fixed interval, on a daemon thread, until {@link #stopLogging()}.
+     */
+    public synchronized void startLogging(long period, TimeUnit unit) {
+        isTrue(period > 0, "period must be positive");
+        notNull(unit, "unit cannot be null");
+        stopLogging();
+        logging = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "dao-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        logging.scheduleAtFixedRate(this::log, period, period, unit);
+    }
+
+    public synchronized void stopLogging() {
+        if (null != logging) {
+            logging.shutdownNow();
+            logging = null;
+        }
+    }
+
+    /**
+     * Logs a snapshot of every operation, one line each.
+     */
+    public void log() {
+        snapshot().forEach(snapshot -> logger.info(snapshot.toString()));
+    }
+
+    private static class Operation {
+        private final LatencyHistogram latencies = new LatencyHistogram();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+    }
+
+    /**
+     * The metrics of an operation on a class of entities at one point in time.
+     */
+    public static class Snapshot {
+        private final String operation;
+        private final Class<?> entityClass;
+        private final long calls;
+        private final long errors;
+        private final long rows;
+        private final double meanNanos;
+        private final long p50Nanos;
+        private final long p99Nanos;
+        private final long p999Nanos;
+        private final long maxNanos;
+
+        private Snapshot(String operation, Class<?> entityClass, Operation metrics) {
+            this.operation = operation;
+            this.entityClass = entityClass;
+            this.calls = metrics.latencies.getCount();
+            this.errors = metrics.errors.sum();
+            this.rows = metrics.rows.sum();
+            this.meanNanos = metrics.latencies.getMean();
+            this.p50Nanos = metrics.latencies.getValueAtPercentile(50);
+            this.p99Nanos = metrics.latencies.getValueAtPercentile(99);
+            this.p999Nanos = metrics.latencies.getValueAtPercentile(99.9);
+            this.maxNanos = metrics.latencies.getMax();
+        }
+
+        public String getOperation() {
+            return operation;
+        }
+
+        public Class<?> getEntityClass() {
+            return entityClass;
+        }
+
+        public long getCalls() {
+            return calls;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public double getMeanNanos() {
+            return meanNanos;
+        }
+
+        public long getP50Nanos() {
+            return p50Nanos;
+        }
+
+        public long getP99Nanos() {
+            return p99Nanos;
+        }
+
+        public long getP999Nanos() {
+            return p999Nanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %s: calls=%d errors=%d rows=%d mean=%.3fms p50=%.3fms p99=%.3fms p999=%.3fms max=%.3fms",
+                    operation, entityClass.getSimpleName(), calls, errors, rows, meanNanos / 1e6,
+                    p50Nanos / 1e6, p99Nanos / 1e6, p999Nanos / 1e6, maxNanos / 1e6);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package rockets.dataaccess;
+
+import rockets.model.Entity;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A counter that is incremented by every entity saved or deleted through a {@link DAO}.
+ * Anything derived from the data stored at one version is stale once the version has changed.
+ * <p>
+ * The counter starts from 0 in every process, so it is paired with the time the counter was created
+ * wherever it has to tell versions apart across restarts.
+ */
+public class DatasetVersion implements DAOListener {
+    private final AtomicLong version = new AtomicLong();
+
+    private final long createdMillis = System.currentTimeMillis();
+
+    private volatile long lastModifiedMillis = createdMillis;
+
+    /**
+     * Creates a version counter that listens to the writes of the DAO.
+     *
+     * @param dao the DAO.
+     * @return the version counter.
+     */
+    public static DatasetVersion attach(DAO dao) {
+        DatasetVersion version = new DatasetVersion();
+        dao.addListener(version);
+        return version;
+    }
+
+    @Override
+    public void entitySaved(Entity entity) {
+        changed();
+    }
+
+    @Override
+    public void entityDeleted(Entity entity) {
+        changed();
+    }
+
+    private void changed() {
+        // the version first, so that a reader who reads the time and then the version never pairs a new
+        // time with an old version
+        version.incrementAndGet();
+        lastModifiedMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * @return the current version.
+     */
+    public long get() {
+        return version.get();
+    }
+
+    /**
+     * @return when this counter was created, in milliseconds since the epoch.
+     */
+    public long getCreatedMillis() {
+        return createdMillis;
+    }
+
+    /**
+     * @return when the version last changed, or when this counter was created if it has not changed,
+     * in milliseconds since the epoch.
+     */
+    public long getLastModifiedMillis() {
+        return lastModifiedMillis;
+    }
+}
@@ -0,0 +1,140 @@
+package rockets.dataaccess;
+
+import rockets.model.Entity;
+import rockets.model.User;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * A DAO that records the latency, the number of entities and any error of every call to another DAO in
+ * {@link DAOMetrics}, by method name and entity class.
+ * <p>
+ * A stream is timed until it is returned, and its entities are counted as they are read. Writes of entities
+ * of several classes are recorded under {@link Entity}. Listener and session calls are not recorded.
+ */
+public class InstrumentedDAO implements DAO {
+    private final DAO dao;
+
+    private final DAOMetrics metrics;
+
+    public InstrumentedDAO(DAO dao, DAOMetrics metrics) {
+        notNull(dao, "dao cannot be null");
+        notNull(metrics, "metrics cannot be null");
+        this.dao = dao;
+        this.metrics = metrics;
+    }
+
+    public DAOMetrics getMetrics() {
+        return metrics;
+    }
+
+    private <R> R timed(String operation, Class<?> entityClass, Supplier<R> call, ToLongFunction<R> rows) {
+        long start = System.nanoTime();
+        R result = null;
+        boolean failed = true;
+        try {
+            result = call.get();
+            failed = false;
+            return result;
+        } finally {
+            metrics.record(operation, entityClass, System.nanoTime() - start,
+                    failed ? 0 : rows.applyAsLong(result), failed);
+        }
+    }
+
+    private static long one(Object result) {
+        return null == result ? 0 : 1;
+    }
+
+    private static Class<?> classOf(Collection<? extends Entity> entities) {
+        Class<?> common = null;
+        for (Entity entity : entities) {
+            if (null == common) {
+                common = entity.getClass();
+            } else if (common != entity.getClass()) {
+                return Entity.class;
+            }
+        }
+        return null == common ? Entity.class : common;
+    }
+
+    @Override
+    public <T extends Entity> T load(Class<T> clazz, Long id) {
+        return timed("load", clazz, () -> dao.load(clazz, id), InstrumentedDAO::one);
+    }
+
+    @Override
+    public <T extends Entity> T createOrUpdate(T entity) {
+        return timed("createOrUpdate", entity.getClass(), () -> dao.createOrUpdate(entity), InstrumentedDAO::one);
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> createOrUpdateAll(Collection<T> entities) {
+        return timed("createOrUpdateAll", classOf(entities), () -> dao.createOrUpdateAll(entities), Collection::size);
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> loadAll(Class<T> clazz) {
+        return timed("loadAll", clazz, () -> dao.loadAll(clazz), Collection::size);
+    }
+
+    @Override
+    public <T extends Entity> Page<T> loadPageAfter(Class<T> clazz, Long afterId, int size) {
+        return timed("loadPageAfter", clazz, () -> dao.loadPageAfter(clazz, afterId, size), page -> page.getItems().size());
+    }
+
+    @Override
+    public <T extends Entity> Page<T> loadPageBefore(Class<T> clazz, Long beforeId, int size) {
+        return timed("loadPageBefore", clazz, () -> dao.loadPageBefore(clazz, beforeId, size), page -> page.getItems().size());
+    }
+
+    @Override
+    public <T extends Entity> Stream<T> stream(Class<T> clazz, int fetchSize) {
+        Stream<T> stream = timed("stream", clazz, () -> dao.stream(clazz, fetchSize), s -> 0);
+        return stream.peek(entity -> metrics.addRows("stream", clazz, 1));
+    }
+
+    @Override
+    public <T extends Entity> void delete(T entity) {
+        timed("delete", entity.getClass(), () -> {
+            dao.delete(entity);
+            return entity;
+        }, InstrumentedDAO::one);
+    }
+
+    @Override
+    public User getUserByEmail(String email) {
+        return timed("getUserByEmail", User.class, () -> dao.getUserByEmail(email), InstrumentedDAO::one);
+    }
+
+    @Override
+    public <T> List<T> aggregate(AggregateQuery<T> query) {
+        return timed("aggregate", query.getResultClass(), () -> dao.aggregate(query), List::size);
+    }
+
+    @Override
+    public void addListener(DAOListener listener) {
+        dao.addListener(listener);
+    }
+
+    @Override
+    public void removeListener(DAOListener listener) {
+        dao.removeListener(listener);
+    }
+
+    @Override
+    public void clearSession() {
+        dao.clearSession();
+    }
+
+    @Override
+    public void close() {
+        dao.close();
+    }
+}
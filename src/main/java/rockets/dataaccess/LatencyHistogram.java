@@ -0,0 +1,101 @@
+package rockets.dataaccess;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+
+/**
+ * A histogram of latencies in nanoseconds, in log-linear buckets as in HdrHistogram: every power of two is
+ * split into 32 buckets, so a recorded value is known to within about 3%. Latencies from 0 to about 18 minutes
+ * are kept in a fixed array of counters; longer ones are counted as 18 minutes.
+ * <p>
+ * Recording does not lock and can be done from any number of threads. Reading is not atomic: a value
+ * recorded while a percentile is computed may or may not be counted.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    static final long MAXIMUM_VALUE = (1L << 40) - 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(indexOf(MAXIMUM_VALUE) + 1);
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder sum = new LongAdder();
+
+    private final AtomicLong max = new AtomicLong();
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    /*
+     * the largest value counted in the bucket of the index
+     */
+    static long highestValueAt(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long subBucket = index % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * @param nanos the latency, clamped to between 0 and about 18 minutes.
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, Math.min(MAXIMUM_VALUE, nanos));
+        counts.incrementAndGet(indexOf(value));
+        count.increment();
+        sum.add(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @return the mean latency, or 0 if nothing has been recorded.
+     */
+    public double getMean() {
+        long n = count.sum();
+        return 0 == n ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * @param percentile the percentile, from 0 to 100.
+     * @return the smallest latency that the given percent of the recorded latencies are not larger than, to
+     * within the bucket precision, and not larger than the largest latency recorded; 0 if nothing has been
+     * recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        isTrue(percentile >= 0 && percentile <= 100, "percentile must be between 0 and 100");
+        long total = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            total += counts.get(i);
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length() && total > 0; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestValueAt(i), getMax());
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,169 @@
+package rockets.dataaccess;
+
+import rockets.model.*;
+
+import java.util.*;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+
+/**
+ * Maps the natural keys of saved entities to their node ids, so that upserts of known entities do not need
+ * a query to find the existing node.
+ * <p>
+ * The natural keys are the properties a {@link DAO} matches existing entities by, which for {@link Launch}
+ * and {@link LaunchServiceProvider} are the properties of their composite indexes. Each entity class keeps at
+ * most {@code maximumSize} keys and evicts the least recently used one beyond that. An id has at most one key,
+ * so an entity saved under a changed key no longer matches its old one. The index is only correct as long as
+ * the database is written through the DAO that maintains it.
+ */
+public class NaturalKeyIndex {
+    private final int maximumSize;
+
+    // entity class -> natural key -> node id, in access order
+    private final Map<Class<?>, Map<List<Object>, Long>> idsByClass = new HashMap<>();
+
+    // node id -> natural key
+    private final Map<Long, List<Object>> keys = new HashMap<>();
+
+    private long hitCount;
+
+    private long missCount;
+
+    /**
+     * @param maximumSize the maximum number of keys of each entity class.
+     */
+    public NaturalKeyIndex(int maximumSize) {
+        isTrue(maximumSize > 0, "maximum size must be positive");
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * @param entity the entity.
+     * @return the id of the node with the natural key of the entity, or null if it is not known.
+     */
+    public synchronized Long get(Entity entity) {
+        Long id = ids(entity.getClass()).get(keyOf(entity));
+        if (null == id) {
+            missCount++;
+        } else {
+            hitCount++;
+        }
+        return id;
+    }
+
+    /**
+     * Records the natural key of a saved or loaded entity, replacing the previous key of its id.
+     *
+     * @param entity the entity, with its id set.
+     */
+    public synchronized void put(Entity entity) {
+        if (null == entity.getId()) {
+            return;
+        }
+        remove(entity.getId());
+        List<Object> key = keyOf(entity);
+        Long previous = ids(entity.getClass()).put(key, entity.getId());
+        if (null != previous) {
+            keys.remove(previous);
+        }
+        keys.put(entity.getId(), key);
+    }
+
+    /**
+     * Forgets the natural key of a deleted entity.
+     *
+     * @param entity the entity.
+     */
+    public synchronized void remove(Entity entity) {
+        if (null != entity.getId()) {
+            remove(entity.getId());
+        }
+    }
+
+    private void remove(Long id) {
+        List<Object> key = keys.remove(id);
+        if (null != key) {
+            ids((Class<?>) key.get(0)).remove(key);
+        }
+    }
+
+    public synchronized void clear() {
+        idsByClass.clear();
+        keys.clear();
+    }
+
+    public synchronized int size() {
+        return keys.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    private Map<List<Object>, Long> ids(Class<?> clazz) {
+        return idsByClass.computeIfAbsent(clazz, c -> new LeastRecentlyUsedIds(maximumSize, keys));
+    }
+
+    /*
+     * natural key -> node id in access order, evicting the least recently used key, and its id from the keys by id,
+     * beyond the maximum size
+     */
+    private static class LeastRecentlyUsedIds extends LinkedHashMap<List<Object>, Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final int maximumSize;
+
+        private final Map<Long, List<Object>> keys;
+
+        private LeastRecentlyUsedIds(int maximumSize, Map<Long, List<Object>> keys) {
+            super(16, 0.75f, true);
+            this.maximumSize = maximumSize;
+            this.keys = keys;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<List<Object>, Long> eldest) {
+            if (size() <= maximumSize) {
+                return false;
+            }
+            keys.remove(eldest.getValue());
+            return true;
+        }
+    }
+
+    /**
+     * Returns the natural key of an entity: its class followed by the properties it is matched by.
+     * The rocket of a launch is part of the key by id once it has one.
+     *
+     * @param entity the entity.
+     * @return the natural key.
+     */
+    public static List<Object> keyOf(Entity entity) {
+        if (entity instanceof Rocket) {
+            Rocket rocket = (Rocket) entity;
+            return Arrays.asList(Rocket.class, rocket.getName(), rocket.getCountry());
+        } else if (entity instanceof User) {
+            return Arrays.asList(User.class, ((User) entity).getEmail());
+        } else if (entity instanceof Launch) {
+            Launch launch = (Launch) entity;
+            Rocket rocket = launch.getLaunchVehicle();
+            return Arrays.asList(Launch.class, launch.getLaunchDate(),
+                    null == rocket || null == rocket.getId() ? rocket : rocket.getId(),
+                    launch.getLaunchSite(), launch.getOrbit());
+        } else if (entity instanceof LaunchServiceProvider) {
+            LaunchServiceProvider lsp = (LaunchServiceProvider) entity;
+            return Arrays.asList(LaunchServiceProvider.class, lsp.getName(), lsp.getYearFounded(), lsp.getCountry());
+        } else if (entity instanceof RocketFamily) {
+            return Arrays.asList(RocketFamily.class, ((RocketFamily) entity).getName());
+        } else if (entity instanceof PayLoad) {
+            PayLoad payLoad = (PayLoad) entity;
+            return Arrays.asList(PayLoad.class, payLoad.getType(), payLoad.getName());
+        }
+        // entities without a natural key are matched by equality
+        return Arrays.asList(entity.getClass(), entity);
+    }
+}
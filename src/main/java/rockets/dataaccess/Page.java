@@ -0,0 +1,63 @@
+package rockets.dataaccess;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * A page of entities in id order, with the cursors of the pages around it.
+ * <p>
+ * The next page is the one after {@link #getNextCursor()} and the previous page the one before
+ * {@link #getPreviousCursor()}; a cursor is null if there is no page on that side.
+ *
+ * @param <T> the type of the entities.
+ */
+public class Page<T> {
+    private final List<T> items;
+
+    private final Long previousCursor;
+
+    private final Long nextCursor;
+
+    /**
+     * @param items          the entities of the page.
+     * @param previousCursor the id the previous page ends before, or null if this is the first page.
+     * @param nextCursor     the id the next page starts after, or null if this is the last page.
+     */
+    public Page(List<T> items, Long previousCursor, Long nextCursor) {
+        notNull(items, "items cannot be null");
+        this.items = Collections.unmodifiableList(items);
+        this.previousCursor = previousCursor;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public Long getPreviousCursor() {
+        return previousCursor;
+    }
+
+    public Long getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasPrevious() {
+        return null != previousCursor;
+    }
+
+    public boolean hasNext() {
+        return null != nextCursor;
+    }
+
+    @Override
+    public String toString() {
+        return "Page{" +
+                "items=" + items +
+                ", previousCursor=" + previousCursor +
+                ", nextCursor=" + nextCursor +
+                '}';
+    }
+}
@@ -0,0 +1,400 @@
+package rockets.dataaccess.memory;
+
+import rockets.dataaccess.AggregateQuery;
+import rockets.dataaccess.DAO;
+import rockets.dataaccess.DAOListener;
+import rockets.dataaccess.NaturalKeyIndex;
+import rockets.dataaccess.Page;
+import rockets.model.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+import static rockets.model.Launch.LaunchOutcome.SUCCESSFUL;
+
+/**
+ * A DAO that keeps the entities in concurrent maps on the heap, for analytics replicas, tests and benchmarks.
+ * <p>
+ * It behaves like {@link rockets.dataaccess.neo4j.Neo4jDAO}: saving an entity saves every entity reachable from
+ * it, an entity is matched to the stored one with the same natural key, and ids are generated in increasing
+ * order. The stored entities are the saved objects themselves, as in an OGM session. Launches are also indexed
+ * by date, rocket and launch service provider. Writes are serialized; reads do not lock and see every write
+ * that has completed.
+ */
+public class InMemoryDAO implements DAO {
+    private final AtomicLong ids = new AtomicLong();
+
+    // entity class -> id -> entity, in id order
+    private final Map<Class<?>, ConcurrentSkipListMap<Long, Entity>> entities = new ConcurrentHashMap<>();
+
+    private final Map<List<Object>, Long> idsByKey = new ConcurrentHashMap<>();
+
+    private final Map<Long, List<Object>> keysById = new ConcurrentHashMap<>();
+
+    private final ConcurrentSkipListMap<LocalDate, Set<Long>> launchesByDate = new ConcurrentSkipListMap<>();
+
+    private final Map<Long, Set<Long>> launchesByRocket = new ConcurrentHashMap<>();
+
+    private final Map<Long, Set<Long>> launchesByProvider = new ConcurrentHashMap<>();
+
+    // launch id -> the date, rocket id and provider id the launch is indexed under
+    private final Map<Long, Object[]> indexedLaunches = new ConcurrentHashMap<>();
+
+    private final List<DAOListener> listeners = new CopyOnWriteArrayList<>();
+
+    private final Object writeLock = new Object();
+
+    @Override
+    public <T extends Entity> T load(Class<T> clazz, Long id) {
+        return clazz.cast(entities(clazz).get(id));
+    }
+
+    @Override
+    public <T extends Entity> T createOrUpdate(T entity) {
+        synchronized (writeLock) {
+            save(entity);
+        }
+        listeners.forEach(listener -> listener.entitySaved(entity));
+        return entity;
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> createOrUpdateAll(Collection<T> entities) {
+        synchronized (writeLock) {
+            entities.forEach(this::save);
+        }
+        entities.forEach(entity -> listeners.forEach(listener -> listener.entitySaved(entity)));
+        return entities;
+    }
+
+    /*
+     * match the entity by natural key, then give ids to the new entities reachable from it and store them all
+     */
+    private void save(Entity entity) {
+        Long existingId = idsByKey.get(NaturalKeyIndex.keyOf(entity));
+        if (null != existingId) {
+            entity.setId(existingId);
+        }
+        Set<Entity> graph = Collections.newSetFromMap(new IdentityHashMap<>());
+        collect(entity, graph);
+        for (Entity reachable : graph) {
+            if (null == reachable.getId()) {
+                reachable.setId(ids.incrementAndGet());
+            }
+        }
+        // the keys of launches contain the ids of their rockets, so store once all ids are set
+        graph.forEach(this::store);
+    }
+
+    private static void collect(Entity entity, Set<Entity> graph) {
+        if (null == entity || !graph.add(entity)) {
+            return;
+        }
+        if (entity instanceof Rocket) {
+            Rocket rocket = (Rocket) entity;
+            collect(rocket.getManufacturer(), graph);
+            collectAll(rocket.getLaunches(), graph);
+            collectAll(rocket.getPayloads(), graph);
+        } else if (entity instanceof Launch) {
+            Launch launch = (Launch) entity;
+            collect(launch.getLaunchVehicle(), graph);
+            collect(launch.getLaunchServiceProvider(), graph);
+        } else if (entity instanceof LaunchServiceProvider) {
+            collectAll(((LaunchServiceProvider) entity).getRockets(), graph);
+        } else if (entity instanceof PayLoad) {
+            collect(((PayLoad) entity).getManufacturer(), graph);
+        } else if (entity instanceof RocketFamily) {
+            collectAll(((RocketFamily) entity).getRockets(), graph);
+        }
+    }
+
+    private static void collectAll(Collection<? extends Entity> related, Set<Entity> graph) {
+        if (null != related) {
+            related.forEach(entity -> collect(entity, graph));
+        }
+    }
+
+    private void store(Entity entity) {
+        Long id = entity.getId();
+        entities(entity.getClass()).put(id, entity);
+        List<Object> key = NaturalKeyIndex.keyOf(entity);
+        List<Object> previous = keysById.put(id, key);
+        if (null != previous && !previous.equals(key)) {
+            idsByKey.remove(previous, id);
+        }
+        // the first entity stored with a key is the one it matches
+        idsByKey.putIfAbsent(key, id);
+        if (entity instanceof Launch) {
+            unindex(id);
+            index((Launch) entity);
+        }
+    }
+
+    private void index(Launch launch) {
+        Long id = launch.getId();
+        LocalDate date = launch.getLaunchDate();
+        Long rocketId = null == launch.getLaunchVehicle() ? null : launch.getLaunchVehicle().getId();
+        Long lspId = null == launch.getLaunchServiceProvider() ? null : launch.getLaunchServiceProvider().getId();
+        if (null != date) {
+            launchesByDate.computeIfAbsent(date, d -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+        if (null != rocketId) {
+            launchesByRocket.computeIfAbsent(rocketId, r -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+        if (null != lspId) {
+            launchesByProvider.computeIfAbsent(lspId, p -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+        indexedLaunches.put(id, new Object[]{date, rocketId, lspId});
+    }
+
+    private void unindex(Long id) {
+        Object[] indexed = indexedLaunches.remove(id);
+        if (null == indexed) {
+            return;
+        }
+        removeFrom(launchesByDate, indexed[0], id);
+        removeFrom(launchesByRocket, indexed[1], id);
+        removeFrom(launchesByProvider, indexed[2], id);
+    }
+
+    private static <K> void removeFrom(Map<K, Set<Long>> index, Object key, Long id) {
+        if (null == key) {
+            return;
+        }
+        Set<Long> launches = index.get(key);
+        if (null != launches) {
+            launches.remove(id);
+            if (launches.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> loadAll(Class<T> clazz) {
+        return entities(clazz).values().stream().map(clazz::cast).collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    @Override
+    public <T extends Entity> Page<T> loadPageAfter(Class<T> clazz, Long afterId, int size) {
+        isTrue(size > 0, "page size must be positive");
+        ConcurrentSkipListMap<Long, Entity> all = entities(clazz);
+        NavigableMap<Long, Entity> after = null == afterId ? all : all.tailMap(afterId, false);
+        return page(clazz, after, size, all);
+    }
+
+    @Override
+    public <T extends Entity> Page<T> loadPageBefore(Class<T> clazz, Long beforeId, int size) {
+        isTrue(size > 0, "page size must be positive");
+        ConcurrentSkipListMap<Long, Entity> all = entities(clazz);
+        NavigableMap<Long, Entity> before = null == beforeId ? all : all.headMap(beforeId, false);
+        List<Long> ids = before.descendingKeySet().stream().limit(size).collect(Collectors.toList());
+        Collections.reverse(ids);
+        return page(clazz, ids.isEmpty() ? before : before.tailMap(ids.get(0), true), size, all);
+    }
+
+    private static <T extends Entity> Page<T> page(Class<T> clazz, NavigableMap<Long, Entity> from, int size,
+                                                   NavigableMap<Long, Entity> all) {
+        List<T> items = new ArrayList<>();
+        for (Entity entity : from.values()) {
+            if (items.size() == size) {
+                break;
+            }
+            items.add(clazz.cast(entity));
+        }
+        if (items.isEmpty()) {
+            return new Page<>(items, null, null);
+        }
+        Long first = items.get(0).getId();
+        Long last = items.get(items.size() - 1).getId();
+        return new Page<>(items, null == all.lowerKey(first) ? null : first, null == all.higherKey(last) ? null : last);
+    }
+
+    /**
+     * Entities are streamed straight from the map, so the fetch size does not matter.
+     */
+    @Override
+    public <T extends Entity> Stream<T> stream(Class<T> clazz, int fetchSize) {
+        isTrue(fetchSize > 0, "fetch size must be positive");
+        return entities(clazz).values().stream().map(clazz::cast);
+    }
+
+    @Override
+    public <T extends Entity> void delete(T entity) {
+        synchronized (writeLock) {
+            Long id = entity.getId();
+            if (null == id || null == entities(entity.getClass()).remove(id)) {
+                return;
+            }
+            List<Object> key = keysById.remove(id);
+            if (null != key) {
+                idsByKey.remove(key, id);
+            }
+            unindex(id);
+        }
+        listeners.forEach(listener -> listener.entityDeleted(entity));
+    }
+
+    @Override
+    public User getUserByEmail(String email) {
+        User user = new User();
+        user.setEmail(email);
+        Long id = idsByKey.get(NaturalKeyIndex.keyOf(user));
+        return null == id ? null : load(User.class, id);
+    }
+
+    /**
+     * @param from the first date, inclusive.
+     * @param to   the last date, inclusive.
+     * @return the launches between the dates, earliest first, launches of the same date in id order.
+     */
+    public List<Launch> getLaunchesBetween(LocalDate from, LocalDate to) {
+        notNull(from, "from date cannot be null");
+        notNull(to, "to date cannot be null");
+        isTrue(!from.isAfter(to), "from date cannot be after to date");
+        return launches(launchesByDate.subMap(from, true, to, true).values().stream()
+                .flatMap(ids -> ids.stream().sorted()));
+    }
+
+    /**
+     * @param rocket the rocket.
+     * @return the launches of the rocket, in id order.
+     */
+    public List<Launch> getLaunchesOf(Rocket rocket) {
+        return launches(launchesByRocket.getOrDefault(rocket.getId(), Collections.emptySet()).stream().sorted());
+    }
+
+    /**
+     * @param lsp the launch service provider.
+     * @return the launches of the launch service provider, in id order.
+     */
+    public List<Launch> getLaunchesBy(LaunchServiceProvider lsp) {
+        return launches(launchesByProvider.getOrDefault(lsp.getId(), Collections.emptySet()).stream().sorted());
+    }
+
+    private List<Launch> launches(Stream<Long> ids) {
+        return ids.map(id -> load(Launch.class, id)).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    /**
+     * Answers the aggregates with the same semantics as the Cypher of {@link rockets.dataaccess.neo4j.Neo4jDAO},
+     * ties broken by id, or by provider and then id for revenue, using the launch indexes.
+     */
+    // the type of the query determines the type of its result rows
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> List<T> aggregate(AggregateQuery<T> query) {
+        int k = query.getK();
+        switch (query.getType()) {
+            case MOST_LAUNCHED_ROCKETS: {
+                Map<Rocket, Integer> launches = new HashMap<>();
+                for (Rocket rocket : loadAll(Rocket.class)) {
+                    int successful = (int) getLaunchesOf(rocket).stream().filter(l -> SUCCESSFUL == l.getLaunchOutcome()).count();
+                    if (successful > 0) {
+                        launches.put(rocket, successful);
+                    }
+                }
+                return (List<T>) top(launches.keySet(), k, Comparator.comparingInt(launches::get));
+            }
+            case MOST_RELIABLE_LAUNCH_SERVICE_PROVIDERS: {
+                Map<LaunchServiceProvider, Integer> reliability = new HashMap<>();
+                for (LaunchServiceProvider lsp : loadAll(LaunchServiceProvider.class)) {
+                    List<Launch> launches = getLaunchesBy(lsp);
+                    if (!launches.isEmpty()) {
+                        int successful = (int) launches.stream().filter(l -> SUCCESSFUL == l.getLaunchOutcome()).count();
+                        reliability.put(lsp, successful / launches.size());
+                    }
+                }
+                return (List<T>) top(reliability.keySet(), k, Comparator.comparingInt(reliability::get));
+            }
+            case MOST_RECENT_LAUNCHES: {
+                List<Launch> mostRecent = new ArrayList<>();
+                for (Set<Long> launches : launchesByDate.descendingMap().values()) {
+                    launches.stream().sorted().map(id -> load(Launch.class, id)).filter(Objects::nonNull)
+                            .limit(k - mostRecent.size()).forEach(mostRecent::add);
+                    if (mostRecent.size() >= k) {
+                        break;
+                    }
+                }
+                return (List<T>) mostRecent;
+            }
+            case MOST_EXPENSIVE_LAUNCHES: {
+                List<Launch> priced = loadAll(Launch.class).stream().filter(l -> null != l.getPrice()).collect(Collectors.toList());
+                return (List<T>) top(priced, k, Comparator.comparing(Launch::getPrice).reversed());
+            }
+            case HIGHEST_REVENUE_LAUNCH_SERVICE_PROVIDERS: {
+                Map<Long, BigDecimal> revenue = new HashMap<>();
+                for (Launch launch : getLaunchesBetween(LocalDate.of(query.getFromYear(), 1, 1), LocalDate.of(query.getToYear(), 12, 31))) {
+                    Rocket rocket = launch.getLaunchVehicle();
+                    if (null != launch.getPrice() && launch.getPrice().signum() > 0 && null != rocket && null != rocket.getManufacturer()) {
+                        revenue.merge(rocket.getManufacturer().getId(), launch.getPrice(), BigDecimal::add);
+                    }
+                }
+                Comparator<LaunchServiceProvider> byRevenue = Comparator.comparing(lsp -> revenue.getOrDefault(lsp.getId(), BigDecimal.ZERO));
+                return (List<T>) top(loadAll(LaunchServiceProvider.class), k, byRevenue.reversed().thenComparing(RevenueIndex.BY_PROVIDER));
+            }
+            case PAYLOADS_PER_COUNTRY: {
+                Map<String, Integer> payloads = new LinkedHashMap<>();
+                for (Launch launch : loadAll(Launch.class)) {
+                    LaunchServiceProvider lsp = launch.getLaunchServiceProvider();
+                    if (Objects.equals(query.getOrbit(), launch.getOrbit()) && null != lsp) {
+                        payloads.merge(lsp.getCountry(), null == launch.getPayload() ? 0 : launch.getPayload().size(), Integer::sum);
+                    }
+                }
+                List<Map.Entry<String, Integer>> entries = new ArrayList<>();
+                payloads.forEach((country, count) -> entries.add(new AbstractMap.SimpleImmutableEntry<>(country, count)));
+                return (List<T>) entries;
+            }
+            default:
+                throw new IllegalArgumentException("unsupported aggregate query: " + query);
+        }
+    }
+
+    private static <E extends Entity> List<E> top(Collection<E> candidates, int k, Comparator<? super E> order) {
+        Comparator<E> ordered = order::compare;
+        return candidates.stream().sorted(ordered.thenComparing(Entity::getId)).limit(k).collect(Collectors.toList());
+    }
+
+    @Override
+    public void addListener(DAOListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(DAOListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * There is no session to clear: entities are always the stored ones.
+     */
+    @Override
+    public void clearSession() {
+    }
+
+    @Override
+    public void close() {
+        synchronized (writeLock) {
+            entities.clear();
+            idsByKey.clear();
+            keysById.clear();
+            launchesByDate.clear();
+            launchesByRocket.clear();
+            launchesByProvider.clear();
+            indexedLaunches.clear();
+        }
+    }
+
+    private ConcurrentSkipListMap<Long, Entity> entities(Class<?> clazz) {
+        return entities.computeIfAbsent(clazz, c -> new ConcurrentSkipListMap<>());
+    }
+}
@@ -1,32 +1,68 @@
 package rockets.dataaccess.neo4j;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import org.neo4j.ogm.config.Configuration;
 import org.neo4j.ogm.cypher.Filter;
 import org.neo4j.ogm.cypher.Filters;
 import org.neo4j.ogm.drivers.embedded.driver.EmbeddedDriver;
+import org.neo4j.ogm.model.Result;
 import org.neo4j.ogm.session.Session;
 import org.neo4j.ogm.session.SessionFactory;
 import org.neo4j.ogm.transaction.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rockets.dataaccess.AggregateQuery;
 import rockets.dataaccess.DAO;
+import rockets.dataaccess.DAOListener;
+import rockets.dataaccess.DAOMetrics;
+import rockets.dataaccess.NaturalKeyIndex;
+import rockets.dataaccess.Page;
 import rockets.model.*;
 
 import java.io.File;
-import java.util.Collection;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import static org.apache.commons.lang3.Validate.isTrue;
 import static org.neo4j.ogm.cypher.ComparisonOperator.EQUALS;
+import static org.neo4j.ogm.cypher.ComparisonOperator.IN;
 
+/**
+ * A DAO on Neo4j OGM that can be shared by concurrent threads.
+ * <p>
+ * OGM sessions are not thread-safe, so every thread works in a session of its own, opened on first use.
+ * A session keeps the entities it loaded in its identity map until {@link #clearSession()} is called, which
+ * the web app does at the end of every request, so a session lives no longer than a request.
+ * Reads run in read-only transactions and writes in read-write transactions; a write looks up the existing
+ * entities in the same transaction it saves in.
+ */
 public class Neo4jDAO implements DAO {
+    private static Logger logger = LoggerFactory.getLogger(Neo4jDAO.class);
+
     private static final int DEPTH_ENTITY = 1;
 
-    private Session session;
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private static final int NATURAL_KEY_CACHE_SIZE = 10000;
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
     private SessionFactory sessionFactory;
 
+    private final ThreadLocal<Session> sessions = ThreadLocal.withInitial(() -> sessionFactory.openSession());
+
+    private final List<DAOListener> listeners = new CopyOnWriteArrayList<>();
+
+    private final NaturalKeyIndex naturalKeys = new NaturalKeyIndex(NATURAL_KEY_CACHE_SIZE);
+
+    private volatile DAOMetrics metrics;
+
     public Neo4jDAO(SessionFactory sessionFactory) {
         this.sessionFactory = sessionFactory;
-        if (null == session) {
-            session = sessionFactory.openSession();
-        }
     }
 
     public Neo4jDAO(String dbAddress) {
@@ -38,28 +74,275 @@ public class Neo4jDAO implements DAO {
         driver.configure(configuration);
 
         sessionFactory = new SessionFactory(driver, User.class.getPackage().getName());
-        session = sessionFactory.openSession();
+    }
+
+    private Session session() {
+        return sessions.get();
+    }
+
+    private <R> R read(Function<Session, R> work) {
+        return inTransaction(Transaction.Type.READ_ONLY, work);
+    }
+
+    private <R> R write(Function<Session, R> work) {
+        return inTransaction(Transaction.Type.READ_WRITE, work);
+    }
+
+    /*
+     * run the work in a transaction of the thread's session, joining the transaction already open if any
+     */
+    private <R> R inTransaction(Transaction.Type type, Function<Session, R> work) {
+        Session session = session();
+        if (null != session.getTransaction()) {
+            return work.apply(session);
+        }
+        try (Transaction tx = session.beginTransaction(type)) {
+            R result = work.apply(session);
+            tx.commit();
+            return result;
+        }
+    }
+
+    /**
+     * Clears the session of the calling thread, so that the entities it loaded can be garbage collected and
+     * are loaded again the next time.
+     */
+    @Override
+    public void clearSession() {
+        session().clear();
     }
 
     @Override
     public <T extends Entity> T load(Class<T> clazz, Long id) {
-        return session.load(clazz, id, DEPTH_ENTITY);
+        return read(session -> session.load(clazz, id, DEPTH_ENTITY));
     }
 
+    /**
+     * Saves the entity over the existing node with the same natural key. The node id is taken from the
+     * natural-key index when the key is known, and only looked up in the database otherwise.
+     */
     @Override
     public <T extends Entity> T createOrUpdate(T entity) {
         Class clazz = entity.getClass();
 
-        T existingEntity = findExistingEntity(entity, clazz);
-        if (null != existingEntity) {
-            entity.setId(existingEntity.getId());
-        }
-        Transaction tx = session.beginTransaction();
-        session.save(entity);
-        tx.commit();
+        write(session -> {
+            Long id = naturalKeys.get(entity);
+            if (null != id) {
+                entity.setId(id);
+            } else {
+                long start = System.nanoTime();
+                T existingEntity = findExistingEntity(entity, clazz);
+                recordLookup("findExistingEntity", clazz, start, null == existingEntity ? 0 : 1);
+                if (null != existingEntity) {
+                    entity.setId(existingEntity.getId());
+                }
+            }
+            session.save(entity);
+            return entity;
+        });
+        naturalKeys.put(entity);
+        listeners.forEach(listener -> listener.entitySaved(entity));
         return entity;
     }
 
+    NaturalKeyIndex getNaturalKeyIndex() {
+        return naturalKeys;
+    }
+
+    /**
+     * @param metrics where the database lookups of existing entities by natural key are recorded, as the
+     *                findExistingEntity and findExistingEntities operations, or null to record nothing.
+     */
+    public void setMetrics(DAOMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    private void recordLookup(String operation, Class<?> clazz, long start, long rows) {
+        DAOMetrics metrics = this.metrics;
+        if (null != metrics) {
+            metrics.record(operation, clazz, System.nanoTime() - start, rows, false);
+        }
+    }
+
+    /**
+     * @param batchSize the number of entities saved per transaction by {@link #createOrUpdateAll(Collection)}.
+     */
+    public void setBatchSize(int batchSize) {
+        isTrue(batchSize > 0, "batch size must be positive");
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Saves the entities in batches of {@link #setBatchSize(int) batch size} entities. The existing entities
+     * of a batch that are not in the natural-key index are found with one query per entity class, on the most
+     * selective property of the natural key, and
+     * the batch is saved and committed in one transaction. Entities of a batch with the same natural key
+     * are saved once, with the state of the last of them. A batch is saved in one request with the entities it
+     * refers to directly, one level deep, so that saving a launch does not rewrite the whole graph of its rocket.
+     * New entities further away, such as the new manufacturer of a new rocket of a launch, are saved with the
+     * batch as well, with the id of their natural key if it is in the index; changes to existing entities
+     * further away are not. The throughput of every batch is logged.
+     */
+    @Override
+    public <T extends Entity> Collection<T> createOrUpdateAll(Collection<T> entities) {
+        int batchNumber = 0;
+        for (List<T> batch : Lists.partition(new ArrayList<>(entities), batchSize)) {
+            long start = System.nanoTime();
+            // natural key -> the entity of the batch to be saved for it
+            Map<List<Object>, T> toSave = new LinkedHashMap<>();
+            // keys are taken before saving, which can set the ids they contain
+            List<List<Object>> keys = new ArrayList<>();
+            Map<List<Object>, Entity> existing = new HashMap<>();
+            Map<List<Object>, Long> cached = new HashMap<>();
+            Map<Class<? extends Entity>, List<T>> byClass = new LinkedHashMap<>();
+            for (T entity : batch) {
+                Long id = naturalKeys.get(entity);
+                if (null != id) {
+                    cached.put(NaturalKeyIndex.keyOf(entity), id);
+                } else {
+                    byClass.computeIfAbsent(entity.getClass(), c -> new ArrayList<>()).add(entity);
+                }
+            }
+
+            write(session -> {
+                byClass.forEach((clazz, group) -> {
+                    long lookupStart = System.nanoTime();
+                    Map<List<Object>, Entity> found = findExistingEntities(clazz, group);
+                    recordLookup("findExistingEntities", clazz, lookupStart, found.size());
+                    existing.putAll(found);
+                });
+                for (T entity : batch) {
+                    List<Object> key = NaturalKeyIndex.keyOf(entity);
+                    keys.add(key);
+                    Entity existingEntity = existing.get(key);
+                    if (cached.containsKey(key)) {
+                        entity.setId(cached.get(key));
+                    } else if (null != existingEntity) {
+                        entity.setId(existingEntity.getId());
+                    }
+                    toSave.remove(key);
+                    toSave.put(key, entity);
+                }
+                // one level deep, so that saving a launch does not unlink the other launches of its rocket
+                List<Entity> entitiesToSave = new ArrayList<>(toSave.values());
+                entitiesToSave.addAll(newEntitiesBeyondFirstHop(toSave.values()));
+                session.save(entitiesToSave, DEPTH_ENTITY);
+                return entitiesToSave;
+            }).forEach(naturalKeys::put);
+            for (int i = 0; i < batch.size(); i++) {
+                T entity = batch.get(i);
+                entity.setId(toSave.get(keys.get(i)).getId());
+                listeners.forEach(listener -> listener.entitySaved(entity));
+            }
+
+            long nanos = Math.max(1, System.nanoTime() - start);
+            logger.info(String.format("saved batch %d of %d entities in %.1f ms (%.0f entities/s)",
+                    ++batchNumber, batch.size(), nanos / 1e6, batch.size() * 1e9 / nanos));
+        }
+        return entities;
+    }
+
+    /*
+     * the new entities that a save of the given entities at depth 1 would miss: those reached only through other
+     * new entities, whose references a save at depth 1 does not follow. Entities whose natural key is in the
+     * index are given its id and are not followed, as they are in the database already
+     */
+    private List<Entity> newEntitiesBeyondFirstHop(Collection<? extends Entity> entities) {
+        Set<Entity> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        seen.addAll(entities);
+        Deque<Entity> toVisit = new ArrayDeque<>(entities);
+        List<Entity> found = new ArrayList<>();
+        while (!toVisit.isEmpty()) {
+            for (Entity reference : referencesOf(toVisit.pop())) {
+                if (null != reference.getId() || !seen.add(reference)) {
+                    continue;
+                }
+                Long id = naturalKeys.get(reference);
+                if (null != id) {
+                    reference.setId(id);
+                } else {
+                    // saved at depth 1 itself, so that its own references are saved
+                    found.add(reference);
+                    toVisit.push(reference);
+                }
+            }
+        }
+        return found;
+    }
+
+    /*
+     * the entities an entity has relationships to, as mapped in rockets.model
+     */
+    private static List<Entity> referencesOf(Entity entity) {
+        List<Entity> references = new ArrayList<>();
+        if (entity instanceof Launch) {
+            references.add(((Launch) entity).getLaunchVehicle());
+            references.add(((Launch) entity).getLaunchServiceProvider());
+        } else if (entity instanceof Rocket) {
+            Rocket rocket = (Rocket) entity;
+            references.add(rocket.getManufacturer());
+            addAll(references, rocket.getLaunches());
+            addAll(references, rocket.getPayloads());
+        } else if (entity instanceof LaunchServiceProvider) {
+            addAll(references, ((LaunchServiceProvider) entity).getRockets());
+        } else if (entity instanceof RocketFamily) {
+            addAll(references, ((RocketFamily) entity).getRockets());
+        } else if (entity instanceof PayLoad) {
+            references.add(((PayLoad) entity).getManufacturer());
+        }
+        references.removeIf(Objects::isNull);
+        return references;
+    }
+
+    private static void addAll(List<Entity> references, Collection<? extends Entity> entities) {
+        if (null != entities) {
+            references.addAll(entities);
+        }
+    }
+
+    /*
+     * load the existing entities with the natural keys of the given entities of one class, in one query
+     */
+    private Map<List<Object>, Entity> findExistingEntities(Class<? extends Entity> clazz, Collection<? extends Entity> entities) {
+        Map<List<Object>, Entity> existing = new HashMap<>();
+        Set<Object> values = new HashSet<>();
+        String property = null;
+        if (clazz.equals(Rocket.class)) {
+            property = "name";
+            entities.forEach(entity -> values.add(((Rocket) entity).getName()));
+        } else if (clazz.equals(User.class)) {
+            property = "email";
+            entities.forEach(entity -> values.add(((User) entity).getEmail()));
+        } else if (clazz.equals(Launch.class)) {
+            // by date, the most selective property: a site or an orbit is shared by most launches. Dates are
+            // stored as ISO strings, and a filter would convert the whole list of values as one date
+            entities.forEach(entity -> values.add(Objects.toString(((Launch) entity).getLaunchDate(), null)));
+            values.remove(null);
+            if (!values.isEmpty()) {
+                String cypher = "MATCH (l:Launch) WHERE l.launchDate IN $dates RETURN id(l) AS id";
+                List<Long> ids = ids(session().query(cypher, Collections.singletonMap("dates", values)));
+                session().loadAll(Launch.class, ids, DEPTH_ENTITY)
+                        .forEach(candidate -> existing.putIfAbsent(NaturalKeyIndex.keyOf(candidate), candidate));
+            }
+        } else if (clazz.equals(LaunchServiceProvider.class)) {
+            property = "name";
+            entities.forEach(entity -> values.add(((LaunchServiceProvider) entity).getName()));
+        } else if (clazz.equals(RocketFamily.class)) {
+            property = "name";
+            entities.forEach(entity -> values.add(((RocketFamily) entity).getName()));
+        } else if (clazz.equals(PayLoad.class)) {
+            property = "name";
+            entities.forEach(entity -> values.add(((PayLoad) entity).getName()));
+        }
+        values.remove(null);
+        if (null != property && !values.isEmpty()) {
+            Collection<? extends Entity> candidates = session().loadAll(clazz,
+                    new Filter(property, IN, values), DEPTH_ENTITY);
+            candidates.forEach(candidate -> existing.putIfAbsent(NaturalKeyIndex.keyOf(candidate), candidate));
+        }
+        return existing;
+    }
+
     private <T extends Entity> T findExistingEntity(Entity entity, Class clazz) {
         Entity existingEntity = null;
         Filters filters = new Filters();
@@ -68,36 +351,36 @@ public class Neo4jDAO implements DAO {
             Rocket rocket = (Rocket) entity;
             filters.add(new Filter("name", EQUALS, rocket.getName()))
                     .and(new Filter("country", EQUALS, rocket.getCountry()));
-            collection = session.loadAll(Rocket.class, filters);
+            collection = session().loadAll(Rocket.class, filters);
         } else if (clazz.equals(User.class)) {
             User user = (User) entity;
             filters.add(new Filter("email", EQUALS, user.getEmail()));
-            collection = session.loadAll(User.class, filters);
+            collection = session().loadAll(User.class, filters);
         } else if (clazz.equals(Launch.class)) {
             Launch launch = (Launch) entity;
             filters.add(new Filter("launchDate", EQUALS, launch.getLaunchDate()))
                     .and(new Filter("launchVehicle", EQUALS, launch.getLaunchVehicle()))
                     .and(new Filter("launchSite", EQUALS, launch.getLaunchSite()))
-                    .and(new Filter("launchOutcome", EQUALS, launch.getLaunchOutcome()));
-            collection = session.loadAll(Launch.class, filters);
+                    .and(new Filter("orbit", EQUALS, launch.getOrbit()));
+            collection = session().loadAll(Launch.class, filters);
         } else if (clazz.equals(LaunchServiceProvider.class)) {
             LaunchServiceProvider lsp = (LaunchServiceProvider) entity;
             filters.add(new Filter("name", EQUALS, lsp.getName()))
                     .and(new Filter("yearFounded", EQUALS, lsp.getYearFounded()))
                     .and(new Filter("country", EQUALS, lsp.getCountry()));
-            collection = session.loadAll(LaunchServiceProvider.class, filters);
+            collection = session().loadAll(LaunchServiceProvider.class, filters);
         }
         //cici add
         else if (clazz.equals(RocketFamily.class)) {
             RocketFamily rf = (RocketFamily) entity;
             filters.add(new Filter("name", EQUALS, rf.getName()));
-            collection = session.loadAll(RocketFamily.class, filters);
+            collection = session().loadAll(RocketFamily.class, filters);
             //cici add
         } else if (clazz.equals(PayLoad.class)) {
             PayLoad payLoad = (PayLoad) entity;
             filters.add(new Filter("type", EQUALS, payLoad.getType()))
                     .and(new Filter("name", EQUALS, payLoad.getName()));
-            collection = session.loadAll(PayLoad.class, filters);
+            collection = session().loadAll(PayLoad.class, filters);
 
         }
         if (!collection.isEmpty()) {
@@ -108,16 +391,135 @@ public class Neo4jDAO implements DAO {
 
     @Override
     public <T extends Entity> Collection<T> loadAll(Class<T> clazz) {
-        return session.loadAll(clazz);
+        return read(session -> session.loadAll(clazz));
+    }
+
+    /**
+     * Streams the entities in windows of node ids. The lowest and highest id of the label are read once, with one
+     * label scan, and each window then finds the entities among the next {@code fetchSize} ids with an id seek, so
+     * the stream reads every id between the two once instead of scanning the label for every page. Entities given
+     * an id above the highest after the stream has started are left out. Pages are loaded in a session of their
+     * own, which is cleared before the next page, so the entities of earlier pages can be garbage collected.
+     */
+    @Override
+    public <T extends Entity> Stream<T> stream(Class<T> clazz, int fetchSize) {
+        isTrue(fetchSize > 0, "fetch size must be positive");
+        String label = label(clazz);
+        String bounds = "MATCH (n:`" + label + "`) RETURN min(id(n)) AS min, max(id(n)) AS max";
+        String window = "MATCH (n:`" + label + "`) WHERE id(n) IN range($from, $to) RETURN id(n) AS id ORDER BY id";
+        Session pageSession = sessionFactory.openSession();
+        Iterator<T> pages = new Iterator<T>() {
+            private Iterator<T> page = Collections.emptyIterator();
+            // the first id of the next window and the highest id, null until the bounds are read or if there are no nodes
+            private Long from;
+            private Long max;
+            private boolean started;
+
+            @Override
+            public boolean hasNext() {
+                if (!started) {
+                    started = true;
+                    Map<String, Object> row = pageSession.query(bounds, Collections.emptyMap()).iterator().next();
+                    if (null != row.get("min")) {
+                        from = ((Number) row.get("min")).longValue();
+                        max = ((Number) row.get("max")).longValue();
+                    }
+                }
+                while (!page.hasNext() && null != from && from <= max) {
+                    long to = Math.min(from + fetchSize - 1, max);
+                    Map<String, Object> parameters = new HashMap<>();
+                    parameters.put("from", from);
+                    parameters.put("to", to);
+                    from = to + 1;
+                    pageSession.clear();
+                    page = loadInOrder(pageSession, clazz, ids(pageSession.query(window, parameters))).iterator();
+                }
+                return page.hasNext();
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return page.next();
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(pages,
+                Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(pageSession::clear);
+    }
+
+    /**
+     * Only the ids of the page, and one more to tell whether there is a next page, are read from the label,
+     * and only the entities of the page are loaded. Neo4j 3.3 cannot seek a range of node ids, and no indexed
+     * property orders the entities, so the ids plan as a label scan, a filter on the cursor and a top-k sort:
+     * a page takes time linear in the number of nodes of the label, wherever the page is, though it holds no more
+     * than the page. {@code Neo4jDAOPageBenchmark} shows the latency growing with the label.
+     */
+    @Override
+    public <T extends Entity> Page<T> loadPageAfter(Class<T> clazz, Long afterId, int size) {
+        return loadPage(clazz, afterId, size, true);
+    }
+
+    @Override
+    public <T extends Entity> Page<T> loadPageBefore(Class<T> clazz, Long beforeId, int size) {
+        return loadPage(clazz, beforeId, size, false);
+    }
+
+    private <T extends Entity> Page<T> loadPage(Class<T> clazz, Long cursor, int size, boolean forward) {
+        isTrue(size > 0, "page size must be positive");
+        String label = label(clazz);
+        String cypher = forward
+                ? "MATCH (n:`" + label + "`) WHERE $cursor IS NULL OR id(n) > $cursor " +
+                "RETURN id(n) AS id ORDER BY id LIMIT $limit"
+                : "MATCH (n:`" + label + "`) WHERE $cursor IS NULL OR id(n) < $cursor " +
+                "RETURN id(n) AS id ORDER BY id DESC LIMIT $limit";
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("cursor", cursor);
+        parameters.put("limit", size + 1);
+        return read(session -> {
+            List<Long> ids = new ArrayList<>(ids(session.query(cypher, parameters)));
+            // the extra id tells whether there is a page beyond this one
+            boolean more = ids.size() > size;
+            if (more) {
+                ids.remove(size);
+            }
+            if (!forward) {
+                Collections.reverse(ids);
+            }
+            if (ids.isEmpty()) {
+                return new Page<>(new ArrayList<>(), null, null);
+            }
+            Long first = ids.get(0);
+            Long last = ids.get(ids.size() - 1);
+            boolean hasPrevious = forward ? null != cursor && exists(session, label, "<", first) : more;
+            boolean hasNext = forward ? more : null != cursor && exists(session, label, ">", last);
+            return new Page<>(loadInOrder(session, clazz, ids), hasPrevious ? first : null, hasNext ? last : null);
+        });
+    }
+
+    private static boolean exists(Session session, String label, String operator, Long id) {
+        String cypher = "MATCH (n:`" + label + "`) WHERE id(n) " + operator + " $id RETURN id(n) AS id LIMIT 1";
+        return session.query(cypher, Collections.singletonMap("id", id)).iterator().hasNext();
+    }
+
+    private String label(Class<? extends Entity> clazz) {
+        return sessionFactory.metaData().classInfo(clazz.getName()).neo4jName();
     }
 
     // TODO: need to be tested!
     public <T extends Entity> void delete(T entity) {
-        session.delete(entity);
+        write(session -> {
+            session.delete(entity);
+            return null;
+        });
+        naturalKeys.remove(entity);
+        listeners.forEach(listener -> listener.entityDeleted(entity));
     }
 
     public User getUserByEmail(String email) {
-        Collection<User> users = session.loadAll(User.class, new Filter("email", EQUALS, email));
+        Collection<User> users = read(session -> session.loadAll(User.class, new Filter("email", EQUALS, email)));
 
         if (null == users || users.isEmpty()) {
             return null;
@@ -126,6 +528,98 @@ public class Neo4jDAO implements DAO {
         }
     }
 
+    /**
+     * Runs the aggregate as Cypher in the database. Only the ids of the k result entities are returned
+     * by the query, and only those entities are loaded. Prices are stored as strings, so revenue and price
+     * rankings compare them as floating point numbers.
+     */
+    @Override
+    public <T> List<T> aggregate(AggregateQuery<T> query) {
+        return read(session -> aggregate(session, query));
+    }
+
+    // the type of the query determines the type of its result rows
+    @SuppressWarnings("unchecked")
+    private <T> List<T> aggregate(Session session, AggregateQuery<T> query) {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("k", query.getK());
+        String cypher;
+        switch (query.getType()) {
+            case MOST_LAUNCHED_ROCKETS:
+                cypher = "MATCH (r:Rocket)-[:PROVIDES]->(l:Launch {launchOutcome: 'SUCCESSFUL'}) " +
+                        "WITH r, count(l) AS launches " +
+                        "RETURN id(r) AS id ORDER BY launches, id LIMIT $k";
+                break;
+            case MOST_RELIABLE_LAUNCH_SERVICE_PROVIDERS:
+                cypher = "MATCH (l:Launch)-[:LSP]->(p:LaunchServiceProvider) " +
+                        "WITH p, count(l) AS launches, " +
+                        "sum(CASE WHEN l.launchOutcome = 'SUCCESSFUL' THEN 1 ELSE 0 END) AS successes " +
+                        "RETURN id(p) AS id ORDER BY successes / launches, id LIMIT $k";
+                break;
+            case MOST_RECENT_LAUNCHES:
+                // dates are stored as ISO strings, which sort in date order
+                cypher = "MATCH (l:Launch) WHERE exists(l.launchDate) " +
+                        "RETURN id(l) AS id ORDER BY l.launchDate DESC, id LIMIT $k";
+                break;
+            case MOST_EXPENSIVE_LAUNCHES:
+                cypher = "MATCH (l:Launch) WHERE exists(l.price) " +
+                        "RETURN id(l) AS id ORDER BY toFloat(l.price) DESC, id LIMIT $k";
+                break;
+            case HIGHEST_REVENUE_LAUNCH_SERVICE_PROVIDERS:
+                // ISO dates from the first day of the from year up to, but excluding, the first day after the to year
+                parameters.put("from", String.format("%04d-", query.getFromYear()));
+                parameters.put("to", String.format("%04d-", query.getToYear() + 1));
+                // ties are broken in the order of RevenueIndex.BY_PROVIDER, which also puts nulls last
+                cypher = "MATCH (p:LaunchServiceProvider) " +
+                        "OPTIONAL MATCH (p)<-[:MANUFACTURER]-(:Rocket)-[:PROVIDES]->(l:Launch) " +
+                        "WHERE l.launchDate >= $from AND l.launchDate < $to AND toFloat(l.price) > 0 " +
+                        "WITH p, sum(toFloat(l.price)) AS revenue " +
+                        "RETURN id(p) AS id ORDER BY revenue DESC, p.name, p.country, p.yearFounded, id LIMIT $k";
+                break;
+            case PAYLOADS_PER_COUNTRY:
+                parameters.put("orbit", query.getOrbit());
+                cypher = "MATCH (l:Launch {orbit: $orbit})-[:LSP]->(p:LaunchServiceProvider) " +
+                        "RETURN p.country AS country, sum(size(coalesce(l.payload, []))) AS payloads";
+                List<Map.Entry<String, Integer>> entries = new ArrayList<>();
+                for (Map<String, Object> row : session.query(cypher, parameters)) {
+                    entries.add(new AbstractMap.SimpleImmutableEntry<>((String) row.get("country"),
+                            ((Number) row.get("payloads")).intValue()));
+                }
+                return (List<T>) entries;
+            default:
+                throw new IllegalArgumentException("unsupported aggregate query: " + query);
+        }
+        return (List<T>) loadInOrder(session, (Class<? extends Entity>) query.getResultClass(), ids(session.query(cypher, parameters)));
+    }
+
+    private static List<Long> ids(Result result) {
+        List<Long> ids = new ArrayList<>();
+        result.forEach(row -> ids.add(((Number) row.get("id")).longValue()));
+        return ids;
+    }
+
+    // entities deleted since their ids were read are left out
+    private static <T extends Entity> List<T> loadInOrder(Session session, Class<T> clazz, List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, T> entities = new HashMap<>();
+        session.loadAll(clazz, ids, DEPTH_ENTITY).forEach(entity -> entities.put(entity.getId(), entity));
+        List<T> ordered = new ArrayList<>();
+        ids.stream().filter(entities::containsKey).forEach(id -> ordered.add(entities.get(id)));
+        return ordered;
+    }
+
+    @Override
+    public void addListener(DAOListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(DAOListener listener) {
+        listeners.remove(listener);
+    }
+
     @Override
     public void close() {
         sessionFactory.close();
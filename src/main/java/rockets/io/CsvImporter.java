@@ -0,0 +1,410 @@
+package rockets.io;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rockets.dataaccess.DAO;
+import rockets.dataaccess.neo4j.Neo4jDAO;
+import rockets.model.*;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notBlank;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Imports providers, rockets, launches and payloads from CSV files with a header row, in batches.
+ * <p>
+ * Each file is imported by a pipeline: a reader thread parses the rows into chunks, worker threads turn the
+ * chunks into entities in parallel, and the calling thread saves every chunk with
+ * {@link DAO#createOrUpdateAll(Collection)}. The stages are connected by bounded queues, so a slow store
+ * holds back the reader instead of filling the heap. Rows that are not valid are logged and skipped.
+ * Entities are matched to the stored ones by natural key, so importing a file again updates the entities
+ * instead of duplicating them. Rows with the same natural key in different chunks are saved in no particular
+ * order.
+ * <p>
+ * Rockets, launches and payloads refer to providers and rockets by name; they are looked up among the
+ * entities stored when the import of the file starts.
+ */
+public class CsvImporter {
+    private static Logger logger = LoggerFactory.getLogger(CsvImporter.class);
+
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    // the files of a directory imported by importAll, in dependency order
+    private static final String[] FILES = {"providers.csv", "rockets.csv", "launches.csv", "payloads.csv"};
+
+    // tells the next stage that a worker has finished
+    private static final List<?> END = new ArrayList<>();
+
+    private final DAO dao;
+
+    private final int workers;
+
+    private final int batchSize;
+
+    public CsvImporter(DAO dao) {
+        this(dao, Runtime.getRuntime().availableProcessors(), DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param dao       the DAO the entities are saved with.
+     * @param workers   the number of threads turning rows into entities.
+     * @param batchSize the number of rows saved at a time.
+     */
+    public CsvImporter(DAO dao, int workers, int batchSize) {
+        notNull(dao, "dao cannot be null");
+        isTrue(workers > 0, "number of workers must be positive");
+        isTrue(batchSize > 0, "batch size must be positive");
+        this.dao = dao;
+        this.workers = workers;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Imports the providers.csv, rockets.csv, launches.csv and payloads.csv files of a directory, in that
+     * order, skipping the files that do not exist.
+     *
+     * @param directory the directory.
+     * @return the result of each file imported.
+     */
+    public List<Result> importAll(File directory) throws IOException {
+        isTrue(directory.isDirectory(), "not a directory: %s", directory);
+        List<Result> results = new ArrayList<>();
+        for (String name : FILES) {
+            File file = new File(directory, name);
+            if (!file.isFile()) {
+                continue;
+            }
+            try (Reader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+                switch (name) {
+                    case "providers.csv":
+                        results.add(importProviders(in));
+                        break;
+                    case "rockets.csv":
+                        results.add(importRockets(in));
+                        break;
+                    case "launches.csv":
+                        results.add(importLaunches(in));
+                        break;
+                    default:
+                        results.add(importPayloads(in));
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Columns: name, yearFounded, country, and optionally headquarters and wikilink.
+     */
+    public Result importProviders(Reader in) throws IOException {
+        return run("providers", in, Arrays.asList("name", "yearFounded", "country"), record -> {
+            LaunchServiceProvider lsp = new LaunchServiceProvider(record.get("name"),
+                    Integer.parseInt(record.get("yearFounded")), record.get("country"));
+            String headquarters = optional(record, "headquarters");
+            if (null != headquarters) {
+                lsp.setHeadquarters(headquarters);
+            }
+            lsp.setWikilink(optional(record, "wikilink"));
+            return lsp;
+        });
+    }
+
+    /**
+     * Columns: name, variation, country, manufacturer (the name of a provider), and optionally massToLEO,
+     * massToGTO, massToOther and wikilink.
+     */
+    public Result importRockets(Reader in) throws IOException {
+        Map<String, LaunchServiceProvider> providers = byName(LaunchServiceProvider.class, LaunchServiceProvider::getName);
+        return run("rockets", in, Arrays.asList("name", "variation", "country", "manufacturer"), record -> {
+            Rocket rocket = new Rocket(record.get("name"), optional(record, "variation"), record.get("country"),
+                    reference(providers, record.get("manufacturer"), "manufacturer"));
+            String mass = optional(record, "massToLEO");
+            if (null != mass) {
+                rocket.setMassToLEO(mass);
+            }
+            mass = optional(record, "massToGTO");
+            if (null != mass) {
+                rocket.setMassToGTO(mass);
+            }
+            mass = optional(record, "massToOther");
+            if (null != mass) {
+                rocket.setMassToOther(mass);
+            }
+            rocket.setWikilink(optional(record, "wikilink"));
+            return rocket;
+        });
+    }
+
+    /**
+     * Columns: launchDate (yyyy-MM-dd), launchVehicle (the name of a rocket), launchSite, orbit, and optionally
+     * launchServiceProvider (the name of a provider), function, price, launchOutcome (FAILED or SUCCESSFUL),
+     * payload (payload names separated by semicolons) and wikilink.
+     */
+    public Result importLaunches(Reader in) throws IOException {
+        Map<String, LaunchServiceProvider> providers = byName(LaunchServiceProvider.class, LaunchServiceProvider::getName);
+        Map<String, Rocket> rockets = byName(Rocket.class, Rocket::getName);
+        return run("launches", in, Arrays.asList("launchDate", "launchVehicle", "launchSite", "orbit"), record -> {
+            Launch launch = new Launch();
+            launch.setLaunchDate(LocalDate.parse(record.get("launchDate")));
+            launch.setLaunchVehicle(reference(rockets, record.get("launchVehicle"), "launch vehicle"));
+            launch.setLaunchSite(notBlank(record.get("launchSite"), "launch site cannot be empty"));
+            launch.setOrbit(notBlank(record.get("orbit"), "orbit cannot be empty"));
+            String lsp = optional(record, "launchServiceProvider");
+            if (null != lsp) {
+                launch.setLaunchServiceProvider(reference(providers, lsp, "launch service provider"));
+            }
+            launch.setFunction(optional(record, "function"));
+            String price = optional(record, "price");
+            if (null != price) {
+                launch.setPrice(new BigDecimal(price));
+            }
+            String outcome = optional(record, "launchOutcome");
+            if (null != outcome) {
+                launch.setLaunchOutcome(Launch.LaunchOutcome.valueOf(outcome));
+            }
+            String payload = optional(record, "payload");
+            if (null != payload) {
+                Set<String> names = new LinkedHashSet<>();
+                for (String name : payload.split(";")) {
+                    if (!name.trim().isEmpty()) {
+                        names.add(name.trim());
+                    }
+                }
+                launch.setPayload(names);
+            }
+            launch.setWikilink(optional(record, "wikilink"));
+            return launch;
+        });
+    }
+
+    /**
+     * Columns: type, name, manufacturer (the name of a provider), and optionally mass, massUnit and wikilink.
+     */
+    public Result importPayloads(Reader in) throws IOException {
+        Map<String, LaunchServiceProvider> providers = byName(LaunchServiceProvider.class, LaunchServiceProvider::getName);
+        return run("payloads", in, Arrays.asList("type", "name", "manufacturer"), record -> {
+            PayLoad payload = new PayLoad(record.get("type"), record.get("name"),
+                    reference(providers, record.get("manufacturer"), "manufacturer"));
+            String mass = optional(record, "mass");
+            if (null != mass) {
+                payload.setMass(mass, optional(record, "massUnit"));
+            }
+            payload.setWikilink(optional(record, "wikilink"));
+            return payload;
+        });
+    }
+
+    private <T extends Entity> Map<String, T> byName(Class<T> clazz, Function<T, String> name) {
+        Map<String, T> entities = new HashMap<>();
+        try (Stream<T> stream = dao.stream(clazz, batchSize)) {
+            stream.forEach(entity -> entities.put(name.apply(entity), entity));
+        }
+        return entities;
+    }
+
+    private static <T> T reference(Map<String, T> entities, String name, String description) {
+        T entity = entities.get(name);
+        if (null == entity) {
+            throw new IllegalArgumentException("unknown " + description + ": " + name);
+        }
+        return entity;
+    }
+
+    private static String optional(CSVRecord record, String column) {
+        if (!record.isSet(column) || record.get(column).trim().isEmpty()) {
+            return null;
+        }
+        return record.get(column);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Entity> Result run(String kind, Reader in, List<String> columns, Function<CSVRecord, T> mapper)
+            throws IOException {
+        CSVParser parser = CSVFormat.DEFAULT.withFirstRecordAsHeader().withIgnoreSurroundingSpaces().parse(in);
+        for (String column : columns) {
+            isTrue(parser.getHeaderMap().containsKey(column), "missing column %s in %s", column, kind);
+        }
+        BlockingQueue<List<CSVRecord>> rows = new ArrayBlockingQueue<>(2 * workers);
+        BlockingQueue<List<T>> entities = new ArrayBlockingQueue<>(2 * workers);
+        AtomicLong read = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        long imported = 0;
+        long start = System.nanoTime();
+        long lastProgress = start;
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers + 1);
+        try {
+            Future<?> reader = executor.submit(() -> {
+                try {
+                    List<CSVRecord> chunk = new ArrayList<>(batchSize);
+                    for (CSVRecord record : parser) {
+                        read.incrementAndGet();
+                        chunk.add(record);
+                        if (chunk.size() == batchSize) {
+                            rows.put(chunk);
+                            chunk = new ArrayList<>(batchSize);
+                        }
+                    }
+                    if (!chunk.isEmpty()) {
+                        rows.put(chunk);
+                    }
+                    return null;
+                } finally {
+                    for (int i = 0; i < workers; i++) {
+                        putQuietly(rows, (List<CSVRecord>) END);
+                    }
+                }
+            });
+            for (int i = 0; i < workers; i++) {
+                executor.submit(() -> {
+                    try {
+                        for (List<CSVRecord> chunk = rows.take(); chunk != END; chunk = rows.take()) {
+                            List<T> batch = new ArrayList<>(chunk.size());
+                            for (CSVRecord record : chunk) {
+                                try {
+                                    batch.add(mapper.apply(record));
+                                } catch (RuntimeException e) {
+                                    rejected.incrementAndGet();
+                                    logger.warn(String.format("skipped %s row %d: %s", kind, record.getRecordNumber(), e.getMessage()));
+                                }
+                            }
+                            entities.put(batch);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        putQuietly(entities, (List<T>) END);
+                    }
+                });
+            }
+
+            for (int ended = 0; ended < workers; ) {
+                List<T> batch = entities.take();
+                if (batch == END) {
+                    ended++;
+                    continue;
+                }
+                if (!batch.isEmpty()) {
+                    dao.createOrUpdateAll(batch);
+                    // nothing saved is needed again, so do not let the session grow with the file
+                    dao.clearSession();
+                    imported += batch.size();
+                }
+                long now = System.nanoTime();
+                if (now - lastProgress >= PROGRESS_INTERVAL_NANOS) {
+                    lastProgress = now;
+                    logger.info(String.format("imported %d %s so far (%.0f rows/s)", imported, kind, read.get() * 1e9 / (now - start)));
+                }
+            }
+            reader.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("import of " + kind + " was interrupted");
+        } catch (ExecutionException e) {
+            // the parser wraps the errors of the underlying reader
+            Throwable cause = e.getCause() instanceof IllegalStateException && null != e.getCause().getCause()
+                    ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IllegalStateException("failed to read " + kind, e.getCause());
+        } finally {
+            // stops the reader and the workers if saving failed
+            executor.shutdownNow();
+        }
+
+        Result result = new Result(kind, read.get(), imported, rejected.get(), System.nanoTime() - start);
+        logger.info(result.toString());
+        return result;
+    }
+
+    private static <E> void putQuietly(BlockingQueue<E> queue, E element) {
+        try {
+            queue.put(element);
+        } catch (InterruptedException e) {
+            // the import was aborted, so nobody waits for the element
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Imports the CSV files of the directory given as the only argument into the Neo4j database of app.properties.
+     */
+    public static void main(String[] args) throws IOException {
+        isTrue(1 == args.length, "usage: CsvImporter <directory>");
+        Properties properties = new Properties();
+        try (InputStream stream = CsvImporter.class.getResourceAsStream("/app.properties")) {
+            properties.load(stream);
+        }
+        DAO dao = new Neo4jDAO(properties.getProperty("neo4j.dir"));
+        try {
+            new CsvImporter(dao).importAll(new File(args[0]));
+        } finally {
+            dao.close();
+        }
+    }
+
+    /**
+     * The number of rows read, imported and rejected from a file, and how long it took.
+     */
+    public static class Result {
+        private final String kind;
+        private final long read;
+        private final long imported;
+        private final long rejected;
+        private final long elapsedNanos;
+
+        Result(String kind, long read, long imported, long rejected, long elapsedNanos) {
+            this.kind = kind;
+            this.read = read;
+            this.imported = imported;
+            this.rejected = rejected;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public String getKind() {
+            return kind;
+        }
+
+        public long getRead() {
+            return read;
+        }
+
+        public long getImported() {
+            return imported;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        public long getElapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        }
+
+        public double getRowsPerSecond() {
+            return read * 1e9 / Math.max(1, elapsedNanos);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("imported %d of %d %s rows, rejected %d, in %d ms (%.0f rows/s)",
+                    imported, read, kind, rejected, getElapsedMillis(), getRowsPerSecond());
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package rockets.io;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rockets.dataaccess.DAO;
+import rockets.dataaccess.neo4j.Neo4jDAO;
+import rockets.model.*;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import static java.nio.file.StandardOpenOption.*;
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Exports the providers, rockets, launches, payloads or users of a DAO as CSV with a header row, or as
+ * newline-delimited JSON with one object per entity.
+ * <p>
+ * Entities are read with {@link DAO#stream(Class, int)} and written as they arrive, so memory use does not
+ * depend on the number of entities. Related entities are written by name. The CSV exports of providers, rockets,
+ * launches and payloads have the columns {@link CsvImporter} reads, so they can be imported again; there is no
+ * importer for users, whose passwords are not exported. A payload's mass is split into the weight and the unit at
+ * its first space, as {@link PayLoad#setMass(String, String)} joins them.
+ */
+public class Exporter {
+    private static Logger logger = LoggerFactory.getLogger(Exporter.class);
+
+    public enum Format {
+        CSV("text/csv", ".csv"),
+        NDJSON("application/x-ndjson", ".ndjson");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final Map<String, Table<?>> TABLES = new LinkedHashMap<>();
+
+    static {
+        TABLES.put("providers", new Table<>(LaunchServiceProvider.class,
+                Arrays.asList("id", "name", "yearFounded", "country", "headquarters", "wikilink"),
+                lsp -> Arrays.<Object>asList(lsp.getId(), lsp.getName(), lsp.getYearFounded(), lsp.getCountry(),
+                        lsp.getHeadquarters(), lsp.getWikilink())));
+        TABLES.put("rockets", new Table<>(Rocket.class,
+                Arrays.asList("id", "name", "variation", "country", "manufacturer", "massToLEO", "massToGTO",
+                        "massToOther", "wikilink"),
+                rocket -> Arrays.<Object>asList(rocket.getId(), rocket.getName(), rocket.getVariation(), rocket.getCountry(),
+                        nameOf(rocket.getManufacturer()), rocket.getMassToLEO(), rocket.getMassToGTO(),
+                        rocket.getMassToOther(), rocket.getWikilink())));
+        TABLES.put("launches", new Table<>(Launch.class,
+                Arrays.asList("id", "launchDate", "launchVehicle", "launchServiceProvider", "launchSite", "orbit",
+                        "function", "price", "launchOutcome", "payload", "wikilink"),
+                launch -> Arrays.<Object>asList(launch.getId(), launch.getLaunchDate(),
+                        null == launch.getLaunchVehicle() ? null : launch.getLaunchVehicle().getName(),
+                        nameOf(launch.getLaunchServiceProvider()), launch.getLaunchSite(), launch.getOrbit(),
+                        launch.getFunction(), launch.getPrice(), launch.getLaunchOutcome(), launch.getPayload(),
+                        launch.getWikilink())));
+        TABLES.put("payloads", new Table<>(PayLoad.class,
+                Arrays.asList("id", "type", "name", "manufacturer", "mass", "massUnit", "wikilink"),
+                payload -> {
+                    // the mass is kept as one string of the weight and the unit
+                    String[] mass = null == payload.getMass() ? new String[2] : payload.getMass().split(" ", 2);
+                    return Arrays.<Object>asList(payload.getId(), payload.getType(), payload.getName(),
+                            nameOf(payload.getManufacturer()), mass[0], mass.length > 1 ? mass[1] : null,
+                            payload.getWikilink());
+                }));
+        TABLES.put("users", new Table<>(User.class,
+                Arrays.asList("id", "email", "firstName", "lastName"),
+                user -> Arrays.<Object>asList(user.getId(), user.getEmail(), user.getFirstName(), user.getLastName())));
+    }
+
+    private final DAO dao;
+
+    private final int fetchSize;
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    public Exporter(DAO dao) {
+        this(dao, DEFAULT_FETCH_SIZE);
+    }
+
+    /**
+     * @param dao       the DAO the entities are read from.
+     * @param fetchSize the number of entities read at a time.
+     */
+    public Exporter(DAO dao, int fetchSize) {
+        notNull(dao, "dao cannot be null");
+        isTrue(fetchSize > 0, "fetch size must be positive");
+        this.dao = dao;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * @return the kinds of entities that can be exported.
+     */
+    public static Set<String> getKinds() {
+        return Collections.unmodifiableSet(TABLES.keySet());
+    }
+
+    /**
+     * Writes the entities of a kind to a stream, and flushes it. The stream is not closed.
+     *
+     * @param kind   providers, rockets, launches, payloads or users.
+     * @param format the format.
+     * @param out    the stream.
+     * @return the number of entities written.
+     */
+    public long export(String kind, Format format, OutputStream out) throws IOException {
+        Table<?> table = TABLES.get(kind);
+        isTrue(null != table, "unknown kind of entities: %s", kind);
+        notNull(format, "format cannot be null");
+        long start = System.nanoTime();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        long count = Format.CSV == format ? writeCsv(table, writer) : writeNdjson(table, writer);
+        writer.flush();
+        logger.info(String.format("exported %d %s in %d ms", count, kind,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+        return count;
+    }
+
+    /**
+     * Writes the entities of a kind to a file through a file channel, gzipped if the name ends with .gz.
+     *
+     * @param kind   providers, rockets, launches, payloads or users.
+     * @param format the format.
+     * @param file   the file, which is replaced if it exists.
+     * @return the number of entities written.
+     */
+    public long export(String kind, Format format, Path file) throws IOException {
+        try (OutputStream channel = Channels.newOutputStream(FileChannel.open(file, CREATE, WRITE, TRUNCATE_EXISTING))) {
+            if (!file.getFileName().toString().endsWith(".gz")) {
+                return export(kind, format, channel);
+            }
+            try (GZIPOutputStream gzip = new GZIPOutputStream(channel, BUFFER_SIZE)) {
+                return export(kind, format, gzip);
+            }
+        }
+    }
+
+    // the values of a collection column in one cell
+    private static String join(Collection<?> values) {
+        return values.stream().map(String::valueOf).collect(Collectors.joining(";"));
+    }
+
+    private <T extends Entity> long writeCsv(Table<T> table, Writer writer) throws IOException {
+        CSVPrinter printer = new CSVPrinter(writer, CSVFormat.DEFAULT.withHeader(table.columns.toArray(new String[0])));
+        long count = 0;
+        try (Stream<T> stream = dao.stream(table.clazz, fetchSize)) {
+            for (Iterator<T> entities = stream.iterator(); entities.hasNext(); count++) {
+                for (Object value : table.row.apply(entities.next())) {
+                    printer.print(value instanceof Collection ? join((Collection<?>) value) : value);
+                }
+                printer.println();
+            }
+        }
+        printer.flush();
+        return count;
+    }
+
+    private <T extends Entity> long writeNdjson(Table<T> table, Writer writer) throws IOException {
+        JsonGenerator generator = jsonFactory.createGenerator(writer);
+        generator.setRootValueSeparator(null);
+        long count = 0;
+        try (Stream<T> stream = dao.stream(table.clazz, fetchSize)) {
+            for (Iterator<T> entities = stream.iterator(); entities.hasNext(); count++) {
+                List<Object> row = table.row.apply(entities.next());
+                generator.writeStartObject();
+                for (int i = 0; i < row.size(); i++) {
+                    Object value = row.get(i);
+                    generator.writeFieldName(table.columns.get(i));
+                    if (null == value) {
+                        generator.writeNull();
+                    } else if (value instanceof Long || value instanceof Integer) {
+                        generator.writeNumber(((Number) value).longValue());
+                    } else if (value instanceof BigDecimal) {
+                        generator.writeNumber((BigDecimal) value);
+                    } else if (value instanceof Collection) {
+                        generator.writeStartArray();
+                        for (Object element : (Collection<?>) value) {
+                            generator.writeString(element.toString());
+                        }
+                        generator.writeEndArray();
+                    } else {
+                        generator.writeString(value.toString());
+                    }
+                }
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            }
+        }
+        generator.flush();
+        return count;
+    }
+
+    private static String nameOf(LaunchServiceProvider lsp) {
+        return null == lsp ? null : lsp.getName();
+    }
+
+    /**
+     * Exports one kind of entities from the Neo4j database of app.properties to a file.
+     */
+    public static void main(String[] args) throws IOException {
+        isTrue(3 == args.length, "usage: Exporter <%s> <csv|ndjson> <file[.gz]>", String.join("|", TABLES.keySet()));
+        Properties properties = new Properties();
+        try (InputStream stream = Exporter.class.getResourceAsStream("/app.properties")) {
+            properties.load(stream);
+        }
+        DAO dao = new Neo4jDAO(properties.getProperty("neo4j.dir"));
+        try {
+            new Exporter(dao).export(args[0], Format.valueOf(args[1].toUpperCase()), Paths.get(args[2]));
+        } finally {
+            dao.close();
+        }
+    }
+
+    private static class Table<T extends Entity> {
+        private final Class<T> clazz;
+        private final List<String> columns;
+        private final Function<T, List<Object>> row;
+
+        private Table(Class<T> clazz, List<String> columns, Function<T, List<Object>> row) {
+            this.clazz = clazz;
+            this.columns = columns;
+            this.row = row;
+        }
+    }
+}
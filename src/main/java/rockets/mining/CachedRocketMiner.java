@@ -0,0 +1,129 @@
+package rockets.mining;
+
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A {@link RocketMiner} that answers repeated queries from a {@link MiningResultCache} and passes
+ * the misses on to another miner. The results are shared between callers and cannot be modified.
+ */
+public class CachedRocketMiner extends RocketMiner {
+    private final RocketMiner miner;
+
+    private final MiningResultCache cache;
+
+    /**
+     * @param miner the miner that computes the results.
+     * @param cache the cache of the results.
+     */
+    public CachedRocketMiner(RocketMiner miner, MiningResultCache cache) {
+        super(miner.getDao());
+        this.miner = miner;
+        this.cache = cache;
+    }
+
+    public MiningResultCache getCache() {
+        return cache;
+    }
+
+    @Override
+    public void setParallelism(ForkJoinPool pool, int threshold) {
+        miner.setParallelism(pool, threshold);
+    }
+
+    @Override
+    public void setPushdown(boolean pushdown) {
+        miner.setPushdown(pushdown);
+    }
+
+    @Override
+    public void setFetchSize(int fetchSize) {
+        miner.setFetchSize(fetchSize);
+    }
+
+    @Override
+    public List<Rocket> mostLaunchedRockets(int k) {
+        return cache.get(key("mostLaunchedRockets", k),
+                () -> Collections.unmodifiableList(miner.mostLaunchedRockets(k)));
+    }
+
+    @Override
+    public List<LaunchServiceProvider> mostReliableLaunchServiceProviders(int k) {
+        return cache.get(key("mostReliableLaunchServiceProviders", k),
+                () -> Collections.unmodifiableList(miner.mostReliableLaunchServiceProviders(k)));
+    }
+
+    @Override
+    public List<Launch> mostRecentLaunches(int k) {
+        return cache.get(key("mostRecentLaunches", k),
+                () -> Collections.unmodifiableList(miner.mostRecentLaunches(k)));
+    }
+
+    @Override
+    public List<Launch> launchesBetween(LocalDate from, LocalDate to) {
+        return cache.get(key("launchesBetween", from, to), () -> Collections.unmodifiableList(miner.launchesBetween(from, to)));
+    }
+
+    @Override
+    public List<Launch> launchesInYear(int year) {
+        return cache.get(key("launchesInYear", year), () -> Collections.unmodifiableList(miner.launchesInYear(year)));
+    }
+
+    @Override
+    public String dominantCountry(String orbit) {
+        return cache.get(key("dominantCountry", orbit), () -> miner.dominantCountry(orbit));
+    }
+
+    @Override
+    public String dominantCountry(String orbit, int fromYear, int toYear) {
+        return cache.get(key("dominantCountry", orbit, fromYear, toYear), () -> miner.dominantCountry(orbit, fromYear, toYear));
+    }
+
+    @Override
+    public List<Launch> mostExpensiveLaunches(int k) {
+        return cache.get(key("mostExpensiveLaunches", k),
+                () -> Collections.unmodifiableList(miner.mostExpensiveLaunches(k)));
+    }
+
+    @Override
+    public List<LaunchServiceProvider> highestRevenueLaunchServiceProviders(int k, int year) {
+        return cache.get(key("highestRevenueLaunchServiceProviders", k, year),
+                () -> Collections.unmodifiableList(miner.highestRevenueLaunchServiceProviders(k, year)));
+    }
+
+    @Override
+    public List<LaunchServiceProvider> highestRevenueLaunchServiceProviders(int k, int fromYear, int toYear) {
+        return cache.get(key("highestRevenueLaunchServiceProviders", k, fromYear, toYear),
+                () -> Collections.unmodifiableList(miner.highestRevenueLaunchServiceProviders(k, fromYear, toYear)));
+    }
+
+    @Override
+    public List<Launch> mostRecentSuccessfulLaunches() {
+        return cache.get(key("mostRecentSuccessfulLaunches"),
+                () -> Collections.unmodifiableList(miner.mostRecentSuccessfulLaunches()));
+    }
+
+    @Override
+    public Map<Rocket, Integer> numOfSuccessfulLunchesForRockets() {
+        return cache.get(key("numOfSuccessfulLunchesForRockets"),
+                () -> Collections.unmodifiableMap(miner.numOfSuccessfulLunchesForRockets()));
+    }
+
+    @Override
+    public Map<LaunchServiceProvider, Integer> percentageOfSuccessfulLaunchesForProviders() {
+        return cache.get(key("percentageOfSuccessfulLaunchesForProviders"),
+                () -> Collections.unmodifiableMap(miner.percentageOfSuccessfulLaunchesForProviders()));
+    }
+
+    private static List<Object> key(Object... query) {
+        return Arrays.asList(query);
+    }
+}
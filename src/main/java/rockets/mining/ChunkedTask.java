@@ -0,0 +1,50 @@
+package rockets.mining;
+
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+
+/**
+ * Splits an index range in halves until a chunk is no larger than the threshold, computes a partial
+ * result for each chunk, and merges the partial results left to right, so that the merge order is
+ * the same whatever the number of threads.
+ *
+ * @param <A> the type of the partial results.
+ */
+class ChunkedTask<A> extends RecursiveTask<A> {
+    private static final long serialVersionUID = 1L;
+
+    private final int from;
+    private final int to;
+    private final int threshold;
+    private final BiFunction<Integer, Integer, A> chunk;
+    private final BinaryOperator<A> merge;
+
+    /**
+     * @param from      the first index, inclusive.
+     * @param to        the last index, exclusive.
+     * @param threshold the largest chunk that is computed without splitting.
+     * @param chunk     computes the partial result of the indexes from its first to its second argument.
+     * @param merge     merges the partial result of a right chunk into that of its left neighbour.
+     */
+    ChunkedTask(int from, int to, int threshold, BiFunction<Integer, Integer, A> chunk, BinaryOperator<A> merge) {
+        this.from = from;
+        this.to = to;
+        this.threshold = Math.max(1, threshold);
+        this.chunk = chunk;
+        this.merge = merge;
+    }
+
+    @Override
+    protected A compute() {
+        if (to - from <= threshold) {
+            return chunk.apply(from, to);
+        }
+        int middle = (from + to) >>> 1;
+        ChunkedTask<A> left = new ChunkedTask<>(from, middle, threshold, chunk, merge);
+        ChunkedTask<A> right = new ChunkedTask<>(middle, to, threshold, chunk, merge);
+        left.fork();
+        A rightResult = right.compute();
+        return merge.apply(left.join(), rightResult);
+    }
+}
@@ -0,0 +1,141 @@
+package rockets.mining;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rockets.dataaccess.DAO;
+import rockets.dataaccess.DAOListener;
+import rockets.model.Entity;
+import rockets.model.Launch;
+import rockets.model.LaunchDateIndex;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Keeps {@link LaunchAggregates} up to date with every launch written through a {@link DAO}.
+ * <p>
+ * Each write is applied as a delta: the previous state of an updated launch is taken out of the
+ * aggregates before its new state is added, so a changed outcome or price is accounted for.
+ * Launches are tracked by id, and only when they are passed to {@link DAO#createOrUpdate(Entity)}
+ * or {@link DAO#delete(Entity)} themselves; launches saved by cascade from another entity are not seen.
+ */
+public class LaunchAggregateStore implements DAOListener {
+    private static Logger logger = LoggerFactory.getLogger(LaunchAggregateStore.class);
+
+    private final LaunchAggregates aggregates = new LaunchAggregates();
+
+    // the launch entities, in the order they were first written
+    private final Map<Long, Launch> launches = new LinkedHashMap<>();
+
+    // a copy of each launch as it was counted, so that it can be taken out again after the entity changed
+    private final Map<Long, Launch> counted = new HashMap<>();
+
+    // the launch entities by launch date
+    private final LaunchDateIndex dates = new LaunchDateIndex();
+
+    /**
+     * Creates a store that listens to the writes of the DAO, and loads the launches already stored.
+     *
+     * @param dao the DAO.
+     * @return the store.
+     */
+    public static LaunchAggregateStore attach(DAO dao) {
+        LaunchAggregateStore store = new LaunchAggregateStore();
+        // listen first, so that no write is missed while loading; saving a launch twice is harmless
+        dao.addListener(store);
+        dao.loadAll(Launch.class).forEach(store::entitySaved);
+        logger.info("attached launch aggregate store with " + store.size() + " launches");
+        return store;
+    }
+
+    @Override
+    public synchronized void entitySaved(Entity entity) {
+        if (!(entity instanceof Launch) || null == entity.getId()) {
+            return;
+        }
+        Launch launch = (Launch) entity;
+        Launch previous = counted.remove(launch.getId());
+        if (null != previous) {
+            aggregates.remove(previous);
+        }
+        Launch copy = copyOf(launch);
+        aggregates.add(copy);
+        counted.put(launch.getId(), copy);
+        Launch stored = launches.put(launch.getId(), launch);
+        if (null == previous) {
+            dates.add(launch);
+        } else if (stored != launch || !Objects.equals(previous.getLaunchDate(), launch.getLaunchDate())) {
+            // an unchanged launch keeps its place among the launches of its date
+            dates.remove(stored, previous.getLaunchDate());
+            dates.add(launch);
+        }
+    }
+
+    @Override
+    public synchronized void entityDeleted(Entity entity) {
+        if (!(entity instanceof Launch) || null == entity.getId()) {
+            return;
+        }
+        Launch previous = counted.remove(entity.getId());
+        if (null != previous) {
+            aggregates.remove(previous);
+        }
+        Launch stored = launches.remove(entity.getId());
+        if (null != stored) {
+            dates.remove(stored, previous.getLaunchDate());
+        }
+    }
+
+    /**
+     * Runs a query against the current aggregates, while no write can change them.
+     *
+     * @param query the query.
+     * @return the result of the query.
+     */
+    public synchronized <R> R query(Function<LaunchAggregates, R> query) {
+        return query.apply(aggregates);
+    }
+
+    /**
+     * @return a copy of the tracked launches, in the order they were first written.
+     */
+    public synchronized List<Launch> getLaunches() {
+        return new ArrayList<>(launches.values());
+    }
+
+    /**
+     * @param k the number of launches to be returned.
+     * @return the k most recent launches, latest first.
+     */
+    public synchronized List<Launch> getMostRecentLaunches(int k) {
+        return dates.getMostRecent(k);
+    }
+
+    /**
+     * @param from the first date, inclusive.
+     * @param to   the last date, inclusive.
+     * @return the launches between the dates, earliest first.
+     */
+    public synchronized List<Launch> getLaunchesBetween(LocalDate from, LocalDate to) {
+        return dates.getBetween(from, to);
+    }
+
+    public synchronized int size() {
+        return launches.size();
+    }
+
+    private static Launch copyOf(Launch launch) {
+        Launch copy = new Launch();
+        copy.setLaunchDate(launch.getLaunchDate());
+        copy.setLaunchVehicle(launch.getLaunchVehicle());
+        copy.setLaunchServiceProvider(launch.getLaunchServiceProvider());
+        copy.setOrbit(launch.getOrbit());
+        copy.setPrice(launch.getPrice());
+        copy.setLaunchOutcome(launch.getLaunchOutcome());
+        if (null != launch.getPayload()) {
+            copy.setPayload(new HashSet<>(launch.getPayload()));
+        }
+        return copy;
+    }
+}
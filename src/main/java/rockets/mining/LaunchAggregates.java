@@ -0,0 +1,273 @@
+package rockets.mining;
+
+import rockets.model.Launch;
+import rockets.model.LaunchCube;
+import rockets.model.LaunchFactTable;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.RevenueIndex;
+import rockets.model.Rocket;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static rockets.model.Launch.LaunchOutcome.SUCCESSFUL;
+import static rockets.model.LaunchFactTable.NO_DATE;
+import static rockets.model.LaunchFactTable.NO_ID;
+
+/**
+ * The aggregates every {@link RocketMiner} query needs, computed in a single pass over the launches.
+ * <p>
+ * Instances are built with {@link #scan(Collection)}, {@link #scan(Stream)} or {@link #scan(LaunchFactTable)}, or kept up to date
+ * by a {@link LaunchAggregateStore}, and are not thread-safe.
+ */
+public class LaunchAggregates {
+    private final Map<Rocket, Integer> successfulLaunchesPerRocket = new HashMap<>();
+
+    private final Map<LaunchServiceProvider, Integer> launchesPerProvider = new HashMap<>();
+
+    private final Map<LaunchServiceProvider, Integer> successfulLaunchesPerProvider = new HashMap<>();
+
+    // year -> rocket manufacturer -> summed positive launch price
+    private final RevenueIndex revenue = new RevenueIndex();
+
+    // launches and payloads by orbit, provider country, provider and year
+    private final LaunchCube cube = new LaunchCube();
+
+    LaunchAggregates() {
+    }
+
+    /**
+     * Computes the aggregates of the given launches in one pass.
+     *
+     * @param launches the launches to be aggregated.
+     * @return the aggregates of the launches.
+     */
+    public static LaunchAggregates scan(Collection<Launch> launches) {
+        LaunchAggregates aggregates = new LaunchAggregates();
+        for (Launch launch : launches) {
+            aggregates.add(launch);
+        }
+        return aggregates;
+    }
+
+    /**
+     * Computes the aggregates of a stream of launches in one pass, without holding on to the launches.
+     *
+     * @param launches the launches to be aggregated.
+     * @return the aggregates of the launches.
+     */
+    public static LaunchAggregates scan(Stream<Launch> launches) {
+        LaunchAggregates aggregates = new LaunchAggregates();
+        launches.forEachOrdered(aggregates::add);
+        return aggregates;
+    }
+
+    /**
+     * Computes the aggregates of the rows of a fact table in one pass over its columns.
+     * The group-bys run over dense ids and are only turned into entity keys once per distinct key.
+     *
+     * @param table the launch fact table.
+     * @return the aggregates of the launches in the table.
+     */
+    public static LaunchAggregates scan(LaunchFactTable table) {
+        return scan(table, 0, table.size());
+    }
+
+    /**
+     * Computes the aggregates of a range of rows of a fact table in one pass over its columns.
+     *
+     * @param table the launch fact table.
+     * @param from  the first row, inclusive.
+     * @param to    the last row, exclusive.
+     * @return the aggregates of the launches in the rows.
+     */
+    public static LaunchAggregates scan(LaunchFactTable table, int from, int to) {
+        int[] successfulLaunchesPerRocket = new int[table.getRocketCount()];
+        int[] launchesPerProvider = new int[table.getProviderCount()];
+        int[] successfulLaunchesPerProvider = new int[table.getProviderCount()];
+        // (orbit, provider, year) -> {launches, payloads}
+        Map<Long, int[]> cells = new LinkedHashMap<>();
+        Map<Integer, long[]> revenueCentsPerYear = new LinkedHashMap<>();
+        Map<Integer, boolean[]> manufacturersPerYear = new HashMap<>();
+        // launches are mostly stored in date order, so remember the bounds of the last year seen
+        int yearStart = 0;
+        int yearEnd = 0;
+        int year = 0;
+
+        for (int row = from; row < to; row++) {
+            boolean successful = table.isSuccessful(row);
+            int rocket = table.getRocketId(row);
+            int lsp = table.getProviderId(row);
+            if (successful && NO_ID != rocket) {
+                successfulLaunchesPerRocket[rocket]++;
+            }
+            int epochDay = table.getEpochDay(row);
+            if (NO_DATE != epochDay && (epochDay < yearStart || epochDay >= yearEnd)) {
+                year = LocalDate.ofEpochDay(epochDay).getYear();
+                yearStart = (int) LocalDate.of(year, 1, 1).toEpochDay();
+                yearEnd = (int) LocalDate.of(year + 1, 1, 1).toEpochDay();
+            }
+            if (NO_ID != lsp) {
+                launchesPerProvider[lsp]++;
+                if (successful) {
+                    successfulLaunchesPerProvider[lsp]++;
+                }
+                int orbit = table.getOrbitId(row);
+                if (NO_ID != orbit) {
+                    long cell = ((long) orbit * table.getProviderCount() + lsp) << 32 | (NO_DATE == epochDay ? NO_DATE : year) & 0xffffffffL;
+                    int[] measures = cells.computeIfAbsent(cell, c -> new int[2]);
+                    measures[0]++;
+                    measures[1] += table.getPayloadCount(row);
+                }
+            }
+            if (NO_ID != rocket && NO_ID != table.getManufacturerId(rocket) && NO_DATE != epochDay && table.getPriceCents(row) > 0) {
+                int manufacturer = table.getManufacturerId(rocket);
+                revenueCentsPerYear.computeIfAbsent(year, y -> new long[table.getProviderCount()])[manufacturer] += table.getPriceCents(row);
+                manufacturersPerYear.computeIfAbsent(year, y -> new boolean[table.getProviderCount()])[manufacturer] = true;
+            }
+        }
+
+        // turn the ids of the non-empty groups back into keys
+        LaunchAggregates aggregates = new LaunchAggregates();
+        for (int id = 0; id < successfulLaunchesPerRocket.length; id++) {
+            if (successfulLaunchesPerRocket[id] > 0) {
+                aggregates.successfulLaunchesPerRocket.put(table.getRocket(id), successfulLaunchesPerRocket[id]);
+            }
+        }
+        for (int id = 0; id < launchesPerProvider.length; id++) {
+            if (launchesPerProvider[id] > 0) {
+                aggregates.launchesPerProvider.put(table.getProvider(id), launchesPerProvider[id]);
+            }
+            if (successfulLaunchesPerProvider[id] > 0) {
+                aggregates.successfulLaunchesPerProvider.put(table.getProvider(id), successfulLaunchesPerProvider[id]);
+            }
+        }
+        cells.forEach((cell, measures) -> {
+            int orbitAndProvider = (int) (cell >>> 32);
+            int cellYear = (int) (long) cell;
+            aggregates.cube.add(table.getOrbit(orbitAndProvider / table.getProviderCount()),
+                    table.getProvider(orbitAndProvider % table.getProviderCount()),
+                    NO_DATE == cellYear ? null : cellYear, measures[0], measures[1]);
+        });
+        revenueCentsPerYear.forEach((y, cents) -> {
+            boolean[] manufacturers = manufacturersPerYear.get(y);
+            for (int id = 0; id < cents.length; id++) {
+                if (manufacturers[id]) {
+                    aggregates.revenue.add(y, table.getProvider(id), BigDecimal.valueOf(cents[id], 2));
+                }
+            }
+        });
+        return aggregates;
+    }
+
+    /**
+     * Adds the aggregates of another set of launches to these. Keys new to these aggregates are added
+     * in the order the other aggregates hold them, so merging the aggregates of consecutive chunks of
+     * launches gives the same aggregates, in the same iteration order, as scanning all of them.
+     *
+     * @param other the aggregates of launches that come after the launches of these.
+     * @return these aggregates.
+     */
+    LaunchAggregates merge(LaunchAggregates other) {
+        other.successfulLaunchesPerRocket.forEach((rocket, n) -> successfulLaunchesPerRocket.merge(rocket, n, Integer::sum));
+        other.launchesPerProvider.forEach((lsp, n) -> launchesPerProvider.merge(lsp, n, Integer::sum));
+        other.successfulLaunchesPerProvider.forEach((lsp, n) -> successfulLaunchesPerProvider.merge(lsp, n, Integer::sum));
+        revenue.merge(other.revenue);
+        cube.merge(other.cube);
+        return this;
+    }
+
+    void add(Launch launch) {
+        count(launch, 1);
+    }
+
+    void remove(Launch launch) {
+        count(launch, -1);
+    }
+
+    private void count(Launch launch, int delta) {
+        boolean successful = launch.getLaunchOutcome() == SUCCESSFUL;
+        Rocket rocket = launch.getLaunchVehicle();
+        LaunchServiceProvider lsp = launch.getLaunchServiceProvider();
+
+        if (successful && null != rocket) {
+            successfulLaunchesPerRocket.merge(rocket, delta, LaunchAggregates::sumOrRemove);
+        }
+        if (null != lsp) {
+            launchesPerProvider.merge(lsp, delta, LaunchAggregates::sumOrRemove);
+            if (successful) {
+                successfulLaunchesPerProvider.merge(lsp, delta, LaunchAggregates::sumOrRemove);
+            }
+        }
+        if (null != rocket && null != rocket.getManufacturer()
+                && null != launch.getLaunchDate() && null != launch.getPrice() && launch.getPrice().signum() > 0) {
+            BigDecimal price = delta > 0 ? launch.getPrice() : launch.getPrice().negate();
+            revenue.add(launch.getLaunchDate().getYear(), rocket.getManufacturer(), price);
+        }
+        if (delta > 0) {
+            cube.add(launch);
+        } else {
+            cube.remove(launch);
+        }
+    }
+
+    // a launch count that drops to zero means the key has no launches left
+    private static Integer sumOrRemove(Integer a, Integer b) {
+        int sum = a + b;
+        return 0 == sum ? null : sum;
+    }
+
+    /**
+     * @return the number of successful launches of each rocket that has at least one.
+     */
+    public Map<Rocket, Integer> getSuccessfulLaunchesPerRocket() {
+        return Collections.unmodifiableMap(successfulLaunchesPerRocket);
+    }
+
+    /**
+     * @return the total number of launches of each provider.
+     */
+    public Map<LaunchServiceProvider, Integer> getLaunchesPerProvider() {
+        return Collections.unmodifiableMap(launchesPerProvider);
+    }
+
+    /**
+     * @param lsp the launch service provider.
+     * @return the number of successful launches of the provider.
+     */
+    public int getSuccessfulLaunches(LaunchServiceProvider lsp) {
+        return successfulLaunchesPerProvider.getOrDefault(lsp, 0);
+    }
+
+    /**
+     * @param year the year in request.
+     * @return the revenue of each rocket manufacturer in the year.
+     */
+    public Map<LaunchServiceProvider, BigDecimal> getRevenue(int year) {
+        return revenue.getRevenue(year);
+    }
+
+    /**
+     * @return the revenue of the rocket manufacturers by year.
+     */
+    public RevenueIndex getRevenueIndex() {
+        return revenue;
+    }
+
+    /**
+     * @param orbit the orbit.
+     * @return the number of payloads each country sent to the orbit.
+     */
+    public Map<String, Integer> getPayloadsPerCountry(String orbit) {
+        return Collections.unmodifiableMap(cube.getPayloadsPerCountry(orbit));
+    }
+
+    /**
+     * @return the launch and payload counts by orbit, provider country, provider and year.
+     */
+    public LaunchCube getCube() {
+        return cube;
+    }
+}
@@ -0,0 +1,160 @@
+package rockets.mining;
+
+import rockets.dataaccess.DatasetVersion;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * A least-recently-used cache of mining results, keyed by query and arguments.
+ * <p>
+ * The cache is bounded both by its number of entries and by its weight, the weight of a result being
+ * one plus the number of its elements. Every entry belongs to the {@link DatasetVersion} it was computed at,
+ * and the whole cache is dropped as soon as the version changes, so no result outlives a write.
+ * Results are computed outside the lock; two threads missing the same key at once both compute it.
+ */
+public class MiningResultCache {
+    private final DatasetVersion version;
+
+    private final int maximumSize;
+
+    private final long maximumWeight;
+
+    // in access order, least recently used first
+    private final LinkedHashMap<List<Object>, Object> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long cachedVersion;
+
+    private long weight;
+
+    private long hitCount;
+
+    private long missCount;
+
+    private long evictionCount;
+
+    /**
+     * @param version       the version of the dataset the results are computed from.
+     * @param maximumSize   the maximum number of results.
+     * @param maximumWeight the maximum total weight of the results.
+     */
+    public MiningResultCache(DatasetVersion version, int maximumSize, long maximumWeight) {
+        notNull(version, "version cannot be null");
+        isTrue(maximumSize >= 0, "maximum size cannot be negative");
+        isTrue(maximumWeight >= 0, "maximum weight cannot be negative");
+        this.version = version;
+        this.maximumSize = maximumSize;
+        this.maximumWeight = maximumWeight;
+        this.cachedVersion = version.get();
+    }
+
+    /**
+     * Returns the cached result of a query, computing and caching it on a miss.
+     *
+     * @param key    the query and its arguments.
+     * @param loader computes the result on a miss.
+     * @return the result.
+     */
+    // the key names the query, so a cached result is of the type the loader of that key returns
+    @SuppressWarnings("unchecked")
+    public <R> R get(List<Object> key, Supplier<R> loader) {
+        // read the version first, so a write during the computation leaves the result stale
+        long current = version.get();
+        synchronized (this) {
+            invalidateIfStale(current);
+            Object result = entries.get(key);
+            if (null != result) {
+                hitCount++;
+                return (R) result;
+            }
+            missCount++;
+        }
+        R result = loader.get();
+        if (null != result) {
+            put(key, result, current);
+        }
+        return result;
+    }
+
+    private synchronized void put(List<Object> key, Object result, long resultVersion) {
+        invalidateIfStale(version.get());
+        if (resultVersion != cachedVersion) {
+            return;
+        }
+        long resultWeight = weigh(result);
+        if (resultWeight > maximumWeight || 0 == maximumSize) {
+            return;
+        }
+        Object previous = entries.put(key, result);
+        if (null != previous) {
+            weight -= weigh(previous);
+        }
+        weight += resultWeight;
+        Iterator<Object> eldest = entries.values().iterator();
+        while (entries.size() > maximumSize || weight > maximumWeight) {
+            weight -= weigh(eldest.next());
+            eldest.remove();
+            evictionCount++;
+        }
+    }
+
+    private void invalidateIfStale(long current) {
+        if (current != cachedVersion) {
+            entries.clear();
+            weight = 0;
+            cachedVersion = current;
+        }
+    }
+
+    private static long weigh(Object result) {
+        if (result instanceof Collection) {
+            return 1L + ((Collection<?>) result).size();
+        }
+        if (result instanceof Map) {
+            return 1L + ((Map<?, ?>) result).size();
+        }
+        return 1L;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * @return the ratio of hits to requests, or 1 if nothing has been requested yet.
+     */
+    public synchronized double getHitRate() {
+        long requests = hitCount + missCount;
+        return 0 == requests ? 1.0 : (double) hitCount / requests;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "MiningResultCache{" +
+                "size=" + entries.size() +
+                ", weight=" + weight +
+                ", hitCount=" + hitCount +
+                ", missCount=" + missCount +
+                ", evictionCount=" + evictionCount +
+                '}';
+    }
+}
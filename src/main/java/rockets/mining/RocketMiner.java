@@ -2,26 +2,111 @@ package rockets.mining;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import rockets.dataaccess.AggregateQuery;
 import rockets.dataaccess.DAO;
 import rockets.model.Launch;
+import rockets.model.LaunchCube;
+import rockets.model.LaunchDateIndex;
+import rockets.model.LaunchFactTable;
 import rockets.model.LaunchServiceProvider;
+import rockets.model.RevenueIndex;
 import rockets.model.Rocket;
 
-//import java.math.BigDecimal;
-import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.*;
-import java.util.Map.Entry;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.apache.commons.lang3.Validate.isTrue;
 
 public class RocketMiner {
     private static Logger logger = LoggerFactory.getLogger(RocketMiner.class);
 
     private DAO dao;
 
+    private LaunchAggregateStore store;
+
+    private LaunchFactTable table;
+
+    private ForkJoinPool pool;
+
+    private int parallelThreshold;
+
+    private boolean pushdown;
+
+    private int fetchSize;
+
     public RocketMiner(DAO dao) {
         this.dao = dao;
     }
 
+    /**
+     * Creates a miner that answers from incrementally maintained aggregates instead of loading the launches.
+     *
+     * @param dao   the DAO.
+     * @param store the aggregate store attached to the DAO.
+     */
+    public RocketMiner(DAO dao, LaunchAggregateStore store) {
+        this.dao = dao;
+        this.store = store;
+    }
+
+    /**
+     * Creates a miner that runs its group-bys and top-k selections over the columns of a launch fact table instead
+     * of loading the launches; the top-k selections only load the selected launches, by id.
+     *
+     * @param dao   the DAO.
+     * @param table the launch fact table.
+     */
+    public RocketMiner(DAO dao, LaunchFactTable table) {
+        this.dao = dao;
+        this.table = table;
+    }
+
+    DAO getDao() {
+        return dao;
+    }
+
+    /**
+     * Runs the scans and top-k selections of this miner on a fork/join pool. The launches are split into
+     * chunks of at most {@code threshold} launches, each chunk is aggregated on its own and the partial
+     * results are merged in chunk order, so the results are the same as those of a sequential run.
+     * Collections no larger than the threshold are processed on the calling thread.
+     *
+     * @param pool      the pool, or null to run sequentially.
+     * @param threshold the size of a chunk.
+     */
+    public void setParallelism(ForkJoinPool pool, int threshold) {
+        this.pool = pool;
+        this.parallelThreshold = threshold;
+    }
+
+    /**
+     * Computes the top-k rankings and the dominant country in the data store, with
+     * {@link DAO#aggregate(AggregateQuery)}, so that only the k result entities are loaded.
+     * Ties are then broken by id rather than in the order the launches are loaded.
+     *
+     * @param pushdown whether aggregations are pushed down to the data store.
+     */
+    public void setPushdown(boolean pushdown) {
+        this.pushdown = pushdown;
+    }
+
+    /**
+     * Streams the launches from the DAO with {@link DAO#stream(Class, int)} instead of loading them all,
+     * so that the aggregations and top-k selections of this miner only hold one page of launches and
+     * their own results in memory. Streamed launches are processed sequentially, in id order.
+     * Has no effect on a miner that reads from an aggregate store or a fact table.
+     *
+     * @param fetchSize the number of launches per page, or 0 to load all launches at once.
+     */
+    public void setFetchSize(int fetchSize) {
+        isTrue(fetchSize >= 0, "fetch size cannot be negative");
+        this.fetchSize = fetchSize;
+    }
+
     /**
      * TODO: to be implemented & tested!
      * Returns the top-k most active rockets, as measured by number of completed launches.
@@ -31,20 +116,15 @@ public class RocketMiner {
      */
     public List<Rocket> mostLaunchedRockets(int k) {
         logger.info("find most " + k + " launched rockets");
-
-        Collection<Launch> launches = dao.loadAll(Launch.class);
+        if (pushdown) {
+            return dao.aggregate(AggregateQuery.mostLaunchedRockets(k));
+        }
 
         Map<Rocket, Integer> numOfRockets = this.numOfSuccessfulLunchesForRockets();
 
-        // sort rockets by number of successful launches
-        List<Map.Entry<Rocket, Integer>> numOfRocketsList = new ArrayList<Map.Entry<Rocket, Integer>>(numOfRockets.entrySet());
-        List<Rocket> mostLaunchedRockets = numOfRocketsList.stream().
-                sorted(new Comparator<Map.Entry<Rocket, Integer>>() {
-                    @Override
-                    public int compare(Map.Entry<Rocket, Integer> o1, Map.Entry<Rocket, Integer> o2) {
-                        return o1.getValue()-o2.getValue();
-                    }
-                }).map(Map.Entry::getKey).limit(k).collect(Collectors.toList());
+        // select rockets by number of successful launches
+        List<Rocket> mostLaunchedRockets = select(numOfRockets.entrySet(), k, Map.Entry.<Rocket, Integer>comparingByValue()).
+                stream().map(Map.Entry::getKey).collect(Collectors.toList());
 
         return mostLaunchedRockets;
     }
@@ -60,19 +140,15 @@ public class RocketMiner {
      */
     public List<LaunchServiceProvider> mostReliableLaunchServiceProviders(int k) {
         logger.info("find most " + k + " reliable launch service providers");
+        if (pushdown) {
+            return dao.aggregate(AggregateQuery.mostReliableLaunchServiceProviders(k));
+        }
 
-        Collection<Launch> launches = dao.loadAll(Launch.class);
         Map<LaunchServiceProvider, Integer> percentage = this.percentageOfSuccessfulLaunchesForProviders();
 
-        // sort by percentage
-        List<Map.Entry<LaunchServiceProvider, Integer>> providerList = new ArrayList<Map.Entry<LaunchServiceProvider, Integer>>(percentage.entrySet());
-        List<LaunchServiceProvider> mostReliableLaunchServiceProviders = providerList.stream().
-                sorted(new Comparator<Map.Entry<LaunchServiceProvider, Integer>>() {
-                    @Override
-                    public int compare(Map.Entry<LaunchServiceProvider, Integer> o1, Map.Entry<LaunchServiceProvider, Integer> o2) {
-                        return o1.getValue()-o2.getValue();
-                    }
-                }).map(Map.Entry::getKey).limit(k).collect(Collectors.toList());
+        // select by percentage
+        List<LaunchServiceProvider> mostReliableLaunchServiceProviders = select(percentage.entrySet(), k, Map.Entry.<LaunchServiceProvider, Integer>comparingByValue()).
+                stream().map(Map.Entry::getKey).collect(Collectors.toList());
 
         return mostReliableLaunchServiceProviders;
     }
@@ -86,67 +162,81 @@ public class RocketMiner {
      */
     public List<Launch> mostRecentLaunches(int k) {
         logger.info("find most recent " + k + " launches");
-        Collection<Launch> launches = dao.loadAll(Launch.class);
+        if (pushdown) {
+            return dao.aggregate(AggregateQuery.mostRecentLaunches(k));
+        }
+        if (null != store) {
+            return store.getMostRecentLaunches(k);
+        }
+        if (null != table) {
+            // launches without a date last, as NO_DATE is the smallest epoch day
+            return selectRows(k, Comparator.<Integer>comparingInt(table::getEpochDay).reversed());
+        }
         Comparator<Launch> launchDateComparator = (a, b) -> -a.getLaunchDate().compareTo(b.getLaunchDate());
-        return launches.stream().sorted(launchDateComparator).limit(k).collect(Collectors.toList());
+        return selectLaunches(k, launchDateComparator);
     }
 
     /**
-     * TODO: to be implemented & tested!
-     * <p>
-     * Returns the dominant country who has the most launched rockets in an orbit.
+     * Returns the launches between two dates, read from the date index of the aggregate store if there is one.
+     *
+     * @param from the first date, inclusive.
+     * @param to   the last date, inclusive.
+     * @return the launches between the dates, earliest first.
+     */
+    public List<Launch> launchesBetween(LocalDate from, LocalDate to) {
+        logger.info("find launches from " + from + " to " + to);
+        if (null != store) {
+            return store.getLaunchesBetween(from, to);
+        }
+        // without an index, only sort the launches in the range
+        LaunchDateIndex between = new LaunchDateIndex();
+        try (Stream<Launch> launches = streamLaunches()) {
+            launches.filter(launch -> null != launch.getLaunchDate()
+                    && !launch.getLaunchDate().isBefore(from) && !launch.getLaunchDate().isAfter(to))
+                    .forEachOrdered(between::add);
+        }
+        return between.getBetween(from, to);
+    }
+
+    /**
+     * Returns the launches in a year.
+     *
+     * @param year the year.
+     * @return the launches in the year, earliest first.
+     */
+    public List<Launch> launchesInYear(int year) {
+        return launchesBetween(LocalDate.of(year, 1, 1), LocalDate.of(year, 12, 31));
+    }
+
+    /**
+     * Returns the dominant country who has the most launched rockets in an orbit,
+     * as the country whose providers sent the most payloads to it, ties broken by country name.
      *
      * @param orbit the orbit
-     * @return the country who sends the most payload to the orbit
+     * @return the country who sends the most payload to the orbit, or null if no launch went to the orbit
      */
     public String dominantCountry(String orbit) {
-        logger.info("find the dominant country");
-        Collection<Launch> launches = dao.loadAll(Launch.class);
-
-        //initialize the attributes "payload" for launches
-        String[] devices = new String[]{"device01", "device02", "device03"};
-        int i = 1;
-        for(Launch launch : launches) {
-            String[] devices1 = java.util.Arrays.copyOf(devices, i++ % 4);
-            Set<String> payload = new HashSet<>(Arrays.asList(devices1));
-            launch.setPayload(payload);
+        logger.info("find the dominant country of " + orbit);
+        if (pushdown) {
+            Map<String, Integer> payloads = new HashMap<>();
+            dao.aggregate(AggregateQuery.payloadsPerCountry(orbit)).forEach(row -> payloads.put(row.getKey(), row.getValue()));
+            return LaunchCube.dominantCountry(payloads);
         }
+        return mine(aggregates -> aggregates.getCube().getDominantCountry(orbit));
+    }
 
-        // count the payload of each launch (group by country)
-        HashMap<String, Integer> count = new HashMap<>();
-        count.put("USA", 0);
-        count.put("Europe ", 0);
-        for(Launch launch : launches) {
-            if(launch.getOrbit().equals(orbit)) {
-                LaunchServiceProvider lsp = launch.getLaunchServiceProvider();
-                if(lsp.getCountry() == "USA") {
-                    int cur = count.get("USA");
-                    count.put(lsp.getCountry(), cur + launch.getPayload().size());
-                }
-                if(lsp.getCountry() == "Europe ") {
-                    int cur = count.get("Europe ");
-                    count.put(lsp.getCountry(), cur + launch.getPayload().size());
-                }
-            }
-        }
-        // find the country who send the most payload to the orbit
-        //sort
-        Map<String, Integer> sorted = count
-                .entrySet()
-                .stream()
-                .sorted(Collections.reverseOrder(Map.Entry.comparingByValue()))
-                .collect(
-                        Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (e1, e2) -> e2,
-                                LinkedHashMap::new));
-
-        String dominantCountry = "";
-        for (Entry<String, Integer> entry : sorted.entrySet()) {
-            dominantCountry = entry.getKey();
-            if (dominantCountry != null) {
-                break;
-            }
-        }
-        return dominantCountry;
+    /**
+     * Returns the dominant country of an orbit over the years from {@code fromYear} to {@code toYear}, inclusive,
+     * rolled up from the launch cube.
+     *
+     * @param orbit    the orbit
+     * @param fromYear the first year, inclusive.
+     * @param toYear   the last year, inclusive.
+     * @return the country who sends the most payload to the orbit in the years, or null if no launch went to the orbit
+     */
+    public String dominantCountry(String orbit, int fromYear, int toYear) {
+        logger.info("find the dominant country of " + orbit + " from " + fromYear + " to " + toYear);
+        return mine(aggregates -> aggregates.getCube().getDominantCountry(orbit, fromYear, toYear));
     }
 
     /**
@@ -159,17 +249,16 @@ public class RocketMiner {
      */
     public List<Launch> mostExpensiveLaunches(int k) {
         logger.info("find the most expensive launches");
-        Collection<Launch> launches = dao.loadAll(Launch.class);
-
-        //initialize the attributes "price" for launches
-        String[] prices = new String[]{"50.01", "80.25", "44.07", "66.12", "420.14", "54.21", "3500.12", "453.01", "751.00", "142.78"};
-        int i = 0;
-        for(Launch launch : launches) {
-            launch.setPrice(new BigDecimal(prices[i++]));
+        if (pushdown) {
+            return dao.aggregate(AggregateQuery.mostExpensiveLaunches(k));
         }
-
-        Comparator<Launch> launchDateComparator = (a, b) -> -a.getPrice().compareTo(b.getPrice());
-        return launches.stream().sorted(launchDateComparator).limit(k).collect(Collectors.toList());
+        if (null != table) {
+            // launches without a price last; prices are compared to the cent
+            return selectRows(k, Comparator.<Integer>comparingInt(row -> table.hasPrice(row) ? 0 : 1)
+                    .thenComparing(Comparator.<Integer>comparingLong(table::getPriceCents).reversed()));
+        }
+        Comparator<Launch> launchPriceComparator = (a, b) -> -a.getPrice().compareTo(b.getPrice());
+        return selectLaunches(k, launchPriceComparator);
 
     }
 
@@ -184,29 +273,40 @@ public class RocketMiner {
      * @return the list of k launch service providers who has the highest sales revenue.
      */
     public List<LaunchServiceProvider> highestRevenueLaunchServiceProviders(int k, int year) {
-        List<LaunchServiceProvider> lsps = (List<LaunchServiceProvider>) dao.loadAll(LaunchServiceProvider.class);
-        List<Launch> launches = (List<Launch>) dao.loadAll(Launch.class);
+        return highestRevenueLaunchServiceProviders(k, year, year);
+    }
+
+    /**
+     * Returns a list of launch service providers that have the top-k highest sales revenue
+     * over the years from {@code fromYear} to {@code toYear}, inclusive. Revenue is the summed positive prices
+     * of the launches of the rockets a provider manufactures. Providers are ranked with the revenue index of the
+     * aggregates, ties broken by name, country and year founded; providers without revenue in the years come last,
+     * in the same order.
+     *
+     * @param k        the number of launch service providers.
+     * @param fromYear the first year, inclusive.
+     * @param toYear   the last year, inclusive.
+     * @return the list of k launch service providers who have the highest sales revenue.
+     */
+    public List<LaunchServiceProvider> highestRevenueLaunchServiceProviders(int k, int fromYear, int toYear) {
+        logger.info("find " + k + " highest revenue launch service providers from " + fromYear + " to " + toYear);
+        isTrue(k >= 0, "k cannot be negative");
+        if (pushdown) {
+            return dao.aggregate(AggregateQuery.highestRevenueLaunchServiceProviders(k, fromYear, toYear));
+        }
 
-        String[] prices = new String[]{"12.11", "40.3", "50.32", "7.8", "123.32", "5.4", "345.43", "567.5", "45443.3", "123.3"};
-        for (int i = 0; i < 10; i++) {
-            launches.get(i).setPrice(new BigDecimal(prices[i]));
+        List<LaunchServiceProvider> ranking = mine(aggregates -> aggregates.getRevenueIndex().getRanking(fromYear, toYear));
+        List<LaunchServiceProvider> highest = new ArrayList<>(ranking.subList(0, Math.min(k, ranking.size())));
+        if (highest.size() < k) {
+            // only load the providers when there are not enough with revenue
+            Set<LaunchServiceProvider> ranked = new HashSet<>(ranking);
+            dao.loadAll(LaunchServiceProvider.class).stream()
+                    .filter(lsp -> !ranked.contains(lsp))
+                    .sorted(RevenueIndex.BY_PROVIDER)
+                    .limit(k - highest.size())
+                    .forEach(highest::add);
         }
-        // init record map and do the record
-        HashMap<LaunchServiceProvider, BigDecimal> record = new HashMap<>();
-        lsps.forEach(l -> record.put(l, new BigDecimal("0.0")));
-        launches.stream()
-                .filter(l -> l.getLaunchDate().getYear() == year)
-                .forEach(launch -> {
-                    BigDecimal currentPrice = record.get(launch.getLaunchVehicle().getManufacturer());
-                    record.put(launch.getLaunchVehicle().getManufacturer(), currentPrice.add(launch.getPrice()));
-                });
-
-        // sort
-        return record.entrySet().stream()
-                .sorted(Collections.reverseOrder(Map.Entry.comparingByValue()))
-                .map(Map.Entry::getKey)
-                .limit(k)
-                .collect(Collectors.toList());
+        return highest;
     }
 
     /*
@@ -215,12 +315,14 @@ public class RocketMiner {
     public List<Launch> mostRecentSuccessfulLaunches() {
 
         logger.info("find most recent successful launches");
-        Collection<Launch> launches = dao.loadAll(Launch.class);
-        List<Launch> successfulLaunches = launches.stream().
-                filter(launch -> launch.getLaunchOutcome() == Launch.LaunchOutcome.SUCCESSFUL).
-                collect(Collectors.toList());
 
-        return successfulLaunches;
+        try (Stream<Launch> launches = streamLaunches()) {
+            List<Launch> successfulLaunches = launches.
+                    filter(launch -> launch.getLaunchOutcome() == Launch.LaunchOutcome.SUCCESSFUL).
+                    collect(Collectors.toList());
+
+            return successfulLaunches;
+        }
     }
 
     /*
@@ -228,43 +330,140 @@ public class RocketMiner {
      * */
     public Map<Rocket, Integer> numOfSuccessfulLunchesForRockets(){
 
-        List<Launch> successfulLaunches = this.mostRecentSuccessfulLaunches();
-        Map<Rocket, List<Launch>> rockets = successfulLaunches.stream().
-                collect(Collectors.groupingBy(Launch::getLaunchVehicle));
-        // get number of successful launches for each rockets
-        Map<Rocket, Integer> numOfSuccessfulLunchesForRockets = new HashMap<Rocket, Integer>();
-        rockets.forEach((key, value) -> {
-            numOfSuccessfulLunchesForRockets.put(key, value.size());
+        return mine(aggregates -> {
+            // get number of successful launches for each rockets
+            Map<Rocket, Integer> numOfSuccessfulLunchesForRockets = new HashMap<Rocket, Integer>();
+            aggregates.getSuccessfulLaunchesPerRocket().forEach(numOfSuccessfulLunchesForRockets::put);
+            return numOfSuccessfulLunchesForRockets;
         });
-
-        return numOfSuccessfulLunchesForRockets;
     }
 
     public Map<LaunchServiceProvider, Integer> percentageOfSuccessfulLaunchesForProviders(){
-        Collection<Launch> allLaunches = dao.loadAll(Launch.class);
-        List<Launch> successfulLaunches = this.mostRecentSuccessfulLaunches();
-
-        // classify launches by providers
-        Map<LaunchServiceProvider, List<Launch>> providers = successfulLaunches.stream().
-                collect(Collectors.groupingBy(Launch::getLaunchServiceProvider));
-        // get number of successful launches for each provider
-        Map<LaunchServiceProvider, Integer> numOfSuccess = new HashMap<LaunchServiceProvider, Integer>();
-        providers.forEach((key, value) -> {
-            numOfSuccess.put(key, value.size());
-        });
-        //get number of total launches for each provider
-        Map<LaunchServiceProvider, Integer> numOfTotal = new HashMap<LaunchServiceProvider, Integer>();
-        allLaunches.stream().
-                collect(Collectors.groupingBy(Launch::getLaunchServiceProvider)).
-                forEach((key, value) -> {
-                    numOfTotal.put(key, value.size());
-                });
-        // get percentage of successful launches for each provider
-        Map<LaunchServiceProvider, Integer> percentage = new HashMap<LaunchServiceProvider, Integer>();
-        numOfTotal.forEach((key, value) -> {
-            percentage.put(key, numOfSuccess.get(key) / value);
+        return mine(aggregates -> {
+            // get percentage of successful launches for each provider
+            Map<LaunchServiceProvider, Integer> percentage = new HashMap<LaunchServiceProvider, Integer>();
+            aggregates.getLaunchesPerProvider().forEach((key, value) -> {
+                percentage.put(key, aggregates.getSuccessfulLaunches(key) / value);
+            });
+            return percentage;
         });
+    }
+
+    /*
+     * run a query against the aggregates: read from the store or scan the fact table if there is one,
+     * otherwise stream or load all launches once and compute the aggregates in a single pass
+     * */
+    private <R> R mine(Function<LaunchAggregates, R> query) {
+        if (null != store) {
+            return store.query(query);
+        }
+        if (null != table) {
+            return query.apply(aggregate(table));
+        }
+        if (isStreaming()) {
+            try (Stream<Launch> launches = dao.stream(Launch.class, fetchSize)) {
+                return query.apply(LaunchAggregates.scan(launches));
+            }
+        }
+        return query.apply(aggregate(dao.loadAll(Launch.class)));
+    }
+
+    private LaunchAggregates aggregate(Collection<Launch> launches) {
+        if (!isParallel(launches.size())) {
+            return LaunchAggregates.scan(launches);
+        }
+        List<Launch> list = launches instanceof RandomAccess ? (List<Launch>) launches : new ArrayList<>(launches);
+        return pool.invoke(new ChunkedTask<>(0, list.size(), parallelThreshold,
+                (from, to) -> LaunchAggregates.scan(list.subList(from, to)), LaunchAggregates::merge));
+    }
+
+    private LaunchAggregates aggregate(LaunchFactTable table) {
+        if (!isParallel(table.size())) {
+            return LaunchAggregates.scan(table);
+        }
+        return pool.invoke(new ChunkedTask<>(0, table.size(), parallelThreshold,
+                (from, to) -> LaunchAggregates.scan(table, from, to), LaunchAggregates::merge));
+    }
 
-        return percentage;
+    /*
+     * select the first k elements of the ordering, with one heap per chunk when running in parallel
+     * */
+    private <T> List<T> select(Collection<T> elements, int k, Comparator<? super T> comparator) {
+        if (!isParallel(elements.size())) {
+            return TopK.select(elements, k, comparator);
+        }
+        List<T> list = elements instanceof RandomAccess ? (List<T>) elements : new ArrayList<>(elements);
+        return pool.invoke(new ChunkedTask<>(0, list.size(), parallelThreshold,
+                (from, to) -> {
+                    TopK<T> topK = new TopK<>(k, comparator);
+                    for (int i = from; i < to; i++) {
+                        topK.add(list.get(i), i);
+                    }
+                    return topK;
+                }, TopK::merge)).toList();
+    }
+
+    /*
+     * select the first k rows of the fact table in the ordering of its columns, with one heap per chunk when running
+     * in parallel, then load the launches of those rows only; rows of launches that had no id cannot be loaded
+     * and are left out
+     * */
+    private List<Launch> selectRows(int k, Comparator<Integer> comparator) {
+        int size = table.size();
+        List<Integer> rows;
+        if (!isParallel(size)) {
+            rows = selectRows(0, size, k, comparator).toList();
+        } else {
+            rows = pool.invoke(new ChunkedTask<>(0, size, parallelThreshold,
+                    (from, to) -> selectRows(from, to, k, comparator), TopK::merge)).toList();
+        }
+        return rows.stream()
+                .map(row -> dao.load(Launch.class, table.getLaunchId(row)))
+                .collect(Collectors.toList());
+    }
+
+    private TopK<Integer> selectRows(int from, int to, int k, Comparator<Integer> comparator) {
+        TopK<Integer> topK = new TopK<>(k, comparator);
+        for (int row = from; row < to; row++) {
+            if (table.hasLaunchId(row)) {
+                topK.add(row, row);
+            }
+        }
+        return topK;
+    }
+
+    /*
+     * select the first k launches of the ordering, keeping only the selected launches when streaming
+     * */
+    private List<Launch> selectLaunches(int k, Comparator<Launch> comparator) {
+        if (isStreaming()) {
+            try (Stream<Launch> launches = dao.stream(Launch.class, fetchSize)) {
+                return TopK.select(launches, k, comparator);
+            }
+        }
+        return select(launches(), k, comparator);
+    }
+
+    private boolean isStreaming() {
+        return null == store && null == table && fetchSize > 0;
+    }
+
+    private Stream<Launch> streamLaunches() {
+        return isStreaming() ? dao.stream(Launch.class, fetchSize) : launches().stream();
+    }
+
+    private boolean isParallel(int size) {
+        return null != pool && size > parallelThreshold;
+    }
+
+    /*
+     * the fact table keeps no launches, so a miner over one loads them from the DAO for the queries that return
+     * launches other than a top-k
+     * */
+    private Collection<Launch> launches() {
+        if (null != store) {
+            return store.getLaunches();
+        }
+        return dao.loadAll(Launch.class);
     }
 }
@@ -0,0 +1,144 @@
+package rockets.mining;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Selects the first k elements of an ordering with a bounded heap, in O(n log k) time and O(min(n, k)) memory.
+ * <p>
+ * The result is the same as {@code stream.sorted(comparator).limit(k)}: elements the comparator
+ * considers equal are kept in encounter order, so the selection is deterministic.
+ *
+ * @param <T> the type of the elements.
+ */
+public class TopK<T> {
+    // the heap grows from here as elements are offered, so that a large k costs nothing up front
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int k;
+
+    private final Comparator<Ranked<T>> order;
+
+    // the worst of the selected elements is at the head
+    private final PriorityQueue<Ranked<T>> heap;
+
+    private long sequence;
+
+    /**
+     * @param k          the number of elements to be selected.
+     * @param comparator the ordering, the first k elements of which are selected.
+     */
+    public TopK(int k, Comparator<? super T> comparator) {
+        isTrue(k >= 0, "k cannot be negative");
+        notNull(comparator, "comparator cannot be null");
+        this.k = k;
+        Comparator<Ranked<T>> byElement = (a, b) -> comparator.compare(a.element, b.element);
+        this.order = byElement.thenComparingLong(ranked -> ranked.sequence);
+        this.heap = new PriorityQueue<>(Math.max(1, Math.min(k, INITIAL_CAPACITY)), order.reversed());
+    }
+
+    /**
+     * Offers an element, ranked after every element offered before it.
+     *
+     * @param element the element.
+     */
+    public void add(T element) {
+        add(element, sequence++);
+    }
+
+    void add(T element, long sequence) {
+        offer(new Ranked<>(element, sequence));
+    }
+
+    private void offer(Ranked<T> ranked) {
+        if (heap.size() < k) {
+            heap.add(ranked);
+        } else if (k > 0 && order.compare(ranked, heap.peek()) < 0) {
+            heap.poll();
+            heap.add(ranked);
+        }
+    }
+
+    /**
+     * Merges the elements selected by another selector into this one.
+     *
+     * @param other a selector with the same k and comparator.
+     * @return this selector.
+     */
+    public TopK<T> merge(TopK<T> other) {
+        other.heap.forEach(this::offer);
+        return this;
+    }
+
+    /**
+     * @return the selected elements, first element of the ordering first.
+     */
+    public List<T> toList() {
+        return heap.stream()
+                .sorted(order)
+                .map(ranked -> ranked.element)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the first k elements of the ordering.
+     *
+     * @param elements   the elements.
+     * @param k          the number of elements to be returned.
+     * @param comparator the ordering.
+     * @return the first k elements, ties kept in encounter order.
+     */
+    public static <T> List<T> select(Collection<? extends T> elements, int k, Comparator<? super T> comparator) {
+        TopK<T> topK = new TopK<>(k, comparator);
+        elements.forEach(topK::add);
+        return topK.toList();
+    }
+
+    /**
+     * Same as {@link #select(Collection, int, Comparator)}, but consumes the elements one at a time,
+     * so that only the k selected elements are kept.
+     *
+     * @param elements   the elements.
+     * @param k          the number of elements to be returned.
+     * @param comparator the ordering.
+     * @return the first k elements, ties kept in encounter order.
+     */
+    public static <T> List<T> select(Stream<? extends T> elements, int k, Comparator<? super T> comparator) {
+        TopK<T> topK = new TopK<>(k, comparator);
+        elements.forEachOrdered(topK::add);
+        return topK.toList();
+    }
+
+    /**
+     * Same as {@link #select(Collection, int, Comparator)}, but builds one heap per chunk of the elements
+     * in parallel and merges them. Ties are still kept in encounter order.
+     *
+     * @param elements   the elements.
+     * @param k          the number of elements to be returned.
+     * @param comparator the ordering.
+     * @return the first k elements, ties kept in encounter order.
+     */
+    public static <T> List<T> parallelSelect(Collection<? extends T> elements, int k, Comparator<? super T> comparator) {
+        List<? extends T> list = elements instanceof RandomAccess ? (List<? extends T>) elements : new ArrayList<>(elements);
+        return IntStream.range(0, list.size()).parallel()
+                .collect(() -> new TopK<T>(k, comparator),
+                        (topK, i) -> topK.add(list.get(i), i),
+                        TopK::merge)
+                .toList();
+    }
+
+    private static class Ranked<T> {
+        private final T element;
+        private final long sequence;
+
+        private Ranked(T element, long sequence) {
+            this.element = element;
+            this.sequence = sequence;
+        }
+    }
+}
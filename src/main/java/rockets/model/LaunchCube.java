@@ -0,0 +1,222 @@
+package rockets.model;
+
+import java.util.*;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+
+/**
+ * A cube of launch and payload counts over the orbit, provider country, launch service provider and year
+ * of the launches.
+ * <p>
+ * The cube keeps the roll-ups its queries are answered from up to date with every launch added or removed:
+ * orbit by country, orbit by year by country, and orbit by provider. Launches without an orbit or a provider
+ * are not counted; launches without a date are counted in the totals but in no year.
+ * The dominant country of an orbit is the one that sent the most payloads to it, ties broken by country name.
+ * Not thread-safe.
+ */
+public class LaunchCube {
+    // orbit -> country -> measures
+    private final Map<String, Map<String, Measures>> perCountry = new HashMap<>();
+
+    // orbit -> year -> country -> measures
+    private final Map<String, NavigableMap<Integer, Map<String, Measures>>> perYearAndCountry = new HashMap<>();
+
+    // orbit -> provider -> measures
+    private final Map<String, Map<LaunchServiceProvider, Measures>> perProvider = new HashMap<>();
+
+    public void add(Launch launch) {
+        count(launch, 1);
+    }
+
+    public void remove(Launch launch) {
+        count(launch, -1);
+    }
+
+    private void count(Launch launch, int sign) {
+        LaunchServiceProvider lsp = launch.getLaunchServiceProvider();
+        if (null == lsp) {
+            return;
+        }
+        Integer year = null == launch.getLaunchDate() ? null : launch.getLaunchDate().getYear();
+        int payloads = null == launch.getPayload() ? 0 : launch.getPayload().size();
+        add(launch.getOrbit(), lsp, year, sign, sign * payloads);
+    }
+
+    /**
+     * Adds measures to a cell of the cube. The counts may be negative to take launches out again.
+     *
+     * @param orbit    the orbit.
+     * @param lsp      the launch service provider, whose country is the country of the cell.
+     * @param year     the year, or null if the launches have no date.
+     * @param launches the number of launches.
+     * @param payloads the number of payloads.
+     */
+    public void add(String orbit, LaunchServiceProvider lsp, Integer year, int launches, int payloads) {
+        if (null == orbit || null == lsp || null == lsp.getCountry()) {
+            return;
+        }
+        String country = lsp.getCountry();
+        add(perCountry.computeIfAbsent(orbit, o -> new HashMap<>()), country, launches, payloads);
+        add(perProvider.computeIfAbsent(orbit, o -> new HashMap<>()), lsp, launches, payloads);
+        if (null != year) {
+            add(perYearAndCountry.computeIfAbsent(orbit, o -> new TreeMap<>())
+                    .computeIfAbsent(year, y -> new HashMap<>()), country, launches, payloads);
+        }
+    }
+
+    private static <K> void add(Map<K, Measures> cells, K key, int launches, int payloads) {
+        Measures measures = cells.computeIfAbsent(key, k -> new Measures());
+        measures.launches += launches;
+        measures.payloads += payloads;
+        // a cell without launches is empty
+        if (0 == measures.launches) {
+            cells.remove(key);
+        }
+    }
+
+    /**
+     * Adds all cells of another cube to this one.
+     *
+     * @param other the other cube.
+     * @return this cube.
+     */
+    public LaunchCube merge(LaunchCube other) {
+        other.perCountry.forEach((orbit, cells) -> cells.forEach((country, m) ->
+                add(perCountry.computeIfAbsent(orbit, o -> new HashMap<>()), country, m.launches, m.payloads)));
+        other.perProvider.forEach((orbit, cells) -> cells.forEach((lsp, m) ->
+                add(perProvider.computeIfAbsent(orbit, o -> new HashMap<>()), lsp, m.launches, m.payloads)));
+        other.perYearAndCountry.forEach((orbit, years) -> years.forEach((year, cells) -> cells.forEach((country, m) ->
+                add(perYearAndCountry.computeIfAbsent(orbit, o -> new TreeMap<>())
+                        .computeIfAbsent(year, y -> new HashMap<>()), country, m.launches, m.payloads))));
+        return this;
+    }
+
+    /**
+     * @return the orbits with at least one launch.
+     */
+    public Set<String> getOrbits() {
+        Set<String> orbits = new HashSet<>();
+        perCountry.forEach((orbit, cells) -> {
+            if (!cells.isEmpty()) {
+                orbits.add(orbit);
+            }
+        });
+        return orbits;
+    }
+
+    /**
+     * @param orbit the orbit.
+     * @return the number of payloads the providers of each country sent to the orbit.
+     */
+    public Map<String, Integer> getPayloadsPerCountry(String orbit) {
+        return payloads(perCountry.getOrDefault(orbit, Collections.emptyMap()));
+    }
+
+    /**
+     * @param orbit    the orbit.
+     * @param fromYear the first year, inclusive.
+     * @param toYear   the last year, inclusive.
+     * @return the number of payloads the providers of each country sent to the orbit in the years.
+     */
+    public Map<String, Integer> getPayloadsPerCountry(String orbit, int fromYear, int toYear) {
+        isTrue(fromYear <= toYear, "from year cannot be after to year");
+        Map<String, Integer> payloads = new HashMap<>();
+        perYearAndCountry.getOrDefault(orbit, Collections.emptyNavigableMap())
+                .subMap(fromYear, true, toYear, true)
+                .values()
+                .forEach(cells -> cells.forEach((country, m) -> payloads.merge(country, m.payloads, Integer::sum)));
+        return payloads;
+    }
+
+    /**
+     * @param orbit the orbit.
+     * @return the number of launches of the providers of each country to the orbit.
+     */
+    public Map<String, Integer> getLaunchesPerCountry(String orbit) {
+        Map<String, Integer> launches = new HashMap<>();
+        perCountry.getOrDefault(orbit, Collections.emptyMap()).forEach((country, m) -> launches.put(country, m.launches));
+        return launches;
+    }
+
+    /**
+     * @param orbit the orbit.
+     * @param lsp   the launch service provider.
+     * @return the number of launches of the provider to the orbit.
+     */
+    public int getLaunches(String orbit, LaunchServiceProvider lsp) {
+        Measures measures = perProvider.getOrDefault(orbit, Collections.emptyMap()).get(lsp);
+        return null == measures ? 0 : measures.launches;
+    }
+
+    /**
+     * @param orbit the orbit.
+     * @param lsp   the launch service provider.
+     * @return the number of payloads the provider sent to the orbit.
+     */
+    public int getPayloads(String orbit, LaunchServiceProvider lsp) {
+        Measures measures = perProvider.getOrDefault(orbit, Collections.emptyMap()).get(lsp);
+        return null == measures ? 0 : measures.payloads;
+    }
+
+    /**
+     * @param orbit the orbit.
+     * @return the country that sent the most payloads to the orbit, or null if no launch went to it.
+     */
+    public String getDominantCountry(String orbit) {
+        return dominantCountry(getPayloadsPerCountry(orbit));
+    }
+
+    /**
+     * @param orbit    the orbit.
+     * @param fromYear the first year, inclusive.
+     * @param toYear   the last year, inclusive.
+     * @return the country that sent the most payloads to the orbit in the years, or null if no launch went to it.
+     */
+    public String getDominantCountry(String orbit, int fromYear, int toYear) {
+        return dominantCountry(getPayloadsPerCountry(orbit, fromYear, toYear));
+    }
+
+    /**
+     * @param fromYear the first year, inclusive.
+     * @param toYear   the last year, inclusive.
+     * @return the dominant country of each orbit with a launch in the years.
+     */
+    public Map<String, String> getDominantCountries(int fromYear, int toYear) {
+        Map<String, String> dominantCountries = new HashMap<>();
+        for (String orbit : perYearAndCountry.keySet()) {
+            String country = getDominantCountry(orbit, fromYear, toYear);
+            if (null != country) {
+                dominantCountries.put(orbit, country);
+            }
+        }
+        return dominantCountries;
+    }
+
+    /**
+     * @param payloadsPerCountry the number of payloads of each country.
+     * @return the country with the most payloads, ties broken by name, or null if there is no country.
+     */
+    public static String dominantCountry(Map<String, Integer> payloadsPerCountry) {
+        String dominant = null;
+        int most = 0;
+        for (Map.Entry<String, Integer> entry : payloadsPerCountry.entrySet()) {
+            int payloads = entry.getValue();
+            if (null == dominant || payloads > most || (payloads == most && entry.getKey().compareTo(dominant) < 0)) {
+                dominant = entry.getKey();
+                most = payloads;
+            }
+        }
+        return dominant;
+    }
+
+    private static Map<String, Integer> payloads(Map<String, Measures> cells) {
+        Map<String, Integer> payloads = new HashMap<>();
+        cells.forEach((country, m) -> payloads.put(country, m.payloads));
+        return payloads;
+    }
+
+    private static class Measures {
+        private int launches;
+        private int payloads;
+    }
+}
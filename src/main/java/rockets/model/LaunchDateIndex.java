@@ -0,0 +1,120 @@
+package rockets.model;
+
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Launches ordered by launch date, in a navigable map from date to the launches of that date.
+ * <p>
+ * The k most recent launches are found in O(log n + k) and the launches of a date range in
+ * O(log n + m) for m results, without sorting. Launches of the same date are kept in the order they were
+ * added. Launches without a date are not indexed. Not thread-safe.
+ */
+public class LaunchDateIndex {
+    private final NavigableMap<LocalDate, List<Launch>> launchesByDate = new TreeMap<>();
+
+    private int size;
+
+    /**
+     * Builds an index of the launches, in iteration order.
+     *
+     * @param launches the launches.
+     * @return the index.
+     */
+    public static LaunchDateIndex of(Collection<Launch> launches) {
+        LaunchDateIndex index = new LaunchDateIndex();
+        launches.forEach(index::add);
+        return index;
+    }
+
+    /**
+     * Adds a launch at its launch date, after the launches of the same date already added.
+     *
+     * @param launch the launch.
+     * @return false if the launch has no date and was not added.
+     */
+    public boolean add(Launch launch) {
+        if (null == launch.getLaunchDate()) {
+            return false;
+        }
+        launchesByDate.computeIfAbsent(launch.getLaunchDate(), date -> new ArrayList<>()).add(launch);
+        size++;
+        return true;
+    }
+
+    /**
+     * Removes a launch that was added at the given date. The launch is found by identity, so it is
+     * removed even if its date has been changed since.
+     *
+     * @param launch the launch.
+     * @param date   the launch date the launch was added at.
+     * @return whether the launch was found.
+     */
+    public boolean remove(Launch launch, LocalDate date) {
+        List<Launch> launches = null == date ? null : launchesByDate.get(date);
+        if (null == launches) {
+            return false;
+        }
+        for (Iterator<Launch> iterator = launches.iterator(); iterator.hasNext(); ) {
+            if (iterator.next() == launch) {
+                iterator.remove();
+                size--;
+                if (launches.isEmpty()) {
+                    launchesByDate.remove(date);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param k the number of launches to be returned.
+     * @return the k most recent launches, latest first, launches of the same date in the order they were added.
+     */
+    public List<Launch> getMostRecent(int k) {
+        isTrue(k >= 0, "k cannot be negative");
+        List<Launch> mostRecent = new ArrayList<>(Math.min(k, size));
+        for (List<Launch> launches : launchesByDate.descendingMap().values()) {
+            for (Launch launch : launches) {
+                if (mostRecent.size() == k) {
+                    return mostRecent;
+                }
+                mostRecent.add(launch);
+            }
+        }
+        return mostRecent;
+    }
+
+    /**
+     * @param from the first date, inclusive.
+     * @param to   the last date, inclusive.
+     * @return the launches between the dates, earliest first.
+     */
+    public List<Launch> getBetween(LocalDate from, LocalDate to) {
+        notNull(from, "from date cannot be null");
+        notNull(to, "to date cannot be null");
+        isTrue(!from.isAfter(to), "from date cannot be after to date");
+        List<Launch> between = new ArrayList<>();
+        launchesByDate.subMap(from, true, to, true).values().forEach(between::addAll);
+        return between;
+    }
+
+    /**
+     * @param year the year.
+     * @return the launches in the year, earliest first.
+     */
+    public List<Launch> getInYear(int year) {
+        return getBetween(LocalDate.of(year, 1, 1), LocalDate.of(year, 12, 31));
+    }
+
+    /**
+     * @return the number of indexed launches.
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,320 @@
+package rockets.model;
+
+import java.math.RoundingMode;
+import java.util.*;
+
+import static rockets.model.Launch.LaunchOutcome.SUCCESSFUL;
+
+/**
+ * A columnar, in-memory copy of the launch facts used for mining.
+ * <p>
+ * Each launch is a row. Its date is stored as an epoch day, its price as a number of cents (rounded half up),
+ * its outcome as a bit, and its rocket, provider, orbit and site as dense ids into dictionaries, so that
+ * group-bys scan primitive arrays instead of following references and hashing entities.
+ * Rocket manufacturers share the provider dictionary. Appending is not thread-safe.
+ * <p>
+ * The table does not keep the launches themselves, only their ids, so that a row costs a few dozen bytes rather
+ * than a launch and its references. Queries that return launches select their rows from the columns and load
+ * the launches of those rows by id.
+ */
+public class LaunchFactTable {
+    /**
+     * The id of a missing rocket, provider, orbit or site.
+     */
+    public static final int NO_ID = -1;
+
+    /**
+     * The epoch day of a launch without a date.
+     */
+    public static final int NO_DATE = Integer.MIN_VALUE;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int size;
+
+    private int[] epochDay = new int[INITIAL_CAPACITY];
+
+    private long[] priceCents = new long[INITIAL_CAPACITY];
+
+    private final BitSet priced = new BitSet();
+
+    private final BitSet successful = new BitSet();
+
+    private int[] rocket = new int[INITIAL_CAPACITY];
+
+    private int[] provider = new int[INITIAL_CAPACITY];
+
+    private int[] orbit = new int[INITIAL_CAPACITY];
+
+    private int[] site = new int[INITIAL_CAPACITY];
+
+    private int[] payloadCount = new int[INITIAL_CAPACITY];
+
+    private long[] launchId = new long[INITIAL_CAPACITY];
+
+    private final BitSet saved = new BitSet();
+
+    private final ValueDictionary<Rocket> rockets = new ValueDictionary<>();
+
+    private final ValueDictionary<LaunchServiceProvider> providers = new ValueDictionary<>();
+
+    private final ValueDictionary<String> orbits = new ValueDictionary<>();
+
+    private final ValueDictionary<String> sites = new ValueDictionary<>();
+
+    private final ValueDictionary<String> countries = new ValueDictionary<>();
+
+    // rocket id -> provider id of its manufacturer
+    private int[] manufacturer = new int[INITIAL_CAPACITY];
+
+    // provider id -> country id
+    private int[] country = new int[INITIAL_CAPACITY];
+
+    /**
+     * Builds a table with one row per launch, in iteration order.
+     *
+     * @param launches the launches.
+     * @return the table.
+     */
+    public static LaunchFactTable of(Collection<Launch> launches) {
+        LaunchFactTable table = new LaunchFactTable();
+        launches.forEach(table::append);
+        return table;
+    }
+
+    /**
+     * Appends a launch as a new row.
+     *
+     * @param launch the launch.
+     * @return the row of the launch.
+     */
+    public int append(Launch launch) {
+        ensureCapacity(size + 1);
+        int row = size++;
+        if (null != launch.getId()) {
+            launchId[row] = launch.getId();
+            saved.set(row);
+        }
+        epochDay[row] = null == launch.getLaunchDate() ? NO_DATE : (int) launch.getLaunchDate().toEpochDay();
+        if (null != launch.getPrice()) {
+            priceCents[row] = launch.getPrice().movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+            priced.set(row);
+        }
+        if (launch.getLaunchOutcome() == SUCCESSFUL) {
+            successful.set(row);
+        }
+        rocket[row] = rocketId(launch.getLaunchVehicle());
+        provider[row] = providerId(launch.getLaunchServiceProvider());
+        orbit[row] = orbits.idOf(launch.getOrbit());
+        site[row] = sites.idOf(launch.getLaunchSite());
+        payloadCount[row] = null == launch.getPayload() ? 0 : launch.getPayload().size();
+        return row;
+    }
+
+    private int rocketId(Rocket r) {
+        int count = rockets.size();
+        int id = rockets.idOf(r);
+        if (id == count) {
+            manufacturer = grow(manufacturer, id + 1);
+            manufacturer[id] = providerId(r.getManufacturer());
+        }
+        return id;
+    }
+
+    private int providerId(LaunchServiceProvider lsp) {
+        int count = providers.size();
+        int id = providers.idOf(lsp);
+        if (id == count) {
+            country = grow(country, id + 1);
+            country[id] = countries.idOf(lsp.getCountry());
+        }
+        return id;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= launchId.length) {
+            return;
+        }
+        int length = Math.max(capacity, launchId.length * 2);
+        epochDay = Arrays.copyOf(epochDay, length);
+        priceCents = Arrays.copyOf(priceCents, length);
+        rocket = Arrays.copyOf(rocket, length);
+        provider = Arrays.copyOf(provider, length);
+        orbit = Arrays.copyOf(orbit, length);
+        site = Arrays.copyOf(site, length);
+        payloadCount = Arrays.copyOf(payloadCount, length);
+        launchId = Arrays.copyOf(launchId, length);
+    }
+
+    private static int[] grow(int[] array, int capacity) {
+        return capacity <= array.length ? array : Arrays.copyOf(array, Math.max(capacity, array.length * 2));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param row the row.
+     * @return whether the launch of the row had an id when it was appended.
+     */
+    public boolean hasLaunchId(int row) {
+        return saved.get(checkRow(row));
+    }
+
+    /**
+     * @param row the row.
+     * @return the id of the launch, or 0 when the launch had no id.
+     */
+    public long getLaunchId(int row) {
+        return launchId[checkRow(row)];
+    }
+
+    /**
+     * @param row the row.
+     * @return the epoch day of the launch date, or {@link #NO_DATE}.
+     */
+    public int getEpochDay(int row) {
+        return epochDay[checkRow(row)];
+    }
+
+    public boolean hasPrice(int row) {
+        return priced.get(checkRow(row));
+    }
+
+    /**
+     * @param row the row.
+     * @return the price in cents, or 0 when the launch has no price.
+     */
+    public long getPriceCents(int row) {
+        return priceCents[checkRow(row)];
+    }
+
+    public boolean isSuccessful(int row) {
+        return successful.get(checkRow(row));
+    }
+
+    public int getRocketId(int row) {
+        return rocket[checkRow(row)];
+    }
+
+    public int getProviderId(int row) {
+        return provider[checkRow(row)];
+    }
+
+    public int getOrbitId(int row) {
+        return orbit[checkRow(row)];
+    }
+
+    public int getSiteId(int row) {
+        return site[checkRow(row)];
+    }
+
+    public int getPayloadCount(int row) {
+        return payloadCount[checkRow(row)];
+    }
+
+    public int getRocketCount() {
+        return rockets.size();
+    }
+
+    public Rocket getRocket(int id) {
+        return rockets.valueOf(id);
+    }
+
+    /**
+     * @param rocketId the id of a rocket.
+     * @return the provider id of the rocket's manufacturer, or {@link #NO_ID}.
+     */
+    public int getManufacturerId(int rocketId) {
+        return manufacturer[rockets.checkId(rocketId)];
+    }
+
+    public int getProviderCount() {
+        return providers.size();
+    }
+
+    public LaunchServiceProvider getProvider(int id) {
+        return providers.valueOf(id);
+    }
+
+    /**
+     * @param providerId the id of a provider.
+     * @return the country id of the provider.
+     */
+    public int getCountryId(int providerId) {
+        return country[providers.checkId(providerId)];
+    }
+
+    public int getCountryCount() {
+        return countries.size();
+    }
+
+    public String getCountry(int id) {
+        return countries.valueOf(id);
+    }
+
+    public int getOrbitCount() {
+        return orbits.size();
+    }
+
+    public String getOrbit(int id) {
+        return orbits.valueOf(id);
+    }
+
+    /**
+     * @param orbit the orbit.
+     * @return the id of the orbit, or {@link #NO_ID} if no launch went to it.
+     */
+    public int findOrbitId(String orbit) {
+        return orbits.find(orbit);
+    }
+
+    public String getSite(int id) {
+        return sites.valueOf(id);
+    }
+
+    private int checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("row " + row + " is out of range, size is " + size);
+        }
+        return row;
+    }
+
+    /*
+     * assigns dense ids to distinct values, in the order they are first seen
+     * */
+    private static class ValueDictionary<T> {
+        private final Map<T, Integer> ids = new HashMap<>();
+        private final List<T> values = new ArrayList<>();
+
+        private int idOf(T value) {
+            if (null == value) {
+                return NO_ID;
+            }
+            return ids.computeIfAbsent(value, v -> {
+                values.add(v);
+                return values.size() - 1;
+            });
+        }
+
+        private int find(T value) {
+            return null == value ? NO_ID : ids.getOrDefault(value, NO_ID);
+        }
+
+        private T valueOf(int id) {
+            return values.get(id);
+        }
+
+        private int checkId(int id) {
+            if (id < 0 || id >= values.size()) {
+                throw new IndexOutOfBoundsException("id " + id + " is out of range, size is " + values.size());
+            }
+            return id;
+        }
+
+        private int size() {
+            return values.size();
+        }
+    }
+}
@@ -6,6 +6,7 @@ import org.neo4j.ogm.annotation.CompositeIndex;
 import org.neo4j.ogm.annotation.NodeEntity;
 import org.neo4j.ogm.annotation.Property;
 import org.neo4j.ogm.annotation.Relationship;
+import org.neo4j.ogm.annotation.Transient;
 
 import java.math.BigDecimal;
 import java.util.Objects;
@@ -37,6 +38,14 @@ public class LaunchServiceProvider extends Entity {
     private Set<Rocket> rockets;
 
     private BigDecimal totalRevenue;
+
+    // built from the launches of the rockets when first needed
+    @Transient
+    private RevenueIndex revenueIndex;
+
+    // built from the launches of the rockets when first needed
+    @Transient
+    private LaunchCube launchCube;
     private int percentage;
     private int Dominant;
 
@@ -59,6 +68,10 @@ public class LaunchServiceProvider extends Entity {
         else return false;
     }
 
+    // used by Neo4j OGM to hydrate entities that are not in the session yet
+    private LaunchServiceProvider() {
+    }
+
     public LaunchServiceProvider(String name, int yearFounded, String country) {
 
         notNull(name);
@@ -114,6 +127,7 @@ public class LaunchServiceProvider extends Entity {
     public void setRockets(Set<Rocket> rockets) {
         notNull(rockets, "rockets cannot be null or empty" );
         this.rockets = rockets;
+        clearIndexes();
     }
 
     @Override
@@ -131,21 +145,37 @@ public class LaunchServiceProvider extends Entity {
         return Objects.hash(name, yearFounded, country);
     }
 
+    /**
+     * Returns the summed positive prices of the launches of this provider's rockets in a year.
+     * The revenue is read from an index built on the first call; it is rebuilt after
+     * {@link #setRockets(Set)} or {@link Rocket#setLaunches(Set)}, but not after the sets are modified in place.
+     */
     public BigDecimal getTotalRevenue(int year) {
-        BigDecimal totalRevenue = BigDecimal.valueOf(  0.00);
-        Set<Rocket> set = getRockets();
-        for (Rocket ro :set){
-              Set<Launch> set1 =ro.getLaunches();
-            for (Launch st : set1) {
-                if (st.getLaunchDate().getYear() == year) {
-                    if (st.getPrice().compareTo(BigDecimal.ZERO) > 0)
-                    {
-                    totalRevenue =totalRevenue.add(st.getPrice());
-                }}
+        return getTotalRevenue(year, year);
+    }
+
+    /**
+     * Returns the summed positive prices of the launches of this provider's rockets
+     * in the years from {@code fromYear} to {@code toYear}, inclusive.
+     */
+    public BigDecimal getTotalRevenue(int fromYear, int toYear) {
+        if (null == revenueIndex) {
+            revenueIndex = new RevenueIndex();
+            for (Rocket rocket : getRockets()) {
+                for (Launch launch : rocket.getLaunches()) {
+                    if (null != launch.getLaunchDate() && null != launch.getPrice()
+                            && launch.getPrice().compareTo(BigDecimal.ZERO) > 0) {
+                        revenueIndex.add(launch.getLaunchDate().getYear(), this, launch.getPrice());
+                    }
+                }
             }
         }
+        return BigDecimal.valueOf(0.00).add(revenueIndex.getRevenue(this, fromYear, toYear));
+    }
 
-        return totalRevenue;
+    void clearIndexes() {
+        revenueIndex = null;
+        launchCube = null;
     }
 
     public int getPercentage() {
@@ -174,23 +204,23 @@ public class LaunchServiceProvider extends Entity {
 
 
 
+    /**
+     * Returns the number of launches of this provider's rockets to an orbit, read from a launch cube
+     * built on the first call. Like the revenue index, the cube is rebuilt after
+     * {@link #setRockets(Set)} or {@link Rocket#setLaunches(Set)}.
+     */
     public int getDominant(String orbit) {
-        Set<Rocket> set = getRockets();
-        int Dominant =0;
-        for (Rocket ro :set)
-        {
-            Set<Launch> set1 = ro.getLaunches();
-
-            for (Launch st : set1) {
-                //System.out.println(st.getOrbit());
-                if (st.getOrbit() == orbit) {
-                    Dominant += 1;
+        if (null == launchCube) {
+            launchCube = new LaunchCube();
+            for (Rocket rocket : getRockets()) {
+                for (Launch launch : rocket.getLaunches()) {
+                    Integer year = null == launch.getLaunchDate() ? null : launch.getLaunchDate().getYear();
+                    int payloads = null == launch.getPayload() ? 0 : launch.getPayload().size();
+                    launchCube.add(launch.getOrbit(), this, year, 1, payloads);
                 }
             }
         }
-        System.out.println(Dominant);
+        Dominant = launchCube.getLaunches(orbit, this);
         return Dominant;
     }
-
-
 }
@@ -0,0 +1,135 @@
+package rockets.model;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+
+/**
+ * Launch revenue pre-summed by year and then by launch service provider. Revenue is the summed positive
+ * prices of the launches; callers leave out launches without a positive price.
+ * <p>
+ * Years are kept in order, so the revenue of a range of years is summed over the years in the range
+ * instead of over the launches. The ranking of the providers of each year is computed when first asked for
+ * and kept until the revenue of that year changes. Rankings put the highest revenue first and break ties by
+ * provider name, country and year founded, so they do not depend on the order revenue was added in.
+ * Not thread-safe.
+ */
+public class RevenueIndex {
+    /**
+     * Orders providers by name, country and year founded; rankings break revenue ties with it.
+     */
+    public static final Comparator<LaunchServiceProvider> BY_PROVIDER = Comparator
+            .comparing(LaunchServiceProvider::getName, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(LaunchServiceProvider::getCountry, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparingInt(LaunchServiceProvider::getYearFounded);
+
+    private final NavigableMap<Integer, Map<LaunchServiceProvider, BigDecimal>> revenuePerYear = new TreeMap<>();
+
+    // year -> providers by revenue, highest first
+    private final Map<Integer, List<LaunchServiceProvider>> rankings = new HashMap<>();
+
+    /**
+     * Adds revenue of a provider in a year. The amount may be negative to take revenue out again; a provider
+     * whose revenue in the year sums to zero no longer has revenue in it, and is left out of its ranking.
+     *
+     * @param year    the year.
+     * @param lsp     the launch service provider.
+     * @param revenue the amount to be added.
+     */
+    public void add(int year, LaunchServiceProvider lsp, BigDecimal revenue) {
+        Map<LaunchServiceProvider, BigDecimal> revenueOfYear = revenuePerYear.computeIfAbsent(year, y -> new HashMap<>());
+        revenueOfYear.compute(lsp, (key, sum) -> {
+            BigDecimal total = null == sum ? revenue : sum.add(revenue);
+            return 0 == total.signum() ? null : total;
+        });
+        if (revenueOfYear.isEmpty()) {
+            revenuePerYear.remove(year);
+        }
+        rankings.remove(year);
+    }
+
+    /**
+     * Adds all revenue of another index to this one.
+     *
+     * @param other the other index.
+     * @return this index.
+     */
+    public RevenueIndex merge(RevenueIndex other) {
+        other.revenuePerYear.forEach((year, revenue) -> revenue.forEach((lsp, amount) -> add(year, lsp, amount)));
+        return this;
+    }
+
+    /**
+     * @param lsp  the launch service provider.
+     * @param year the year.
+     * @return the revenue of the provider in the year, zero if it has none.
+     */
+    public BigDecimal getRevenue(LaunchServiceProvider lsp, int year) {
+        return getRevenue(lsp, year, year);
+    }
+
+    /**
+     * @param lsp      the launch service provider.
+     * @param fromYear the first year, inclusive.
+     * @param toYear   the last year, inclusive.
+     * @return the revenue of the provider over the years, zero if it has none.
+     */
+    public BigDecimal getRevenue(LaunchServiceProvider lsp, int fromYear, int toYear) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (Map<LaunchServiceProvider, BigDecimal> revenue : years(fromYear, toYear).values()) {
+            BigDecimal amount = revenue.get(lsp);
+            if (null != amount) {
+                total = total.add(amount);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * @param year the year.
+     * @return the revenue of each provider with revenue in the year.
+     */
+    public Map<LaunchServiceProvider, BigDecimal> getRevenue(int year) {
+        return Collections.unmodifiableMap(revenuePerYear.getOrDefault(year, Collections.emptyMap()));
+    }
+
+    /**
+     * @param fromYear the first year, inclusive.
+     * @param toYear   the last year, inclusive.
+     * @return the revenue of each provider with revenue in any of the years, summed over the years.
+     */
+    public Map<LaunchServiceProvider, BigDecimal> getRevenue(int fromYear, int toYear) {
+        Map<LaunchServiceProvider, BigDecimal> total = new HashMap<>();
+        years(fromYear, toYear).values().forEach(revenue -> revenue.forEach((lsp, amount) -> total.merge(lsp, amount, BigDecimal::add)));
+        return total;
+    }
+
+    /**
+     * @param year the year.
+     * @return the providers with revenue in the year, highest revenue first.
+     */
+    public List<LaunchServiceProvider> getRanking(int year) {
+        return rankings.computeIfAbsent(year, y -> rank(getRevenue(y)));
+    }
+
+    /**
+     * @param fromYear the first year, inclusive.
+     * @param toYear   the last year, inclusive.
+     * @return the providers with revenue in any of the years, highest revenue over the years first.
+     */
+    public List<LaunchServiceProvider> getRanking(int fromYear, int toYear) {
+        return fromYear == toYear ? getRanking(fromYear) : rank(getRevenue(fromYear, toYear));
+    }
+
+    private NavigableMap<Integer, Map<LaunchServiceProvider, BigDecimal>> years(int fromYear, int toYear) {
+        isTrue(fromYear <= toYear, "from year cannot be after to year");
+        return revenuePerYear.subMap(fromYear, true, toYear, true);
+    }
+
+    private static List<LaunchServiceProvider> rank(Map<LaunchServiceProvider, BigDecimal> revenue) {
+        List<LaunchServiceProvider> ranking = new ArrayList<>(revenue.keySet());
+        ranking.sort(Comparator.<LaunchServiceProvider, BigDecimal>comparing(revenue::get).reversed().thenComparing(BY_PROVIDER));
+        return Collections.unmodifiableList(ranking);
+    }
+}
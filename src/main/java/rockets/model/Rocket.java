@@ -45,7 +45,16 @@ public class Rocket extends Entity {
         return launches;
     }
 
-    public void setLaunches(Set<Launch> launches) { this.launches = launches; }
+    public void setLaunches(Set<Launch> launches) {
+        this.launches = launches;
+        if (null != manufacturer) {
+            manufacturer.clearIndexes();
+        }
+    }
+
+    // used by Neo4j OGM to hydrate entities that are not in the session yet
+    private Rocket() {
+    }
 
     /**
      * All parameters shouldn't be null.
@@ -2,8 +2,19 @@ package rockets.web;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import rockets.dataaccess.CachingDAO;
 import rockets.dataaccess.DAO;
+import rockets.dataaccess.DAOMetrics;
+import rockets.dataaccess.DatasetVersion;
+import rockets.dataaccess.InstrumentedDAO;
+import rockets.dataaccess.Page;
+import rockets.dataaccess.memory.InMemoryDAO;
 import rockets.dataaccess.neo4j.Neo4jDAO;
+import rockets.io.Exporter;
+import rockets.mining.CachedRocketMiner;
+import rockets.mining.MiningResultCache;
+import rockets.mining.RocketMiner;
+import rockets.model.Entity;
 import rockets.model.LaunchServiceProvider;
 import rockets.model.Rocket;
 import rockets.model.User;
@@ -12,14 +23,19 @@ import spark.Request;
 import spark.Response;
 import spark.Spark;
 import spark.resource.ClassPathResource;
-import spark.template.freemarker.FreeMarkerEngine;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
 
 import static org.apache.logging.log4j.core.util.Closer.closeSilently;
 import static spark.Spark.*;
@@ -27,8 +43,22 @@ import static spark.Spark.*;
 public class App {
     private static Logger logger = LoggerFactory.getLogger(App.class);
 
+    private static final int PAGE_SIZE = 20;
+
+    private static final int MAX_PAGE_SIZE = 100;
+
     private static DAO dao;
 
+    private static MiningApi miningApi;
+
+    private static MiningJobs miningJobs;
+
+    private static long maxJobWaitMillis;
+
+    private static TemplateRenderer renderer;
+
+    private static ResponseCompression compression;
+
     public static void setDao(DAO dao) {
         App.dao = dao;
     }
@@ -39,11 +69,69 @@ public class App {
         int port = Integer.parseInt(properties.getProperty("spark.port"));
         port(port);
 
+        // parse every template once, before the first request
+        renderer = new TemplateRenderer();
+        renderer.precompile();
+
+        if (Boolean.parseBoolean(properties.getProperty("compression.enabled", "false"))) {
+            compression = new ResponseCompression(
+                    Integer.parseInt(properties.getProperty("compression.threshold", "1024")),
+                    Integer.parseInt(properties.getProperty("compression.level", "-1")),
+                    Integer.parseInt(properties.getProperty("compression.pool.size", "32")));
+            renderer.setCompression(compression);
+        }
+
         String dbAddress = properties.getProperty("neo4j.dir");
         if (null == dao) {
-            dao = new Neo4jDAO(dbAddress);
+            DAOMetrics metrics = Boolean.parseBoolean(properties.getProperty("dao.metrics.enabled", "false"))
+                    ? new DAOMetrics() : null;
+            if ("memory".equals(properties.getProperty("dao.backend", "neo4j"))) {
+                // nothing is persisted, and every entity is already in memory, so there is nothing to cache
+                dao = new InMemoryDAO();
+            } else {
+                Neo4jDAO neo4jDAO = new Neo4jDAO(dbAddress);
+                neo4jDAO.setMetrics(metrics);
+                dao = neo4jDAO;
+                if (Boolean.parseBoolean(properties.getProperty("dao.cache.enabled", "false"))) {
+                    int size = Integer.parseInt(properties.getProperty("dao.cache.size"));
+                    long ttl = TimeUnit.SECONDS.toMillis(Long.parseLong(properties.getProperty("dao.cache.ttl.seconds", "0")));
+                    dao = new CachingDAO(dao, size, ttl);
+                }
+            }
+            if (null != metrics) {
+                // outermost, so that the latencies are the ones the routes see, cache hits included
+                dao = new InstrumentedDAO(dao, metrics);
+                metrics.startLogging(Long.parseLong(properties.getProperty("dao.metrics.log.seconds", "60")), TimeUnit.SECONDS);
+            }
         }
 
+        DatasetVersion version = DatasetVersion.attach(dao);
+
+        // repeated polls are answered from the cache until the next write
+        MiningResultCache miningCache = new MiningResultCache(version,
+                Integer.parseInt(properties.getProperty("mining.cache.size", "256")),
+                Long.parseLong(properties.getProperty("mining.cache.weight", "100000")));
+        miningApi = new MiningApi(new CachedRocketMiner(new RocketMiner(dao), miningCache));
+
+        // slow queries run on workers of their own rather than on the request threads
+        miningJobs = new MiningJobs(miningApi, dao,
+                Integer.parseInt(properties.getProperty("mining.jobs.threads", "2")),
+                Integer.parseInt(properties.getProperty("mining.jobs.queue", "16")),
+                Integer.parseInt(properties.getProperty("mining.jobs.max", "1000")),
+                TimeUnit.SECONDS.toMillis(Long.parseLong(properties.getProperty("mining.jobs.ttl.seconds", "600"))),
+                TimeUnit.SECONDS.toMillis(Long.parseLong(properties.getProperty("mining.jobs.timeout.seconds", "60"))));
+        maxJobWaitMillis = TimeUnit.SECONDS.toMillis(Long.parseLong(properties.getProperty("mining.jobs.wait.max.seconds", "30")));
+
+        // release the entities loaded by a request once it is done
+        afterAfter((req, res) -> dao.clearSession());
+
+        // answer unchanged pages and results with 304 until the next write
+        ConditionalGet conditionalGet = new ConditionalGet(version);
+        before("/users", conditionalGet);
+        before("/rockets", conditionalGet);
+        before("/export/*", conditionalGet);
+        before("/api/mining/*", conditionalGet);
+
         // "/"
         handleGetIndex();
 
@@ -83,6 +171,21 @@ public class App {
         // "/rockets"
         handleGetRockets();
 
+        // "/export/:kind"
+        handleGetExport();
+
+        // "/api/mining/:query"
+        handleGetMining();
+
+        // "/api/jobs/mining/:query"
+        handlePostMiningJob();
+
+        // "/api/jobs/:id"
+        handleGetJob();
+
+        // "/api/jobs/:id"
+        handleDeleteJob();
+
         // "/launches"
 //        handleGetLaunches();
 
@@ -90,44 +193,54 @@ public class App {
 
     public static void stop() {
         Spark.stop();
+        if (null != miningJobs) {
+            miningJobs.shutdown();
+        }
     }
 
     private static void handleGetUsers() {
-        get("/users", (req, res) -> {
+        get("/users", renderer.route((req, res) -> {
             Map<String, Object> attributes = new HashMap<String, Object>();
             try {
-                attributes.put("users", dao.loadAll(User.class));
+                Page<User> page = loadPage(req, User.class);
+                attributes.put("users", page.getItems());
+                attributes.put("page", page);
+                return new ModelAndView(attributes, "users.html.ftl");
+            } catch (IllegalArgumentException e) {
+                // an invalid size or cursor
+                res.status(400);
+                attributes.put("errorMsg", e.getMessage());
                 return new ModelAndView(attributes, "users.html.ftl");
             } catch (Exception e) {
                 return handleException(res, attributes, e, "users.html.ftl");
             }
-        }, new FreeMarkerEngine());
+        }));
 
     }
 
     private static void  handleGetIndex() {
-        get("/", (req, res) -> {
+        get("/", renderer.route((req, res) -> {
             Map<String, Object> attributes = new HashMap<>();
             User user = getLoggedInUser(req);
             attributes.put("user", user);
             return new ModelAndView(attributes, "base_page.html.ftl");
             //return handleBaseHelloView(req, res, attributes);
-        }, new FreeMarkerEngine());
+        }));
     }
 
     private static void handleGetRegister() {
-        get("/register", (req, res) -> {
+        get("/register", renderer.route((req, res) -> {
             Map<String, Object> attributes = new HashMap<>();
             attributes.put("email", "");
             attributes.put("firstName", "");
             attributes.put("lastName", "");
 
             return new ModelAndView(attributes, "register.html.ftl");
-        }, new FreeMarkerEngine());
+        }));
     }
 
     private static void handlePostRegister() {
-        post("/register", (req, res) -> {
+        post("/register", renderer.route((req, res) -> {
             Map<String, Object> attributes = new HashMap<>();
             String email = req.queryParams("email");
             String password = req.queryParams("password");
@@ -161,22 +274,22 @@ public class App {
                 return handleException(res, attributes, e, "register.html.ftl");
             }
 
-        }, new FreeMarkerEngine());
+        }));
     }
 
     private static void handleGetHello() {
-        get("/hello", (req, res) -> {
+        get("/hello", renderer.route((req, res) -> {
             Map<String, Object> attributes = new HashMap<>();
             User user = getLoggedInUser(req);
             if (null != user) {
                 attributes.put("user", user);
             }
             return new ModelAndView(attributes, "base_page.html.ftl");
-        }, new FreeMarkerEngine());
+        }));
     }
 
     private static void handleGetLogin() {
-        get("/login", (req, res) -> {
+        get("/login", renderer.route((req, res) -> {
             Map<String, Object> attributes = new HashMap<>();
             String user_name = req.params("user_name");
             if (null == user_name || user_name.trim().isEmpty()) {
@@ -186,11 +299,11 @@ public class App {
             }
 
             return new ModelAndView(attributes, "login.html.ftl");
-        }, new FreeMarkerEngine());
+        }));
     }
 
     private static void handlePostLogin() {
-        post("/login", (req, res) -> {
+        post("/login", renderer.route((req, res) -> {
             Map<String, Object> attributes = new HashMap<>();
             String user_name = req.queryParams("user_name");
             String password = req.queryParams("password");
@@ -214,7 +327,7 @@ public class App {
                 attributes.put("user_name", user_name);
                 return new ModelAndView(attributes, "login.html.ftl");
             }
-        }, new FreeMarkerEngine());
+        }));
     }
 
     private static void handleGetLogout() {
@@ -251,7 +364,7 @@ public class App {
     }
 
     private static void handleGetUserById() {
-        get("/user/:id", (req, res) -> {
+        get("/user/:id", renderer.route((req, res) -> {
             Map<String, Object> attributes = new HashMap<>();
             User user = getLoggedInUser(req);
             attributes.put("user", user);
@@ -267,7 +380,7 @@ public class App {
             } catch (Exception e) {
                 return handleException(res, attributes, e, "user.html.ftl");
             }
-        }, new FreeMarkerEngine());
+        }));
     }
 
     // TODO: Need to TDD this
@@ -276,7 +389,7 @@ public class App {
 
     // TODO: Need to TDD this
     private static void handlePostCreateRocket() {
-        post("/rocket/create", (req, res) -> {
+        post("/rocket/create", renderer.route((req, res) -> {
             LaunchServiceProvider manufacturer;
             Map<String, Object> attributes = new HashMap<>();
             String rocketName = req.queryParams("rocketName");
@@ -310,30 +423,214 @@ public class App {
             } catch (Exception e) {
                 return handleException(res, attributes, e, "create_rocket.html.ftl");
             }
-        }, new FreeMarkerEngine());
+        }));
     }
 
     private static void handleGetCreateRocket() {
-        get("/rocket/create", (req, res) -> {
+        get("/rocket/create", renderer.route((req, res) -> {
             Map<String, Object> attributes = new HashMap<>();
             attributes.put("missionName", "");
             attributes.put("location", "");
             attributes.put("description", "");
             return new ModelAndView(attributes, "create_rocket.html.ftl");
-        }, new FreeMarkerEngine());
+        }));
     }
 
 
     private static void handleGetRockets() {
-        get("/rockets", (req, res) -> {
+        get("/rockets", renderer.route((req, res) -> {
             Map<String, Object> attributes = new HashMap<>();
             try {
-                attributes.put("missions", dao.loadAll(Rocket.class));
+                Page<Rocket> page = loadPage(req, Rocket.class);
+                attributes.put("rockets", page.getItems());
+                attributes.put("page", page);
+                return new ModelAndView(attributes, "rockets.html.ftl");
+            } catch (IllegalArgumentException e) {
+                // an invalid size or cursor
+                res.status(400);
+                attributes.put("errorMsg", e.getMessage());
                 return new ModelAndView(attributes, "rockets.html.ftl");
             } catch (Exception e) {
                 return handleException(res, attributes, e, "rockets.html.ftl");
             }
-        }, new FreeMarkerEngine());
+        }));
+    }
+
+    /*
+     * stream the providers, rockets, launches, payloads or users as a CSV or NDJSON download, gzipped on request
+     */
+    private static void handleGetExport() {
+        get("/export/:kind", (req, res) -> {
+            String kind = req.params(":kind");
+            String formatName = null == req.queryParams("format") ? "csv" : req.queryParams("format");
+            if (!Exporter.getKinds().contains(kind)
+                    || Arrays.stream(Exporter.Format.values()).noneMatch(f -> f.name().equalsIgnoreCase(formatName))) {
+                res.status(404);
+                return "Cannot export " + kind + " as " + formatName;
+            }
+            Exporter.Format format = Exporter.Format.valueOf(formatName.toUpperCase());
+            boolean gzip = Boolean.parseBoolean(req.queryParams("gzip"));
+            res.type(gzip ? "application/gzip" : format.getContentType() + "; charset=utf-8");
+            res.header("Content-Disposition",
+                    "attachment; filename=\"" + kind + format.getExtension() + (gzip ? ".gz" : "") + "\"");
+            if (gzip) {
+                try (GZIPOutputStream gzipOut = new GZIPOutputStream(res.raw().getOutputStream())) {
+                    new Exporter(dao).export(kind, format, gzipOut);
+                }
+            } else {
+                try (OutputStream out = openBody(req, res)) {
+                    new Exporter(dao).export(kind, format, out);
+                }
+            }
+            // everything has been written to the response already
+            return "";
+        });
+    }
+
+    /*
+     * run a mining query and stream its result as JSON, or a JSON error with 404 or 400
+     */
+    private static void handleGetMining() {
+        get("/api/mining/:query", (req, res) -> {
+            String query = req.params(":query");
+            res.type(MiningApi.CONTENT_TYPE + "; charset=utf-8");
+            try (OutputStream out = openBody(req, res)) {
+                if (!MiningApi.getQueries().contains(query)) {
+                    res.status(404);
+                    miningApi.writeError("unknown query: " + query, out);
+                    return "";
+                }
+                try {
+                    miningApi.write(query, req::queryParams, out);
+                } catch (IllegalArgumentException e) {
+                    // thrown before anything is written
+                    res.status(400);
+                    miningApi.writeError(e.getMessage(), out);
+                }
+            }
+            // everything has been written to the response already
+            return "";
+        });
+    }
+
+    /*
+     * queue a mining query and answer 202 with the job and its location, a JSON error with 404 for an unknown
+     * query, or 429 if there are too many jobs; the parameters are checked when the job runs
+     */
+    private static void handlePostMiningJob() {
+        post("/api/jobs/mining/:query", (req, res) -> {
+            String query = req.params(":query");
+            Map<String, String> params = new LinkedHashMap<>();
+            for (String name : req.queryParams()) {
+                params.put(name, req.queryParams(name));
+            }
+            res.type(MiningApi.CONTENT_TYPE + "; charset=utf-8");
+            try (OutputStream out = openBody(req, res)) {
+                if (!MiningApi.getQueries().contains(query)) {
+                    res.status(404);
+                    miningApi.writeError("unknown query: " + query, out);
+                    return "";
+                }
+                try {
+                    MiningJobs.Job job = miningJobs.submit(query, params);
+                    res.status(202);
+                    res.header("Location", "/api/jobs/" + job.getId());
+                    miningJobs.writeStatus(job, out);
+                } catch (RejectedExecutionException e) {
+                    res.status(429);
+                    res.header("Retry-After", "1");
+                    miningApi.writeError(e.getMessage(), out);
+                }
+            }
+            // everything has been written to the response already
+            return "";
+        });
+    }
+
+    /*
+     * the state of a job, with its result once it has succeeded; with "wait", the number of seconds to wait for
+     * the job to finish, up to the configured maximum
+     */
+    private static void handleGetJob() {
+        get("/api/jobs/:id", (req, res) -> {
+            res.type(MiningApi.CONTENT_TYPE + "; charset=utf-8");
+            // the state changes without any write through the DAO
+            res.header("Cache-Control", "no-store");
+            try (OutputStream out = openBody(req, res)) {
+                long waitMillis;
+                try {
+                    String wait = req.queryParams("wait");
+                    waitMillis = null == wait ? 0 : Math.min(maxJobWaitMillis, TimeUnit.SECONDS.toMillis(Long.parseLong(wait)));
+                } catch (NumberFormatException e) {
+                    res.status(400);
+                    miningApi.writeError("wait must be a number of seconds", out);
+                    return "";
+                }
+                MiningJobs.Job job = waitMillis > 0
+                        ? miningJobs.await(req.params(":id"), waitMillis, TimeUnit.MILLISECONDS)
+                        : miningJobs.get(req.params(":id"));
+                writeJob(job, res, out);
+            }
+            // everything has been written to the response already
+            return "";
+        });
+    }
+
+    /*
+     * cancel a job that is queued or running, and answer with its state
+     */
+    private static void handleDeleteJob() {
+        delete("/api/jobs/:id", (req, res) -> {
+            res.type(MiningApi.CONTENT_TYPE + "; charset=utf-8");
+            try (OutputStream out = openBody(req, res)) {
+                writeJob(miningJobs.cancel(req.params(":id")), res, out);
+            }
+            // everything has been written to the response already
+            return "";
+        });
+    }
+
+    private static void writeJob(MiningJobs.Job job, Response res, OutputStream out) throws IOException {
+        if (null == job) {
+            res.status(404);
+            miningApi.writeError("no such job, or its result has expired", out);
+        } else {
+            miningJobs.writeStatus(job, out);
+        }
+    }
+
+    /*
+     * the body of a response, compressed as negotiated with the request if compression is enabled;
+     * closing it completes the response
+     */
+    private static OutputStream openBody(Request req, Response res) throws IOException {
+        return null == compression ? res.raw().getOutputStream() : compression.open(req, res);
+    }
+
+    /*
+     * load the page of entities selected by the "after" or "before" cursor and the "size" of the request,
+     * the first page if there is no cursor; throws IllegalArgumentException if a parameter is not a number
+     */
+    private static <T extends Entity> Page<T> loadPage(Request req, Class<T> clazz) {
+        Long size = longParam(req, "size");
+        int pageSize = null == size ? PAGE_SIZE : (int) Math.max(1, Math.min(MAX_PAGE_SIZE, size));
+        Long before = longParam(req, "before");
+        if (null != before) {
+            return dao.loadPageBefore(clazz, before, pageSize);
+        }
+        return dao.loadPageAfter(clazz, longParam(req, "after"), pageSize);
+    }
+
+    private static Long longParam(Request req, String name) {
+        String value = req.queryParams(name);
+        if (null == value) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " must be a number: " + value);
+        }
     }
 
     private static Properties loadProperties() throws IOException {
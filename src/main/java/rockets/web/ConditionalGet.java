@@ -0,0 +1,90 @@
+package rockets.web;
+
+import rockets.dataaccess.DatasetVersion;
+import spark.Filter;
+import spark.Request;
+import spark.Response;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+import static org.apache.commons.lang3.Validate.notNull;
+import static spark.Spark.halt;
+
+/**
+ * Conditional GETs for the pages and results that only change when an entity is written through the DAO.
+ * <p>
+ * The ETag is the {@link DatasetVersion}, tagged with the time the counter was created so that tags from before
+ * a restart never match, and Last-Modified is the time of the last write. A GET or HEAD whose If-None-Match
+ * matches the ETag, or that has no If-None-Match and an If-Modified-Since not older than the last write, is
+ * answered with 304 from the filter, before the route queries the DAO or renders a template.
+ * <p>
+ * The validators are read before the route runs, so a write that happens while the response is being built
+ * makes the next request fetch it again rather than being hidden. Responses are marked no-cache, so that
+ * browsers revalidate them instead of guessing how long they stay fresh.
+ */
+public class ConditionalGet implements Filter {
+    private final DatasetVersion version;
+
+    public ConditionalGet(DatasetVersion version) {
+        notNull(version, "version cannot be null");
+        this.version = version;
+    }
+
+    @Override
+    public void handle(Request req, Response res) {
+        if (!"GET".equals(req.requestMethod()) && !"HEAD".equals(req.requestMethod())) {
+            return;
+        }
+        // the time before the version, see DatasetVersion
+        long lastModifiedMillis = version.getLastModifiedMillis();
+        String etag = etagOf(version.getCreatedMillis(), version.get());
+        res.header("ETag", etag);
+        res.header("Last-Modified", formatDate(lastModifiedMillis));
+        res.header("Cache-Control", "no-cache");
+        if (isNotModified(req.headers("If-None-Match"), req.headers("If-Modified-Since"), etag, lastModifiedMillis)) {
+            halt(304);
+        }
+    }
+
+    static String etagOf(long createdMillis, long version) {
+        return "\"" + Long.toString(createdMillis, 36) + "-" + version + "\"";
+    }
+
+    /*
+     * If-None-Match takes precedence over If-Modified-Since, and is compared weakly as it is for a GET,
+     * whatever encoding the tag was sent with
+     */
+    static boolean isNotModified(String ifNoneMatch, String ifModifiedSince, String etag, long lastModifiedMillis) {
+        if (null != ifNoneMatch) {
+            for (String tag : ifNoneMatch.split(",")) {
+                tag = tag.trim();
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if ("*".equals(tag) || etag.equals(ResponseCompression.untagged(tag))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (null != ifModifiedSince) {
+            try {
+                long since = ZonedDateTime.parse(ifModifiedSince.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toEpochSecond();
+                // HTTP dates are in whole seconds
+                return lastModifiedMillis / 1000 <= since;
+            } catch (DateTimeParseException e) {
+                // an invalid date is ignored
+                return false;
+            }
+        }
+        return false;
+    }
+
+    static String formatDate(long millis) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochMilli(millis).atZone(ZoneOffset.UTC));
+    }
+}
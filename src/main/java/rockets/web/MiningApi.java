@@ -0,0 +1,262 @@
+package rockets.web;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import rockets.mining.RocketMiner;
+import rockets.model.Entity;
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Function;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * The {@link RocketMiner} queries as JSON, served under /api/mining/:query by {@link App}.
+ * <p>
+ * Results are written with a streaming generator straight to the output stream, entity by entity, so no
+ * document is built in memory. Entities are written flat, with the rockets and providers they refer to as
+ * names, so a result never pulls in the graph around it. The generator factory is shared and thread-safe.
+ */
+public class MiningApi {
+    public static final String CONTENT_TYPE = "application/json";
+
+    private static final int DEFAULT_K = 10;
+
+    // the most results a top-k query returns
+    private static final int MAX_K = 1000;
+
+    private static final Map<String, Query> QUERIES = new LinkedHashMap<>();
+
+    static {
+        QUERIES.put("most-launched-rockets", (miner, params, json) ->
+                writeRockets(json, miner.mostLaunchedRockets(kParam(params))));
+        QUERIES.put("most-reliable-providers", (miner, params, json) ->
+                writeProviders(json, miner.mostReliableLaunchServiceProviders(kParam(params))));
+        QUERIES.put("most-recent-launches", (miner, params, json) ->
+                writeLaunches(json, miner.mostRecentLaunches(kParam(params))));
+        QUERIES.put("most-expensive-launches", (miner, params, json) ->
+                writeLaunches(json, miner.mostExpensiveLaunches(kParam(params))));
+        QUERIES.put("highest-revenue-providers", (miner, params, json) -> {
+            int k = kParam(params);
+            if (null != params.apply("year")) {
+                writeProviders(json, miner.highestRevenueLaunchServiceProviders(k, intParam(params, "year", 0)));
+            } else {
+                writeProviders(json, miner.highestRevenueLaunchServiceProviders(k,
+                        intParam(params, "fromYear", null), intParam(params, "toYear", null)));
+            }
+        });
+        QUERIES.put("dominant-country", (miner, params, json) -> {
+            String orbit = params.apply("orbit");
+            isTrue(null != orbit, "orbit is required");
+            String country = null == params.apply("fromYear") && null == params.apply("toYear")
+                    ? miner.dominantCountry(orbit)
+                    : miner.dominantCountry(orbit, intParam(params, "fromYear", null), intParam(params, "toYear", null));
+            json.writeStartObject();
+            json.writeStringField("orbit", orbit);
+            json.writeStringField("country", country);
+            json.writeEndObject();
+        });
+        QUERIES.put("launches-in-year", (miner, params, json) ->
+                writeLaunches(json, miner.launchesInYear(intParam(params, "year", null))));
+        QUERIES.put("launches-between", (miner, params, json) ->
+                writeLaunches(json, miner.launchesBetween(dateParam(params, "from"), dateParam(params, "to"))));
+        QUERIES.put("recent-successful-launches", (miner, params, json) ->
+                writeLaunches(json, miner.mostRecentSuccessfulLaunches()));
+        QUERIES.put("successful-launches-per-rocket", (miner, params, json) -> {
+            List<Map.Entry<Rocket, Integer>> counts = sortedById(miner.numOfSuccessfulLunchesForRockets());
+            json.writeStartArray();
+            for (Map.Entry<Rocket, Integer> entry : counts) {
+                json.writeStartObject();
+                json.writeFieldName("rocket");
+                writeRocket(json, entry.getKey());
+                json.writeNumberField("successfulLaunches", entry.getValue());
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+        });
+        QUERIES.put("provider-success-percentage", (miner, params, json) -> {
+            List<Map.Entry<LaunchServiceProvider, Integer>> percentages =
+                    sortedById(miner.percentageOfSuccessfulLaunchesForProviders());
+            json.writeStartArray();
+            for (Map.Entry<LaunchServiceProvider, Integer> entry : percentages) {
+                json.writeStartObject();
+                json.writeFieldName("provider");
+                writeProvider(json, entry.getKey());
+                json.writeNumberField("percentage", entry.getValue());
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+        });
+    }
+
+    private final RocketMiner miner;
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    public MiningApi(RocketMiner miner) {
+        notNull(miner, "miner cannot be null");
+        this.miner = miner;
+    }
+
+    /**
+     * @return the names of the queries, as in /api/mining/:query.
+     */
+    public static Set<String> getQueries() {
+        return Collections.unmodifiableSet(QUERIES.keySet());
+    }
+
+    /**
+     * Runs a query and writes its result to a stream as UTF-8 JSON, then flushes it. The stream is not closed.
+     * Nothing is written if the query or its parameters are invalid.
+     *
+     * @param query  one of {@link #getQueries()}.
+     * @param params the request parameters by name, null if absent: k, year, fromYear, toYear, orbit, from, to.
+     * @param out    the stream.
+     * @throws IllegalArgumentException if the query is unknown or a parameter is missing or invalid.
+     */
+    public void write(String query, Function<String, String> params, OutputStream out) throws IOException {
+        Query handler = QUERIES.get(query);
+        isTrue(null != handler, "unknown query: %s", query);
+        notNull(params, "params cannot be null");
+        JsonGenerator json = jsonFactory.createGenerator(out, JsonEncoding.UTF8);
+        // the result is computed before the first byte, so a bad parameter fails before anything is written
+        handler.write(miner, params, json);
+        json.flush();
+    }
+
+    /**
+     * Writes an error as a JSON object, then flushes the stream.
+     */
+    public void writeError(String message, OutputStream out) throws IOException {
+        JsonGenerator json = jsonFactory.createGenerator(out, JsonEncoding.UTF8);
+        json.writeStartObject();
+        json.writeStringField("error", message);
+        json.writeEndObject();
+        json.flush();
+    }
+
+    private static int kParam(Function<String, String> params) {
+        int k = intParam(params, "k", DEFAULT_K);
+        isTrue(k >= 0 && k <= MAX_K, "k must be from 0 to %d: %d", MAX_K, k);
+        return k;
+    }
+
+    private static int intParam(Function<String, String> params, String name, Integer defaultValue) {
+        String value = params.apply(name);
+        if (null == value) {
+            isTrue(null != defaultValue, "%s is required", name);
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " must be an integer: " + value);
+        }
+    }
+
+    private static LocalDate dateParam(Function<String, String> params, String name) {
+        String value = params.apply(name);
+        isTrue(null != value, "%s is required", name);
+        try {
+            return LocalDate.parse(value.trim());
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException(name + " must be a date as yyyy-mm-dd: " + value);
+        }
+    }
+
+    private static void writeRockets(JsonGenerator json, List<Rocket> rockets) throws IOException {
+        json.writeStartArray();
+        for (Rocket rocket : rockets) {
+            writeRocket(json, rocket);
+        }
+        json.writeEndArray();
+    }
+
+    private static void writeProviders(JsonGenerator json, List<LaunchServiceProvider> providers) throws IOException {
+        json.writeStartArray();
+        for (LaunchServiceProvider provider : providers) {
+            writeProvider(json, provider);
+        }
+        json.writeEndArray();
+    }
+
+    private static void writeLaunches(JsonGenerator json, List<Launch> launches) throws IOException {
+        json.writeStartArray();
+        for (Launch launch : launches) {
+            writeLaunch(json, launch);
+        }
+        json.writeEndArray();
+    }
+
+    private static void writeRocket(JsonGenerator json, Rocket rocket) throws IOException {
+        json.writeStartObject();
+        writeId(json, rocket.getId());
+        json.writeStringField("name", rocket.getName());
+        json.writeStringField("variation", rocket.getVariation());
+        json.writeStringField("country", rocket.getCountry());
+        json.writeStringField("manufacturer", nameOf(rocket.getManufacturer()));
+        json.writeEndObject();
+    }
+
+    private static void writeProvider(JsonGenerator json, LaunchServiceProvider provider) throws IOException {
+        json.writeStartObject();
+        writeId(json, provider.getId());
+        json.writeStringField("name", provider.getName());
+        json.writeNumberField("yearFounded", provider.getYearFounded());
+        json.writeStringField("country", provider.getCountry());
+        json.writeStringField("headquarters", provider.getHeadquarters());
+        json.writeEndObject();
+    }
+
+    private static void writeLaunch(JsonGenerator json, Launch launch) throws IOException {
+        json.writeStartObject();
+        writeId(json, launch.getId());
+        json.writeStringField("launchDate", null == launch.getLaunchDate() ? null : launch.getLaunchDate().toString());
+        json.writeStringField("rocket", null == launch.getLaunchVehicle() ? null : launch.getLaunchVehicle().getName());
+        json.writeStringField("provider", nameOf(launch.getLaunchServiceProvider()));
+        json.writeStringField("launchSite", launch.getLaunchSite());
+        json.writeStringField("orbit", launch.getOrbit());
+        json.writeStringField("function", launch.getFunction());
+        if (null == launch.getPrice()) {
+            json.writeNullField("price");
+        } else {
+            json.writeNumberField("price", launch.getPrice());
+        }
+        json.writeStringField("outcome", null == launch.getLaunchOutcome() ? null : launch.getLaunchOutcome().name());
+        json.writeEndObject();
+    }
+
+    private static void writeId(JsonGenerator json, Long id) throws IOException {
+        if (null == id) {
+            json.writeNullField("id");
+        } else {
+            json.writeNumberField("id", id);
+        }
+    }
+
+    private static String nameOf(LaunchServiceProvider provider) {
+        return null == provider ? null : provider.getName();
+    }
+
+    /*
+     * the entries of a result map in a stable order, entities without an id last
+     */
+    private static <K extends Entity, V> List<Map.Entry<K, V>> sortedById(Map<K, V> map) {
+        List<Map.Entry<K, V>> entries = new ArrayList<>(map.entrySet());
+        entries.sort(Comparator.comparing(entry -> entry.getKey().getId(), Comparator.nullsLast(Comparator.naturalOrder())));
+        return entries;
+    }
+
+    @FunctionalInterface
+    private interface Query {
+        void write(RocketMiner miner, Function<String, String> params, JsonGenerator json) throws IOException;
+    }
+}
@@ -0,0 +1,382 @@
+package rockets.web;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rockets.dataaccess.DAO;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Runs {@link MiningApi} queries as jobs in the background, so that a long query does not hold a request thread.
+ * <p>
+ * A job is queued for a fixed pool of worker threads and identified by a random id. Its result is kept as JSON,
+ * ready to be sent, for a time to live after the job has finished, and then dropped. A job that runs longer than
+ * the timeout is interrupted and marked as timed out; a job can be cancelled while it is queued or running. The
+ * miner does not check for interruption, so a timed out or cancelled query still keeps its worker until it
+ * returns, but its result is discarded. Workers clear their DAO session after every job, as the web app does after
+ * every request.
+ * <p>
+ * Both the queue and the number of jobs kept are bounded: a job that does not fit is rejected with a
+ * {@link RejectedExecutionException}, for the caller to report as too many requests.
+ */
+public class MiningJobs {
+    private static Logger logger = LoggerFactory.getLogger(MiningJobs.class);
+
+    public enum State {
+        QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED, TIMED_OUT;
+
+        public boolean isDone() {
+            return QUEUED != this && RUNNING != this;
+        }
+    }
+
+    private final MiningApi api;
+
+    private final DAO dao;
+
+    private final ThreadPoolExecutor executor;
+
+    private final ScheduledExecutorService timer;
+
+    private final ConcurrentMap<String, Job> jobs = new ConcurrentHashMap<>();
+
+    // the number of jobs kept, reserved before a job is added and released when it is removed
+    private final AtomicInteger slots = new AtomicInteger();
+
+    private final int maximumJobs;
+
+    private final long timeToLiveMillis;
+
+    private final long timeoutMillis;
+
+    private final LongSupplier clock;
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    /**
+     * @param api              runs the queries.
+     * @param dao              the DAO the queries read from.
+     * @param threads          the number of queries run at once.
+     * @param queueCapacity    the number of jobs that can wait for a thread.
+     * @param maximumJobs      the number of jobs kept, queued, running or finished.
+     * @param timeToLiveMillis how long the result of a job is kept after it has finished.
+     * @param timeoutMillis    how long a job can run.
+     */
+    public MiningJobs(MiningApi api, DAO dao, int threads, int queueCapacity, int maximumJobs, long timeToLiveMillis,
+                      long timeoutMillis) {
+        this(api, dao, threads, queueCapacity, maximumJobs, timeToLiveMillis, timeoutMillis, System::currentTimeMillis);
+    }
+
+    MiningJobs(MiningApi api, DAO dao, int threads, int queueCapacity, int maximumJobs, long timeToLiveMillis,
+               long timeoutMillis, LongSupplier clock) {
+        notNull(api, "api cannot be null");
+        notNull(dao, "dao cannot be null");
+        isTrue(threads > 0, "threads must be positive");
+        isTrue(queueCapacity > 0, "queue capacity must be positive");
+        isTrue(maximumJobs > 0, "maximum jobs must be positive");
+        isTrue(timeToLiveMillis > 0, "time to live must be positive");
+        isTrue(timeoutMillis > 0, "timeout must be positive");
+        this.api = api;
+        this.dao = dao;
+        this.maximumJobs = maximumJobs;
+        this.timeToLiveMillis = timeToLiveMillis;
+        this.timeoutMillis = timeoutMillis;
+        this.clock = clock;
+        AtomicInteger workers = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> daemon(runnable, "mining-job-" + workers.incrementAndGet()),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> daemon(runnable, "mining-job-timeout"));
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * Queues a query.
+     *
+     * @param query  one of {@link MiningApi#getQueries()}.
+     * @param params the parameters of the query by name; they are checked when the query runs.
+     * @return the job.
+     * @throws IllegalArgumentException   if the query is unknown.
+     * @throws RejectedExecutionException if the queue is full, or as many jobs as can be kept already are.
+     */
+    public Job submit(String query, Map<String, String> params) {
+        isTrue(MiningApi.getQueries().contains(query), "unknown query: %s", query);
+        notNull(params, "params cannot be null");
+        evictExpired();
+        reserveSlot();
+        Job job = new Job(UUID.randomUUID().toString(), query, new LinkedHashMap<>(params), clock.getAsLong());
+        jobs.put(job.id, job);
+        try {
+            job.setFuture(executor.submit(() -> run(job)));
+        } catch (RejectedExecutionException e) {
+            remove(job);
+            throw new RejectedExecutionException("the job queue is full", e);
+        }
+        return job;
+    }
+
+    private void reserveSlot() {
+        for (int count = slots.get(); ; count = slots.get()) {
+            if (count >= maximumJobs) {
+                throw new RejectedExecutionException("too many jobs");
+            }
+            if (slots.compareAndSet(count, count + 1)) {
+                return;
+            }
+        }
+    }
+
+    private void remove(Job job) {
+        if (jobs.remove(job.id, job)) {
+            slots.decrementAndGet();
+        }
+    }
+
+    private void run(Job job) {
+        if (!job.start(clock.getAsLong())) {
+            // cancelled while queued
+            return;
+        }
+        ScheduledFuture<?> timeout = timer.schedule(() -> cancel(job, State.TIMED_OUT, "timed out after " + timeoutMillis + " ms"),
+                timeoutMillis, TimeUnit.MILLISECONDS);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            api.write(job.query, job.params::get, out);
+            job.finish(State.SUCCEEDED, new String(out.toByteArray(), StandardCharsets.UTF_8), null, clock.getAsLong());
+        } catch (IllegalArgumentException e) {
+            job.finish(State.FAILED, null, e.getMessage(), clock.getAsLong());
+        } catch (Throwable e) {
+            // errors too, or the job would be left running, and never expire
+            if (!job.getState().isDone()) {
+                logger.error("mining job " + job.id + " failed", e);
+            }
+            job.finish(State.FAILED, null, null == e.getMessage() ? e.toString() : e.getMessage(), clock.getAsLong());
+        } finally {
+            timeout.cancel(false);
+            dao.clearSession();
+        }
+    }
+
+    /**
+     * @return the job, or null if there is no such job or its result has expired.
+     */
+    public Job get(String id) {
+        Job job = null == id ? null : jobs.get(id);
+        if (null != job && isExpired(job)) {
+            remove(job);
+            return null;
+        }
+        return job;
+    }
+
+    /**
+     * Waits for a job to finish.
+     *
+     * @return the job, finished unless the wait timed out, or null if there is no such job.
+     */
+    public Job await(String id, long timeout, TimeUnit unit) throws InterruptedException {
+        Job job = get(id);
+        if (null != job) {
+            job.done.await(timeout, unit);
+        }
+        return job;
+    }
+
+    /**
+     * Cancels a job that is queued or running; a finished job is left as it is.
+     *
+     * @return the job, or null if there is no such job.
+     */
+    public Job cancel(String id) {
+        Job job = get(id);
+        if (null != job) {
+            cancel(job, State.CANCELLED, "cancelled");
+        }
+        return job;
+    }
+
+    private void cancel(Job job, State state, String error) {
+        if (job.finish(state, null, error, clock.getAsLong())) {
+            Future<?> future = job.getFuture();
+            if (null != future) {
+                future.cancel(true);
+            }
+            // out of the queue now, rather than when a worker gets to it
+            executor.purge();
+        }
+    }
+
+    private boolean isExpired(Job job) {
+        Long finished = job.getFinished();
+        return null != finished && clock.getAsLong() - finished >= timeToLiveMillis;
+    }
+
+    private void evictExpired() {
+        for (Job job : jobs.values()) {
+            if (isExpired(job)) {
+                remove(job);
+            }
+        }
+    }
+
+    /**
+     * @return the number of jobs kept, queued, running or finished.
+     */
+    public int size() {
+        evictExpired();
+        return jobs.size();
+    }
+
+    /**
+     * Writes the state of a job as a JSON object, with its result if it has succeeded, then flushes the stream.
+     */
+    public void writeStatus(Job job, OutputStream out) throws IOException {
+        JsonGenerator json = jsonFactory.createGenerator(out, JsonEncoding.UTF8);
+        synchronized (job) {
+            json.writeStartObject();
+            json.writeStringField("id", job.id);
+            json.writeStringField("query", job.query);
+            json.writeObjectFieldStart("params");
+            for (Map.Entry<String, String> param : job.params.entrySet()) {
+                json.writeStringField(param.getKey(), param.getValue());
+            }
+            json.writeEndObject();
+            json.writeStringField("state", job.state.name());
+            writeTime(json, "submitted", job.submitted);
+            writeTime(json, "started", job.started);
+            writeTime(json, "finished", job.finished);
+            if (null != job.error) {
+                json.writeStringField("error", job.error);
+            }
+            if (null != job.result) {
+                json.writeFieldName("result");
+                json.writeRawValue(job.result);
+            }
+            json.writeEndObject();
+        }
+        json.flush();
+    }
+
+    private static void writeTime(JsonGenerator json, String name, Long millis) throws IOException {
+        if (null != millis) {
+            json.writeStringField(name, Instant.ofEpochMilli(millis).toString());
+        }
+    }
+
+    /**
+     * Stops the workers, interrupting the running jobs, and drops the queued ones.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+        timer.shutdownNow();
+    }
+
+    /**
+     * A query run in the background.
+     */
+    public static class Job {
+        private final String id;
+        private final String query;
+        private final Map<String, String> params;
+        private final long submitted;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private State state = State.QUEUED;
+        private Long started;
+        private Long finished;
+        private String result;
+        private String error;
+        private Future<?> future;
+
+        private Job(String id, String query, Map<String, String> params, long submitted) {
+            this.id = id;
+            this.query = query;
+            this.params = Collections.unmodifiableMap(params);
+            this.submitted = submitted;
+        }
+
+        private synchronized boolean start(long now) {
+            if (State.QUEUED != state) {
+                return false;
+            }
+            state = State.RUNNING;
+            started = now;
+            return true;
+        }
+
+        /*
+         * the first of the outcomes of a job, its result, its failure, a cancel or a timeout, is the one it keeps
+         */
+        private synchronized boolean finish(State state, String result, String error, long now) {
+            if (this.state.isDone()) {
+                return false;
+            }
+            this.state = state;
+            this.result = result;
+            this.error = error;
+            this.finished = now;
+            done.countDown();
+            return true;
+        }
+
+        private synchronized Future<?> getFuture() {
+            return future;
+        }
+
+        private synchronized void setFuture(Future<?> future) {
+            this.future = future;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getQuery() {
+            return query;
+        }
+
+        public Map<String, String> getParams() {
+            return params;
+        }
+
+        public synchronized State getState() {
+            return state;
+        }
+
+        public synchronized Long getFinished() {
+            return finished;
+        }
+
+        /**
+         * @return the result as JSON, or null if the job has not succeeded.
+         */
+        public synchronized String getResult() {
+            return result;
+        }
+
+        /**
+         * @return why the job failed, was cancelled or timed out, or null.
+         */
+        public synchronized String getError() {
+            return error;
+        }
+    }
+}
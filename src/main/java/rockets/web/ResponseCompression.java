@@ -0,0 +1,354 @@
+package rockets.web;
+
+import spark.Request;
+import spark.Response;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+
+/**
+ * Compresses response bodies with gzip or deflate, as negotiated with the Accept-Encoding of the request.
+ * <p>
+ * A body is buffered up to the threshold: a smaller body is sent as it is, with its length, since compressing it
+ * would save less than it costs. A larger one is compressed as it is written, without holding it in memory.
+ * The deflaters and the buffers of the streams are taken from pools and returned when a stream is closed, so that
+ * a busy server neither allocates a deflater's native memory nor 2 buffers per response. A pool that is empty makes
+ * new ones, and one that is full drops what is returned to it.
+ * <p>
+ * A compressed response has its ETag tagged with the encoding, so that caches never mix up the encodings;
+ * {@link ConditionalGet} accepts the tagged ETags as well.
+ */
+public class ResponseCompression {
+    /**
+     * The content codings, in order of preference.
+     */
+    public enum Encoding {
+        GZIP("gzip"), DEFLATE("deflate"), IDENTITY("identity");
+
+        private final String token;
+
+        Encoding(String token) {
+            this.token = token;
+        }
+
+        public String getToken() {
+            return token;
+        }
+    }
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    // a gzip member header without name, comment or time (RFC 1952)
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private final int threshold;
+
+    private final int level;
+
+    private final BlockingQueue<Deflater> gzipDeflaters;
+
+    private final BlockingQueue<Deflater> zlibDeflaters;
+
+    private final BlockingQueue<byte[]> buffers;
+
+    private final AtomicLong createdDeflaters = new AtomicLong();
+
+    private final AtomicLong bytesIn = new AtomicLong();
+
+    private final AtomicLong bytesOut = new AtomicLong();
+
+    /**
+     * @param threshold the size from which a body is compressed, in bytes.
+     * @param level     the compression level, from 1 to 9, or -1 for the default.
+     * @param poolSize  the number of deflaters of each encoding, and of pairs of buffers, kept for reuse.
+     */
+    public ResponseCompression(int threshold, int level, int poolSize) {
+        isTrue(threshold >= 0, "threshold cannot be negative");
+        isTrue(Deflater.DEFAULT_COMPRESSION == level || (level >= 1 && level <= 9), "level must be from 1 to 9, or -1");
+        isTrue(poolSize > 0, "pool size must be positive");
+        this.threshold = threshold;
+        this.level = level;
+        this.gzipDeflaters = new ArrayBlockingQueue<>(poolSize);
+        this.zlibDeflaters = new ArrayBlockingQueue<>(poolSize);
+        this.buffers = new ArrayBlockingQueue<>(2 * poolSize);
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * @return the number of deflaters made so far, which stops growing once the pools cover the concurrent responses.
+     */
+    public long getCreatedDeflaters() {
+        return createdDeflaters.get();
+    }
+
+    /**
+     * @return the number of bytes written to the streams of this compressor so far.
+     */
+    public long getBytesIn() {
+        return bytesIn.get();
+    }
+
+    /**
+     * @return the number of bytes the streams of this compressor have sent so far.
+     */
+    public long getBytesOut() {
+        return bytesOut.get();
+    }
+
+    /**
+     * Chooses the encoding of a response, preferring gzip to deflate, from the weights of the Accept-Encoding
+     * header; {@code *} stands for any coding not listed, and a weight of 0 refuses a coding.
+     *
+     * @param acceptEncoding the Accept-Encoding header, or null.
+     * @return the encoding, identity if neither gzip nor deflate is acceptable.
+     */
+    public static Encoding negotiate(String acceptEncoding) {
+        if (null == acceptEncoding) {
+            return Encoding.IDENTITY;
+        }
+        double gzip = -1, deflate = -1, any = -1;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String token = parts[0].trim().toLowerCase();
+            double weight = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        weight = Double.parseDouble(parameter.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        weight = 0;
+                    }
+                }
+            }
+            if ("gzip".equals(token) || "x-gzip".equals(token)) {
+                gzip = weight;
+            } else if ("deflate".equals(token)) {
+                deflate = weight;
+            } else if ("*".equals(token)) {
+                any = weight;
+            }
+        }
+        gzip = gzip < 0 ? any : gzip;
+        deflate = deflate < 0 ? any : deflate;
+        if (gzip > 0 && gzip >= deflate) {
+            return Encoding.GZIP;
+        }
+        return deflate > 0 ? Encoding.DEFLATE : Encoding.IDENTITY;
+    }
+
+    /**
+     * Opens the body of a response, compressed as negotiated with the request once it reaches the threshold.
+     * The stream must be closed to send the body; closing it flushes the response but does not close it.
+     */
+    public OutputStream open(Request req, Response res) throws IOException {
+        HttpServletResponse raw = res.raw();
+        // the body depends on the header, whatever encoding this request gets
+        raw.addHeader("Vary", "Accept-Encoding");
+        return new CompressingOutputStream(raw, negotiate(req.headers("Accept-Encoding")));
+    }
+
+    /**
+     * @return the ETag of a body in an encoding, the ETag itself for identity.
+     */
+    public static String tagged(String etag, Encoding encoding) {
+        if (null == etag || Encoding.IDENTITY == encoding || !etag.endsWith("\"")) {
+            return etag;
+        }
+        return etag.substring(0, etag.length() - 1) + "-" + encoding.getToken() + "\"";
+    }
+
+    /**
+     * @return an ETag without the encoding {@link #tagged(String, Encoding)} added to it, if any.
+     */
+    public static String untagged(String etag) {
+        for (Encoding encoding : Encoding.values()) {
+            String suffix = "-" + encoding.getToken() + "\"";
+            if (Encoding.IDENTITY != encoding && etag.endsWith(suffix)) {
+                return etag.substring(0, etag.length() - suffix.length()) + "\"";
+            }
+        }
+        return etag;
+    }
+
+    private Deflater takeDeflater(Encoding encoding) {
+        Deflater deflater = (Encoding.GZIP == encoding ? gzipDeflaters : zlibDeflaters).poll();
+        if (null == deflater) {
+            createdDeflaters.incrementAndGet();
+            // gzip writes its own header and trailer around raw deflate data; deflate is the zlib format
+            deflater = new Deflater(level, Encoding.GZIP == encoding);
+        }
+        return deflater;
+    }
+
+    private void returnDeflater(Encoding encoding, Deflater deflater) {
+        deflater.reset();
+        if (!(Encoding.GZIP == encoding ? gzipDeflaters : zlibDeflaters).offer(deflater)) {
+            deflater.end();
+        }
+    }
+
+    private byte[] takeBuffer() {
+        byte[] buffer = buffers.poll();
+        return null == buffer ? new byte[Math.max(BUFFER_SIZE, threshold)] : buffer;
+    }
+
+    private void returnBuffer(byte[] buffer) {
+        buffers.offer(buffer);
+    }
+
+    private class CompressingOutputStream extends OutputStream {
+        private final HttpServletResponse response;
+
+        private final Encoding encoding;
+
+        private OutputStream out;
+
+        // the body until it reaches the threshold, then the input of the deflater
+        private byte[] buffer;
+
+        private int count;
+
+        private Deflater deflater;
+
+        private byte[] compressed;
+
+        private final CRC32 crc = new CRC32();
+
+        private boolean closed;
+
+        private CompressingOutputStream(HttpServletResponse response, Encoding encoding) {
+            this.response = response;
+            this.encoding = encoding;
+            this.buffer = takeBuffer();
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (closed) {
+                throw new IOException("stream closed");
+            }
+            bytesIn.addAndGet(length);
+            if (null == deflater && null == out && count + length <= threshold) {
+                System.arraycopy(bytes, offset, buffer, count, length);
+                count += length;
+                return;
+            }
+            if (null == out) {
+                start();
+            }
+            if (null == deflater) {
+                send(bytes, offset, length);
+            } else {
+                deflate(bytes, offset, length);
+            }
+        }
+
+        /*
+         * the body is over the threshold: send the headers and what has been buffered
+         */
+        private void start() throws IOException {
+            if (Encoding.IDENTITY != encoding) {
+                deflater = takeDeflater(encoding);
+                compressed = takeBuffer();
+                response.setHeader("Content-Encoding", encoding.getToken());
+                String etag = response.getHeader("ETag");
+                if (null != etag) {
+                    response.setHeader("ETag", tagged(etag, encoding));
+                }
+            }
+            out = response.getOutputStream();
+            if (Encoding.GZIP == encoding) {
+                send(GZIP_HEADER, 0, GZIP_HEADER.length);
+            }
+            if (null == deflater) {
+                send(buffer, 0, count);
+            } else {
+                deflate(buffer, 0, count);
+            }
+            count = 0;
+        }
+
+        private void deflate(byte[] bytes, int offset, int length) throws IOException {
+            if (Encoding.GZIP == encoding) {
+                crc.update(bytes, offset, length);
+            }
+            deflater.setInput(bytes, offset, length);
+            while (!deflater.needsInput()) {
+                drain(Deflater.NO_FLUSH);
+            }
+        }
+
+        private void drain(int flush) throws IOException {
+            int n = deflater.deflate(compressed, 0, compressed.length, flush);
+            if (n > 0) {
+                send(compressed, 0, n);
+            }
+        }
+
+        private void send(byte[] bytes, int offset, int length) throws IOException {
+            out.write(bytes, offset, length);
+            bytesOut.addAndGet(length);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                if (null == out) {
+                    // small enough to be sent as it is
+                    response.setContentLength(count);
+                    out = response.getOutputStream();
+                    send(buffer, 0, count);
+                } else if (null != deflater) {
+                    deflater.finish();
+                    while (!deflater.finished()) {
+                        drain(Deflater.NO_FLUSH);
+                    }
+                    if (Encoding.GZIP == encoding) {
+                        // the CRC and the length modulo 2^32
+                        byte[] trailer = new byte[8];
+                        writeInt(trailer, 0, (int) crc.getValue());
+                        writeInt(trailer, 4, (int) deflater.getBytesRead());
+                        send(trailer, 0, trailer.length);
+                    }
+                }
+                out.flush();
+            } finally {
+                if (null != deflater) {
+                    returnDeflater(encoding, deflater);
+                    returnBuffer(compressed);
+                    deflater = null;
+                }
+                returnBuffer(buffer);
+                buffer = null;
+            }
+        }
+
+        private void writeInt(byte[] bytes, int offset, int value) {
+            // little endian
+            for (int i = 0; i < 4; i++) {
+                bytes[offset + i] = (byte) (value >>> (8 * i));
+            }
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package rockets.web;
+
+import freemarker.cache.ClassTemplateLoader;
+import freemarker.cache.StrongCacheStorage;
+import freemarker.template.Configuration;
+import freemarker.template.DefaultObjectWrapperBuilder;
+import freemarker.template.Template;
+import freemarker.template.TemplateException;
+import freemarker.template.Version;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import spark.ModelAndView;
+import spark.Route;
+import spark.TemplateViewRoute;
+
+import java.io.*;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Renders the FreeMarker templates of the web pages with a single shared configuration.
+ * <p>
+ * Spark's FreeMarkerEngine builds a configuration of its own, with its own template cache, for every route it is
+ * given, parses each template on the first request that needs it and renders into a String. This renderer has one
+ * configuration for all routes with the same settings as FreeMarkerEngine, so pages render exactly as before, and:
+ * <ul>
+ * <li>parses every template under {@value #TEMPLATE_DIRECTORY} once, by {@link #precompile()}, so the first
+ * request does not pay for it and a broken template fails at startup;</li>
+ * <li>keeps the parsed templates for good and never checks for changes, as they are packaged with the
+ * application;</li>
+ * <li>shares one object wrapper, and with it the introspection of the model classes, between all templates;</li>
+ * <li>streams the output of a route through a buffered UTF-8 writer on the response stream, compressed if
+ * {@link #setCompression(ResponseCompression) set}.</li>
+ * </ul>
+ */
+public class TemplateRenderer {
+    private static Logger logger = LoggerFactory.getLogger(TemplateRenderer.class);
+
+    public static final String TEMPLATE_DIRECTORY = "spark/template/freemarker";
+
+    private static final String TEMPLATE_SUFFIX = ".ftl";
+
+    private static final String CONTENT_TYPE = "text/html; charset=utf-8";
+
+    // as in FreeMarkerEngine, so that the templates behave the same
+    private static final Version VERSION = Configuration.VERSION_2_3_23;
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final Configuration configuration;
+
+    private volatile ResponseCompression compression;
+
+    public TemplateRenderer() {
+        configuration = new Configuration(VERSION);
+        configuration.setTemplateLoader(new ClassTemplateLoader(TemplateRenderer.class, "/" + TEMPLATE_DIRECTORY));
+        configuration.setDefaultEncoding(StandardCharsets.UTF_8.name());
+        configuration.setOutputEncoding(StandardCharsets.UTF_8.name());
+        configuration.setCacheStorage(new StrongCacheStorage());
+        configuration.setTemplateUpdateDelayMilliseconds(Long.MAX_VALUE);
+        // there are no localized templates to look for
+        configuration.setLocalizedLookup(false);
+        // built wrappers are shared, with their class introspection cache, by every configuration of the version
+        configuration.setObjectWrapper(new DefaultObjectWrapperBuilder(VERSION).build());
+    }
+
+    public Configuration getConfiguration() {
+        return configuration;
+    }
+
+    /**
+     * @param compression compresses the pages rendered by the routes of this renderer, or null not to.
+     */
+    public void setCompression(ResponseCompression compression) {
+        this.compression = compression;
+    }
+
+    /**
+     * @return the names of the templates under {@value #TEMPLATE_DIRECTORY} on the classpath, in a directory or a jar.
+     */
+    public static List<String> getTemplateNames() throws IOException {
+        URL url = TemplateRenderer.class.getClassLoader().getResource(TEMPLATE_DIRECTORY);
+        if (null == url) {
+            return Collections.emptyList();
+        }
+        List<String> names;
+        if ("jar".equals(url.getProtocol())) {
+            JarURLConnection connection = (JarURLConnection) url.openConnection();
+            connection.setUseCaches(false);
+            String prefix = TEMPLATE_DIRECTORY + "/";
+            try (JarFile jar = connection.getJarFile()) {
+                names = jar.stream()
+                        .map(JarEntry::getName)
+                        .filter(name -> name.startsWith(prefix) && name.endsWith(TEMPLATE_SUFFIX))
+                        .map(name -> name.substring(prefix.length()))
+                        .collect(Collectors.toList());
+            }
+        } else {
+            Path directory;
+            try {
+                directory = Paths.get(url.toURI());
+            } catch (URISyntaxException e) {
+                throw new IOException(e);
+            }
+            try (Stream<Path> files = Files.walk(directory)) {
+                names = files.filter(file -> file.toString().endsWith(TEMPLATE_SUFFIX))
+                        .map(file -> directory.relativize(file).toString().replace(File.separatorChar, '/'))
+                        .collect(Collectors.toList());
+            }
+        }
+        Collections.sort(names);
+        return names;
+    }
+
+    /**
+     * Parses every template into the cache.
+     *
+     * @return the number of templates.
+     * @throws IOException if a template cannot be read or parsed.
+     */
+    public int precompile() throws IOException {
+        long start = System.nanoTime();
+        List<String> names = getTemplateNames();
+        for (String name : names) {
+            configuration.getTemplate(name);
+        }
+        logger.info(String.format("precompiled %d templates in %d ms", names.size(), (System.nanoTime() - start) / 1_000_000));
+        return names.size();
+    }
+
+    /**
+     * Renders a view to a writer, which is neither flushed nor closed.
+     */
+    public void render(ModelAndView modelAndView, Writer out) throws IOException {
+        notNull(modelAndView, "model and view cannot be null");
+        Template template = configuration.getTemplate(modelAndView.getViewName());
+        try {
+            template.process(modelAndView.getModel(), out);
+        } catch (TemplateException e) {
+            // as FreeMarkerEngine does
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * Renders a view into a String, for callers that need the whole page.
+     */
+    public String render(ModelAndView modelAndView) {
+        StringWriter out = new StringWriter();
+        try {
+            render(modelAndView, out);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e);
+        }
+        return out.toString();
+    }
+
+    /**
+     * @return a route that renders the view of another route straight to the response stream, as HTML unless the
+     * route set another type. Nothing is rendered if the route returned no view or already committed the response,
+     * as it does when it redirects.
+     */
+    public Route route(TemplateViewRoute route) {
+        notNull(route, "route cannot be null");
+        return (req, res) -> {
+            ModelAndView modelAndView = route.handle(req, res);
+            if (null == modelAndView || res.raw().isCommitted()) {
+                return "";
+            }
+            if (null == res.raw().getContentType()) {
+                res.type(CONTENT_TYPE);
+            }
+            ResponseCompression compression = this.compression;
+            OutputStream body = null == compression ? res.raw().getOutputStream() : compression.open(req, res);
+            Writer out = new BufferedWriter(new OutputStreamWriter(body, StandardCharsets.UTF_8), BUFFER_SIZE);
+            try {
+                render(modelAndView, out);
+            } finally {
+                // completes the response, and returns the deflater of a compressed one
+                out.close();
+            }
+            // everything has been written to the response already
+            return "";
+        };
+    }
+}
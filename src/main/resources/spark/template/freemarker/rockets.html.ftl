@@ -1,5 +1,6 @@
 <#-- @ftlvariable name="errorMsg" type="java.lang.String" -->
 <#-- @ftlvariable name="rockets" type="java.util.Collection<rockets.model.Rocket>" -->
+<#-- @ftlvariable name="page" type="rockets.dataaccess.Page<rockets.model.Rocket>" -->
 
 <!doctype html public "-//W3C//DTD HTML 4.01 Transitional//EN" "http://www.w3.org/TR/html4/loose.dtd">
 <html>
@@ -26,6 +27,12 @@
             </#list>
 
         </ul>
+        <#if page?? && (page.hasPrevious() || page.hasNext())>
+            <p>
+                <#if page.hasPrevious()><a href="/rockets?before=${page.previousCursor?c}">Previous</a></#if>
+                <#if page.hasNext()><a href="/rockets?after=${page.nextCursor?c}">Next</a></#if>
+            </p>
+        </#if>
     <#else>
         <p>No rocket yet in the system. <a href="/rocket/create">Create one</a> now!</p>
     </#if>
@@ -0,0 +1,387 @@
+package rockets.dataaccess;
+
+import com.google.common.collect.Sets;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import rockets.model.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The behaviour every DAO backend shares. A subclass sets {@link #dao} and empties the store after each test.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public abstract class AbstractDAOUnitTest {
+    protected DAO dao;
+
+    protected LaunchServiceProvider esa;
+    protected LaunchServiceProvider spacex;
+    protected LaunchServiceProvider okb;
+    protected Rocket rocket;
+    protected PayLoad payload;
+    protected RocketFamily rf;
+
+    @BeforeEach
+    public void setup() {
+        esa = new LaunchServiceProvider("ESA", 1970, "Europe");
+        okb = new LaunchServiceProvider("OKB", 1946, "Russia");
+        spacex = new LaunchServiceProvider("SpaceX", 2002, "USA");
+        rocket = new Rocket("F9", "Block 5","USA", spacex);
+        payload = new PayLoad("satellite", "sputnik 1", okb);
+        rf = new RocketFamily("space");
+    }
+
+    @Test
+    public void shouldCreateARocketSuccessfully() {
+        rocket.setWikilink("https://en.wikipedia.org/wiki/Falcon_9");
+        Rocket graphRocket = dao.createOrUpdate(rocket);
+        assertNotNull(graphRocket.getId());
+        assertEquals(rocket, graphRocket);
+        LaunchServiceProvider manufacturer = graphRocket.getManufacturer();
+
+        assertNotNull(manufacturer.getId());
+        assertEquals(rocket.getWikilink(), graphRocket.getWikilink());
+        assertEquals(spacex, manufacturer);
+    }
+
+    @Test
+    public void shouldCreateAPayLoadSuccessfully() {
+        payload.setWikilink("https://en.wikipedia.org/wiki/Payload");
+        PayLoad graphPayLoad = dao.createOrUpdate(payload);
+        assertNotNull(graphPayLoad.getId());
+        assertEquals(payload, graphPayLoad);
+        LaunchServiceProvider manufacturer = graphPayLoad.getManufacturer();
+        assertNotNull(manufacturer.getId());
+        assertEquals(payload.getWikilink(), graphPayLoad.getWikilink());
+        assertEquals(okb, manufacturer);
+    }
+
+    @Test
+    public void shouldCreateARocketFamilySuccessfully() {
+        rf.setWikilink("https://en.wikipedia.org/wiki/Sputnik_(rocket)");
+        RocketFamily graphRocketFamily = dao.createOrUpdate(rf);
+        assertNotNull(graphRocketFamily.getId());
+        assertEquals(rf, graphRocketFamily);
+        Set<Rocket> rockets = graphRocketFamily.getRockets();
+        assertNotNull(rockets);
+        assertEquals(rf.getWikilink(), graphRocketFamily.getWikilink());
+    }
+
+    @Test
+    public void shouldUpdateRocketAttributeSuccessfully() {
+        rocket.setWikilink("https://en.wikipedia.org/wiki/Falcon_9");
+
+        Rocket graphRocket = dao.createOrUpdate(rocket);
+        assertNotNull(graphRocket.getId());
+        assertEquals(rocket, graphRocket);
+
+        String newLink = "http://adifferentlink.com";
+        rocket.setWikilink(newLink);
+        dao.createOrUpdate(rocket);
+        graphRocket = dao.load(Rocket.class, rocket.getId());
+        assertEquals(newLink, graphRocket.getWikilink());
+    }
+
+    @Test
+    public void shouldUpdatePayLoadAttributeSuccessfully() {
+        payload.setWikilink("https://en.wikipedia.org/wiki/Payload");
+        PayLoad graphPayLoad = dao.createOrUpdate(payload);
+        assertNotNull(graphPayLoad.getId());
+        assertEquals(payload, graphPayLoad);
+
+        String newLink = "http://adifferentlink.com";
+        payload.setWikilink(newLink);
+        dao.createOrUpdate(payload);
+        graphPayLoad = dao.load(PayLoad.class, payload.getId());
+        assertEquals(newLink, graphPayLoad.getWikilink());
+    }
+
+    @Test
+    public void shouldUpdateRocketFamilyAttributeSuccessfully() {
+        rf.setWikilink("https://en.wikipedia.org/wiki/Sputnik_(rocket)");
+        RocketFamily graphRf = dao.createOrUpdate(rf);
+        assertNotNull(graphRf.getId());
+        assertEquals(rf, graphRf);
+
+        String newLink = "http://adifferentlink.com";
+        rf.setWikilink(newLink);
+        dao.createOrUpdate(rf);
+        graphRf = dao.load(RocketFamily.class, rf.getId());
+        assertEquals(newLink, graphRf.getWikilink());
+    }
+
+    @Test
+    public void shouldNotSaveTwoSameRockets() {
+        assertNull(spacex.getId());
+
+        Rocket rocket1 = new Rocket("F9", "Block 5", "USA", spacex);
+        Rocket rocket2 = new Rocket("F9", "Block 5","USA", spacex);
+        assertEquals(rocket1, rocket2);
+        dao.createOrUpdate(rocket1);
+        assertNotNull(spacex.getId());
+        Collection<Rocket> rockets = dao.loadAll(Rocket.class);
+        assertEquals(1, rockets.size());
+        Collection<LaunchServiceProvider> manufacturers = dao.loadAll(LaunchServiceProvider.class);
+        assertEquals(1, manufacturers.size());
+        dao.createOrUpdate(rocket2);
+        manufacturers = dao.loadAll(LaunchServiceProvider.class);
+        assertEquals(1, manufacturers.size());
+        rockets = dao.loadAll(Rocket.class);
+        assertEquals(1, rockets.size());
+    }
+
+    @Test
+    public void shouldLoadAllRockets() {
+        Set<Rocket> rockets = Sets.newHashSet(
+                new Rocket("Ariane4","Block 5", "France", esa),
+                new Rocket("F5", "Block 5","USA", spacex),
+                new Rocket("BFR", "Block 5","USA", spacex)
+        );
+
+        for (Rocket r : rockets) {
+            dao.createOrUpdate(r);
+        }
+
+        Collection<Rocket> loadedRockets = dao.loadAll(Rocket.class);
+        assertEquals(rockets.size(), loadedRockets.size());
+        for (Rocket r : rockets) {
+            assertTrue(rockets.contains(r));
+        }
+    }
+
+    @Test
+    public void shouldStreamEntitiesInPages() {
+        List<Rocket> rockets = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            rockets.add(dao.createOrUpdate(new Rocket("Rocket" + i, "Block " + i, "USA", spacex)));
+        }
+
+        for (int fetchSize : new int[]{1, 2, 5, 10}) {
+            List<Rocket> streamed = new ArrayList<>();
+            dao.stream(Rocket.class, fetchSize).forEach(streamed::add);
+            assertEquals(new HashSet<>(rockets), new HashSet<>(streamed));
+            for (int i = 1; i < streamed.size(); i++) {
+                assertTrue(streamed.get(i - 1).getId() < streamed.get(i).getId());
+            }
+        }
+        assertEquals(1, dao.stream(LaunchServiceProvider.class, 2).count());
+        assertThrows(IllegalArgumentException.class, () -> dao.stream(Rocket.class, 0));
+    }
+
+    @Test
+    public void shouldCreateALaunchSuccessfully() {
+        Launch launch = new Launch();
+        launch.setLaunchDate(LocalDate.of(2017, 1, 1));
+        launch.setLaunchVehicle(rocket);
+        launch.setLaunchSite("VAFB");
+        launch.setOrbit("LEO");
+        dao.createOrUpdate(launch);
+
+        Collection<Launch> launches = dao.loadAll(Launch.class);
+        assertFalse(launches.isEmpty());
+        assertTrue(launches.contains(launch));
+    }
+
+    @Test
+    public void shouldUpdateLaunchAttributesSuccessfully() {
+        Launch launch = new Launch();
+        launch.setLaunchDate(LocalDate.of(2017, 1, 1));
+        launch.setLaunchVehicle(rocket);
+        launch.setLaunchSite("VAFB");
+        launch.setOrbit("LEO");
+        dao.createOrUpdate(launch);
+
+        Collection<Launch> launches = dao.loadAll(Launch.class);
+
+        Launch loadedLaunch = launches.iterator().next();
+        assertNull(loadedLaunch.getFunction());
+
+        launch.setFunction("experimental");
+        dao.createOrUpdate(launch);
+        launches = dao.loadAll(Launch.class);
+        assertEquals(1, launches.size());
+        loadedLaunch = launches.iterator().next();
+        assertEquals("experimental", loadedLaunch.getFunction());
+    }
+
+    @Test
+    public void shouldDeleteRocketWithoutDeleteLSP() {
+        dao.createOrUpdate(rocket);
+        assertNotNull(rocket.getId());
+        assertNotNull(rocket.getManufacturer().getId());
+        assertFalse(dao.loadAll(Rocket.class).isEmpty());
+        assertFalse(dao.loadAll(LaunchServiceProvider.class).isEmpty());
+        dao.delete(rocket);
+        assertTrue(dao.loadAll(Rocket.class).isEmpty());
+        assertFalse(dao.loadAll(LaunchServiceProvider.class).isEmpty());
+    }
+
+    @Test
+    public void shouldDeletePayLoadWithoutDeleteLSP() {
+        dao.createOrUpdate(payload);
+        assertNotNull(payload.getId());
+        assertNotNull(payload.getManufacturer().getId());
+        assertFalse(dao.loadAll(PayLoad.class).isEmpty());
+        assertFalse(dao.loadAll(LaunchServiceProvider.class).isEmpty());
+        dao.delete(payload);
+        assertTrue(dao.loadAll(PayLoad.class).isEmpty());
+        assertFalse(dao.loadAll(LaunchServiceProvider.class).isEmpty());
+    }
+
+    @Test
+    public void shouldNotifyListenersOfWrites() {
+        List<Entity> saved = new ArrayList<>();
+        List<Entity> deleted = new ArrayList<>();
+        DAOListener listener = new DAOListener() {
+            @Override
+            public void entitySaved(Entity entity) {
+                assertNotNull(entity.getId());
+                saved.add(entity);
+            }
+
+            @Override
+            public void entityDeleted(Entity entity) {
+                assertNotNull(entity.getId());
+                deleted.add(entity);
+            }
+        };
+        dao.addListener(listener);
+        try {
+            dao.createOrUpdate(rocket);
+            dao.delete(rocket);
+        } finally {
+            dao.removeListener(listener);
+        }
+        assertEquals(Collections.singletonList(rocket), saved);
+        assertEquals(Collections.singletonList(rocket), deleted);
+
+        dao.createOrUpdate(payload);
+        assertEquals(1, saved.size());
+    }
+
+    @Test
+    public void shouldLoadPagesAfterAndBeforeCursors() {
+        List<Rocket> rockets = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            rockets.add(dao.createOrUpdate(new Rocket("Rocket" + i, "Block 5", "USA", spacex)));
+        }
+        rockets.sort(Comparator.comparing(Rocket::getId));
+
+        Page<Rocket> first = dao.loadPageAfter(Rocket.class, null, 2);
+        assertEquals(rockets.subList(0, 2), first.getItems());
+        assertFalse(first.hasPrevious());
+        Page<Rocket> second = dao.loadPageAfter(Rocket.class, first.getNextCursor(), 2);
+        assertEquals(rockets.subList(2, 4), second.getItems());
+        assertEquals(rockets.get(2).getId(), second.getPreviousCursor());
+        Page<Rocket> third = dao.loadPageAfter(Rocket.class, second.getNextCursor(), 2);
+        assertEquals(rockets.subList(4, 5), third.getItems());
+        assertFalse(third.hasNext());
+
+        assertEquals(second.getItems(), dao.loadPageBefore(Rocket.class, third.getPreviousCursor(), 2).getItems());
+        Page<Rocket> back = dao.loadPageBefore(Rocket.class, second.getPreviousCursor(), 2);
+        assertEquals(first.getItems(), back.getItems());
+        assertFalse(back.hasPrevious());
+        assertEquals(first.getNextCursor(), back.getNextCursor());
+
+        Page<Rocket> last = dao.loadPageBefore(Rocket.class, null, 2);
+        assertEquals(rockets.subList(3, 5), last.getItems());
+        assertTrue(last.hasPrevious());
+        assertFalse(last.hasNext());
+        assertTrue(dao.loadPageAfter(Rocket.class, third.getItems().get(0).getId(), 2).getItems().isEmpty());
+    }
+
+    @Test
+    public void shouldSaveAndLoadFromConcurrentThreads() throws Exception {
+        dao.createOrUpdate(spacex);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                String name = "Rocket" + i;
+                results.add(executor.submit(() -> {
+                    try {
+                        dao.createOrUpdate(new Rocket(name, "Block 5", "USA", spacex));
+                        return dao.loadAll(Rocket.class).size();
+                    } finally {
+                        dao.clearSession();
+                    }
+                }));
+            }
+            for (Future<Integer> result : results) {
+                assertTrue(result.get(30, TimeUnit.SECONDS) >= 1);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(8, dao.loadAll(Rocket.class).size());
+        assertEquals(1, dao.loadAll(LaunchServiceProvider.class).size());
+    }
+
+    @Test
+    public void shouldComputeAggregatesInDatabase() {
+        Rocket ariane = new Rocket("Ariane", "ECA", "Europe", esa);
+        Launch first = newLaunch(rocket, spacex, LocalDate.of(2017, 1, 1), "10", Launch.LaunchOutcome.SUCCESSFUL, "LEO");
+        first.setPayload(Sets.newHashSet("a", "b"));
+        Launch second = newLaunch(rocket, spacex, LocalDate.of(2017, 6, 1), "30", Launch.LaunchOutcome.SUCCESSFUL, "LEO");
+        Launch third = newLaunch(ariane, esa, LocalDate.of(2018, 3, 1), "20", Launch.LaunchOutcome.SUCCESSFUL, "LEO");
+        third.setPayload(Sets.newHashSet("c"));
+        Launch fourth = newLaunch(ariane, esa, LocalDate.of(2017, 2, 1), "5", Launch.LaunchOutcome.FAILED, "GTO");
+        // both ends of the PROVIDES relationship have to agree, or saving one launch unlinks the others
+        rocket.setLaunches(Sets.newHashSet(first, second));
+        ariane.setLaunches(Sets.newHashSet(third, fourth));
+        Arrays.asList(first, second, third, fourth).forEach(dao::createOrUpdate);
+
+        assertEquals(Arrays.asList(ariane, rocket), dao.aggregate(AggregateQuery.mostLaunchedRockets(2)));
+        assertEquals(Arrays.asList(esa, spacex), dao.aggregate(AggregateQuery.mostReliableLaunchServiceProviders(5)));
+        assertEquals(Arrays.asList(third, second), dao.aggregate(AggregateQuery.mostRecentLaunches(2)));
+        assertEquals(Arrays.asList(second, third, first), dao.aggregate(AggregateQuery.mostExpensiveLaunches(3)));
+        assertEquals(Arrays.asList(spacex, esa), dao.aggregate(AggregateQuery.highestRevenueLaunchServiceProviders(2, 2017)));
+        assertEquals(Collections.singletonList(esa), dao.aggregate(AggregateQuery.highestRevenueLaunchServiceProviders(1, 2018)));
+        assertEquals(Arrays.asList(esa, spacex), dao.aggregate(AggregateQuery.highestRevenueLaunchServiceProviders(2, 2018, 2020)));
+        assertTrue(dao.aggregate(AggregateQuery.mostLaunchedRockets(0)).isEmpty());
+
+        Map<String, Integer> payloads = new HashMap<>();
+        dao.aggregate(AggregateQuery.payloadsPerCountry("LEO")).forEach(row -> payloads.put(row.getKey(), row.getValue()));
+        Map<String, Integer> expected = new HashMap<>();
+        expected.put("USA", 2);
+        expected.put("Europe", 1);
+        assertEquals(expected, payloads);
+    }
+
+    @Test
+    public void shouldRankRevenueOfPositivePricesWithTiesByProvider() {
+        Rocket ariane = new Rocket("Ariane", "ECA", "Europe", esa);
+        Rocket soyuz = new Rocket("Soyuz", "2", "Russia", okb);
+        Launch first = newLaunch(rocket, spacex, LocalDate.of(2019, 1, 1), "10", Launch.LaunchOutcome.SUCCESSFUL, "LEO");
+        Launch second = newLaunch(ariane, esa, LocalDate.of(2019, 2, 1), "10", Launch.LaunchOutcome.SUCCESSFUL, "LEO");
+        Launch third = newLaunch(soyuz, okb, LocalDate.of(2020, 1, 1), "-5", Launch.LaunchOutcome.SUCCESSFUL, "LEO");
+        rocket.setLaunches(Sets.newHashSet(first));
+        ariane.setLaunches(Sets.newHashSet(second));
+        soyuz.setLaunches(Sets.newHashSet(third));
+        // saved out of name order, so that ties are not broken by id
+        Arrays.asList(spacex, okb, esa).forEach(dao::createOrUpdate);
+        Arrays.asList(first, second, third).forEach(dao::createOrUpdate);
+
+        assertEquals(Arrays.asList(esa, spacex, okb), dao.aggregate(AggregateQuery.highestRevenueLaunchServiceProviders(3, 2019)));
+        // a price that is not positive is no revenue
+        assertEquals(Arrays.asList(esa, okb, spacex), dao.aggregate(AggregateQuery.highestRevenueLaunchServiceProviders(3, 2020)));
+    }
+
+    protected static Launch newLaunch(Rocket vehicle, LaunchServiceProvider lsp, LocalDate date, String price,
+                                      Launch.LaunchOutcome outcome, String orbit) {
+        Launch launch = new Launch();
+        launch.setLaunchVehicle(vehicle);
+        launch.setLaunchServiceProvider(lsp);
+        launch.setLaunchDate(date);
+        launch.setPrice(new BigDecimal(price));
+        launch.setLaunchOutcome(outcome);
+        launch.setOrbit(orbit);
+        return launch;
+    }
+}
@@ -0,0 +1,136 @@
+package rockets.dataaccess;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+import rockets.model.User;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class CachingDAOUnitTest {
+    private DAO dao;
+    private DAOListener listener;
+    private AtomicLong now;
+    private CachingDAO cachingDAO;
+    private User user;
+
+    @BeforeEach
+    public void setUp() {
+        dao = mock(DAO.class);
+        now = new AtomicLong();
+        cachingDAO = new CachingDAO(dao, 2, TimeUnit.MINUTES.toMillis(5), now::get);
+        ArgumentCaptor<DAOListener> captor = ArgumentCaptor.forClass(DAOListener.class);
+        verify(dao).addListener(captor.capture());
+        listener = captor.getValue();
+
+        user = newUser(1L, "a@example.com");
+        when(dao.load(User.class, 1L)).thenReturn(user);
+    }
+
+    private static User newUser(Long id, String email) {
+        User user = new User();
+        user.setId(id);
+        user.setEmail(email);
+        return user;
+    }
+
+    @DisplayName("should load an entity once until it is evicted")
+    @Test
+    public void shouldLoadEntityOnce() {
+        assertSame(user, cachingDAO.load(User.class, 1L));
+        assertSame(user, cachingDAO.load(User.class, 1L));
+        verify(dao, times(1)).load(User.class, 1L);
+        assertEquals(1, cachingDAO.getHitCount());
+        assertEquals(1, cachingDAO.getMissCount());
+        assertEquals(0.5, cachingDAO.getHitRate());
+    }
+
+    @DisplayName("should key entities by class and id")
+    @Test
+    public void shouldKeyEntitiesByClassAndId() {
+        LaunchServiceProvider lsp = new LaunchServiceProvider("SpaceX", 2002, "USA");
+        lsp.setId(1L);
+        when(dao.load(LaunchServiceProvider.class, 1L)).thenReturn(lsp);
+
+        assertSame(user, cachingDAO.load(User.class, 1L));
+        assertSame(lsp, cachingDAO.load(LaunchServiceProvider.class, 1L));
+        assertNull(cachingDAO.load(Rocket.class, 1L));
+        assertNull(cachingDAO.load(Rocket.class, 1L));
+        verify(dao, times(2)).load(Rocket.class, 1L);
+        assertEquals(2, cachingDAO.size());
+    }
+
+    @DisplayName("should evict the least recently used entity")
+    @Test
+    public void shouldEvictLeastRecentlyUsedEntity() {
+        when(dao.load(User.class, 2L)).thenReturn(newUser(2L, "b@example.com"));
+        when(dao.load(User.class, 3L)).thenReturn(newUser(3L, "c@example.com"));
+        cachingDAO.load(User.class, 1L);
+        cachingDAO.load(User.class, 2L);
+        cachingDAO.load(User.class, 1L);
+        cachingDAO.load(User.class, 3L);
+        cachingDAO.load(User.class, 1L);
+        cachingDAO.load(User.class, 2L);
+
+        verify(dao, times(1)).load(User.class, 1L);
+        verify(dao, times(2)).load(User.class, 2L);
+        assertEquals(2, cachingDAO.getEvictionCount());
+    }
+
+    @DisplayName("should reload an entity after its time to live")
+    @Test
+    public void shouldReloadExpiredEntity() {
+        cachingDAO.load(User.class, 1L);
+        now.addAndGet(TimeUnit.MINUTES.toMillis(4));
+        cachingDAO.load(User.class, 1L);
+        verify(dao, times(1)).load(User.class, 1L);
+
+        now.addAndGet(TimeUnit.MINUTES.toMillis(1));
+        cachingDAO.load(User.class, 1L);
+        verify(dao, times(2)).load(User.class, 1L);
+        assertEquals(1, cachingDAO.getEvictionCount());
+    }
+
+    @DisplayName("should evict entities written through the underlying DAO")
+    @Test
+    public void shouldEvictWrittenEntities() {
+        cachingDAO.load(User.class, 1L);
+        listener.entitySaved(user);
+        cachingDAO.load(User.class, 1L);
+        verify(dao, times(2)).load(User.class, 1L);
+
+        listener.entityDeleted(user);
+        when(dao.load(User.class, 1L)).thenReturn(null);
+        assertNull(cachingDAO.load(User.class, 1L));
+    }
+
+    @DisplayName("should not cache an entity that was written while it was loaded")
+    @Test
+    public void shouldNotCacheEntityWrittenWhileLoading() {
+        when(dao.load(User.class, 1L)).thenAnswer(invocation -> {
+            listener.entitySaved(user);
+            return user;
+        });
+        cachingDAO.load(User.class, 1L);
+        assertEquals(0, cachingDAO.size());
+    }
+
+    @DisplayName("should forward writes and detach from the underlying DAO when closed")
+    @Test
+    public void shouldForwardCalls() {
+        cachingDAO.createOrUpdate(user);
+        cachingDAO.delete(user);
+        cachingDAO.close();
+        verify(dao).createOrUpdate(user);
+        verify(dao).delete(user);
+        verify(dao).removeListener(listener);
+        verify(dao).close();
+    }
+}
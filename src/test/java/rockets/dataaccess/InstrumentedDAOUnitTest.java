@@ -0,0 +1,101 @@
+package rockets.dataaccess;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import rockets.model.Entity;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+import rockets.model.User;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class InstrumentedDAOUnitTest {
+    private DAO dao;
+    private DAOMetrics metrics;
+    private InstrumentedDAO instrumentedDAO;
+    private LaunchServiceProvider spacex;
+    private Rocket rocket;
+
+    @BeforeEach
+    public void setUp() {
+        dao = mock(DAO.class);
+        metrics = new DAOMetrics();
+        instrumentedDAO = new InstrumentedDAO(dao, metrics);
+        spacex = new LaunchServiceProvider("SpaceX", 2002, "USA");
+        rocket = new Rocket("F9", "Block 5", "USA", spacex);
+    }
+
+    @DisplayName("should record calls and rows per method and entity class")
+    @Test
+    public void shouldRecordCallsAndRows() {
+        when(dao.load(Rocket.class, 1L)).thenReturn(rocket);
+        when(dao.loadAll(Rocket.class)).thenReturn(Arrays.asList(rocket, rocket));
+        assertSame(rocket, instrumentedDAO.load(Rocket.class, 1L));
+        assertNull(instrumentedDAO.load(Rocket.class, 2L));
+        assertNull(instrumentedDAO.load(User.class, 1L));
+        instrumentedDAO.loadAll(Rocket.class);
+        instrumentedDAO.getUserByEmail("a@example.com");
+
+        DAOMetrics.Snapshot loads = metrics.snapshot("load", Rocket.class);
+        assertEquals(2, loads.getCalls());
+        assertEquals(1, loads.getRows());
+        assertEquals(0, loads.getErrors());
+        assertTrue(loads.getP50Nanos() <= loads.getP999Nanos());
+        assertTrue(loads.getP999Nanos() <= loads.getMaxNanos());
+        assertEquals(1, metrics.snapshot("load", User.class).getCalls());
+        assertEquals(2, metrics.snapshot("loadAll", Rocket.class).getRows());
+        assertEquals(1, metrics.snapshot("getUserByEmail", User.class).getCalls());
+        assertNull(metrics.snapshot("delete", Rocket.class));
+
+        List<String> operations = metrics.snapshot().stream()
+                .map(s -> s.getOperation() + " " + s.getEntityClass().getSimpleName()).collect(Collectors.toList());
+        assertEquals(Arrays.asList("getUserByEmail User", "load Rocket", "load User", "loadAll Rocket"), operations);
+    }
+
+    @DisplayName("should record writes under the class of the entities, or Entity if they are mixed")
+    @Test
+    public void shouldRecordWritesByEntityClass() {
+        when(dao.createOrUpdate(any())).then(invocation -> invocation.getArgument(0));
+        when(dao.createOrUpdateAll(any())).then(invocation -> invocation.getArgument(0));
+        instrumentedDAO.createOrUpdate(rocket);
+        instrumentedDAO.createOrUpdateAll(Arrays.asList(rocket, rocket));
+        instrumentedDAO.createOrUpdateAll(Arrays.asList(rocket, spacex));
+        instrumentedDAO.delete(spacex);
+
+        assertEquals(1, metrics.snapshot("createOrUpdate", Rocket.class).getRows());
+        assertEquals(2, metrics.snapshot("createOrUpdateAll", Rocket.class).getRows());
+        assertEquals(2, metrics.snapshot("createOrUpdateAll", Entity.class).getRows());
+        assertEquals(1, metrics.snapshot("delete", LaunchServiceProvider.class).getCalls());
+        verify(dao).delete(spacex);
+    }
+
+    @DisplayName("should count errors and rethrow them")
+    @Test
+    public void shouldRecordErrors() {
+        when(dao.createOrUpdate(rocket)).thenThrow(new IllegalStateException("down"));
+        assertThrows(IllegalStateException.class, () -> instrumentedDAO.createOrUpdate(rocket));
+        DAOMetrics.Snapshot writes = metrics.snapshot("createOrUpdate", Rocket.class);
+        assertEquals(1, writes.getCalls());
+        assertEquals(1, writes.getErrors());
+        assertEquals(0, writes.getRows());
+        assertTrue(writes.toString().startsWith("createOrUpdate Rocket: calls=1 errors=1 rows=0"));
+    }
+
+    @DisplayName("should count the entities of a stream as they are read")
+    @Test
+    public void shouldCountStreamedRows() {
+        when(dao.stream(Rocket.class, 10)).thenReturn(Stream.of(rocket, rocket, rocket));
+        Stream<Rocket> stream = instrumentedDAO.stream(Rocket.class, 10);
+        assertEquals(0, metrics.snapshot("stream", Rocket.class).getRows());
+        assertEquals(3, stream.count());
+        assertEquals(3, metrics.snapshot("stream", Rocket.class).getRows());
+        assertEquals(1, metrics.snapshot("stream", Rocket.class).getCalls());
+    }
+}
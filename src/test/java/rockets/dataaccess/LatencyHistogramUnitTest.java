@@ -0,0 +1,77 @@
+package rockets.dataaccess;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyHistogramUnitTest {
+    @DisplayName("should map every value to a bucket whose highest value is within 1/32 of it")
+    @Test
+    public void shouldBucketValuesWithBoundedError() {
+        int previous = -1;
+        for (long value = 0; value < 100_000; value++) {
+            int index = LatencyHistogram.indexOf(value);
+            assertTrue(index == previous || index == previous + 1);
+            previous = index;
+            long highest = LatencyHistogram.highestValueAt(index);
+            assertTrue(highest >= value);
+            assertTrue(highest - value <= value / 32, "value " + value + " bucket " + highest);
+        }
+        assertEquals(LatencyHistogram.MAXIMUM_VALUE,
+                LatencyHistogram.highestValueAt(LatencyHistogram.indexOf(LatencyHistogram.MAXIMUM_VALUE)));
+    }
+
+    @DisplayName("should return percentiles, mean and max of the recorded latencies")
+    @Test
+    public void shouldReturnPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getValueAtPercentile(50));
+        for (long i = 1; i <= 1000; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(i));
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(1000), histogram.getMax());
+        assertEquals(500_500, histogram.getMean(), 0.001);
+        assertEquals(500_000, histogram.getValueAtPercentile(50), 500_000 / 32);
+        assertEquals(990_000, histogram.getValueAtPercentile(99), 990_000 / 32);
+        assertEquals(1_000_000, histogram.getValueAtPercentile(99.9), 1_000_000 / 32);
+        assertEquals(histogram.getMax(), histogram.getValueAtPercentile(100));
+        assertThrows(IllegalArgumentException.class, () -> histogram.getValueAtPercentile(101));
+
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(LatencyHistogram.MAXIMUM_VALUE, histogram.getMax());
+    }
+
+    @DisplayName("should count every latency recorded from concurrent threads")
+    @Test
+    public void shouldRecordFromConcurrentThreads() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        histogram.record(i);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(40_000, histogram.getCount());
+        assertEquals(9_999, histogram.getMax());
+    }
+}
@@ -0,0 +1,116 @@
+package rockets.dataaccess;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+import rockets.model.User;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NaturalKeyIndexUnitTest {
+    private LaunchServiceProvider spacex;
+    private NaturalKeyIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        spacex = new LaunchServiceProvider("SpaceX", 2002, "USA");
+        index = new NaturalKeyIndex(2);
+    }
+
+    private static Rocket newRocket(String name, Long id, LaunchServiceProvider manufacturer) {
+        Rocket rocket = new Rocket(name, "Block 5", "USA", manufacturer);
+        rocket.setId(id);
+        return rocket;
+    }
+
+    private static User newUser(String email, Long id) {
+        User user = new User();
+        user.setEmail(email);
+        user.setId(id);
+        return user;
+    }
+
+    @DisplayName("should find the id of an entity with the same natural key")
+    @Test
+    public void shouldFindIdByNaturalKey() {
+        index.put(newRocket("F9", 1L, spacex));
+        assertEquals(Long.valueOf(1), index.get(newRocket("F9", null, spacex)));
+        assertNull(index.get(newRocket("F1", null, spacex)));
+        assertEquals(1, index.getHitCount());
+        assertEquals(1, index.getMissCount());
+
+        spacex.setId(2L);
+        index.put(spacex);
+        assertEquals(Long.valueOf(2), index.get(new LaunchServiceProvider("SpaceX", 2002, "USA")));
+        assertNull(index.get(new LaunchServiceProvider("SpaceX", 2003, "USA")));
+    }
+
+    @DisplayName("should key launches by the properties of their composite index")
+    @Test
+    public void shouldKeyLaunchesByCompositeIndex() {
+        Rocket rocket = newRocket("F9", 1L, spacex);
+        Launch launch = new Launch();
+        launch.setId(10L);
+        launch.setLaunchDate(LocalDate.of(2017, 1, 1));
+        launch.setLaunchVehicle(rocket);
+        launch.setLaunchSite("VAFB");
+        launch.setOrbit("LEO");
+        index.put(launch);
+
+        Launch same = new Launch();
+        same.setLaunchDate(LocalDate.of(2017, 1, 1));
+        same.setLaunchVehicle(newRocket("F9", 1L, new LaunchServiceProvider("ULA", 1990, "USA")));
+        same.setLaunchSite("VAFB");
+        same.setOrbit("LEO");
+        same.setLaunchOutcome(Launch.LaunchOutcome.FAILED);
+        assertEquals(Long.valueOf(10), index.get(same));
+
+        same.setOrbit("GTO");
+        assertNull(index.get(same));
+    }
+
+    @DisplayName("should forget the old key of an entity saved under a new one")
+    @Test
+    public void shouldReplaceKeyOfId() {
+        User user = newUser("a@example.com", 1L);
+        index.put(user);
+        user.setEmail("b@example.com");
+        index.put(user);
+
+        assertNull(index.get(newUser("a@example.com", null)));
+        assertEquals(Long.valueOf(1), index.get(newUser("b@example.com", null)));
+        assertEquals(1, index.size());
+
+        index.remove(user);
+        assertNull(index.get(newUser("b@example.com", null)));
+        assertEquals(0, index.size());
+    }
+
+    @DisplayName("should evict the least recently used key of a class")
+    @Test
+    public void shouldEvictLeastRecentlyUsedKey() {
+        index.put(newRocket("R1", 1L, spacex));
+        index.put(newRocket("R2", 2L, spacex));
+        index.get(newRocket("R1", null, spacex));
+        index.put(newRocket("R3", 3L, spacex));
+        spacex.setId(4L);
+        index.put(spacex);
+
+        assertNull(index.get(newRocket("R2", null, spacex)));
+        assertEquals(Long.valueOf(1), index.get(newRocket("R1", null, spacex)));
+        assertEquals(Long.valueOf(3), index.get(newRocket("R3", null, spacex)));
+        assertEquals(3, index.size());
+    }
+
+    @DisplayName("should throw exception when the maximum size is not positive")
+    @Test
+    public void shouldThrowExceptionWhenMaximumSizeIsNotPositive() {
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> new NaturalKeyIndex(0));
+        assertEquals("maximum size must be positive", exception.getMessage());
+    }
+}
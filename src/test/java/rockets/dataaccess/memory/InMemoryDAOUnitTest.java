@@ -0,0 +1,76 @@
+package rockets.dataaccess.memory;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import rockets.dataaccess.AbstractDAOUnitTest;
+import rockets.model.Launch;
+import rockets.model.Rocket;
+import rockets.model.User;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemoryDAOUnitTest extends AbstractDAOUnitTest {
+    private InMemoryDAO inMemoryDAO;
+
+    @BeforeEach
+    public void createDAO() {
+        inMemoryDAO = new InMemoryDAO();
+        dao = inMemoryDAO;
+    }
+
+    @Test
+    public void shouldMatchEntitiesByNaturalKey() {
+        Rocket same = new Rocket("F9", "Block 4", "USA", spacex);
+        dao.createOrUpdate(rocket);
+        dao.createOrUpdate(same);
+        assertEquals(rocket.getId(), same.getId());
+        assertSame(same, dao.load(Rocket.class, rocket.getId()));
+
+        User user = new User();
+        user.setEmail("a@example.com");
+        dao.createOrUpdate(user);
+        assertSame(user, dao.getUserByEmail("a@example.com"));
+        user.setEmail("b@example.com");
+        dao.createOrUpdate(user);
+        assertNull(dao.getUserByEmail("a@example.com"));
+        assertSame(user, dao.getUserByEmail("b@example.com"));
+        dao.delete(user);
+        assertNull(dao.getUserByEmail("b@example.com"));
+    }
+
+    @Test
+    public void shouldIndexLaunchesByDateRocketAndProvider() {
+        Rocket ariane = new Rocket("Ariane", "ECA", "Europe", esa);
+        Launch first = newLaunch(rocket, spacex, LocalDate.of(2017, 1, 1), "10", Launch.LaunchOutcome.SUCCESSFUL, "LEO");
+        Launch second = newLaunch(ariane, esa, LocalDate.of(2017, 6, 1), "20", Launch.LaunchOutcome.SUCCESSFUL, "LEO");
+        Launch third = newLaunch(rocket, spacex, LocalDate.of(2018, 3, 1), "30", Launch.LaunchOutcome.FAILED, "GTO");
+        dao.createOrUpdateAll(Arrays.asList(first, second, third));
+
+        assertEquals(Arrays.asList(first, second), inMemoryDAO.getLaunchesBetween(LocalDate.of(2017, 1, 1), LocalDate.of(2017, 12, 31)));
+        assertEquals(Arrays.asList(first, third), inMemoryDAO.getLaunchesOf(rocket));
+        assertEquals(Collections.singletonList(second), inMemoryDAO.getLaunchesBy(esa));
+        assertThrows(IllegalArgumentException.class,
+                () -> inMemoryDAO.getLaunchesBetween(LocalDate.of(2018, 1, 1), LocalDate.of(2017, 1, 1)));
+
+        second.setLaunchDate(LocalDate.of(2019, 1, 1));
+        second.setLaunchVehicle(rocket);
+        dao.createOrUpdate(second);
+        assertEquals(Collections.singletonList(first), inMemoryDAO.getLaunchesBetween(LocalDate.of(2017, 1, 1), LocalDate.of(2017, 12, 31)));
+        assertEquals(Arrays.asList(first, second, third), inMemoryDAO.getLaunchesOf(rocket));
+        assertTrue(inMemoryDAO.getLaunchesOf(ariane).isEmpty());
+
+        dao.delete(third);
+        assertEquals(Arrays.asList(first, second), inMemoryDAO.getLaunchesOf(rocket));
+        assertTrue(inMemoryDAO.getLaunchesBetween(LocalDate.of(2018, 1, 1), LocalDate.of(2018, 12, 31)).isEmpty());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        dao.close();
+    }
+}
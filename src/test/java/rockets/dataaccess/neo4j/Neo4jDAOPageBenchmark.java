@@ -0,0 +1,102 @@
+package rockets.dataaccess.neo4j;
+
+import org.neo4j.ogm.config.Configuration;
+import org.neo4j.ogm.drivers.embedded.driver.EmbeddedDriver;
+import org.neo4j.ogm.session.Session;
+import org.neo4j.ogm.session.SessionFactory;
+import rockets.dataaccess.LatencyHistogram;
+import rockets.model.Rocket;
+import rockets.model.User;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Measures how the latency of {@link Neo4jDAO#loadPageAfter} and {@link Neo4jDAO#loadPageBefore} grows with the
+ * number of nodes of the label, for the first, a middle and the last page, and how long {@link Neo4jDAO#stream}
+ * takes per entity. The label is doubled between rounds in an embedded database in a temporary directory.
+ * <p>
+ * Pages are found with a label scan and a top-k sort, so their latency grows with the label wherever the page is;
+ * the stream seeks its windows by id, so its time per entity stays about the same.
+ * <p>
+ * Not a unit test; run it from the test classpath with
+ * {@code java -cp target/classes:target/test-classes:<dependencies> rockets.dataaccess.neo4j.Neo4jDAOPageBenchmark [rounds] [requests]}.
+ */
+public class Neo4jDAOPageBenchmark {
+    private static final int PAGE_SIZE = 20;
+
+    private static final int FETCH_SIZE = 500;
+
+    public static void main(String[] args) throws IOException {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 6;
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        Path directory = Files.createTempDirectory("page-benchmark");
+        EmbeddedDriver driver = new EmbeddedDriver();
+        driver.configure(new Configuration.Builder().uri(directory.toUri().toString()).build());
+        try {
+            SessionFactory sessionFactory = new SessionFactory(driver, User.class.getPackage().getName());
+            Neo4jDAO dao = new Neo4jDAO(sessionFactory);
+            Session session = sessionFactory.openSession();
+            System.out.println(String.format("%10s %16s %16s %16s %18s", "rockets",
+                    "first p50 (ms)", "middle p50 (ms)", "last p50 (ms)", "stream (us/entity)"));
+            int rockets = 0;
+            for (int round = 0, size = 1000; round < rounds; round++, size *= 2) {
+                create(session, rockets, size - rockets);
+                rockets = size;
+                Map<String, Object> bounds = session.query("MATCH (n:Rocket) RETURN min(id(n)) AS min, max(id(n)) AS max",
+                        Collections.emptyMap()).iterator().next();
+                long middle = (((Number) bounds.get("min")).longValue() + ((Number) bounds.get("max")).longValue()) / 2;
+
+                double first = median(requests, dao, () -> dao.loadPageAfter(Rocket.class, null, PAGE_SIZE));
+                double inTheMiddle = median(requests, dao, () -> dao.loadPageAfter(Rocket.class, middle, PAGE_SIZE));
+                double last = median(requests, dao, () -> dao.loadPageBefore(Rocket.class, null, PAGE_SIZE));
+                long start = System.nanoTime();
+                long streamed;
+                try (Stream<Rocket> stream = dao.stream(Rocket.class, FETCH_SIZE)) {
+                    streamed = stream.count();
+                }
+                double perEntity = (System.nanoTime() - start) / 1e3 / streamed;
+                System.out.println(String.format("%10d %16.3f %16.3f %16.3f %18.3f", rockets, first, inTheMiddle, last, perEntity));
+            }
+        } finally {
+            driver.close();
+            try (Stream<Path> paths = Files.walk(directory)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    private static void create(Session session, int from, int count) {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("from", from);
+        parameters.put("to", from + count - 1);
+        session.query("UNWIND range($from, $to) AS i " +
+                "CREATE (:Rocket {name: 'Rocket' + i, variation: 'Block 5', country: 'USA'})", parameters);
+        session.clear();
+    }
+
+    /*
+     * the median latency in milliseconds, after as many requests to warm up; the session is cleared after every
+     * request, as the web app does
+     */
+    private static double median(int requests, Neo4jDAO dao, Supplier<?> request) {
+        LatencyHistogram latencies = new LatencyHistogram();
+        for (int run = 0; run < 2; run++) {
+            latencies = new LatencyHistogram();
+            for (int i = 0; i < requests; i++) {
+                long start = System.nanoTime();
+                request.get();
+                dao.clearSession();
+                latencies.record(System.nanoTime() - start);
+            }
+        }
+        return latencies.getValueAtPercentile(50) / 1e6;
+    }
+}
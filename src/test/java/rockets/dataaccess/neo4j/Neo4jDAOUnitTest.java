@@ -1,39 +1,30 @@
 package rockets.dataaccess.neo4j;
 
-import com.google.common.collect.Sets;
 import org.junit.jupiter.api.*;
-import org.neo4j.graphdb.GraphDatabaseService;
-import org.neo4j.harness.ServerControls;
-import org.neo4j.harness.TestServerBuilders;
 import org.neo4j.ogm.config.Configuration;
 import org.neo4j.ogm.drivers.embedded.driver.EmbeddedDriver;
 import org.neo4j.ogm.session.Session;
 import org.neo4j.ogm.session.SessionFactory;
-import rockets.dataaccess.DAO;
+import rockets.dataaccess.AbstractDAOUnitTest;
+import rockets.dataaccess.DAOListener;
+import rockets.dataaccess.DAOMetrics;
+import rockets.dataaccess.NaturalKeyIndex;
 import rockets.model.*;
 
 import java.io.File;
 import java.time.LocalDate;
-import java.util.Collection;
-import java.util.Set;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
-@TestInstance(TestInstance.Lifecycle.PER_CLASS)
-public class Neo4jDAOUnitTest {
+public class Neo4jDAOUnitTest extends AbstractDAOUnitTest {
     private static final String TEST_DB = "target/test-data/test-db";
 
-    private DAO dao;
     private Session session;
     private SessionFactory sessionFactory;
 
-    private LaunchServiceProvider esa;
-    private LaunchServiceProvider spacex;
-    private LaunchServiceProvider okb;
-    private Rocket rocket;
-    private PayLoad payload;
-    private RocketFamily rf;
-
     @BeforeAll
     public void initializeNeo4j() {
         EmbeddedDriver driver = createEmbeddedDriver(TEST_DB);
@@ -43,16 +34,6 @@ public class Neo4jDAOUnitTest {
         dao = new Neo4jDAO(sessionFactory);
     }
 
-    @BeforeEach
-    public void setup() {
-        esa = new LaunchServiceProvider("ESA", 1970, "Europe");
-        okb = new LaunchServiceProvider("OKB", 1946, "Russia");
-        spacex = new LaunchServiceProvider("SpaceX", 2002, "USA");
-        rocket = new Rocket("F9", "Block 5","USA", spacex);
-        payload = new PayLoad("satellite", "sputnik 1", okb);
-        rf = new RocketFamily("space");
-    }
-
     private static EmbeddedDriver createEmbeddedDriver(String fileDir) {
         File file = new File(fileDir);
         Configuration configuration = new Configuration.Builder()
@@ -69,189 +50,154 @@ public class Neo4jDAOUnitTest {
     }
 
     @Test
-    public void shouldCreateARocketSuccessfully() {
-        rocket.setWikilink("https://en.wikipedia.org/wiki/Falcon_9");
-        Rocket graphRocket = dao.createOrUpdate(rocket);
-        assertNotNull(graphRocket.getId());
-        assertEquals(rocket, graphRocket);
-        LaunchServiceProvider manufacturer = graphRocket.getManufacturer();
+    public void shouldLoadEntitiesAgainAfterSessionIsCleared() {
+        dao.createOrUpdate(rocket);
+        assertSame(rocket, dao.load(Rocket.class, rocket.getId()));
 
-        assertNotNull(manufacturer.getId());
-        assertEquals(rocket.getWikilink(), graphRocket.getWikilink());
-        assertEquals(spacex, manufacturer);
+        dao.clearSession();
+        Rocket loaded = dao.load(Rocket.class, rocket.getId());
+        assertNotSame(rocket, loaded);
+        assertEquals(rocket.getName(), loaded.getName());
     }
 
     @Test
-    public void shouldCreateAPayLoadSuccessfully() {
-        payload.setWikilink("https://en.wikipedia.org/wiki/Payload");
-        PayLoad graphPayLoad = dao.createOrUpdate(payload);
-        assertNotNull(graphPayLoad.getId());
-        assertEquals(payload, graphPayLoad);
-        LaunchServiceProvider manufacturer = graphPayLoad.getManufacturer();
-        assertNotNull(manufacturer.getId());
-        assertEquals(payload.getWikilink(), graphPayLoad.getWikilink());
-        assertEquals(okb, manufacturer);
+    public void shouldStreamAcrossGapsInTheIds() {
+        List<Rocket> rockets = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            rockets.add(dao.createOrUpdate(new Rocket("Rocket" + i, "Block 1", "USA", spacex)));
+            // nodes of other labels between the rockets
+            dao.createOrUpdate(new LaunchServiceProvider("Provider" + (char) ('a' + i), 2000, "USA"));
+        }
+        for (int i = 3; i < 8; i++) {
+            dao.delete(rockets.get(i));
+        }
+        List<Rocket> kept = new ArrayList<>(rockets);
+        kept.subList(3, 8).clear();
+        // ids of deleted nodes are reused, so they are not in the order the rockets were created in
+        List<Long> expected = kept.stream().map(Rocket::getId).sorted().collect(Collectors.toList());
+
+        for (int fetchSize : new int[]{1, 2, 5, 100}) {
+            try (Stream<Rocket> streamed = dao.stream(Rocket.class, fetchSize)) {
+                assertEquals(expected, streamed.map(Rocket::getId).collect(Collectors.toList()));
+            }
+        }
     }
 
     @Test
-    public void shouldCreateARocketFamilySuccessfully() {
-        rf.setWikilink("https://en.wikipedia.org/wiki/Sputnik_(rocket)");
-        RocketFamily graphRocketFamily = dao.createOrUpdate(rf);
-        assertNotNull(graphRocketFamily.getId());
-        assertEquals(rf, graphRocketFamily);
-        Set<Rocket> rockets = graphRocketFamily.getRockets();
-        assertNotNull(rockets);
-        assertEquals(rf.getWikilink(), graphRocketFamily.getWikilink());
-    }
-
-
-
-    @Test
-    public void shouldUpdateRocketAttributeSuccessfully() {
-        rocket.setWikilink("https://en.wikipedia.org/wiki/Falcon_9");
-
-        Rocket graphRocket = dao.createOrUpdate(rocket);
-        assertNotNull(graphRocket.getId());
-        assertEquals(rocket, graphRocket);
-
-        String newLink = "http://adifferentlink.com";
-        rocket.setWikilink(newLink);
+    public void shouldSkipLookupForKnownNaturalKeys() {
+        NaturalKeyIndex naturalKeys = ((Neo4jDAO) dao).getNaturalKeyIndex();
         dao.createOrUpdate(rocket);
-        graphRocket = dao.load(Rocket.class, rocket.getId());
-        assertEquals(newLink, graphRocket.getWikilink());
-    }
+        long hits = naturalKeys.getHitCount();
 
-    @Test
-    public void shouldUpdatePayLoadAttributeSuccessfully() {
-        payload.setWikilink("https://en.wikipedia.org/wiki/Payload");
-        PayLoad graphPayLoad = dao.createOrUpdate(payload);
-        assertNotNull(graphPayLoad.getId());
-        assertEquals(payload, graphPayLoad);
+        Rocket same = new Rocket("F9", "Block 4", "USA", spacex);
+        dao.createOrUpdate(same);
+        assertEquals(hits + 1, naturalKeys.getHitCount());
+        assertEquals(rocket.getId(), same.getId());
+        assertEquals(1, dao.loadAll(Rocket.class).size());
 
-        String newLink = "http://adifferentlink.com";
-        payload.setWikilink(newLink);
-        dao.createOrUpdate(payload);
-        graphPayLoad = dao.load(PayLoad.class, payload.getId());
-        assertEquals(newLink, graphPayLoad.getWikilink());
+        dao.delete(same);
+        Rocket again = new Rocket("F9", "Block 5", "USA", spacex);
+        dao.createOrUpdate(again);
+        assertEquals(hits + 1, naturalKeys.getHitCount());
+        assertEquals(1, dao.loadAll(Rocket.class).size());
     }
 
     @Test
-    public void shouldUpdateRocketFamilyAttributeSuccessfully() {
-        rf.setWikilink("https://en.wikipedia.org/wiki/Sputnik_(rocket)");
-        RocketFamily graphRf = dao.createOrUpdate(rf);
-        assertNotNull(graphRf.getId());
-        assertEquals(rf, graphRf);
-
-        String newLink = "http://adifferentlink.com";
-        rf.setWikilink(newLink);
-        dao.createOrUpdate(rf);
-        graphRf = dao.load(RocketFamily.class, rf.getId());
-        assertEquals(newLink, graphRf.getWikilink());
-    }
-
-    @Test
-    public void shouldNotSaveTwoSameRockets() {
-        assertNull(spacex.getId());
+    public void shouldRecordNaturalKeyLookupsInMetrics() {
+        DAOMetrics metrics = new DAOMetrics();
+        ((Neo4jDAO) dao).setMetrics(metrics);
+        try {
+            dao.createOrUpdate(rocket);
+            dao.createOrUpdateAll(Arrays.asList(new Rocket("Rocket1", "Block 1", "USA", spacex),
+                    new Rocket("Rocket2", "Block 1", "USA", spacex)));
+        } finally {
+            ((Neo4jDAO) dao).setMetrics(null);
+        }
 
-        Rocket rocket1 = new Rocket("F9", "Block 5", "USA", spacex);
-        Rocket rocket2 = new Rocket("F9", "Block 5","USA", spacex);
-        assertEquals(rocket1, rocket2);
-        dao.createOrUpdate(rocket1);
-        assertNotNull(spacex.getId());
-        Collection<Rocket> rockets = dao.loadAll(Rocket.class);
-        assertEquals(1, rockets.size());
-        Collection<LaunchServiceProvider> manufacturers = dao.loadAll(LaunchServiceProvider.class);
-        assertEquals(1, manufacturers.size());
-        dao.createOrUpdate(rocket2);
-        manufacturers = dao.loadAll(LaunchServiceProvider.class);
-        assertEquals(1, manufacturers.size());
-        rockets = dao.loadAll(Rocket.class);
-        assertEquals(1, rockets.size());
+        assertEquals(1, metrics.snapshot("findExistingEntity", Rocket.class).getCalls());
+        DAOMetrics.Snapshot batch = metrics.snapshot("findExistingEntities", Rocket.class);
+        assertEquals(1, batch.getCalls());
+        assertEquals(0, batch.getRows());
     }
 
     @Test
-    public void shouldLoadAllRockets() {
-        Set<Rocket> rockets = Sets.newHashSet(
-                new Rocket("Ariane4","Block 5", "France", esa),
-                new Rocket("F5", "Block 5","USA", spacex),
-                new Rocket("BFR", "Block 5","USA", spacex)
-        );
-
-        for (Rocket r : rockets) {
-            dao.createOrUpdate(r);
+    public void shouldCreateOrUpdateAllInBatches() {
+        Rocket existing = dao.createOrUpdate(new Rocket("Rocket0", "Block 1", "USA", spacex));
+        List<Rocket> rockets = Arrays.asList(
+                new Rocket("Rocket0", "Block 2", "USA", spacex),
+                new Rocket("Rocket1", "Block 1", "USA", spacex),
+                new Rocket("Rocket1", "Block 2", "USA", spacex),
+                new Rocket("Rocket2", "Block 1", "USA", spacex),
+                new Rocket("Rocket3", "Block 1", "USA", spacex));
+        List<Entity> saved = new ArrayList<>();
+        DAOListener listener = new DAOListener() {
+            @Override
+            public void entitySaved(Entity entity) {
+                saved.add(entity);
+            }
+
+            @Override
+            public void entityDeleted(Entity entity) {
+            }
+        };
+        ((Neo4jDAO) dao).setBatchSize(3);
+        dao.addListener(listener);
+        try {
+            dao.createOrUpdateAll(rockets);
+        } finally {
+            dao.removeListener(listener);
+            ((Neo4jDAO) dao).setBatchSize(1000);
         }
 
+        assertEquals(rockets, saved);
+        assertEquals(existing.getId(), rockets.get(0).getId());
+        assertEquals(rockets.get(1).getId(), rockets.get(2).getId());
         Collection<Rocket> loadedRockets = dao.loadAll(Rocket.class);
-        assertEquals(rockets.size(), loadedRockets.size());
-        for (Rocket r : rockets) {
-            assertTrue(rockets.contains(r));
+        assertEquals(4, loadedRockets.size());
+        assertTrue(loadedRockets.stream().anyMatch(r -> "Rocket0".equals(r.getName()) && "Block 2".equals(r.getVariation())));
+        assertTrue(loadedRockets.stream().anyMatch(r -> "Rocket1".equals(r.getName()) && "Block 2".equals(r.getVariation())));
+
+        List<Launch> launches = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Launch launch = newLaunch(rockets.get(i), spacex, LocalDate.of(2017, 1, 1 + i), "10", Launch.LaunchOutcome.SUCCESSFUL, "LEO");
+            launch.setLaunchSite("site" + i);
+            launches.add(launch);
         }
+        dao.createOrUpdateAll(launches);
+        Launch again = newLaunch(rockets.get(0), spacex, LocalDate.of(2017, 1, 1), "20", Launch.LaunchOutcome.SUCCESSFUL, "LEO");
+        again.setLaunchSite("site0");
+        dao.createOrUpdateAll(Collections.singletonList(again));
+        assertEquals(launches.get(0).getId(), again.getId());
+        assertEquals(3, dao.loadAll(Launch.class).size());
     }
 
     @Test
-    public void shouldCreateALaunchSuccessfully() {
-        Launch launch = new Launch();
-        launch.setLaunchDate(LocalDate.of(2017, 1, 1));
-        launch.setLaunchVehicle(rocket);
-        launch.setLaunchSite("VAFB");
-        launch.setOrbit("LEO");
-        dao.createOrUpdate(launch);
-
-        Collection<Launch> launches = dao.loadAll(Launch.class);
-        assertFalse(launches.isEmpty());
-        assertTrue(launches.contains(launch));
-    }
-
-
-    @Test
-    public void shouldUpdateLaunchAttributesSuccessfully() {
-        Launch launch = new Launch();
-        launch.setLaunchDate(LocalDate.of(2017, 1, 1));
-        launch.setLaunchVehicle(rocket);
-        launch.setLaunchSite("VAFB");
-        launch.setOrbit("LEO");
-        dao.createOrUpdate(launch);
-
-        Collection<Launch> launches = dao.loadAll(Launch.class);
-
-        Launch loadedLaunch = launches.iterator().next();
-        assertNull(loadedLaunch.getFunction());
-
-        launch.setFunction("experimental");
-        dao.createOrUpdate(launch);
-        launches = dao.loadAll(Launch.class);
-        assertEquals(1, launches.size());
-        loadedLaunch = launches.iterator().next();
-        assertEquals("experimental", loadedLaunch.getFunction());
-    }
-
-    @Test
-    public void shouldDeleteRocketWithoutDeleteLSP() {
-        dao.createOrUpdate(rocket);
-        assertNotNull(rocket.getId());
-        assertNotNull(rocket.getManufacturer().getId());
-        assertFalse(dao.loadAll(Rocket.class).isEmpty());
-        assertFalse(dao.loadAll(LaunchServiceProvider.class).isEmpty());
-        dao.delete(rocket);
-        assertTrue(dao.loadAll(Rocket.class).isEmpty());
-        assertFalse(dao.loadAll(LaunchServiceProvider.class).isEmpty());
-    }
-
-    @Test
-    public void shouldDeletePayLoadWithoutDeleteLSP() {
-        dao.createOrUpdate(payload);
-        assertNotNull(payload.getId());
-        assertNotNull(payload.getManufacturer().getId());
-        assertFalse(dao.loadAll(PayLoad.class).isEmpty());
-        assertFalse(dao.loadAll(LaunchServiceProvider.class).isEmpty());
-        dao.delete(payload);
-        assertTrue(dao.loadAll(PayLoad.class).isEmpty());
-        assertFalse(dao.loadAll(LaunchServiceProvider.class).isEmpty());
+    public void shouldSaveNewEntitiesBeyondFirstHopInBatches() {
+        LaunchServiceProvider blueOrigin = new LaunchServiceProvider("BlueOrigin", 2000, "USA");
+        Rocket newGlenn = new Rocket("NewGlenn", "Block", "USA", blueOrigin);
+        Launch launch = newLaunch(newGlenn, spacex, LocalDate.of(2021, 1, 1), "10", Launch.LaunchOutcome.SUCCESSFUL, "LEO");
+        dao.createOrUpdateAll(Collections.singletonList(launch));
+
+        assertNotNull(blueOrigin.getId());
+        dao.clearSession();
+        Rocket loaded = dao.load(Rocket.class, newGlenn.getId());
+        assertEquals(blueOrigin.getId(), loaded.getManufacturer().getId());
+        assertEquals(2, dao.loadAll(LaunchServiceProvider.class).size());
+
+        // known by natural key: the same node, not a new one
+        LaunchServiceProvider sameBlueOrigin = new LaunchServiceProvider("BlueOrigin", 2000, "USA");
+        Launch other = newLaunch(new Rocket("NewShepard", "Block", "USA", sameBlueOrigin), spacex,
+                LocalDate.of(2021, 2, 1), "10", Launch.LaunchOutcome.SUCCESSFUL, "LEO");
+        dao.createOrUpdateAll(Collections.singletonList(other));
+        assertEquals(blueOrigin.getId(), sameBlueOrigin.getId());
+        assertEquals(2, dao.loadAll(LaunchServiceProvider.class).size());
     }
 
     @AfterEach
     public void tearDown() {
         session.purgeDatabase();
+        // the database was purged behind the DAO
+        ((Neo4jDAO) dao).getNaturalKeyIndex().clear();
     }
 
     @AfterAll
@@ -259,4 +205,4 @@ public class Neo4jDAOUnitTest {
         session.clear();
         sessionFactory.close();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,133 @@
+package rockets.io;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import rockets.dataaccess.DAO;
+import rockets.dataaccess.memory.InMemoryDAO;
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.PayLoad;
+import rockets.model.Rocket;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+
+public class CsvImporterUnitTest {
+    private static final String PROVIDERS = "name,yearFounded,country,headquarters\n" +
+            "SpaceX,2002,USA,Hawthorne\n" +
+            "ESA,1975,Europe,\n";
+
+    private static final String ROCKETS = "name,variation,country,manufacturer,massToLEO\n" +
+            "Falcon9,Block 5,USA,SpaceX,22800 kg\n" +
+            "Ariane5,ECA,Europe,ESA,\n";
+
+    private DAO dao;
+    private CsvImporter importer;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        dao = new InMemoryDAO();
+        importer = new CsvImporter(dao, 3, 2);
+        importer.importProviders(new StringReader(PROVIDERS));
+        importer.importRockets(new StringReader(ROCKETS));
+    }
+
+    private static String launches(int count) {
+        StringBuilder csv = new StringBuilder("launchDate,launchVehicle,launchServiceProvider,launchSite,orbit,price,launchOutcome,payload\n");
+        LocalDate date = LocalDate.of(2010, 1, 1);
+        for (int i = 0; i < count; i++) {
+            csv.append(date.plusDays(i)).append(i % 2 == 0 ? ",Falcon9,SpaceX" : ",Ariane5,ESA")
+                    .append(",site").append(i % 3).append(",LEO,").append(i).append(",SUCCESSFUL,a;b\n");
+        }
+        return csv.toString();
+    }
+
+    @DisplayName("should import providers and rockets that refer to them by name")
+    @Test
+    public void shouldImportProvidersAndRockets() {
+        assertEquals(2, dao.loadAll(LaunchServiceProvider.class).size());
+        Collection<Rocket> rockets = dao.loadAll(Rocket.class);
+        assertEquals(2, rockets.size());
+        Rocket falcon = rockets.stream().filter(r -> "Falcon9".equals(r.getName())).findFirst().get();
+        assertEquals("SpaceX", falcon.getManufacturer().getName());
+        assertNotNull(falcon.getManufacturer().getId());
+        assertEquals("22800 kg", falcon.getMassToLEO());
+    }
+
+    @DisplayName("should import launches in parallel batches, and update them when imported again")
+    @Test
+    public void shouldImportLaunchesIdempotently() throws IOException {
+        CsvImporter.Result result = importer.importLaunches(new StringReader(launches(25)));
+        assertEquals(25, result.getRead());
+        assertEquals(25, result.getImported());
+        assertEquals(0, result.getRejected());
+        Collection<Launch> launches = dao.loadAll(Launch.class);
+        assertEquals(25, launches.size());
+        Launch first = launches.stream().filter(l -> LocalDate.of(2010, 1, 1).equals(l.getLaunchDate())).findFirst().get();
+        assertEquals("Falcon9", first.getLaunchVehicle().getName());
+        assertEquals("SpaceX", first.getLaunchServiceProvider().getName());
+        assertEquals(BigDecimal.ZERO, first.getPrice());
+        assertEquals(Launch.LaunchOutcome.SUCCESSFUL, first.getLaunchOutcome());
+        assertEquals(2, first.getPayload().size());
+
+        importer.importProviders(new StringReader(PROVIDERS));
+        importer.importRockets(new StringReader(ROCKETS));
+        importer.importLaunches(new StringReader(launches(25)));
+        assertEquals(2, dao.loadAll(LaunchServiceProvider.class).size());
+        assertEquals(2, dao.loadAll(Rocket.class).size());
+        assertEquals(25, dao.loadAll(Launch.class).size());
+    }
+
+    @DisplayName("should skip rows that are not valid or refer to unknown entities")
+    @Test
+    public void shouldSkipInvalidRows() throws IOException {
+        String csv = "type,name,manufacturer,mass,massUnit\n" +
+                "satellite,Starlink 1,SpaceX,260,kg\n" +
+                "satellite,Unknown 1,Nobody,,\n" +
+                "satellite 1,Bad Type,SpaceX,,\n" +
+                "probe,Rosetta,ESA,3000,\n";
+        CsvImporter.Result result = importer.importPayloads(new StringReader(csv));
+        assertEquals(4, result.getRead());
+        assertEquals(1, result.getImported());
+        assertEquals(3, result.getRejected());
+        assertEquals("260 kg", dao.loadAll(PayLoad.class).iterator().next().getMass());
+    }
+
+    @DisplayName("should reject a file without a required column")
+    @Test
+    public void shouldRejectMissingColumns() throws IOException {
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> importer.importLaunches(new StringReader("launchDate,launchVehicle,orbit\n")));
+        assertEquals("missing column launchSite in launches", exception.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> new CsvImporter(dao, 0, 10));
+        assertEquals(0, importer.importProviders(new StringReader("name,yearFounded,country\n")).getRead());
+    }
+
+    @DisplayName("should close the streams it resolves references with")
+    @Test
+    public void shouldCloseStreams() throws IOException {
+        AtomicInteger opened = new AtomicInteger();
+        AtomicInteger closed = new AtomicInteger();
+        DAO streams = spy(dao);
+        doAnswer(invocation -> {
+            opened.incrementAndGet();
+            return ((Stream<?>) invocation.callRealMethod()).onClose(closed::incrementAndGet);
+        }).when(streams).stream(any(), anyInt());
+
+        new CsvImporter(streams, 3, 2).importLaunches(new StringReader(launches(5)));
+        assertTrue(opened.get() > 0);
+        assertEquals(opened.get(), closed.get());
+    }
+}
@@ -0,0 +1,143 @@
+package rockets.io;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import rockets.dataaccess.DAO;
+import rockets.dataaccess.memory.InMemoryDAO;
+import rockets.model.*;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+
+public class ExporterUnitTest {
+    private DAO dao;
+    private Exporter exporter;
+    private Launch launch;
+
+    @BeforeEach
+    public void setUp() {
+        dao = new InMemoryDAO();
+        exporter = new Exporter(dao, 2);
+        LaunchServiceProvider spacex = new LaunchServiceProvider("SpaceX", 2002, "USA");
+        Rocket falcon = new Rocket("Falcon9", "Block 5", "USA", spacex);
+        launch = new Launch();
+        launch.setLaunchDate(LocalDate.of(2017, 1, 1));
+        launch.setLaunchVehicle(falcon);
+        launch.setLaunchServiceProvider(spacex);
+        launch.setLaunchSite("VAFB, SLC-4E");
+        launch.setOrbit("LEO");
+        launch.setPrice(new BigDecimal("62.5"));
+        launch.setLaunchOutcome(Launch.LaunchOutcome.SUCCESSFUL);
+        launch.setPayload(new LinkedHashSet<>(Arrays.asList("Iridium 1", "Iridium 2")));
+        dao.createOrUpdate(launch);
+        for (int i = 0; i < 4; i++) {
+            dao.createOrUpdate(new Rocket("Rocket" + i, "Block 1", "USA", spacex));
+        }
+        User user = new User();
+        user.setEmail("a@example.com");
+        user.setPassword("secret123");
+        dao.createOrUpdate(user);
+    }
+
+    private String export(String kind, Exporter.Format format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exporter.export(kind, format, out);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @DisplayName("should export entities as CSV that can be imported again")
+    @Test
+    public void shouldExportCsvThatCanBeImported() throws IOException {
+        String launches = export("launches", Exporter.Format.CSV);
+        assertTrue(launches.startsWith("id,launchDate,launchVehicle,launchServiceProvider,launchSite,orbit"));
+        assertTrue(launches.contains(",2017-01-01,Falcon9,SpaceX,\"VAFB, SLC-4E\",LEO,,62.5,SUCCESSFUL,Iridium 1;Iridium 2,"));
+        assertEquals(6, export("rockets", Exporter.Format.CSV).split("\r\n").length);
+
+        DAO copy = new InMemoryDAO();
+        CsvImporter importer = new CsvImporter(copy, 2, 2);
+        importer.importProviders(new StringReader(export("providers", Exporter.Format.CSV)));
+        importer.importRockets(new StringReader(export("rockets", Exporter.Format.CSV)));
+        importer.importLaunches(new StringReader(launches));
+        assertEquals(new HashSet<>(dao.loadAll(Rocket.class)), new HashSet<>(copy.loadAll(Rocket.class)));
+        Launch imported = copy.loadAll(Launch.class).iterator().next();
+        assertEquals(launch, imported);
+        assertEquals(launch.getPayload(), imported.getPayload());
+        assertEquals(launch.getLaunchSite(), imported.getLaunchSite());
+    }
+
+    @DisplayName("should export one JSON object per line, without passwords")
+    @Test
+    public void shouldExportNdjson() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        List<JsonNode> launches = Arrays.stream(export("launches", Exporter.Format.NDJSON).split("\n"))
+                .map(line -> {
+                    try {
+                        return mapper.readTree(line);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }).collect(Collectors.toList());
+        assertEquals(1, launches.size());
+        assertEquals(launch.getId().longValue(), launches.get(0).get("id").asLong());
+        assertEquals("Falcon9", launches.get(0).get("launchVehicle").asText());
+        assertEquals(62.5, launches.get(0).get("price").asDouble());
+        assertEquals(2, launches.get(0).get("payload").size());
+        assertTrue(launches.get(0).get("function").isNull());
+
+        String users = export("users", Exporter.Format.NDJSON);
+        assertTrue(users.contains("\"email\":\"a@example.com\""));
+        assertFalse(users.contains("secret123"));
+        assertEquals(5, export("rockets", Exporter.Format.NDJSON).split("\n").length);
+    }
+
+    @DisplayName("should export to a gzipped file")
+    @Test
+    public void shouldExportToGzippedFile() throws IOException {
+        Path file = Files.createTempFile("rockets", ".csv.gz");
+        try {
+            assertEquals(5, exporter.export("rockets", Exporter.Format.CSV, file));
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+                assertEquals(6, in.lines().count());
+            }
+        } finally {
+            Files.delete(file);
+        }
+        assertThrows(IllegalArgumentException.class, () -> exporter.export("missions", Exporter.Format.CSV, new ByteArrayOutputStream()));
+    }
+
+    @DisplayName("should close the streams it reads the entities from")
+    @Test
+    public void shouldCloseStreams() throws IOException {
+        AtomicInteger closed = new AtomicInteger();
+        DAO streams = spy(dao);
+        doAnswer(invocation -> ((Stream<?>) invocation.callRealMethod()).onClose(closed::incrementAndGet))
+                .when(streams).stream(any(), anyInt());
+
+        Exporter exporter = new Exporter(streams, 2);
+        exporter.export("launches", Exporter.Format.CSV, new ByteArrayOutputStream());
+        exporter.export("launches", Exporter.Format.NDJSON, new ByteArrayOutputStream());
+        assertEquals(2, closed.get());
+    }
+}
@@ -0,0 +1,108 @@
+package rockets.mining;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import rockets.dataaccess.DAO;
+import rockets.dataaccess.DAOListener;
+import rockets.dataaccess.DatasetVersion;
+import rockets.dataaccess.neo4j.Neo4jDAO;
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class CachedRocketMinerUnitTest {
+    private DAO dao;
+    private DatasetVersion version;
+    private CachedRocketMiner miner;
+    private List<Launch> launches;
+    private List<LaunchServiceProvider> lsps;
+
+    @BeforeEach
+    public void setUp() {
+        dao = mock(Neo4jDAO.class);
+        version = DatasetVersion.attach(dao);
+        miner = new CachedRocketMiner(new RocketMiner(dao), new MiningResultCache(version, 100, 1000));
+
+        LaunchServiceProvider spacex = new LaunchServiceProvider("SpaceX", 2002, "USA");
+        LaunchServiceProvider ula = new LaunchServiceProvider("ULA", 1990, "USA");
+        lsps = new ArrayList<>();
+        lsps.add(spacex);
+        lsps.add(ula);
+        Rocket rocket = new Rocket("F9", "Block 5", "USA", spacex);
+        launches = new ArrayList<>();
+        for (int i = 1; i <= 4; i++) {
+            Launch launch = new Launch();
+            launch.setLaunchDate(LocalDate.of(2017, i, 1));
+            launch.setLaunchVehicle(rocket);
+            launch.setLaunchServiceProvider(i % 2 == 0 ? spacex : ula);
+            launch.setOrbit("LEO");
+            launch.setPrice(new BigDecimal(i * 10));
+            launch.setLaunchOutcome(Launch.LaunchOutcome.SUCCESSFUL);
+            launches.add(launch);
+        }
+        when(dao.loadAll(Launch.class)).thenReturn(launches);
+        when(dao.loadAll(LaunchServiceProvider.class)).thenReturn(lsps);
+    }
+
+    @DisplayName("should register the dataset version as a listener of the DAO")
+    @Test
+    public void shouldAttachVersionToDAO() {
+        verify(dao).addListener(version);
+        verify(dao, times(1)).addListener(any(DAOListener.class));
+    }
+
+    @DisplayName("should answer a repeated query without loading the launches again")
+    @Test
+    public void shouldLoadLaunchesOnceForRepeatedQueries() {
+        RocketMiner uncached = new RocketMiner(dao);
+        List<Launch> expected = uncached.mostRecentLaunches(2);
+        reset(dao);
+        when(dao.loadAll(Launch.class)).thenReturn(launches);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(expected, miner.mostRecentLaunches(2));
+        }
+        verify(dao, times(1)).loadAll(Launch.class);
+        assertEquals(4, miner.getCache().getHitCount());
+        assertEquals(1, miner.getCache().getMissCount());
+    }
+
+    @DisplayName("should key results by arguments")
+    @Test
+    public void shouldKeyResultsByArguments() {
+        assertEquals(1, miner.mostExpensiveLaunches(1).size());
+        assertEquals(3, miner.mostExpensiveLaunches(3).size());
+        assertEquals(lsps.subList(0, 1), miner.highestRevenueLaunchServiceProviders(1, 2017));
+        assertEquals(1, miner.highestRevenueLaunchServiceProviders(1, 2018).size());
+        assertEquals(0, miner.getCache().getHitCount());
+        assertEquals(4, miner.getCache().getMissCount());
+    }
+
+    @DisplayName("should recompute results after a write")
+    @Test
+    public void shouldRecomputeAfterWrite() {
+        assertEquals(launches.subList(3, 4), miner.mostExpensiveLaunches(1));
+
+        launches.get(0).setPrice(new BigDecimal(100));
+        assertEquals(launches.subList(3, 4), miner.mostExpensiveLaunches(1));
+        version.entitySaved(launches.get(0));
+        assertEquals(launches.subList(0, 1), miner.mostExpensiveLaunches(1));
+    }
+
+    @DisplayName("should return results that cannot be modified")
+    @Test
+    public void shouldReturnUnmodifiableResults() {
+        assertThrows(UnsupportedOperationException.class, () -> miner.mostRecentLaunches(2).clear());
+        assertThrows(UnsupportedOperationException.class, () -> miner.numOfSuccessfulLunchesForRockets().clear());
+    }
+}
@@ -0,0 +1,162 @@
+package rockets.mining;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import rockets.dataaccess.DAO;
+import rockets.dataaccess.neo4j.Neo4jDAO;
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class LaunchAggregateStoreUnitTest {
+    private DAO dao;
+    private List<LaunchServiceProvider> lsps;
+    private List<Rocket> rockets;
+    private List<Launch> launches;
+
+    @BeforeEach
+    public void setUp() {
+        dao = mock(Neo4jDAO.class);
+        lsps = Arrays.asList(
+                new LaunchServiceProvider("ULA", 1990, "USA"),
+                new LaunchServiceProvider("SpaceX", 2002, "USA"),
+                new LaunchServiceProvider("ESA", 1975, "Europe")
+        );
+        rockets = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            rockets.add(new Rocket("rocket_" + i, "ccc", "USA", lsps.get(i % 3)));
+        }
+        launches = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            Launch launch = new Launch();
+            launch.setId((long) i);
+            launch.setLaunchDate(LocalDate.of(2016 + i % 3, 1 + i % 12, 1));
+            launch.setLaunchVehicle(rockets.get(i % 4));
+            launch.setLaunchServiceProvider(lsps.get(i % 3));
+            launch.setOrbit(i % 2 == 0 ? "LEO" : "GTO");
+            launch.setPrice(new BigDecimal(100 + i));
+            launch.setLaunchOutcome(i % 3 == 0 ? Launch.LaunchOutcome.FAILED : Launch.LaunchOutcome.SUCCESSFUL);
+            launch.setPayload(new HashSet<>(Arrays.asList("payload_" + i)));
+            launches.add(launch);
+        }
+        when(dao.loadAll(Launch.class)).thenReturn(launches);
+        when(dao.loadAll(LaunchServiceProvider.class)).thenReturn(lsps);
+    }
+
+    @DisplayName("should register as listener and load the stored launches when attached")
+    @Test
+    public void shouldLoadLaunchesWhenAttached() {
+        LaunchAggregateStore store = LaunchAggregateStore.attach(dao);
+        verify(dao).addListener(store);
+        assertEquals(launches.size(), store.size());
+        assertEquals(launches, store.getLaunches());
+    }
+
+    @DisplayName("should answer the same as a full scan after writes")
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3})
+    public void shouldAnswerSameAsScanAfterWrites(int k) {
+        LaunchAggregateStore store = LaunchAggregateStore.attach(dao);
+
+        // change outcome, price and date of an existing launch
+        Launch updated = launches.get(0);
+        updated.setLaunchOutcome(Launch.LaunchOutcome.SUCCESSFUL);
+        updated.setPrice(new BigDecimal("5000"));
+        updated.setLaunchDate(LocalDate.of(2019, 1, 1));
+        store.entitySaved(updated);
+        // delete a launch
+        Launch deleted = launches.remove(5);
+        store.entityDeleted(deleted);
+        // add a new launch
+        Launch created = new Launch();
+        created.setId(100L);
+        created.setLaunchDate(LocalDate.of(2017, 3, 1));
+        created.setLaunchVehicle(rockets.get(3));
+        created.setLaunchServiceProvider(lsps.get(2));
+        created.setOrbit("LEO");
+        created.setPrice(new BigDecimal("42"));
+        created.setLaunchOutcome(Launch.LaunchOutcome.SUCCESSFUL);
+        launches.add(created);
+        store.entitySaved(created);
+
+        RocketMiner scanning = new RocketMiner(dao);
+        RocketMiner incremental = new RocketMiner(dao, store);
+        assertEquals(scanning.numOfSuccessfulLunchesForRockets(), incremental.numOfSuccessfulLunchesForRockets());
+        assertEquals(scanning.percentageOfSuccessfulLaunchesForProviders(), incremental.percentageOfSuccessfulLaunchesForProviders());
+        assertEquals(scanning.mostRecentSuccessfulLaunches(), incremental.mostRecentSuccessfulLaunches());
+        assertEquals(scanning.mostLaunchedRockets(k), incremental.mostLaunchedRockets(k));
+        assertEquals(scanning.mostRecentLaunches(k), incremental.mostRecentLaunches(k));
+        assertEquals(scanning.mostExpensiveLaunches(k), incremental.mostExpensiveLaunches(k));
+        for (int year = 2016; year <= 2019; year++) {
+            assertEquals(scanning.highestRevenueLaunchServiceProviders(k, year), incremental.highestRevenueLaunchServiceProviders(k, year));
+            assertEquals(scanning.launchesInYear(year), incremental.launchesInYear(year));
+        }
+        assertEquals(scanning.launchesBetween(LocalDate.of(2016, 6, 1), LocalDate.of(2018, 6, 1)),
+                incremental.launchesBetween(LocalDate.of(2016, 6, 1), LocalDate.of(2018, 6, 1)));
+        assertEquals(scanning.dominantCountry("LEO"), incremental.dominantCountry("LEO"));
+    }
+
+    @DisplayName("should not load launches from the DAO when answering from the store")
+    @Test
+    public void shouldNotLoadLaunchesWhenAnsweringFromStore() {
+        LaunchAggregateStore store = LaunchAggregateStore.attach(dao);
+        RocketMiner miner = new RocketMiner(dao, store);
+        miner.mostLaunchedRockets(2);
+        miner.mostReliableLaunchServiceProviders(2);
+        miner.mostRecentLaunches(2);
+        miner.launchesInYear(2017);
+        verify(dao, times(1)).loadAll(Launch.class);
+    }
+
+    @DisplayName("should drop a provider from the revenue ranking when its only priced launch is deleted")
+    @Test
+    public void shouldDropProviderFromRankingWhenItsRevenueIsDeleted() {
+        LaunchServiceProvider rocketLab = new LaunchServiceProvider("Rocket Lab", 2006, "USA");
+        Launch priced = new Launch();
+        priced.setId(200L);
+        priced.setLaunchDate(LocalDate.of(2016, 6, 1));
+        priced.setLaunchVehicle(new Rocket("Electron", "ccc", "USA", rocketLab));
+        priced.setLaunchServiceProvider(rocketLab);
+        priced.setOrbit("LEO");
+        priced.setPrice(new BigDecimal("7.50"));
+        priced.setLaunchOutcome(Launch.LaunchOutcome.SUCCESSFUL);
+        launches.add(priced);
+        LaunchAggregateStore store = LaunchAggregateStore.attach(dao);
+        assertTrue(store.query(aggregates -> aggregates.getRevenueIndex().getRanking(2016)).contains(rocketLab));
+
+        launches.remove(priced);
+        store.entityDeleted(priced);
+        assertFalse(store.query(aggregates -> aggregates.getRevenueIndex().getRanking(2016)).contains(rocketLab));
+        assertFalse(store.query(aggregates -> aggregates.getRevenue(2016)).containsKey(rocketLab));
+        assertEquals(new RocketMiner(dao).highestRevenueLaunchServiceProviders(3, 2016),
+                new RocketMiner(dao, store).highestRevenueLaunchServiceProviders(3, 2016));
+
+        // a year left without revenue is dropped
+        launches.clear();
+        launches.add(priced);
+        store = LaunchAggregateStore.attach(dao);
+        store.entityDeleted(priced);
+        assertTrue(store.query(aggregates -> aggregates.getRevenueIndex().getRevenue(2016)).isEmpty());
+        assertTrue(store.query(aggregates -> aggregates.getRevenueIndex().getRanking(2010, 2020)).isEmpty());
+    }
+
+    @DisplayName("should ignore entities that are not launches or have no id")
+    @Test
+    public void shouldIgnoreOtherEntities() {
+        LaunchAggregateStore store = new LaunchAggregateStore();
+        store.entitySaved(rockets.get(0));
+        store.entitySaved(new Launch());
+        store.entityDeleted(lsps.get(0));
+        assertEquals(0, store.size());
+    }
+}
@@ -0,0 +1,122 @@
+package rockets.mining;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import rockets.model.Launch;
+import rockets.model.LaunchFactTable;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LaunchAggregatesUnitTest {
+    private LaunchServiceProvider spacex;
+    private LaunchServiceProvider esa;
+    private Rocket falcon;
+    private Rocket ariane;
+    private List<Launch> launches;
+
+    @BeforeEach
+    public void setUp() {
+        spacex = new LaunchServiceProvider("SpaceX", 2002, "USA");
+        esa = new LaunchServiceProvider("ESA", 1975, "Europe");
+        falcon = new Rocket("Falcon", "Block", "USA", spacex);
+        ariane = new Rocket("Ariane", "Five", "France", esa);
+
+        launches = Arrays.asList(
+                createLaunch(falcon, spacex, 2017, "100.5", "LEO", Launch.LaunchOutcome.SUCCESSFUL, "a", "b"),
+                createLaunch(falcon, spacex, 2017, "50", "GTO", Launch.LaunchOutcome.FAILED, "c"),
+                createLaunch(falcon, spacex, 2018, "10", "LEO", Launch.LaunchOutcome.SUCCESSFUL),
+                createLaunch(ariane, esa, 2017, "70", "LEO", Launch.LaunchOutcome.SUCCESSFUL, "d", "e", "f")
+        );
+    }
+
+    private static Launch createLaunch(Rocket rocket, LaunchServiceProvider lsp, int year, String price,
+                                       String orbit, Launch.LaunchOutcome outcome, String... payload) {
+        Launch launch = new Launch();
+        launch.setLaunchDate(LocalDate.of(year, 1, 1));
+        launch.setLaunchVehicle(rocket);
+        launch.setLaunchServiceProvider(lsp);
+        launch.setPrice(new BigDecimal(price));
+        launch.setOrbit(orbit);
+        launch.setLaunchOutcome(outcome);
+        launch.setPayload(new HashSet<>(Arrays.asList(payload)));
+        return launch;
+    }
+
+    @DisplayName("should count successful launches for each rocket")
+    @Test
+    public void shouldCountSuccessfulLaunchesPerRocket() {
+        LaunchAggregates aggregates = LaunchAggregates.scan(launches);
+        assertEquals(2, (int) aggregates.getSuccessfulLaunchesPerRocket().get(falcon));
+        assertEquals(1, (int) aggregates.getSuccessfulLaunchesPerRocket().get(ariane));
+    }
+
+    @DisplayName("should count total and successful launches for each provider")
+    @Test
+    public void shouldCountLaunchesPerProvider() {
+        LaunchAggregates aggregates = LaunchAggregates.scan(launches);
+        assertEquals(3, (int) aggregates.getLaunchesPerProvider().get(spacex));
+        assertEquals(2, aggregates.getSuccessfulLaunches(spacex));
+        assertEquals(1, aggregates.getSuccessfulLaunches(esa));
+    }
+
+    @DisplayName("should sum revenue of rocket manufacturers by year")
+    @Test
+    public void shouldSumRevenuePerYear() {
+        LaunchAggregates aggregates = LaunchAggregates.scan(launches);
+        assertEquals(new BigDecimal("150.5"), aggregates.getRevenue(2017).get(spacex));
+        assertEquals(new BigDecimal("70"), aggregates.getRevenue(2017).get(esa));
+        assertEquals(new BigDecimal("10"), aggregates.getRevenue(2018).get(spacex));
+        assertTrue(aggregates.getRevenue(2000).isEmpty());
+    }
+
+    @DisplayName("should count payloads per country for each orbit")
+    @Test
+    public void shouldCountPayloadsPerOrbit() {
+        LaunchAggregates aggregates = LaunchAggregates.scan(launches);
+        assertEquals(2, (int) aggregates.getPayloadsPerCountry("LEO").get("USA"));
+        assertEquals(3, (int) aggregates.getPayloadsPerCountry("LEO").get("Europe"));
+        assertEquals(1, (int) aggregates.getPayloadsPerCountry("GTO").get("USA"));
+        assertTrue(aggregates.getPayloadsPerCountry("Other").isEmpty());
+    }
+
+    @DisplayName("should take a removed launch out of the aggregates")
+    @Test
+    public void shouldRemoveLaunch() {
+        LaunchAggregates aggregates = LaunchAggregates.scan(launches);
+        aggregates.remove(launches.get(3));
+        assertFalse(aggregates.getSuccessfulLaunchesPerRocket().containsKey(ariane));
+        assertFalse(aggregates.getLaunchesPerProvider().containsKey(esa));
+        assertEquals(0, aggregates.getSuccessfulLaunches(esa));
+        assertFalse(aggregates.getRevenue(2017).containsKey(esa));
+        assertFalse(aggregates.getPayloadsPerCountry("LEO").containsKey("Europe"));
+    }
+
+    @DisplayName("should compute the same aggregates from a fact table as from the launches")
+    @Test
+    public void shouldScanFactTableSameAsLaunches() {
+        LaunchAggregates expected = LaunchAggregates.scan(launches);
+        LaunchAggregates aggregates = LaunchAggregates.scan(LaunchFactTable.of(launches));
+
+        assertEquals(expected.getSuccessfulLaunchesPerRocket(), aggregates.getSuccessfulLaunchesPerRocket());
+        assertEquals(expected.getLaunchesPerProvider(), aggregates.getLaunchesPerProvider());
+        assertEquals(expected.getSuccessfulLaunches(spacex), aggregates.getSuccessfulLaunches(spacex));
+        assertEquals(expected.getSuccessfulLaunches(esa), aggregates.getSuccessfulLaunches(esa));
+        for (int year = 2016; year <= 2018; year++) {
+            assertEquals(expected.getRevenue(year).keySet(), aggregates.getRevenue(year).keySet());
+            for (LaunchServiceProvider lsp : expected.getRevenue(year).keySet()) {
+                assertEquals(0, expected.getRevenue(year).get(lsp).compareTo(aggregates.getRevenue(year).get(lsp)));
+            }
+        }
+        assertEquals(expected.getPayloadsPerCountry("LEO"), aggregates.getPayloadsPerCountry("LEO"));
+        assertEquals(expected.getPayloadsPerCountry("GTO"), aggregates.getPayloadsPerCountry("GTO"));
+    }
+}
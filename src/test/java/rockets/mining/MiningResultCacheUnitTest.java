@@ -0,0 +1,114 @@
+package rockets.mining;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import rockets.dataaccess.DatasetVersion;
+import rockets.model.Launch;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MiningResultCacheUnitTest {
+    private DatasetVersion version;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    public void setUp() {
+        version = new DatasetVersion();
+        loads = new AtomicInteger();
+    }
+
+    private List<Object> load(int size) {
+        loads.incrementAndGet();
+        return Collections.nCopies(size, "x");
+    }
+
+    @DisplayName("should throw exception when constructed with a negative bound")
+    @Test
+    public void shouldThrowExceptionWhenBoundIsNegative() {
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> new MiningResultCache(version, -1, 10));
+        assertEquals("maximum size cannot be negative", exception.getMessage());
+        exception = assertThrows(IllegalArgumentException.class, () -> new MiningResultCache(version, 10, -1));
+        assertEquals("maximum weight cannot be negative", exception.getMessage());
+    }
+
+    @DisplayName("should compute a result once and count hits and misses")
+    @Test
+    public void shouldCountHitsAndMisses() {
+        MiningResultCache cache = new MiningResultCache(version, 10, 100);
+        List<Object> first = cache.get(Arrays.asList("q", 1), () -> load(1));
+        List<Object> second = cache.get(Arrays.asList("q", 1), () -> load(1));
+        cache.get(Arrays.asList("q", 2), () -> load(2));
+
+        assertSame(first, second);
+        assertEquals(2, loads.get());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(1.0 / 3, cache.getHitRate(), 1e-9);
+        assertEquals(2, cache.size());
+        assertEquals(5, cache.getWeight());
+    }
+
+    @DisplayName("should drop every result when the dataset version changes")
+    @Test
+    public void shouldInvalidateOnWrite() {
+        MiningResultCache cache = new MiningResultCache(version, 10, 100);
+        cache.get(Arrays.asList("q", 1), () -> load(1));
+        version.entitySaved(new Launch());
+        cache.get(Arrays.asList("q", 1), () -> load(1));
+        version.entityDeleted(new Launch());
+        cache.get(Arrays.asList("q", 1), () -> load(1));
+
+        assertEquals(3, loads.get());
+        assertEquals(0, cache.getHitCount());
+        assertEquals(1, cache.size());
+    }
+
+    @DisplayName("should not cache a result computed while the dataset changed")
+    @Test
+    public void shouldNotCacheResultOfStaleVersion() {
+        MiningResultCache cache = new MiningResultCache(version, 10, 100);
+        cache.get(Arrays.asList("q", 1), () -> {
+            version.entitySaved(new Launch());
+            return load(1);
+        });
+        assertEquals(0, cache.size());
+    }
+
+    @DisplayName("should evict the least recently used result when full")
+    @Test
+    public void shouldEvictLeastRecentlyUsedBySize() {
+        MiningResultCache cache = new MiningResultCache(version, 2, 100);
+        cache.get(Arrays.asList("q", 1), () -> load(1));
+        cache.get(Arrays.asList("q", 2), () -> load(1));
+        cache.get(Arrays.asList("q", 1), () -> load(1));
+        cache.get(Arrays.asList("q", 3), () -> load(1));
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        cache.get(Arrays.asList("q", 1), () -> load(1));
+        assertEquals(3, loads.get());
+        cache.get(Arrays.asList("q", 2), () -> load(1));
+        assertEquals(4, loads.get());
+    }
+
+    @DisplayName("should evict results until the weight is within bounds")
+    @Test
+    public void shouldEvictByWeight() {
+        MiningResultCache cache = new MiningResultCache(version, 10, 10);
+        cache.get(Arrays.asList("q", 1), () -> load(4));
+        cache.get(Arrays.asList("q", 2), () -> load(4));
+        assertEquals(2, cache.size());
+        cache.get(Arrays.asList("q", 3), () -> load(4));
+
+        assertEquals(2, cache.size());
+        assertEquals(10, cache.getWeight());
+        cache.get(Arrays.asList("q", 20), () -> load(20));
+        assertEquals(2, cache.size());
+    }
+}
@@ -9,19 +9,24 @@ import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import rockets.dataaccess.AggregateQuery;
 import rockets.dataaccess.DAO;
+import rockets.dataaccess.memory.InMemoryDAO;
 import rockets.dataaccess.neo4j.Neo4jDAO;
 import rockets.model.Launch;
+import rockets.model.LaunchFactTable;
 import rockets.model.LaunchServiceProvider;
 import rockets.model.Rocket;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.*;
 
 public class RocketMinerUnitTest {
@@ -90,6 +95,21 @@ public class RocketMinerUnitTest {
         assertEquals(sortedLaunches.subList(0, k), loadedLaunches);
     }
 
+    @DisplayName("should return the launches in a date range, earliest first")
+    @Test
+    public void shouldReturnLaunchesBetweenDates() {
+        when(dao.loadAll(Launch.class)).thenReturn(launches);
+        List<Launch> expected = launches.stream()
+                .filter(launch -> launch.getLaunchDate().getMonthValue() >= 4 && launch.getLaunchDate().getMonthValue() <= 6)
+                .sorted(Comparator.comparing(Launch::getLaunchDate))
+                .collect(Collectors.toList());
+
+        assertEquals(expected, miner.launchesBetween(LocalDate.of(2017, 4, 1), LocalDate.of(2017, 6, 30)));
+        assertEquals(launches.size(), miner.launchesInYear(2017).size());
+        assertEquals(Collections.emptyList(), miner.launchesInYear(2018));
+        assertThrows(IllegalArgumentException.class, () -> miner.launchesBetween(LocalDate.of(2017, 6, 1), LocalDate.of(2017, 4, 1)));
+    }
+
     @DisplayName("should return most Recent successful launches")
     @Test
     public void shouldReturnMostRecentSuccessfulLaunches(){
@@ -245,6 +265,170 @@ public class RocketMinerUnitTest {
         assertEquals(percentage, loadedpercentage);
     }
 
+    @DisplayName("should load launches only once when computing the percentage of successful launches")
+    @Test
+    public void shouldLoadLaunchesOnceForPercentageOfSuccessfulLaunches() {
+        when(dao.loadAll(Launch.class)).thenReturn(launches);
+        miner.percentageOfSuccessfulLaunchesForProviders();
+        verify(dao, times(1)).loadAll(Launch.class);
+    }
+
+    @DisplayName("should mine a launch fact table the same as the loaded launches")
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3})
+    public void shouldMineFactTableSameAsLoadedLaunches(int k) {
+        when(dao.loadAll(Launch.class)).thenReturn(launches);
+        when(dao.loadAll(LaunchServiceProvider.class)).thenReturn(lsps);
+        saveLaunches();
+        for (int i = 0; i < launches.size(); i++) {
+            launches.get(i).setPrice(new BigDecimal(i % 4 * 10 + "." + i));
+        }
+        RocketMiner columnar = new RocketMiner(dao, LaunchFactTable.of(launches));
+
+        assertEquals(miner.mostLaunchedRockets(k), columnar.mostLaunchedRockets(k));
+        assertEquals(miner.mostReliableLaunchServiceProviders(k), columnar.mostReliableLaunchServiceProviders(k));
+        assertEquals(miner.mostRecentLaunches(k), columnar.mostRecentLaunches(k));
+        assertEquals(miner.mostExpensiveLaunches(k), columnar.mostExpensiveLaunches(k));
+        assertEquals(miner.mostRecentSuccessfulLaunches(), columnar.mostRecentSuccessfulLaunches());
+        assertEquals(miner.dominantCountry("LEO"), columnar.dominantCountry("LEO"));
+    }
+
+    @DisplayName("should only load the selected launches of a launch fact table")
+    @Test
+    public void shouldLoadOnlySelectedLaunchesOfFactTable() {
+        saveLaunches();
+        RocketMiner columnar = new RocketMiner(dao, LaunchFactTable.of(launches));
+
+        List<Launch> sortedLaunches = new ArrayList<>(launches);
+        sortedLaunches.sort((a, b) -> -a.getLaunchDate().compareTo(b.getLaunchDate()));
+        assertEquals(sortedLaunches.subList(0, 2), columnar.mostRecentLaunches(2));
+        verify(dao, times(2)).load(eq(Launch.class), anyLong());
+        verify(dao, never()).loadAll(Launch.class);
+    }
+
+    /*
+     * give the launches ids, and load them by id from the DAO
+     * */
+    private void saveLaunches() {
+        for (int i = 0; i < launches.size(); i++) {
+            Launch launch = launches.get(i);
+            launch.setId((long) i);
+            when(dao.load(Launch.class, (long) i)).thenReturn(launch);
+        }
+    }
+
+    @DisplayName("should push aggregations down to the DAO instead of loading the launches")
+    @Test
+    public void shouldPushAggregationsDownToDAO() {
+        when(dao.aggregate(AggregateQuery.mostLaunchedRockets(2))).thenReturn(rockets.subList(0, 2));
+        when(dao.aggregate(AggregateQuery.highestRevenueLaunchServiceProviders(1, 2017))).thenReturn(lsps.subList(1, 2));
+        when(dao.aggregate(AggregateQuery.payloadsPerCountry("LEO"))).thenReturn(Collections.singletonList(
+                new AbstractMap.SimpleImmutableEntry<>("Europe ", 3)));
+        miner.setPushdown(true);
+
+        assertEquals(rockets.subList(0, 2), miner.mostLaunchedRockets(2));
+        assertEquals(lsps.subList(1, 2), miner.highestRevenueLaunchServiceProviders(1, 2017));
+        assertEquals("Europe ", miner.dominantCountry("LEO"));
+        verify(dao, never()).loadAll(Launch.class);
+        verify(dao, never()).loadAll(LaunchServiceProvider.class);
+    }
+
+    @DisplayName("should rank revenue ties the same when pushed down to the DAO as when mined")
+    @Test
+    public void shouldRankRevenueTiesSameWhenPushedDown() {
+        DAO inMemory = new InMemoryDAO();
+        // providers saved in the reverse of their name order
+        String[] names = new String[]{"Delta", "Charlie", "Bravo", "Alpha"};
+        String[] prices = new String[]{"50", "50", "0", "-5"};
+        for (int i = 0; i < 4; i++) {
+            LaunchServiceProvider lsp = new LaunchServiceProvider(names[i], 2000, "USA");
+            Launch launch = new Launch();
+            launch.setLaunchVehicle(new Rocket("Rocket" + i, "ccc", "USA", lsp));
+            launch.setLaunchServiceProvider(lsp);
+            launch.setLaunchDate(LocalDate.of(2017, 1, 1));
+            launch.setLaunchSite("VAFB");
+            launch.setOrbit("LEO");
+            launch.setPrice(new BigDecimal(prices[i]));
+            launch.setLaunchOutcome(Launch.LaunchOutcome.SUCCESSFUL);
+            inMemory.createOrUpdate(launch);
+        }
+        RocketMiner mined = new RocketMiner(inMemory);
+        RocketMiner pushedDown = new RocketMiner(inMemory);
+        pushedDown.setPushdown(true);
+
+        List<String> expected = Arrays.asList("Charlie", "Delta", "Alpha", "Bravo");
+        assertEquals(expected, mined.highestRevenueLaunchServiceProviders(4, 2017).stream().map(LaunchServiceProvider::getName).collect(Collectors.toList()));
+        for (int k = 0; k <= 4; k++) {
+            assertEquals(mined.highestRevenueLaunchServiceProviders(k, 2017), pushedDown.highestRevenueLaunchServiceProviders(k, 2017));
+            assertEquals(mined.highestRevenueLaunchServiceProviders(k, 2018), pushedDown.highestRevenueLaunchServiceProviders(k, 2018));
+        }
+    }
+
+    @DisplayName("should return the same results when streaming the launches as when loading them")
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3, 100})
+    public void shouldMineStreamedLaunchesSameAsLoaded(int fetchSize) {
+        when(dao.loadAll(Launch.class)).thenReturn(launches);
+        when(dao.loadAll(LaunchServiceProvider.class)).thenReturn(lsps);
+        when(dao.stream(Launch.class, fetchSize)).thenAnswer(invocation -> launches.stream());
+        RocketMiner streaming = new RocketMiner(dao);
+        streaming.setFetchSize(fetchSize);
+
+        for (int k = 1; k <= 3; k++) {
+            assertEquals(miner.mostLaunchedRockets(k), streaming.mostLaunchedRockets(k));
+            assertEquals(miner.mostRecentLaunches(k), streaming.mostRecentLaunches(k));
+            assertEquals(miner.highestRevenueLaunchServiceProviders(k, 2017), streaming.highestRevenueLaunchServiceProviders(k, 2017));
+        }
+        assertEquals(miner.mostRecentSuccessfulLaunches(), streaming.mostRecentSuccessfulLaunches());
+        assertEquals(miner.percentageOfSuccessfulLaunchesForProviders(), streaming.percentageOfSuccessfulLaunchesForProviders());
+        assertEquals(miner.dominantCountry("LEO"), streaming.dominantCountry("LEO"));
+        assertEquals(miner.launchesInYear(2017), streaming.launchesInYear(2017));
+
+        clearInvocations(dao);
+        streaming.mostRecentLaunches(2);
+        streaming.dominantCountry("LEO");
+        verify(dao, never()).loadAll(Launch.class);
+        verify(dao, times(2)).stream(Launch.class, fetchSize);
+    }
+
+    @DisplayName("should return the same results in parallel as sequentially")
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 100})
+    public void shouldMineInParallelSameAsSequentially(int threshold) {
+        when(dao.loadAll(Launch.class)).thenReturn(launches);
+        when(dao.loadAll(LaunchServiceProvider.class)).thenReturn(lsps);
+        String[] prices = new String[]{"12.11", "40.3", "50.32", "7.8", "123.32", "5.4", "345.43", "567.5", "45443.3", "123.3"};
+        for (int i = 0; i < 10; i++) {
+            launches.get(i).setPrice(new BigDecimal(prices[i]));
+        }
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            RocketMiner parallel = new RocketMiner(dao);
+            parallel.setParallelism(pool, threshold);
+            for (int k = 1; k <= 3; k++) {
+                assertEquals(miner.mostLaunchedRockets(k), parallel.mostLaunchedRockets(k));
+                assertEquals(miner.mostReliableLaunchServiceProviders(k), parallel.mostReliableLaunchServiceProviders(k));
+                assertEquals(miner.mostRecentLaunches(k), parallel.mostRecentLaunches(k));
+                assertEquals(miner.mostExpensiveLaunches(k), parallel.mostExpensiveLaunches(k));
+                assertEquals(miner.highestRevenueLaunchServiceProviders(k, 2017), parallel.highestRevenueLaunchServiceProviders(k, 2017));
+            }
+            assertEquals(miner.numOfSuccessfulLunchesForRockets(), parallel.numOfSuccessfulLunchesForRockets());
+            assertEquals(miner.percentageOfSuccessfulLaunchesForProviders(), parallel.percentageOfSuccessfulLaunchesForProviders());
+            assertEquals(miner.dominantCountry("LEO"), parallel.dominantCountry("LEO"));
+
+            saveLaunches();
+            RocketMiner columnar = new RocketMiner(dao, LaunchFactTable.of(launches));
+            columnar.setParallelism(pool, threshold);
+            for (int k = 1; k <= 3; k++) {
+                assertEquals(miner.mostRecentLaunches(k), columnar.mostRecentLaunches(k));
+            }
+            assertEquals(miner.numOfSuccessfulLunchesForRockets(), columnar.numOfSuccessfulLunchesForRockets());
+            assertEquals(miner.percentageOfSuccessfulLaunchesForProviders(), columnar.percentageOfSuccessfulLaunchesForProviders());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
     @DisplayName("should return highest revenue launch service prodivers")
     @ParameterizedTest
     @CsvSource({
@@ -282,6 +466,27 @@ public class RocketMinerUnitTest {
         assertEquals(got.subList(0, k), got);
     }
 
+    @DisplayName("should return highest revenue launch service providers over a range of years")
+    @Test
+    public void shouldHighestRevenueLaunchServiceProvidersOverYears() {
+        when(dao.loadAll(LaunchServiceProvider.class)).thenReturn(lsps);
+        when(dao.loadAll(Launch.class)).thenReturn(launches);
+        // rockets 0-2 are made by ULA and rocket 3 by SpaceX
+        String[] prices = new String[]{"12.11", "40.3", "50.32", "7.8", "123.32", "5.4", "345.43", "567.5", "45443.3", "123.3"};
+        int[] years = new int[]{2015, 2016, 2017, 2017, 2018, 2018, 2019, 2020, 2021, 2016};
+        for (int i = 0; i < 10; i++) {
+            launches.get(i).setPrice(new BigDecimal(prices[i]));
+            launches.get(i).setLaunchDate(LocalDate.of(years[i], 1, 1));
+        }
+
+        assertEquals(Arrays.asList(lsps.get(0), lsps.get(1)), miner.highestRevenueLaunchServiceProviders(2, 2015, 2020));
+        assertEquals(Arrays.asList(lsps.get(1), lsps.get(0)), miner.highestRevenueLaunchServiceProviders(2, 2016, 2016));
+        verify(dao, never()).loadAll(LaunchServiceProvider.class);
+        assertEquals(Arrays.asList(lsps.get(0), lsps.get(1), lsps.get(2)), miner.highestRevenueLaunchServiceProviders(3, 2015, 2020));
+        // providers without revenue in the order of RevenueIndex.BY_PROVIDER
+        assertEquals(Arrays.asList(lsps.get(2), lsps.get(1), lsps.get(0)), miner.highestRevenueLaunchServiceProviders(3, 1990, 1999));
+    }
+
     @DisplayName("should return the dominant country")
     @ParameterizedTest
     @ValueSource(strings = {"LEO", "GTO", "Other"})
@@ -298,43 +503,47 @@ public class RocketMinerUnitTest {
 
         // count the payload of each launch (group by country)
         HashMap<String, Integer> count = new HashMap<>();
-        count.put("USA", 0);
-        count.put("Europe ", 0);
         for(Launch launch : launches) {
             if(launch.getOrbit().equals(orbit)) {
                 LaunchServiceProvider lsp = launch.getLaunchServiceProvider();
-                if(lsp.getCountry() == "USA") {
-                    int cur = count.get("USA");
-                    count.put(lsp.getCountry(), cur + launch.getPayload().size());
-                }
-                if(lsp.getCountry() == "Europe ") {
-                    int cur = count.get("Europe ");
-                    count.put(lsp.getCountry(), cur + launch.getPayload().size());
-                }
+                count.merge(lsp.getCountry(), launch.getPayload().size(), Integer::sum);
             }
         }
-        // find the country who send the most payload to the orbit
-        //sort
-        Map<String, Integer> sorted = count
+        // find the country who send the most payload to the orbit, ties broken by name
+        String expectedDominantCountry = count
                 .entrySet()
                 .stream()
-                .sorted(Collections.reverseOrder(Map.Entry.comparingByValue()))
-                .collect(
-                        Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (e1, e2) -> e2,
-                                LinkedHashMap::new));
-
-        String expectedDominantCountry = "";
-        for (Map.Entry<String, Integer> entry : sorted.entrySet()) {
-            expectedDominantCountry = entry.getKey();
-            if (expectedDominantCountry != null) {
-                break;
-            }
-        }
+                .sorted(Collections.reverseOrder(Map.Entry.<String, Integer>comparingByValue())
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .map(Map.Entry::getKey)
+                .findFirst()
+                .orElse(null);
 
         String dominantCountry = miner.dominantCountry(orbit);
         assertEquals(expectedDominantCountry, dominantCountry);
     }
 
+    @DisplayName("should return the dominant country over a range of years")
+    @Test
+    public void shouldReturnDominantCountryOverYears() {
+        when(dao.loadAll(Launch.class)).thenReturn(launches);
+        // launches 2, 5, 8 are by ESA, the others by providers from the USA
+        int[] years = new int[]{2015, 2016, 2016, 2016, 2017, 2017, 2018, 2018, 2018, 2019};
+        for (int i = 0; i < 10; i++) {
+            launches.get(i).setLaunchDate(LocalDate.of(years[i], 1, 1));
+            launches.get(i).setPayload(new HashSet<>(Arrays.asList(Arrays.copyOf(new String[]{"a", "b", "c"}, i % 3 + 1))));
+        }
+        launches.get(9).setOrbit("GTO");
+
+        // 9 payloads each, ties are broken by name
+        assertEquals("Europe ", miner.dominantCountry("LEO"));
+        assertEquals("Europe ", miner.dominantCountry("LEO", 2016, 2016));
+        assertEquals("Europe ", miner.dominantCountry("LEO", 2017, 2018));
+        assertEquals("USA", miner.dominantCountry("LEO", 2015, 2016));
+        assertEquals("USA", miner.dominantCountry("GTO", 2000, 2030));
+        assertEquals(null, miner.dominantCountry("GTO", 2000, 2018));
+    }
+
     @DisplayName("should return the most expensive launches")
     @ParameterizedTest
     @ValueSource(ints = {1, 2, 3})
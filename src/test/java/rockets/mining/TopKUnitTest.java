@@ -0,0 +1,83 @@
+package rockets.mining;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TopKUnitTest {
+    private static final Comparator<String> BY_LENGTH = Comparator.comparingInt(String::length);
+
+    @DisplayName("should select the same elements as sorting and limiting")
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 3, 10, 50})
+    public void shouldSelectSameElementsAsSortAndLimit(int k) {
+        Random random = new Random(k);
+        List<Integer> elements = IntStream.range(0, 1000).map(i -> random.nextInt(100)).boxed().collect(Collectors.toList());
+        Comparator<Integer> comparator = Comparator.reverseOrder();
+
+        List<Integer> expected = elements.stream().sorted(comparator).limit(k).collect(Collectors.toList());
+        assertEquals(expected, TopK.select(elements, k, comparator));
+        assertEquals(expected, TopK.select(elements.stream(), k, comparator));
+    }
+
+    @DisplayName("should keep ties in encounter order")
+    @Test
+    public void shouldKeepTiesInEncounterOrder() {
+        List<String> elements = Arrays.asList("bb", "a", "cc", "d", "ee", "f");
+        assertEquals(Arrays.asList("a", "d", "f", "bb"), TopK.select(elements, 4, BY_LENGTH));
+    }
+
+    @DisplayName("should return all elements when k is larger than the number of elements")
+    @Test
+    public void shouldReturnAllElementsWhenKIsLarge() {
+        List<String> elements = Arrays.asList("ccc", "a", "bb");
+        assertEquals(Arrays.asList("a", "bb", "ccc"), TopK.select(elements, 10, BY_LENGTH));
+    }
+
+    @DisplayName("should select the same elements in parallel as sequentially")
+    @ParameterizedTest
+    @ValueSource(ints = {1, 7, 100})
+    public void shouldSelectSameElementsInParallel(int k) {
+        Random random = new Random(k);
+        List<String> elements = IntStream.range(0, 10000)
+                .mapToObj(i -> random.nextInt(20) + ":" + i)
+                .collect(Collectors.toList());
+        Comparator<String> comparator = Comparator.comparing(s -> s.substring(0, s.indexOf(':')));
+
+        assertEquals(TopK.select(elements, k, comparator), TopK.parallelSelect(elements, k, comparator));
+        assertEquals(TopK.select(elements, k, comparator), TopK.parallelSelect(new LinkedHashSet<>(elements), k, comparator));
+    }
+
+    @DisplayName("should not allocate for k up front")
+    @Test
+    public void shouldSelectWithMaximumK() {
+        List<String> elements = Arrays.asList("ccc", "a", "bb");
+        assertEquals(Arrays.asList("a", "bb", "ccc"), TopK.select(elements, Integer.MAX_VALUE, BY_LENGTH));
+        assertEquals(Arrays.asList("a", "bb", "ccc"), TopK.parallelSelect(elements, Integer.MAX_VALUE, BY_LENGTH));
+    }
+
+    @DisplayName("should merge two selectors")
+    @Test
+    public void shouldMergeSelectors() {
+        TopK<Integer> left = new TopK<>(2, Comparator.naturalOrder());
+        TopK<Integer> right = new TopK<>(2, Comparator.naturalOrder());
+        Arrays.asList(5, 3, 9).forEach(left::add);
+        Arrays.asList(4, 1, 8).forEach(right::add);
+        assertEquals(Arrays.asList(1, 3), left.merge(right).toList());
+    }
+
+    @DisplayName("should throw exception when k is negative")
+    @Test
+    public void shouldThrowExceptionWhenKIsNegative() {
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> new TopK<>(-1, BY_LENGTH));
+        assertEquals("k cannot be negative", exception.getMessage());
+    }
+}
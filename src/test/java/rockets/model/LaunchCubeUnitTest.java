@@ -0,0 +1,124 @@
+package rockets.model;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LaunchCubeUnitTest {
+    private LaunchServiceProvider spacex;
+    private LaunchServiceProvider ula;
+    private LaunchServiceProvider esa;
+    private List<Launch> launches;
+    private LaunchCube cube;
+
+    @BeforeEach
+    public void setUp() {
+        spacex = new LaunchServiceProvider("SpaceX", 2002, "USA");
+        ula = new LaunchServiceProvider("ULA", 1990, "USA");
+        esa = new LaunchServiceProvider("ESA", 1975, "Europe");
+        launches = Arrays.asList(
+                newLaunch(spacex, "LEO", LocalDate.of(2016, 1, 1), 2),
+                newLaunch(ula, "LEO", LocalDate.of(2017, 1, 1), 1),
+                newLaunch(esa, "LEO", LocalDate.of(2017, 6, 1), 4),
+                newLaunch(esa, "GTO", LocalDate.of(2018, 1, 1), 1),
+                newLaunch(spacex, "GTO", null, 3));
+        cube = new LaunchCube();
+        launches.forEach(cube::add);
+    }
+
+    private static Launch newLaunch(LaunchServiceProvider lsp, String orbit, LocalDate date, int payloads) {
+        Launch launch = new Launch();
+        launch.setLaunchServiceProvider(lsp);
+        launch.setOrbit(orbit);
+        launch.setLaunchDate(date);
+        Set<String> payload = new HashSet<>();
+        for (int i = 0; i < payloads; i++) {
+            payload.add("payload_" + i);
+        }
+        launch.setPayload(payload);
+        return launch;
+    }
+
+    @DisplayName("should roll up payloads and launches by country")
+    @Test
+    public void shouldRollUpByCountry() {
+        Map<String, Integer> payloads = new HashMap<>();
+        payloads.put("USA", 3);
+        payloads.put("Europe", 4);
+        assertEquals(payloads, cube.getPayloadsPerCountry("LEO"));
+
+        Map<String, Integer> launches = new HashMap<>();
+        launches.put("USA", 2);
+        launches.put("Europe", 1);
+        assertEquals(launches, cube.getLaunchesPerCountry("LEO"));
+        assertTrue(cube.getPayloadsPerCountry("Other").isEmpty());
+        assertEquals(new HashSet<>(Arrays.asList("LEO", "GTO")), cube.getOrbits());
+    }
+
+    @DisplayName("should roll up payloads over a range of years, leaving out launches without a date")
+    @Test
+    public void shouldRollUpOverYears() {
+        assertEquals(Collections.singletonMap("USA", 2), cube.getPayloadsPerCountry("LEO", 2016, 2016));
+        assertEquals(Collections.singletonMap("Europe", 1), cube.getPayloadsPerCountry("GTO", 2000, 2030));
+        assertEquals(3, (int) cube.getPayloadsPerCountry("GTO").get("USA"));
+        assertThrows(IllegalArgumentException.class, () -> cube.getPayloadsPerCountry("LEO", 2018, 2016));
+    }
+
+    @DisplayName("should count launches and payloads per provider")
+    @Test
+    public void shouldCountPerProvider() {
+        assertEquals(1, cube.getLaunches("LEO", spacex));
+        assertEquals(1, cube.getLaunches("GTO", spacex));
+        assertEquals(3, cube.getPayloads("GTO", spacex));
+        assertEquals(0, cube.getLaunches("Other", spacex));
+    }
+
+    @DisplayName("should return the dominant country of an orbit, ties broken by name")
+    @Test
+    public void shouldReturnDominantCountry() {
+        assertEquals("Europe", cube.getDominantCountry("LEO"));
+        assertEquals("USA", cube.getDominantCountry("LEO", 2016, 2016));
+        assertEquals("USA", cube.getDominantCountry("GTO"));
+        assertNull(cube.getDominantCountry("Other"));
+
+        Map<String, String> dominant = new HashMap<>();
+        dominant.put("LEO", "Europe");
+        dominant.put("GTO", "Europe");
+        assertEquals(dominant, cube.getDominantCountries(2017, 2018));
+
+        cube.add(newLaunch(ula, "LEO", LocalDate.of(2017, 2, 1), 1));
+        assertEquals("Europe", cube.getDominantCountry("LEO"));
+        assertEquals("Europe", LaunchCube.dominantCountry(cube.getPayloadsPerCountry("LEO")));
+    }
+
+    @DisplayName("should take removed launches out of the cube")
+    @Test
+    public void shouldRemoveLaunches() {
+        cube.remove(launches.get(2));
+        assertEquals("USA", cube.getDominantCountry("LEO"));
+        assertFalse(cube.getLaunchesPerCountry("LEO").containsKey("Europe"));
+        assertEquals(0, cube.getLaunches("LEO", esa));
+    }
+
+    @DisplayName("should merge the cells of another cube")
+    @Test
+    public void shouldMergeCubes() {
+        LaunchCube first = new LaunchCube();
+        LaunchCube second = new LaunchCube();
+        launches.subList(0, 2).forEach(first::add);
+        launches.subList(2, launches.size()).forEach(second::add);
+        first.merge(second);
+
+        for (String orbit : Arrays.asList("LEO", "GTO")) {
+            assertEquals(cube.getPayloadsPerCountry(orbit), first.getPayloadsPerCountry(orbit));
+            assertEquals(cube.getLaunchesPerCountry(orbit), first.getLaunchesPerCountry(orbit));
+            assertEquals(cube.getPayloadsPerCountry(orbit, 2016, 2018), first.getPayloadsPerCountry(orbit, 2016, 2018));
+        }
+        assertEquals(cube.getLaunches("GTO", spacex), first.getLaunches("GTO", spacex));
+    }
+}
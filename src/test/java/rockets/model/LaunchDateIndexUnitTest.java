@@ -0,0 +1,79 @@
+package rockets.model;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LaunchDateIndexUnitTest {
+    private List<Launch> launches;
+    private LaunchDateIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        launches = new ArrayList<>();
+        LocalDate[] dates = new LocalDate[]{
+                LocalDate.of(2017, 3, 1), LocalDate.of(2015, 1, 1), LocalDate.of(2017, 3, 1),
+                LocalDate.of(2018, 12, 31), LocalDate.of(2016, 7, 4), null};
+        for (int i = 0; i < dates.length; i++) {
+            Launch launch = new Launch();
+            launch.setLaunchDate(dates[i]);
+            launch.setLaunchSite("site_" + i);
+            launches.add(launch);
+        }
+        index = LaunchDateIndex.of(launches);
+    }
+
+    @DisplayName("should not index launches without a date")
+    @Test
+    public void shouldSkipLaunchesWithoutDate() {
+        assertEquals(5, index.size());
+        assertFalse(index.add(new Launch()));
+    }
+
+    @DisplayName("should return the most recent launches, same-date launches in the order added")
+    @Test
+    public void shouldReturnMostRecentLaunches() {
+        assertEquals(Arrays.asList(launches.get(3), launches.get(0), launches.get(2)), index.getMostRecent(3));
+        assertEquals(5, index.getMostRecent(10).size());
+        assertEquals(Collections.emptyList(), index.getMostRecent(0));
+        assertThrows(IllegalArgumentException.class, () -> index.getMostRecent(-1));
+    }
+
+    @DisplayName("should return the launches between two dates, inclusive")
+    @Test
+    public void shouldReturnLaunchesBetweenDates() {
+        assertEquals(Arrays.asList(launches.get(4), launches.get(0), launches.get(2)),
+                index.getBetween(LocalDate.of(2016, 7, 4), LocalDate.of(2017, 3, 1)));
+        assertEquals(Collections.singletonList(launches.get(3)), index.getInYear(2018));
+        assertEquals(Collections.emptyList(), index.getInYear(2019));
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> index.getBetween(LocalDate.of(2018, 1, 1), LocalDate.of(2017, 1, 1)));
+        assertEquals("from date cannot be after to date", exception.getMessage());
+    }
+
+    @DisplayName("should remove a launch by identity at the date it was added")
+    @Test
+    public void shouldRemoveLaunchByIdentity() {
+        Launch moved = launches.get(0);
+        LocalDate added = moved.getLaunchDate();
+        moved.setLaunchDate(LocalDate.of(2020, 1, 1));
+
+        assertFalse(index.remove(moved, moved.getLaunchDate()));
+        assertTrue(index.remove(moved, added));
+        assertEquals(4, index.size());
+        assertEquals(Collections.singletonList(launches.get(2)), index.getInYear(2017));
+
+        index.add(moved);
+        assertEquals(Collections.singletonList(moved), index.getMostRecent(1));
+        assertTrue(index.remove(launches.get(2), added));
+        assertEquals(Collections.emptyList(), index.getInYear(2017));
+    }
+}
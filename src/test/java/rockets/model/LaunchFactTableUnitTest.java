@@ -0,0 +1,103 @@
+package rockets.model;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LaunchFactTableUnitTest {
+    private LaunchServiceProvider spacex;
+    private LaunchServiceProvider esa;
+    private Rocket falcon;
+    private Launch launch;
+
+    @BeforeEach
+    public void setUp() {
+        spacex = new LaunchServiceProvider("SpaceX", 2002, "USA");
+        esa = new LaunchServiceProvider("ESA", 1975, "Europe");
+        falcon = new Rocket("Falcon", "Block", "USA", spacex);
+
+        launch = new Launch();
+        launch.setId(42L);
+        launch.setLaunchDate(LocalDate.of(2017, 3, 30));
+        launch.setLaunchVehicle(falcon);
+        launch.setLaunchServiceProvider(esa);
+        launch.setLaunchSite("KSC");
+        launch.setOrbit("GTO");
+        launch.setPrice(new BigDecimal("62.005"));
+        launch.setLaunchOutcome(Launch.LaunchOutcome.SUCCESSFUL);
+        launch.setPayload(new HashSet<>(Arrays.asList("SES-10", "Dragon")));
+    }
+
+    @DisplayName("should store the facts of a launch in columns")
+    @Test
+    public void shouldStoreFactsInColumns() {
+        LaunchFactTable table = new LaunchFactTable();
+        int row = table.append(launch);
+
+        assertEquals(0, row);
+        assertEquals(1, table.size());
+        assertTrue(table.hasLaunchId(row));
+        assertEquals(42L, table.getLaunchId(row));
+        assertEquals(LocalDate.of(2017, 3, 30).toEpochDay(), table.getEpochDay(row));
+        assertTrue(table.hasPrice(row));
+        assertEquals(6201, table.getPriceCents(row));
+        assertTrue(table.isSuccessful(row));
+        assertEquals(2, table.getPayloadCount(row));
+        assertEquals(falcon, table.getRocket(table.getRocketId(row)));
+        assertEquals(esa, table.getProvider(table.getProviderId(row)));
+        assertEquals(spacex, table.getProvider(table.getManufacturerId(table.getRocketId(row))));
+        assertEquals("Europe", table.getCountry(table.getCountryId(table.getProviderId(row))));
+        assertEquals("GTO", table.getOrbit(table.getOrbitId(row)));
+        assertEquals("KSC", table.getSite(table.getSiteId(row)));
+    }
+
+    @DisplayName("should assign the same dictionary id to equal values")
+    @Test
+    public void shouldShareDictionaryIds() {
+        Launch other = new Launch();
+        other.setLaunchVehicle(new Rocket("Falcon", "Block", "USA", spacex));
+        other.setOrbit("GTO");
+        LaunchFactTable table = LaunchFactTable.of(Arrays.asList(launch, other));
+
+        assertEquals(table.getRocketId(0), table.getRocketId(1));
+        assertEquals(table.getOrbitId(0), table.getOrbitId(1));
+        assertEquals(table.getOrbitId(0), table.findOrbitId("GTO"));
+        assertEquals(LaunchFactTable.NO_ID, table.findOrbitId("LEO"));
+        assertEquals(1, table.getRocketCount());
+        assertEquals(2, table.getProviderCount());
+    }
+
+    @DisplayName("should mark missing facts")
+    @Test
+    public void shouldMarkMissingFacts() {
+        LaunchFactTable table = LaunchFactTable.of(Arrays.asList(new Launch()));
+
+        assertFalse(table.hasLaunchId(0));
+        assertEquals(LaunchFactTable.NO_DATE, table.getEpochDay(0));
+        assertFalse(table.hasPrice(0));
+        assertFalse(table.isSuccessful(0));
+        assertEquals(LaunchFactTable.NO_ID, table.getRocketId(0));
+        assertEquals(LaunchFactTable.NO_ID, table.getProviderId(0));
+        assertEquals(LaunchFactTable.NO_ID, table.getOrbitId(0));
+        assertEquals(0, table.getPayloadCount(0));
+    }
+
+    @DisplayName("should grow beyond its initial capacity")
+    @Test
+    public void shouldGrow() {
+        LaunchFactTable table = new LaunchFactTable();
+        for (int i = 0; i < 100; i++) {
+            table.append(launch);
+        }
+        assertEquals(100, table.size());
+        assertEquals(42L, table.getLaunchId(99));
+        assertThrows(IndexOutOfBoundsException.class, () -> table.getEpochDay(100));
+    }
+}
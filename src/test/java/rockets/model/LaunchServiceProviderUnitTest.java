@@ -11,6 +11,11 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import com.google.common.collect.Sets;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashSet;
 import java.util.Set;
 
 
@@ -93,4 +98,56 @@ class LaunchServiceProviderUnitTest {
         NullPointerException exception = assertThrows(NullPointerException.class, () -> target.setRockets(null));
         assertEquals("rockets cannot be null or empty", exception.getMessage());
     }
+
+    @DisplayName("should sum the launch prices of the rockets of a provider by year")
+    @Test
+    public void shouldReturnTotalRevenueOfYears() {
+        Rocket rocket = new Rocket("Falcon", "Block", "USA", target);
+        Set<Launch> launches = new HashSet<>();
+        int[] years = new int[]{2015, 2017, 2017, 2020};
+        String[] prices = new String[]{"10.5", "20", "30.25", "40"};
+        for (int i = 0; i < years.length; i++) {
+            Launch launch = new Launch();
+            launch.setLaunchDate(LocalDate.of(years[i], 1 + i, 1));
+            launch.setPrice(new BigDecimal(prices[i]));
+            launch.setLaunchVehicle(rocket);
+            launches.add(launch);
+        }
+        rocket.setLaunches(launches);
+        target.setRockets(Sets.newHashSet(rocket));
+
+        assertEquals(0, new BigDecimal("50.25").compareTo(target.getTotalRevenue(2017)));
+        assertEquals(0, BigDecimal.ZERO.compareTo(target.getTotalRevenue(2016)));
+        assertEquals(0, new BigDecimal("60.75").compareTo(target.getTotalRevenue(2015, 2019)));
+        assertEquals(0, new BigDecimal("100.75").compareTo(target.getTotalRevenue(2000, 2030)));
+
+        Launch launch = new Launch();
+        launch.setLaunchDate(LocalDate.of(2016, 1, 1));
+        launch.setPrice(new BigDecimal("5"));
+        Set<Launch> moreLaunches = new HashSet<>(launches);
+        moreLaunches.add(launch);
+        rocket.setLaunches(moreLaunches);
+        assertEquals(0, new BigDecimal("5").compareTo(target.getTotalRevenue(2016)));
+    }
+
+    @DisplayName("should count the launches of the rockets of a provider to an orbit")
+    @Test
+    public void shouldReturnLaunchesToOrbit() {
+        Rocket rocket = new Rocket("Falcon", "Block", "USA", target);
+        Set<Launch> launches = new HashSet<>();
+        String[] orbits = new String[]{"LEO", "LEO", "GTO"};
+        for (int i = 0; i < orbits.length; i++) {
+            Launch launch = new Launch();
+            launch.setLaunchDate(LocalDate.of(2017, 1 + i, 1));
+            launch.setOrbit(new String(orbits[i]));
+            launch.setLaunchVehicle(rocket);
+            launches.add(launch);
+        }
+        rocket.setLaunches(launches);
+        target.setRockets(Sets.newHashSet(rocket));
+
+        assertEquals(2, target.getDominant("LEO"));
+        assertEquals(1, target.getDominant("GTO"));
+        assertEquals(0, target.getDominant("Other"));
+    }
 }
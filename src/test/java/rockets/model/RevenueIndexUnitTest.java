@@ -0,0 +1,102 @@
+package rockets.model;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RevenueIndexUnitTest {
+    private LaunchServiceProvider spacex;
+    private LaunchServiceProvider esa;
+    private LaunchServiceProvider ula;
+    private RevenueIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        spacex = new LaunchServiceProvider("SpaceX", 2002, "USA");
+        esa = new LaunchServiceProvider("ESA", 1975, "Europe");
+        ula = new LaunchServiceProvider("ULA", 1990, "USA");
+        index = new RevenueIndex();
+        index.add(2015, spacex, new BigDecimal("10"));
+        index.add(2015, esa, new BigDecimal("20"));
+        index.add(2017, spacex, new BigDecimal("15"));
+        index.add(2017, spacex, new BigDecimal("25"));
+        index.add(2017, ula, new BigDecimal("5"));
+        index.add(2020, esa, new BigDecimal("30"));
+    }
+
+    @DisplayName("should sum revenue of a provider in a year")
+    @Test
+    public void shouldSumRevenueInYear() {
+        assertEquals(new BigDecimal("40"), index.getRevenue(spacex, 2017));
+        assertEquals(BigDecimal.ZERO, index.getRevenue(esa, 2017));
+        assertEquals(BigDecimal.ZERO, index.getRevenue(esa, 1999));
+    }
+
+    @DisplayName("should sum revenue over a range of years")
+    @Test
+    public void shouldSumRevenueOverYears() {
+        assertEquals(new BigDecimal("50"), index.getRevenue(spacex, 2015, 2020));
+        assertEquals(new BigDecimal("50"), index.getRevenue(esa, 2015, 2020));
+        assertEquals(new BigDecimal("20"), index.getRevenue(esa, 2010, 2019));
+
+        Map<LaunchServiceProvider, BigDecimal> expected = new HashMap<>();
+        expected.put(spacex, new BigDecimal("40"));
+        expected.put(ula, new BigDecimal("5"));
+        expected.put(esa, new BigDecimal("30"));
+        assertEquals(expected, index.getRevenue(2016, 2020));
+    }
+
+    @DisplayName("should throw exception when the range of years is reversed")
+    @Test
+    public void shouldThrowExceptionWhenRangeIsReversed() {
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> index.getRevenue(spacex, 2020, 2015));
+        assertEquals("from year cannot be after to year", exception.getMessage());
+    }
+
+    @DisplayName("should rank providers by revenue, ties broken by name")
+    @Test
+    public void shouldRankProvidersByRevenue() {
+        assertEquals(Arrays.asList(spacex, ula), index.getRanking(2017));
+        assertEquals(Arrays.asList(esa, spacex, ula), index.getRanking(2015, 2020));
+        assertEquals(Collections.emptyList(), index.getRanking(1999));
+
+        index.add(2017, ula, new BigDecimal("35"));
+        assertEquals(Arrays.asList(spacex, ula), index.getRanking(2017));
+        index.add(2017, esa, new BigDecimal("40"));
+        assertEquals(Arrays.asList(esa, spacex, ula), index.getRanking(2017));
+    }
+
+    @DisplayName("should keep a ranking until the revenue of its year changes")
+    @Test
+    public void shouldReuseRankingUntilYearChanges() {
+        List<LaunchServiceProvider> ranking = index.getRanking(2017);
+        index.add(2015, ula, new BigDecimal("100"));
+        assertSame(ranking, index.getRanking(2017));
+        index.add(2017, ula, new BigDecimal("100"));
+        assertNotSame(ranking, index.getRanking(2017));
+        assertEquals(Arrays.asList(ula, spacex), index.getRanking(2017));
+    }
+
+    @DisplayName("should merge the revenue of another index")
+    @Test
+    public void shouldMergeIndexes() {
+        RevenueIndex other = new RevenueIndex();
+        other.add(2017, esa, new BigDecimal("1"));
+        other.add(2017, spacex, new BigDecimal("-40"));
+        index.merge(other);
+
+        assertEquals(new BigDecimal("1"), index.getRevenue(esa, 2017));
+        // revenue that sums to zero is dropped
+        assertEquals(BigDecimal.ZERO, index.getRevenue(spacex, 2017));
+        assertEquals(Arrays.asList(ula, esa), index.getRanking(2017));
+    }
+}
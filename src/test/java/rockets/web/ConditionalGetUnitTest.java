@@ -0,0 +1,101 @@
+package rockets.web;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import rockets.dataaccess.DatasetVersion;
+import rockets.model.Launch;
+import spark.HaltException;
+import spark.Request;
+import spark.Response;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ConditionalGetUnitTest {
+    private DatasetVersion version;
+    private ConditionalGet conditionalGet;
+    private Request req;
+    private Response res;
+
+    @BeforeEach
+    public void setUp() {
+        version = new DatasetVersion();
+        conditionalGet = new ConditionalGet(version);
+        req = mock(Request.class);
+        res = mock(Response.class);
+        when(req.requestMethod()).thenReturn("GET");
+    }
+
+    private String currentEtag() {
+        return ConditionalGet.etagOf(version.getCreatedMillis(), version.get());
+    }
+
+    @DisplayName("should set the ETag and Last-Modified of the current version and let the request through")
+    @Test
+    public void shouldSetValidators() {
+        conditionalGet.handle(req, res);
+        verify(res).header("ETag", currentEtag());
+        verify(res).header("Last-Modified", ConditionalGet.formatDate(version.getLastModifiedMillis()));
+        verify(res).header("Cache-Control", "no-cache");
+    }
+
+    @DisplayName("should answer a matching If-None-Match with 304 until the next write")
+    @Test
+    public void shouldHaltWhenEtagMatches() {
+        String etag = currentEtag();
+        when(req.headers("If-None-Match")).thenReturn("\"other\", " + etag);
+        HaltException halt = assertThrows(HaltException.class, () -> conditionalGet.handle(req, res));
+        assertEquals(304, halt.statusCode());
+
+        version.entitySaved(new Launch());
+        assertNotEquals(etag, currentEtag());
+        conditionalGet.handle(req, res);
+        verify(res).header("ETag", currentEtag());
+    }
+
+    @DisplayName("should not answer other methods than GET and HEAD")
+    @Test
+    public void shouldIgnoreOtherMethods() {
+        when(req.requestMethod()).thenReturn("POST");
+        when(req.headers("If-None-Match")).thenReturn("*");
+        conditionalGet.handle(req, res);
+        verifyZeroInteractions(res);
+    }
+
+    @DisplayName("should tag versions of different runs differently")
+    @Test
+    public void shouldTagRunsDifferently() {
+        assertNotEquals(ConditionalGet.etagOf(1000, 0), ConditionalGet.etagOf(2000, 0));
+        assertNotEquals(ConditionalGet.etagOf(1000, 0), ConditionalGet.etagOf(1000, 1));
+    }
+
+    @DisplayName("should compare If-None-Match weakly and give it precedence over If-Modified-Since")
+    @Test
+    public void shouldCompareValidators() {
+        String etag = "\"k-1\"";
+        long lastModified = 1_600_000_000_500L;
+        String date = ConditionalGet.formatDate(lastModified);
+        assertTrue(ConditionalGet.isNotModified(etag, null, etag, lastModified));
+        assertTrue(ConditionalGet.isNotModified("W/" + etag, null, etag, lastModified));
+        assertTrue(ConditionalGet.isNotModified("*", null, etag, lastModified));
+        assertFalse(ConditionalGet.isNotModified("\"k-0\"", date, etag, lastModified));
+
+        assertTrue(ConditionalGet.isNotModified(null, date, etag, lastModified));
+        assertFalse(ConditionalGet.isNotModified(null, ConditionalGet.formatDate(lastModified - 1000), etag, lastModified));
+        assertFalse(ConditionalGet.isNotModified(null, "yesterday", etag, lastModified));
+        assertFalse(ConditionalGet.isNotModified(null, null, etag, lastModified));
+        assertEquals("Sun, 13 Sep 2020 12:26:40 GMT", date);
+    }
+
+    @DisplayName("should move Last-Modified forward on every write")
+    @Test
+    public void shouldTrackLastModified() throws InterruptedException {
+        long created = version.getLastModifiedMillis();
+        assertEquals(version.getCreatedMillis(), created);
+        Thread.sleep(5);
+        version.entityDeleted(new Launch());
+        assertTrue(version.getLastModifiedMillis() > created);
+        assertEquals(1, version.get());
+    }
+}
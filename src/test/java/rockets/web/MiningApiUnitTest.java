@@ -0,0 +1,151 @@
+package rockets.web;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import rockets.dataaccess.DAO;
+import rockets.dataaccess.memory.InMemoryDAO;
+import rockets.mining.RocketMiner;
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MiningApiUnitTest {
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private MiningApi api;
+    private Map<String, String> params;
+
+    @BeforeEach
+    public void setUp() {
+        DAO dao = new InMemoryDAO();
+        LaunchServiceProvider spacex = new LaunchServiceProvider("SpaceX", 2002, "USA");
+        LaunchServiceProvider ula = new LaunchServiceProvider("ULA", 2006, "USA");
+        Rocket falcon = new Rocket("Falcon 9", "Block 5", "USA", spacex);
+        Rocket atlas = new Rocket("Atlas V", "401", "USA", ula);
+        dao.createOrUpdate(launch(falcon, spacex, LocalDate.of(2019, 5, 1), "LEO", "62", Launch.LaunchOutcome.SUCCESSFUL));
+        dao.createOrUpdate(launch(falcon, spacex, LocalDate.of(2020, 1, 1), "GTO", "62", Launch.LaunchOutcome.SUCCESSFUL));
+        dao.createOrUpdate(launch(atlas, ula, LocalDate.of(2020, 3, 1), "GTO", "109", Launch.LaunchOutcome.FAILED));
+        api = new MiningApi(new RocketMiner(dao));
+        params = new HashMap<>();
+    }
+
+    private static Launch launch(Rocket rocket, LaunchServiceProvider lsp, LocalDate date, String orbit,
+                                 String price, Launch.LaunchOutcome outcome) {
+        Launch launch = new Launch();
+        launch.setLaunchVehicle(rocket);
+        launch.setLaunchServiceProvider(lsp);
+        launch.setLaunchDate(date);
+        launch.setLaunchSite("VAFB");
+        launch.setOrbit(orbit);
+        launch.setPrice(new BigDecimal(price));
+        launch.setLaunchOutcome(outcome);
+        return launch;
+    }
+
+    private JsonNode query(String query) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        api.write(query, params::get, out);
+        return mapper.readTree(out.toByteArray());
+    }
+
+    static Set<String> queries() {
+        return MiningApi.getQueries();
+    }
+
+    @DisplayName("should write every query as valid JSON")
+    @ParameterizedTest
+    @MethodSource("queries")
+    public void shouldWriteEveryQuery(String query) throws IOException {
+        params.put("year", "2020");
+        params.put("orbit", "GTO");
+        params.put("from", "2019-01-01");
+        params.put("to", "2020-12-31");
+        assertNotNull(query(query));
+    }
+
+    @DisplayName("should write the top-k rockets with their manufacturer by name")
+    @Test
+    public void shouldWriteMostLaunchedRockets() throws IOException {
+        params.put("k", "1");
+        JsonNode rockets = query("most-launched-rockets");
+        assertEquals(1, rockets.size());
+        assertEquals("Falcon 9", rockets.get(0).get("name").asText());
+        assertEquals("SpaceX", rockets.get(0).get("manufacturer").asText());
+        assertTrue(rockets.get(0).get("id").isNumber());
+    }
+
+    @DisplayName("should write launches with their date, price and outcome")
+    @Test
+    public void shouldWriteLaunches() throws IOException {
+        params.put("k", "1");
+        JsonNode launch = query("most-expensive-launches").get(0);
+        assertEquals("2020-03-01", launch.get("launchDate").asText());
+        assertEquals("Atlas V", launch.get("rocket").asText());
+        assertEquals("ULA", launch.get("provider").asText());
+        assertEquals(new BigDecimal("109"), launch.get("price").decimalValue());
+        assertEquals("FAILED", launch.get("outcome").asText());
+
+        params.put("from", "2019-01-01");
+        params.put("to", "2019-12-31");
+        assertEquals(1, query("launches-between").size());
+        params.put("year", "2020");
+        assertEquals(2, query("launches-in-year").size());
+    }
+
+    @DisplayName("should write the dominant country and the revenue leaders of a year")
+    @Test
+    public void shouldWriteDominantCountryAndRevenue() throws IOException {
+        params.put("orbit", "GTO");
+        JsonNode dominant = query("dominant-country");
+        assertEquals("GTO", dominant.get("orbit").asText());
+        assertEquals("USA", dominant.get("country").asText());
+
+        params.put("k", "1");
+        params.put("year", "2020");
+        assertEquals("ULA", query("highest-revenue-providers").get(0).get("name").asText());
+    }
+
+    @DisplayName("should reject unknown queries and missing or invalid parameters without writing anything")
+    @Test
+    public void shouldRejectInvalidRequests() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertThrows(IllegalArgumentException.class, () -> api.write("nothing", params::get, out));
+        assertThrows(IllegalArgumentException.class, () -> api.write("dominant-country", params::get, out));
+        assertThrows(IllegalArgumentException.class, () -> api.write("launches-in-year", params::get, out));
+        params.put("k", "many");
+        assertThrows(IllegalArgumentException.class, () -> api.write("most-recent-launches", params::get, out));
+        params.put("k", "-1");
+        assertThrows(IllegalArgumentException.class, () -> api.write("most-recent-launches", params::get, out));
+        params.put("k", String.valueOf(Integer.MAX_VALUE));
+        IllegalArgumentException tooMany = assertThrows(IllegalArgumentException.class,
+                () -> api.write("most-expensive-launches", params::get, out));
+        assertEquals("k must be from 0 to 1000: 2147483647", tooMany.getMessage());
+        params.put("from", "yesterday");
+        params.put("to", "2020-01-01");
+        assertThrows(IllegalArgumentException.class, () -> api.write("launches-between", params::get, out));
+        assertEquals(0, out.size());
+    }
+
+    @DisplayName("should write an error as a JSON object")
+    @Test
+    public void shouldWriteError() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        api.writeError("k must be an integer: \"x\"", out);
+        assertEquals("k must be an integer: \"x\"", mapper.readTree(out.toByteArray()).get("error").asText());
+    }
+}
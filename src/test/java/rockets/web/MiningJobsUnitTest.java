@@ -0,0 +1,262 @@
+package rockets.web;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import rockets.dataaccess.DAO;
+import rockets.dataaccess.memory.InMemoryDAO;
+import rockets.mining.RocketMiner;
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class MiningJobsUnitTest {
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+    private DAO dao;
+    private MiningApi blockingApi;
+    private CountDownLatch started;
+    private CountDownLatch release;
+    private AtomicInteger runs;
+    private MiningJobs jobs;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        dao = mock(DAO.class);
+        started = new CountDownLatch(1);
+        release = new CountDownLatch(1);
+        runs = new AtomicInteger();
+        // a query that runs until it is released or interrupted
+        blockingApi = mock(MiningApi.class);
+        doAnswer(invocation -> {
+            runs.incrementAndGet();
+            started.countDown();
+            release.await();
+            invocation.<OutputStream>getArgument(2).write("[]".getBytes());
+            return null;
+        }).when(blockingApi).write(anyString(), any(), any());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (null != jobs) {
+            jobs.shutdown();
+        }
+    }
+
+    private static Launch launch(Rocket rocket, LaunchServiceProvider lsp, LocalDate date) {
+        Launch launch = new Launch();
+        launch.setLaunchVehicle(rocket);
+        launch.setLaunchServiceProvider(lsp);
+        launch.setLaunchDate(date);
+        launch.setLaunchSite("VAFB");
+        launch.setOrbit("LEO");
+        launch.setPrice(new BigDecimal("62"));
+        launch.setLaunchOutcome(Launch.LaunchOutcome.SUCCESSFUL);
+        return launch;
+    }
+
+    private JsonNode status(MiningJobs.Job job) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        jobs.writeStatus(job, out);
+        return mapper.readTree(out.toByteArray());
+    }
+
+    @DisplayName("should run a query in the background and keep its result")
+    @Test
+    public void shouldRunQueries() throws Exception {
+        DAO dao = new InMemoryDAO();
+        LaunchServiceProvider spacex = new LaunchServiceProvider("SpaceX", 2002, "USA");
+        Rocket falcon = new Rocket("Falcon 9", "Block 5", "USA", spacex);
+        dao.createOrUpdate(launch(falcon, spacex, LocalDate.of(2019, 5, 1)));
+        dao.createOrUpdate(launch(falcon, spacex, LocalDate.of(2020, 1, 1)));
+        jobs = new MiningJobs(new MiningApi(new RocketMiner(dao)), dao, 1, 4, 10, 60_000, 60_000, now::get);
+
+        MiningJobs.Job job = jobs.submit("most-recent-launches", Collections.singletonMap("k", "1"));
+        assertSame(job, jobs.await(job.getId(), 10, TimeUnit.SECONDS));
+        assertEquals(MiningJobs.State.SUCCEEDED, job.getState());
+
+        JsonNode status = status(job);
+        assertEquals(job.getId(), status.get("id").asText());
+        assertEquals("most-recent-launches", status.get("query").asText());
+        assertEquals("1", status.get("params").get("k").asText());
+        assertEquals("SUCCEEDED", status.get("state").asText());
+        assertEquals(1, status.get("result").size());
+        assertEquals("2020-01-01", status.get("result").get(0).get("launchDate").asText());
+    }
+
+    @DisplayName("should fail a job whose parameters are invalid")
+    @Test
+    public void shouldFailInvalidParameters() throws Exception {
+        DAO dao = new InMemoryDAO();
+        jobs = new MiningJobs(new MiningApi(new RocketMiner(dao)), dao, 1, 4, 10, 60_000, 60_000, now::get);
+        MiningJobs.Job job = jobs.submit("launches-in-year", Collections.singletonMap("year", "soon"));
+        jobs.await(job.getId(), 10, TimeUnit.SECONDS);
+        assertEquals(MiningJobs.State.FAILED, job.getState());
+        assertNotNull(job.getError());
+        assertNull(status(job).get("result"));
+    }
+
+    @DisplayName("should refuse an unknown query")
+    @Test
+    public void shouldRefuseUnknownQueries() {
+        jobs = new MiningJobs(blockingApi, dao, 1, 4, 10, 60_000, 60_000, now::get);
+        assertThrows(IllegalArgumentException.class, () -> jobs.submit("everything", new HashMap<>()));
+        assertEquals(0, jobs.size());
+    }
+
+    @DisplayName("should reject a job when the queue is full")
+    @Test
+    public void shouldRejectWhenQueueIsFull() throws Exception {
+        jobs = new MiningJobs(blockingApi, dao, 1, 1, 10, 60_000, 60_000, now::get);
+        MiningJobs.Job running = jobs.submit("most-launched-rockets", new HashMap<>());
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        MiningJobs.Job queued = jobs.submit("most-launched-rockets", new HashMap<>());
+        assertThrows(RejectedExecutionException.class, () -> jobs.submit("most-launched-rockets", new HashMap<>()));
+        assertEquals(2, jobs.size());
+        assertEquals(MiningJobs.State.RUNNING, running.getState());
+        assertEquals(MiningJobs.State.QUEUED, queued.getState());
+
+        release.countDown();
+        jobs.await(queued.getId(), 10, TimeUnit.SECONDS);
+        assertEquals(MiningJobs.State.SUCCEEDED, running.getState());
+        assertEquals(MiningJobs.State.SUCCEEDED, queued.getState());
+        assertEquals("[]", queued.getResult());
+    }
+
+    @DisplayName("should keep at most the maximum number of jobs, until their results expire")
+    @Test
+    public void shouldExpireResults() throws Exception {
+        release.countDown();
+        jobs = new MiningJobs(blockingApi, dao, 1, 4, 2, 60_000, 60_000, now::get);
+        MiningJobs.Job first = jobs.submit("most-launched-rockets", new HashMap<>());
+        jobs.await(first.getId(), 10, TimeUnit.SECONDS);
+        now.addAndGet(30_000);
+        MiningJobs.Job second = jobs.submit("most-launched-rockets", new HashMap<>());
+        jobs.await(second.getId(), 10, TimeUnit.SECONDS);
+        assertThrows(RejectedExecutionException.class, () -> jobs.submit("most-launched-rockets", new HashMap<>()));
+
+        now.addAndGet(30_000);
+        assertNull(jobs.get(first.getId()));
+        assertSame(second, jobs.get(second.getId()));
+        assertNotNull(jobs.submit("most-launched-rockets", new HashMap<>()));
+        assertNull(jobs.get("no-such-job"));
+    }
+
+    @DisplayName("should cancel queued and running jobs, but not finished ones")
+    @Test
+    public void shouldCancelJobs() throws Exception {
+        jobs = new MiningJobs(blockingApi, dao, 1, 4, 10, 60_000, 60_000, now::get);
+        MiningJobs.Job running = jobs.submit("most-launched-rockets", new HashMap<>());
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        MiningJobs.Job queued = jobs.submit("most-launched-rockets", new HashMap<>());
+
+        assertSame(queued, jobs.cancel(queued.getId()));
+        assertEquals(MiningJobs.State.CANCELLED, queued.getState());
+        // interrupts the query waiting to be released
+        jobs.cancel(running.getId());
+        assertEquals(MiningJobs.State.CANCELLED, running.getState());
+        assertNull(running.getResult());
+        assertEquals("CANCELLED", status(running).get("state").asText());
+
+        MiningJobs.Job next = jobs.submit("most-launched-rockets", new HashMap<>());
+        release.countDown();
+        jobs.await(next.getId(), 10, TimeUnit.SECONDS);
+        assertEquals(MiningJobs.State.SUCCEEDED, next.getState());
+        assertEquals(MiningJobs.State.SUCCEEDED, jobs.cancel(next.getId()).getState());
+        // the cancelled queued job never ran
+        assertEquals(2, runs.get());
+        // workers clear their session just after a job is marked done
+        verify(dao, timeout(1000).times(2)).clearSession();
+        assertNull(jobs.cancel("no-such-job"));
+    }
+
+    @DisplayName("should time out a job that runs too long")
+    @Test
+    public void shouldTimeOutJobs() throws Exception {
+        jobs = new MiningJobs(blockingApi, dao, 1, 4, 10, 60_000, 50, now::get);
+        MiningJobs.Job job = jobs.submit("most-launched-rockets", new HashMap<>());
+        jobs.await(job.getId(), 10, TimeUnit.SECONDS);
+        assertEquals(MiningJobs.State.TIMED_OUT, job.getState());
+        assertEquals("timed out after 50 ms", job.getError());
+    }
+
+    @DisplayName("should return a job still running when a wait times out")
+    @Test
+    public void shouldReturnRunningJobsAfterWaiting() throws Exception {
+        jobs = new MiningJobs(blockingApi, dao, 1, 4, 10, 60_000, 60_000, now::get);
+        MiningJobs.Job job = jobs.submit("most-launched-rockets", new HashMap<>());
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        assertSame(job, jobs.await(job.getId(), 20, TimeUnit.MILLISECONDS));
+        assertEquals(MiningJobs.State.RUNNING, job.getState());
+        assertNull(status(job).get("finished"));
+        release.countDown();
+    }
+
+    @DisplayName("should fail a job whose query throws an error, so that it still expires")
+    @Test
+    public void shouldFailJobsOnErrors() throws Exception {
+        MiningApi failingApi = mock(MiningApi.class);
+        doThrow(new StackOverflowError()).when(failingApi).write(anyString(), any(), any());
+        jobs = new MiningJobs(failingApi, dao, 1, 4, 1, 60_000, 60_000, now::get);
+        MiningJobs.Job job = jobs.submit("most-launched-rockets", new HashMap<>());
+        jobs.await(job.getId(), 10, TimeUnit.SECONDS);
+        assertEquals(MiningJobs.State.FAILED, job.getState());
+        assertEquals("java.lang.StackOverflowError", job.getError());
+
+        now.addAndGet(60_000);
+        assertNotNull(jobs.submit("most-launched-rockets", new HashMap<>()));
+    }
+
+    @DisplayName("should keep at most the maximum number of jobs when they are submitted at once")
+    @Test
+    public void shouldBoundConcurrentSubmits() throws Exception {
+        jobs = new MiningJobs(blockingApi, dao, 1, 100, 5, 60_000, 60_000, now::get);
+        ExecutorService clients = Executors.newFixedThreadPool(8);
+        try {
+            CountDownLatch go = new CountDownLatch(1);
+            List<Future<Boolean>> submits = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                submits.add(clients.submit(() -> {
+                    go.await();
+                    try {
+                        jobs.submit("most-launched-rockets", new HashMap<>());
+                        return true;
+                    } catch (RejectedExecutionException e) {
+                        return false;
+                    }
+                }));
+            }
+            go.countDown();
+            int accepted = 0;
+            for (Future<Boolean> submit : submits) {
+                accepted += submit.get() ? 1 : 0;
+            }
+            assertEquals(5, accepted);
+            assertEquals(5, jobs.size());
+        } finally {
+            release.countDown();
+            clients.shutdown();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package rockets.web;
+
+import rockets.dataaccess.LatencyHistogram;
+import rockets.dataaccess.memory.InMemoryDAO;
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+import rockets.model.User;
+import spark.Spark;
+import spark.resource.ClassPathResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Measures the latency and the bytes on the wire of large listings served by {@link App}, uncompressed and with each
+ * encoding of {@link ResponseCompression}, over HTTP on the port of app.properties with compression enabled there.
+ * The pages are served from an {@link InMemoryDAO}, so that the times are those of rendering, compressing and
+ * sending. Requests send no If-None-Match, so that they are never answered with 304.
+ * <p>
+ * Not a unit test; run it from the test classpath with
+ * {@code java -cp target/classes:target/test-classes:<dependencies> rockets.web.ResponseCompressionBenchmark [requests]}.
+ */
+public class ResponseCompressionBenchmark {
+    private static final List<String> PATHS = Arrays.asList(
+            "/rockets?size=100",
+            "/users?size=100",
+            "/api/mining/most-recent-launches?k=500",
+            "/export/launches?format=ndjson");
+
+    private static final List<String> ENCODINGS = Arrays.asList("identity", "gzip", "deflate");
+
+    public static void main(String[] args) throws Exception {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        InMemoryDAO dao = new InMemoryDAO();
+        seed(dao);
+        App.setDao(dao);
+        App.main(null);
+        Spark.awaitInitialization();
+        int port;
+        try (InputStream stream = new ClassPathResource("app.properties").getInputStream()) {
+            Properties properties = new Properties();
+            properties.load(stream);
+            port = Integer.parseInt(properties.getProperty("spark.port"));
+        }
+        try {
+            System.out.println(String.format("%-40s %-9s %10s %10s %10s %10s", "path", "encoding",
+                    "bytes", "mean (ms)", "p50 (ms)", "p99 (ms)"));
+            for (String path : PATHS) {
+                URL url = new URL("http://localhost:" + port + path);
+                for (String encoding : ENCODINGS) {
+                    // warm up
+                    for (int i = 0; i < requests / 5; i++) {
+                        get(url, encoding);
+                    }
+                    LatencyHistogram latencies = new LatencyHistogram();
+                    long bytes = 0;
+                    for (int i = 0; i < requests; i++) {
+                        long start = System.nanoTime();
+                        bytes = get(url, encoding);
+                        latencies.record(System.nanoTime() - start);
+                    }
+                    System.out.println(String.format("%-40s %-9s %10d %10.3f %10.3f %10.3f", path, encoding, bytes,
+                            latencies.getMean() / 1e6, latencies.getValueAtPercentile(50) / 1e6,
+                            latencies.getValueAtPercentile(99) / 1e6));
+                }
+            }
+        } finally {
+            App.stop();
+        }
+    }
+
+    /*
+     * the number of bytes of the body as sent, still compressed
+     */
+    private static long get(URL url, String encoding) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestProperty("Accept-Encoding", encoding);
+        long bytes = 0;
+        byte[] buffer = new byte[8192];
+        try (InputStream in = connection.getInputStream()) {
+            for (int n; (n = in.read(buffer)) > 0; ) {
+                bytes += n;
+            }
+        }
+        return bytes;
+    }
+
+    private static void seed(InMemoryDAO dao) {
+        List<LaunchServiceProvider> providers = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            providers.add(new LaunchServiceProvider("Provider" + letters(i), 1950 + i, "USA"));
+        }
+        List<Rocket> rockets = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            rockets.add(new Rocket("Rocket" + letters(i), "Block " + (i % 5), "USA", providers.get(i % providers.size())));
+        }
+        dao.createOrUpdateAll(rockets);
+        List<Launch> launches = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            Launch launch = new Launch();
+            launch.setLaunchVehicle(rockets.get(i % rockets.size()));
+            launch.setLaunchServiceProvider(rockets.get(i % rockets.size()).getManufacturer());
+            launch.setLaunchDate(LocalDate.of(1990, 1, 1).plusDays(i * 7L));
+            launch.setLaunchSite("Site" + (i % 7));
+            launch.setOrbit(i % 3 == 0 ? "GTO" : "LEO");
+            launch.setPrice(BigDecimal.valueOf(50 + i % 100));
+            launch.setLaunchOutcome(i % 10 == 0 ? Launch.LaunchOutcome.FAILED : Launch.LaunchOutcome.SUCCESSFUL);
+            launches.add(launch);
+        }
+        dao.createOrUpdateAll(launches);
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            User user = new User();
+            user.setEmail("user" + i + "@example.com");
+            user.setFirstName("First");
+            user.setLastName("Last");
+            user.setPassword("password" + i);
+            users.add(user);
+        }
+        dao.createOrUpdateAll(users);
+    }
+
+    /*
+     * names may only contain letters
+     */
+    private static String letters(int i) {
+        StringBuilder letters = new StringBuilder();
+        do {
+            letters.append((char) ('A' + i % 26));
+            i /= 26;
+        } while (i > 0);
+        return letters.toString();
+    }
+}
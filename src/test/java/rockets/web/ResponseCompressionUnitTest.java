@@ -0,0 +1,171 @@
+package rockets.web;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import spark.Request;
+import spark.Response;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static rockets.web.ResponseCompression.Encoding.*;
+
+public class ResponseCompressionUnitTest {
+    private ResponseCompression compression;
+    private Request req;
+    private Response res;
+    private HttpServletResponse raw;
+    private ByteArrayOutputStream body;
+    private Map<String, String> headers;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        compression = new ResponseCompression(1024, -1, 2);
+        body = new ByteArrayOutputStream();
+        headers = new HashMap<>();
+        raw = mock(HttpServletResponse.class);
+        when(raw.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+        });
+        doAnswer(invocation -> headers.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(raw).setHeader(anyString(), anyString());
+        when(raw.getHeader(anyString())).then(invocation -> headers.get(invocation.<String>getArgument(0)));
+        res = mock(Response.class);
+        when(res.raw()).thenReturn(raw);
+        req = mock(Request.class);
+    }
+
+    private static byte[] page(int size) {
+        StringBuilder page = new StringBuilder();
+        Random random = new Random(42);
+        while (page.length() < size) {
+            page.append("<tr><td>rocket_").append(random.nextInt(1000)).append("</td></tr>\n");
+        }
+        return page.substring(0, size).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void send(String acceptEncoding, byte[] page) throws IOException {
+        when(req.headers("Accept-Encoding")).thenReturn(acceptEncoding);
+        try (OutputStream out = compression.open(req, res)) {
+            // in uneven chunks, as a writer would
+            for (int offset = 0; offset < page.length; offset += 777) {
+                out.write(page, offset, Math.min(777, page.length - offset));
+            }
+        }
+    }
+
+    @DisplayName("should negotiate gzip or deflate from the weights of Accept-Encoding")
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "gzip, deflate, br|GZIP",
+            "deflate|DEFLATE",
+            "gzip;q=0.5, deflate|DEFLATE",
+            "gzip;q=0, deflate;q=0|IDENTITY",
+            "*|GZIP",
+            "*;q=0, deflate|DEFLATE",
+            "br, identity|IDENTITY",
+            "X-GZIP;q=0.8|GZIP",
+            "gzip;q=nan?|IDENTITY",
+            "''|IDENTITY"})
+    public void shouldNegotiateEncoding(String acceptEncoding, ResponseCompression.Encoding expected) {
+        assertEquals(expected, ResponseCompression.negotiate(acceptEncoding));
+        assertEquals(IDENTITY, ResponseCompression.negotiate(null));
+    }
+
+    @DisplayName("should send a body under the threshold as it is, with its length")
+    @Test
+    public void shouldNotCompressSmallBodies() throws IOException {
+        byte[] page = page(1024);
+        send("gzip", page);
+        assertArrayEquals(page, body.toByteArray());
+        verify(raw).setContentLength(1024);
+        verify(raw).addHeader("Vary", "Accept-Encoding");
+        verify(raw, never()).setHeader(eq("Content-Encoding"), anyString());
+    }
+
+    @DisplayName("should gzip a body over the threshold and tag its ETag")
+    @Test
+    public void shouldGzipLargeBodies() throws IOException {
+        headers.put("ETag", "\"k-1\"");
+        byte[] page = page(100_000);
+        send("gzip, deflate", page);
+        assertEquals("gzip", headers.get("Content-Encoding"));
+        assertEquals("\"k-1-gzip\"", headers.get("ETag"));
+        assertTrue(body.size() < page.length / 3);
+        assertArrayEquals(page, IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(body.toByteArray()))));
+        assertEquals(page.length, compression.getBytesIn());
+        assertEquals(body.size(), compression.getBytesOut());
+    }
+
+    @DisplayName("should deflate a body over the threshold in the zlib format")
+    @Test
+    public void shouldDeflateLargeBodies() throws IOException {
+        byte[] page = page(5000);
+        send("deflate", page);
+        assertEquals("deflate", headers.get("Content-Encoding"));
+        assertArrayEquals(page, IOUtils.toByteArray(new InflaterInputStream(new ByteArrayInputStream(body.toByteArray()))));
+    }
+
+    @DisplayName("should stream a large body as it is to a client that does not accept compression")
+    @Test
+    public void shouldStreamUncompressedBodies() throws IOException {
+        byte[] page = page(5000);
+        send(null, page);
+        assertArrayEquals(page, body.toByteArray());
+        verify(raw, never()).setContentLength(anyInt());
+        assertNull(headers.get("Content-Encoding"));
+    }
+
+    @DisplayName("should reuse the pooled deflaters across responses")
+    @Test
+    public void shouldReuseDeflaters() throws IOException {
+        for (int i = 0; i < 10; i++) {
+            body.reset();
+            byte[] page = page(2000 + i);
+            send("gzip", page);
+            assertArrayEquals(page, IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(body.toByteArray()))));
+        }
+        assertEquals(1, compression.getCreatedDeflaters());
+        send("deflate", page(2000));
+        assertEquals(2, compression.getCreatedDeflaters());
+    }
+
+    @DisplayName("should tag and untag ETags with an encoding")
+    @Test
+    public void shouldTagEtags() {
+        assertEquals("\"k-1-deflate\"", ResponseCompression.tagged("\"k-1\"", DEFLATE));
+        assertEquals("\"k-1\"", ResponseCompression.tagged("\"k-1\"", IDENTITY));
+        assertEquals("\"k-1\"", ResponseCompression.untagged("\"k-1-gzip\""));
+        assertEquals("\"k-1\"", ResponseCompression.untagged("\"k-1\""));
+        assertTrue(ConditionalGet.isNotModified("\"k-1-gzip\"", null, "\"k-1\"", 0));
+    }
+}
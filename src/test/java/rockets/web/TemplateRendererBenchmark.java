@@ -0,0 +1,101 @@
+package rockets.web;
+
+import spark.ModelAndView;
+import spark.template.freemarker.FreeMarkerEngine;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the render throughput of every page template, with the shared {@link TemplateRenderer} streaming into a
+ * writer and with a FreeMarkerEngine per route rendering into a String, as the routes of {@link App} used to. Also
+ * measures the first render of a template by a new FreeMarkerEngine, as on the first request of each route, and by
+ * a precompiled renderer.
+ * <p>
+ * Not a unit test; run it from the test classpath with
+ * {@code java -cp target/classes:target/test-classes:<dependencies> rockets.web.TemplateRendererBenchmark [seconds]}.
+ */
+public class TemplateRendererBenchmark {
+    private static final Writer SINK = new Writer() {
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    public static void main(String[] args) throws IOException {
+        long seconds = args.length > 0 ? Long.parseLong(args[0]) : 2;
+        Map<String, ModelAndView> views = new LinkedHashMap<>();
+        views.put("base_page.html.ftl", new ModelAndView(TemplateRendererUnitTest.userModel(), "base_page.html.ftl"));
+        views.put("user.html.ftl", new ModelAndView(TemplateRendererUnitTest.userModel(), "user.html.ftl"));
+        views.put("rockets.html.ftl", new ModelAndView(TemplateRendererUnitTest.rocketsModel(), "rockets.html.ftl"));
+        Map<String, Object> login = new HashMap<>();
+        login.put("user_name", "ada@example.com");
+        login.put("errorMsg", "Invalid email/password combination.");
+        views.put("login.html.ftl", new ModelAndView(login, "login.html.ftl"));
+        Map<String, Object> register = new HashMap<>();
+        register.put("email", "");
+        register.put("firstName", "");
+        register.put("lastName", "");
+        views.put("register.html.ftl", new ModelAndView(register, "register.html.ftl"));
+
+        TemplateRenderer renderer = new TemplateRenderer();
+        renderer.precompile();
+
+        System.out.println(String.format("%-20s %16s %16s %18s %18s", "template",
+                "shared renders/s", "engine renders/s", "engine first (ms)", "shared first (ms)"));
+        for (Map.Entry<String, ModelAndView> entry : views.entrySet()) {
+            ModelAndView view = entry.getValue();
+            long firstNanos = time(() -> new FreeMarkerEngine().render(view));
+            TemplateRenderer precompiled = new TemplateRenderer();
+            precompiled.precompile();
+            long sharedFirstNanos = time(() -> precompiled.render(view));
+            FreeMarkerEngine engine = new FreeMarkerEngine();
+            double engineRate = throughput(seconds, () -> engine.render(view));
+            double sharedRate = throughput(seconds, () -> {
+                try {
+                    renderer.render(view, SINK);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            System.out.println(String.format("%-20s %16.0f %16.0f %18.2f %18.2f", entry.getKey(),
+                    sharedRate, engineRate, firstNanos / 1e6, sharedFirstNanos / 1e6));
+        }
+    }
+
+    private static long time(Runnable render) {
+        long start = System.nanoTime();
+        render.run();
+        return System.nanoTime() - start;
+    }
+
+    /*
+     * renders per second after as long a warm-up as the measurement
+     */
+    private static double throughput(long seconds, Runnable render) {
+        long count = 0;
+        for (int run = 0; run < 2; run++) {
+            count = 0;
+            long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+            while (System.nanoTime() < end) {
+                for (int i = 0; i < 100; i++) {
+                    render.run();
+                }
+                count += 100;
+            }
+        }
+        return (double) count / seconds;
+    }
+}
@@ -0,0 +1,123 @@
+package rockets.web;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import rockets.dataaccess.Page;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+import rockets.model.User;
+import spark.ModelAndView;
+import spark.Request;
+import spark.Response;
+import spark.template.freemarker.FreeMarkerEngine;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class TemplateRendererUnitTest {
+    private TemplateRenderer renderer;
+
+    @BeforeEach
+    public void setUp() {
+        renderer = new TemplateRenderer();
+    }
+
+    static Map<String, Object> rocketsModel() {
+        LaunchServiceProvider spacex = new LaunchServiceProvider("SpaceX", 2002, "USA");
+        List<Rocket> rockets = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Rocket rocket = new Rocket("Falcon " + i, "Block 5", "USA", spacex);
+            rocket.setId(100L + i);
+            rockets.add(rocket);
+        }
+        Map<String, Object> model = new HashMap<>();
+        model.put("rockets", rockets);
+        model.put("page", new Page<>(rockets, 100L, 119L));
+        return model;
+    }
+
+    static Map<String, Object> userModel() {
+        User user = new User();
+        user.setId(7L);
+        user.setFirstName("Ada");
+        user.setLastName("Lovelace");
+        Map<String, Object> model = new HashMap<>();
+        model.put("user", user);
+        return model;
+    }
+
+    @DisplayName("should find every template on the classpath and parse them all")
+    @Test
+    public void shouldPrecompileEveryTemplate() throws IOException {
+        List<String> names = TemplateRenderer.getTemplateNames();
+        assertTrue(names.containsAll(Arrays.asList("base_page.html.ftl", "rockets.html.ftl", "users.html.ftl")));
+        assertEquals(names.size(), renderer.precompile());
+    }
+
+    @DisplayName("should render pages exactly as Spark's FreeMarkerEngine does")
+    @Test
+    public void shouldRenderLikeFreeMarkerEngine() {
+        FreeMarkerEngine engine = new FreeMarkerEngine();
+        for (ModelAndView view : Arrays.asList(
+                new ModelAndView(rocketsModel(), "rockets.html.ftl"),
+                new ModelAndView(userModel(), "base_page.html.ftl"),
+                new ModelAndView(new HashMap<>(), "base_page.html.ftl"))) {
+            String page = renderer.render(view);
+            assertEquals(engine.render(view), page);
+            assertFalse(page.isEmpty());
+        }
+        assertTrue(renderer.render(new ModelAndView(rocketsModel(), "rockets.html.ftl")).contains("Falcon 19"));
+    }
+
+    @DisplayName("should stream the view of a route to the response as UTF-8 HTML")
+    @Test
+    public void shouldStreamToResponse() throws Exception {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        HttpServletResponse raw = mock(HttpServletResponse.class);
+        when(raw.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+        });
+        Response res = mock(Response.class);
+        when(res.raw()).thenReturn(raw);
+
+        Map<String, Object> model = new HashMap<>();
+        model.put("user_name", "zoë@example.com");
+        ModelAndView view = new ModelAndView(model, "login.html.ftl");
+        assertEquals("", renderer.route((req, response) -> view).handle(mock(Request.class), res));
+        verify(res).type("text/html; charset=utf-8");
+        assertEquals(renderer.render(view), new String(body.toByteArray(), StandardCharsets.UTF_8));
+        assertTrue(new String(body.toByteArray(), StandardCharsets.UTF_8).contains("zoë@example.com"));
+    }
+
+    @DisplayName("should not render a redirected route")
+    @Test
+    public void shouldNotRenderCommittedResponse() throws Exception {
+        HttpServletResponse raw = mock(HttpServletResponse.class);
+        when(raw.isCommitted()).thenReturn(true);
+        Response res = mock(Response.class);
+        when(res.raw()).thenReturn(raw);
+        renderer.route((req, response) -> new ModelAndView(userModel(), "base_page.html.ftl")).handle(mock(Request.class), res);
+        verify(raw, never()).getOutputStream();
+    }
+}